@@ -0,0 +1,196 @@
+/**
+ * This file is part of Automate It!'s free and open source web and mobile 
+ * application testing framework.
+ * 
+ * Automate It! is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Automate It! is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Automate It!.  If not, see <http://www.gnu.org/licenses/>.
+ *  
+ **/
+
+package org.automateit.bench;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.util.Random;
+
+import org.automateit.data.DataDrivenInput;
+import org.automateit.data.DataDrivenInputFactory;
+
+/**
+ * Compares the memory and read time of the delimited data driven input 
+ * implementations on a generated CSV file (the map per row 
+ * <code>DataDrivenCSV</code>, <code>ColumnarDataDrivenInput</code> and 
+ * <code>MappedDelimitedDataDrivenInput</code>).
+ * <p>
+ * Each implementation is loaded once, without the data cache, and the heap 
+ * used after a full GC is compared with the heap used before loading. Run 
+ * with <code>ant benchmark_data_input</code> or:
+ * <pre>
+ * java -cp dist/automateit.jar:lib/*:classes_bench org.automateit.bench.DataDrivenInputBenchmark [rows] [reads]
+ * </pre>
+ * 
+ * @author mburnside
+ */
+public class DataDrivenInputBenchmark {
+    
+    /**
+     * The default number of rows generated
+     */
+    private static final int DEFAULT_ROWS = 200000;
+    
+    /**
+     * The default number of random reads
+     */
+    private static final int DEFAULT_READS = 2000000;
+    
+    /**
+     * The number of columns generated, including the data id
+     */
+    private static final int COLUMNS = 6;
+    
+    /**
+     * Run the comparison.
+     * 
+     * @param args rows and reads (optional)
+     * 
+     * @throws Exception 
+     */
+    public static void main(String[] args) throws Exception {
+        
+        int rows = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_ROWS;
+        
+        int reads = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_READS;
+        
+        File file = File.createTempFile("benchmark", ".csv");
+        
+        file.deleteOnExit();
+        
+        writeFile(file, rows);
+        
+        System.out.println("Rows: " + rows + ", columns: " + COLUMNS + ", file: " + (file.length() / 1024) + " KB, reads: " + reads + ", JDK " + System.getProperty("java.version") + ", max heap " + (Runtime.getRuntime().maxMemory() >> 20) + " MB");
+        
+        run("DataDrivenCSV (maps)", file, DataDrivenInputFactory.CSV, rows, reads);
+        
+        run("ColumnarDataDrivenInput", file, DataDrivenInputFactory.COLUMNAR_CSV, rows, reads);
+        
+        run("MappedDelimitedDataDrivenInput", file, DataDrivenInputFactory.MAPPED_CSV, rows, reads);
+        
+    }
+    
+    /**
+     * Load and read a file with one implementation and print the results.
+     * 
+     * @param name
+     * @param file
+     * @param id
+     * @param rows
+     * @param reads
+     * 
+     * @throws Exception 
+     */
+    private static void run(String name, File file, int id, int rows, int reads) throws Exception {
+        
+        long heapBefore = getUsedHeap();
+        
+        long start = System.nanoTime();
+        
+        DataDrivenInput input = new DataDrivenInputFactory().createDataDrivenInput(file.getPath(), id);
+        
+        long loadTime = (System.nanoTime() - start) / 1000000;
+        
+        // read every row once, so the lazy implementations are measured fully parsed
+        for(int i = 0; i < rows; i++) input.returnInputDataForDataIdAndColumnNumber(getDataId(i), 1);
+        
+        long heap = getUsedHeap() - heapBefore;
+        
+        Random random = new Random(42);
+        
+        long length = 0;
+        
+        start = System.nanoTime();
+        
+        for(int i = 0; i < reads; i++) {
+            
+            String value = input.returnInputDataForDataIdAndColumnNumber(getDataId(random.nextInt(rows)), 1 + random.nextInt(COLUMNS - 1));
+            
+            if(value != null) length += value.length();
+            
+        }
+        
+        long readTime = (System.nanoTime() - start) / 1000000;
+        
+        System.out.println(String.format("%-32s load %6d ms, heap %5d MB, %d random reads %6d ms (%d)", name, loadTime, heap >> 20, reads, readTime, length));
+        
+        // keep the input reachable until the heap is measured
+        if(input.getDataIds().isEmpty()) System.out.println("No rows read");
+        
+    }
+    
+    /**
+     * Write a CSV file: a unique data id and name per row, the other columns 
+     * drawn from a few distinct values, as test data usually is.
+     * 
+     * @param file
+     * @param rows
+     * 
+     * @throws Exception 
+     */
+    private static void writeFile(File file, int rows) throws Exception {
+        
+        BufferedWriter out = new BufferedWriter(new FileWriter(file));
+        
+        try {
+            
+            String[] cities = { "Boston", "Chicago", "Denver", "Houston", "Seattle" };
+            
+            for(int i = 0; i < rows; i++) {
+                
+                out.write(getDataId(i) + ",user" + i + "@example.com," + cities[i % cities.length] + "," + ((i % 2 == 0) ? "true" : "false") + "," + (i % 100) + ",status_" + (i % 7));
+                
+                out.newLine();
+                
+            }
+            
+        }
+        finally { out.close(); }
+        
+    }
+    
+    /**
+     * Get the data id of a row.
+     * 
+     * @param row
+     * 
+     * @return 
+     */
+    private static String getDataId(int row) { return "data_set_id_" + row; }
+    
+    /**
+     * Get the heap used after a full GC.
+     * 
+     * @return 
+     * 
+     * @throws Exception 
+     */
+    private static long getUsedHeap() throws Exception {
+        
+        Runtime runtime = Runtime.getRuntime();
+        
+        for(int i = 0; i < 3; i++) { System.gc(); Thread.sleep(100); }
+        
+        return runtime.totalMemory() - runtime.freeMemory();
+        
+    }
+    
+}
@@ -50,6 +50,9 @@ public enum BooleanCapabilities {
     RECORD_VIDEO("recordVideo"),
     MAXIMIZE_BROWSER_WINDOW("maximizeBrowserWindow"),
     USE_HTTP_AUTH("useHTTPAuth"),
+    USE_ELEMENT_CACHE("useElementCache"),
+    USE_WEB_DRIVER_POOL("useWebDriverPool"),
+    REUSE_APPIUM_SESSION("reuseAppiumSession"),
     USE_NEW_WEBDRIVER_AGENT("useNewWDA");
     
     /**
@@ -21,20 +21,15 @@ package org.automateit.core;
 import org.openqa.selenium.WebDriver;
 
 /**
- * Globally-accessible single instance class that retrieves the WebDriver implementation
- * being used.
+ * Globally-accessible class that retrieves the WebDriver implementation
+ * being used by the current execution context (thread), see <code>ExecutionContext</code>.
  */
 public class CommonWebDriver {
 
-    /**
-     * The instance of this singleton class
-     */
-    private static CommonWebDriver instance = new CommonWebDriver();
-    
     /**
      * Web Driver object
      */
-    private WebDriver driver = null;
+    private volatile WebDriver driver = null;
    
     /**
      * Default Constructor
@@ -42,11 +37,11 @@ public class CommonWebDriver {
     protected CommonWebDriver() {}
     
     /**
-     * Return the instance of this object.
+     * Return the instance of this object for the current execution context.
      * 
      * @return The instance of this object 
      */
-    public static CommonWebDriver getInstance() { return instance; }
+    public static CommonWebDriver getInstance() { return ExecutionContext.getCurrent().getCommonWebDriver(); }
     
     /**
      * Set the web driver object to be shared
@@ -0,0 +1,304 @@
+/**
+ * This file is part of Automate It!'s free and open source web and mobile 
+ * application testing framework.
+ * 
+ * Automate It! is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Automate It! is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Automate It!.  If not, see <http://www.gnu.org/licenses/>.
+ *  
+ **/
+
+package org.automateit.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.log4j.Logger;
+
+import org.automateit.util.CommandList;
+import org.automateit.util.PerformanceCapture;
+
+/**
+ * This class holds the state of a test execution - the web driver, the command log, 
+ * the page load performance capture and any reporter state (attributes).
+ * <p>
+ * Each thread has its own context, so tests can run in parallel (for example a TestNG suite 
+ * with <code>parallel="methods"</code>) in one JVM, each with its own browser/device, without
+ * cross-talk. <code>CommonWebDriver.getInstance()</code>, <code>CommandList.getInstance()</code> 
+ * and <code>PerformanceCapture.getInstance()</code> return the objects of the current context.
+ * <p>
+ * A thread started from a thread whose context already has a web driver (for example the 
+ * thread TestNG uses to run a test with a <code>timeOut</code>) shares that context. A context
+ * can also be attached to another thread explicitly with <code>setCurrent</code> (per test scope).
+ * <p>
+ * A context created for a thread by <code>getCurrent</code> is closed (and no longer tracked) 
+ * once its thread has ended, when the next such context is created; a context detached with 
+ * <code>removeCurrent</code> is no longer tracked.
+ * 
+ * @author mburnside
+ */
+public class ExecutionContext {
+    
+    /**
+     * The context of each thread
+     */
+    private static final InheritableThreadLocal<ExecutionContext> current = new InheritableThreadLocal<ExecutionContext>() {
+        
+        @Override
+        protected ExecutionContext childValue(ExecutionContext parent) {
+            
+            // only share the context when it is already driving a browser/device
+            if((parent != null) && (parent.getCommonWebDriver().getWebDriver() != null)) return parent;
+            
+            return null;
+            
+        }
+        
+    };
+    
+    /**
+     * All the contexts in use
+     */
+    private static final List<ExecutionContext> contexts = new CopyOnWriteArrayList<ExecutionContext>();
+    
+    /**
+     *  logging object
+     */
+    private static Logger logger = Logger.getLogger(ExecutionContext.class);
+    
+    /**
+     * The name of the context
+     */
+    private final String name;
+    
+    /**
+     * The thread the context was created for by <code>getCurrent</code> 
+     * (<code>null</code> otherwise)
+     */
+    private final Thread owner;
+    
+    /**
+     * The web driver holder
+     */
+    private final CommonWebDriver commonWebDriver = new CommonWebDriver();
+    
+    /**
+     * The command log
+     */
+    private final CommandList commandList = new CommandList();
+    
+    /**
+     * The page load performance capture
+     */
+    private final PerformanceCapture performanceCapture = new PerformanceCapture();
+    
+    /**
+     * Other state (for example of reporters)
+     */
+    private final Map<Object, Object> attributes = new ConcurrentHashMap<Object, Object>();
+    
+    /**
+     * Constructor.
+     * 
+     * @param name 
+     */
+    public ExecutionContext(String name) { this(name, null); }
+    
+    /**
+     * Constructor.
+     * 
+     * @param name
+     * @param owner 
+     */
+    private ExecutionContext(String name, Thread owner) { 
+        
+        this.name = name; 
+        
+        this.owner = owner;
+    
+    }
+    
+    /**
+     * Get the context of the current thread, creating it if needed.
+     * 
+     * @return 
+     */
+    public static ExecutionContext getCurrent() {
+        
+        ExecutionContext context = current.get();
+        
+        if(context == null) {
+            
+            closeEnded();
+            
+            context = new ExecutionContext(Thread.currentThread().getName(), Thread.currentThread());
+            
+            setCurrent(context);
+            
+        }
+        
+        return context;
+        
+    }
+    
+    /**
+     * Attach a context to the current thread.
+     * 
+     * @param context 
+     */
+    public static void setCurrent(ExecutionContext context) {
+        
+        current.set(context);
+        
+        if((context != null) && !contexts.contains(context)) {
+            
+            logger.debug("Using execution context: " + context.getName());
+            
+            contexts.add(context);
+            
+        }
+        
+    }
+    
+    /**
+     * Detach the context from the current thread and stop tracking it. The 
+     * context is not closed, the caller that attached it (for example 
+     * <code>ExecutionContextPool</code>) keeps it.
+     */
+    public static void removeCurrent() { 
+        
+        ExecutionContext context = current.get();
+        
+        current.remove();
+        
+        if(context != null) contexts.remove(context);
+    
+    }
+    
+    /**
+     * Get all the contexts in use.
+     * 
+     * @return 
+     */
+    public static List<ExecutionContext> getAll() { return new ArrayList<ExecutionContext>(contexts); }
+    
+    /**
+     * Close all the contexts in use.
+     */
+    public static void closeAll() { for(ExecutionContext context:contexts) context.close(); }
+    
+    /**
+     * Close the contexts created by <code>getCurrent</code> for threads that 
+     * have ended.
+     */
+    private static void closeEnded() {
+        
+        for(ExecutionContext context:contexts) {
+            
+            if((context.owner == null) || context.owner.isAlive()) continue;
+            
+            logger.debug("Closing the execution context of an ended thread: " + context.getName());
+            
+            context.close();
+            
+        }
+        
+    }
+    
+    /**
+     * Close the web driver and the command log of this context and stop 
+     * tracking it.
+     */
+    public void close() {
+        
+        closeWebDriver();
+        
+        commandList.close();
+        
+        contexts.remove(this);
+        
+    }
+    
+    /**
+     * Close (quit) the web driver of this context. The context keeps its 
+     * command log and attributes and can be given a new web driver.
+     */
+    public void closeWebDriver() {
+        
+        commonWebDriver.close();
+        
+        commonWebDriver.setWebDriver(null);
+        
+    }
+    
+    /**
+     * Get the name of the context.
+     * 
+     * @return 
+     */
+    public String getName() { return name; }
+    
+    /**
+     * Get the web driver holder of the context.
+     * 
+     * @return 
+     */
+    public CommonWebDriver getCommonWebDriver() { return commonWebDriver; }
+    
+    /**
+     * Get the command log of the context.
+     * 
+     * @return 
+     */
+    public CommandList getCommandList() { return commandList; }
+    
+    /**
+     * Get the page load performance capture of the context.
+     * 
+     * @return 
+     */
+    public PerformanceCapture getPerformanceCapture() { return performanceCapture; }
+    
+    /**
+     * Get an attribute.
+     * 
+     * @param key
+     * 
+     * @return The value or <code>null</code> if not set
+     */
+    public Object getAttribute(Object key) { return attributes.get(key); }
+    
+    /**
+     * Set (or remove when <code>null</code>) an attribute.
+     * 
+     * @param key
+     * @param value 
+     */
+    public void setAttribute(Object key, Object value) { 
+        
+        if(value == null) attributes.remove(key);
+        else attributes.put(key, value); 
+    
+    }
+    
+    /**
+     * Return the name of the context.
+     * 
+     * @return 
+     */
+    @Override
+    public String toString() { return "ExecutionContext[" + name + "]"; }
+    
+}
@@ -0,0 +1,185 @@
+/**
+ * This file is part of Automate It!'s free and open source web and mobile 
+ * application testing framework.
+ * 
+ * Automate It! is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Automate It! is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Automate It!.  If not, see <http://www.gnu.org/licenses/>.
+ *  
+ **/
+
+package org.automateit.core;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.remote.RemoteWebDriver;
+
+/**
+ * This class is a pool of execution contexts, each with its own web driver, 
+ * for tests that are run once per data set in parallel (see 
+ * <code>TestBase.provideDataDrivenInput</code>).
+ * <p>
+ * A test invocation takes a context with <code>acquire</code>, which makes it 
+ * the context of the current thread, and gives it back with 
+ * <code>release</code>. The context keeps the web driver the test created, 
+ * so the next invocation that gets the context reuses it instead of starting 
+ * a new browser/device. There are never more contexts than invocations 
+ * running at the same time. A context whose invocation failed, or whose web 
+ * driver has been quit, gives its web driver up, so the next invocation 
+ * starts a new one.
+ * 
+ * @author mburnside
+ */
+public class ExecutionContextPool {
+    
+    /**
+     *  logging object
+     */
+    private static Logger logger = Logger.getLogger(ExecutionContextPool.class);
+    
+    /**
+     * ExecutionContextPool instance
+     */
+    private static ExecutionContextPool instance = new ExecutionContextPool();
+    
+    /**
+     * Contexts not in use
+     */
+    private final Queue<ExecutionContext> idle = new ConcurrentLinkedQueue<ExecutionContext>();
+    
+    /**
+     * The context acquired by each thread
+     */
+    private final ThreadLocal<ExecutionContext> acquired = new ThreadLocal<ExecutionContext>();
+    
+    /**
+     * Number of contexts created
+     */
+    private final AtomicInteger created = new AtomicInteger();
+    
+    /**
+     * Default Constructor
+     */
+    private ExecutionContextPool() { }
+    
+    /**
+     * Return the instance of this object.
+     * 
+     * @return The instance of this object 
+     */
+    public static ExecutionContextPool getInstance() { return instance; }
+    
+    /**
+     * Take a context from the pool (or create one) and make it the context 
+     * of the current thread. A thread that already has a context from the 
+     * pool keeps it.
+     * 
+     * @return The context
+     */
+    public ExecutionContext acquire() {
+        
+        ExecutionContext context = acquired.get();
+        
+        if(context != null) return context;
+        
+        context = idle.poll();
+        
+        if(context == null) context = new ExecutionContext("PooledExecutionContext-" + created.incrementAndGet());
+        
+        acquired.set(context);
+        
+        ExecutionContext.setCurrent(context);
+        
+        logger.debug("Acquired: " + context + " on thread: " + Thread.currentThread().getName());
+        
+        return context;
+        
+    }
+    
+    /**
+     * Give the context of the current thread back to the pool and detach it 
+     * from the thread.
+     */
+    public void release() { release(false); }
+    
+    /**
+     * Give the context of the current thread back to the pool and detach it 
+     * from the thread. The web driver of the context is closed when the 
+     * invocation failed (it may have crashed or hung the browser/device) or 
+     * has already been quit.
+     * 
+     * @param failed Whether the invocation that used the context failed
+     */
+    public void release(boolean failed) {
+        
+        ExecutionContext context = acquired.get();
+        
+        if(context == null) return;
+        
+        acquired.remove();
+        
+        ExecutionContext.removeCurrent();
+        
+        if(failed || !isHealthy(context.getCommonWebDriver().getWebDriver())) {
+            
+            logger.info("Closing the web driver of: " + context + " (failed: " + failed + ")");
+            
+            context.closeWebDriver();
+            
+        }
+        
+        idle.offer(context);
+        
+        logger.debug("Released: " + context + " on thread: " + Thread.currentThread().getName());
+        
+    }
+    
+    /**
+     * Check that the web driver has not been quit. This is a local check, it 
+     * does not call the browser/device.
+     * 
+     * @param driver
+     * 
+     * @return 
+     */
+    private boolean isHealthy(WebDriver driver) {
+        
+        if(driver instanceof RemoteWebDriver) return ((RemoteWebDriver)driver).getSessionId() != null;
+        
+        return true;
+        
+    }
+    
+    /**
+     * Get the number of contexts created.
+     * 
+     * @return 
+     */
+    public int getSize() { return created.get(); }
+    
+    /**
+     * Close the contexts not in use (quitting their web drivers).
+     */
+    public void closeAll() {
+        
+        ExecutionContext context = null;
+        
+        while((context = idle.poll()) != null) context.close();
+        
+    }
+    
+}
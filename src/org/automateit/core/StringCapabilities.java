@@ -56,12 +56,35 @@ public enum StringCapabilities {
     ID_SELENIUM_DRIVER("seleniumDriverId"),
     DIRECTORY_SCREENSHOT("screenshotsDirectory"),
     DIRECTORY_PERFORMANCE("performanceDataDirectory"),
+    SCREENSHOT_POLICY("screenshotPolicy"),
+    SCREENSHOT_INTERVAL("screenshotInterval"),
+    SCREENSHOT_THROTTLE_TIME("screenshotThrottleTime"),
+    SCREENSHOT_QUEUE_SIZE("screenshotQueueSize"),
     FORCE_PAGE_LOAD_WAIT_TIME("forcePageLoadWaitTime"),
     EXTRA_WAIT_AJAX_COMPLETE("extraWaitTimeAfterAjaxComplete"),
     ID_PRODUCT("productId"),
     TARGET_ENVIRONMENT_KEY("target_environment"),
     ID_VIDEO_RECORDER("videoRecorderId"),
     JS_LIBRARY("jsLibrary"),
+    WEB_DRIVER_POOL_SIZE("webDriverPoolSize"),
+    WEB_DRIVER_POOL_MAX_USES("webDriverPoolMaxUses"),
+    APPIUM_SESSION_PRE_PROVISION("appiumSessionPreProvision"),
+    COMMAND_LIST_CAPACITY("commandListCapacity"),
+    COMMAND_LIST_SPILL_FILE("commandListSpillFile"),
+    PROMETHEUS_METRICS_PORT("prometheusMetricsPort"),
+    ALERT_DISPATCHER_THREADS("alertDispatcherThreads"),
+    ALERT_QUEUE_SIZE("alertQueueSize"),
+    ALERT_MAX_RETRIES("alertMaxRetries"),
+    ALERT_RETRY_BACKOFF("alertRetryBackoff"),
+    ALERT_COALESCE_WINDOW("alertCoalesceWindow"),
+    EXCEL_DATA_SHEET("excelDataSheet"),
+    EXCEL_DATA_NUMBERS("excelDataNumbers"),
+    ARCHIVE_FSYNC("archiveFsync"),
+    DATA_CACHE("dataCache"),
+    DATA_CACHE_DIRECTORY("dataCacheDirectory"),
+    DATA_PROVIDER_FILE("dataProviderFile"),
+    DATA_SHARD_INDEX("dataShardIndex"),
+    DATA_SHARD_COUNT("dataShardCount"),
     TIMEOUT("timeout"),
     YOUIENGINEAPPADDRESS("youiEngineAppAddress"),
     HTTP_AUTH_USERNAME("http.auth.username"),
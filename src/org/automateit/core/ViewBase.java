@@ -44,13 +44,17 @@ import static org.openqa.selenium.support.ui.ExpectedConditions.presenceOfElemen
 import static org.openqa.selenium.support.ui.ExpectedConditions.elementToBeClickable;
 import static org.openqa.selenium.support.ui.ExpectedConditions.visibilityOfElementLocated;
 
+import org.automateit.event.PrometheusMetrics;
+
 import org.automateit.ocr.OCRProcessor;
 
 import org.automateit.reports.ReportsManager;
 import org.automateit.reports.ExtentReporter;
 
 import org.automateit.util.CommandList;
+import org.automateit.util.CommandRecord;
 import org.automateit.util.CommonProperties;
+import org.automateit.util.ScreenshotPipeline;
 import org.automateit.util.Utils;
 
 /**
@@ -86,10 +90,24 @@ public class ViewBase {
     protected CommonProperties properties = CommonProperties.getInstance();
     
     /**
-     * Command List
+     * Command List of the thread that built this object.
+     * 
+     * @deprecated A page can be built on another thread than the one running 
+     * the test (eg. in @BeforeClass), so commands recorded here may not reach 
+     * the test's reports; use <code>getCommandList()</code> instead.
      */
+    @Deprecated
     protected CommandList commandList = CommandList.getInstance();
     
+    /**
+     * Get the command list of the current execution context (the thread 
+     * running the test), which the reports read. It is looked up on each 
+     * call, as a page can be built on another thread (eg. in @BeforeClass).
+     * 
+     * @return 
+     */
+    protected CommandList getCommandList() { return CommandList.getInstance(); }
+    
     /**
      * The web driver wait object
      */
@@ -206,6 +224,19 @@ public class ViewBase {
         
     }
     
+    /**
+     * Take a screenshot for an element lookup and add it to the test results report,
+     * if allowed by the configured screenshot policy (<code>screenshotPolicy</code>).
+     * 
+     * @param failed indicates the element lookup failed
+     */
+    protected void addLookupScreenshotToReport(boolean failed) {
+        
+        try { ScreenshotPipeline.getInstance().captureLookup(ExtentReporter.REPORTS_DIRECTORY, failed); }
+        catch(Exception e) { }
+        
+    }
+    
     /**
      * Get the text from a screenshot of the mobile app screen using OCR
      * 
@@ -243,7 +274,7 @@ public class ViewBase {
         
         logger.info("Validating expected text on the Screen using OCR: " + expectedText);
         
-        commandList.addToList("validateTextOnScreenUsingOCR|" + expectedText);
+        CommandRecord command = getCommandList().addToList("validateTextOnScreenUsingOCR|" + expectedText);
         
         try { 
             
@@ -259,6 +290,7 @@ public class ViewBase {
             
         }
         catch(Exception e) { throw e; }
+        finally { command.finish(); }
         
     }
     
@@ -433,18 +465,28 @@ public class ViewBase {
      */
     protected WebElement find(By by) { 
         
+        boolean found = false;
+        
+        long start = System.nanoTime();
+        
         try { 
             
             if(this.wait == null) this.wait = new WebDriverWait(this.driver, timeoutInSeconds);
-            return wait.until(presenceOfElementLocated(by));
+            
+            WebElement element = wait.until(presenceOfElementLocated(by));
+            
+            found = true;
+            
+            return element;
             
         }
         catch(Exception e) { throw e; }
         finally { 
             
-            try { addScreenshotToReport(); }
-            catch(Exception le) { }
+            PrometheusMetrics.getInstance().observeElementLookup(System.nanoTime() - start, found);
             
+            addLookupScreenshotToReport(!found); 
+        
         }
         
     }
@@ -458,13 +500,26 @@ public class ViewBase {
      */
     protected List<WebElement> findElements(By by) { 
         
-        try { return this.driver.findElements(by); } 
+        boolean found = false;
+        
+        long start = System.nanoTime();
+        
+        try { 
+            
+            List<WebElement> elements = this.driver.findElements(by); 
+            
+            found = true;
+            
+            return elements;
+            
+        } 
         catch(Exception e) { throw e; }
         finally { 
             
-            try { addScreenshotToReport(); }
-            catch(Exception le) { }
+            PrometheusMetrics.getInstance().observeElementLookup(System.nanoTime() - start, found);
             
+            addLookupScreenshotToReport(!found); 
+        
         }
         
     } 
@@ -8,7 +8,7 @@ import cucumber.api.testng.TestNGCucumberRunner;
 
 import org.automateit.test.TestBase;
 
-import org.automateit.core.CommonWebDriver;
+import org.automateit.core.ExecutionContext;
 
 public class CucumberTestBase extends TestBase { 
     
@@ -25,7 +25,7 @@ public class CucumberTestBase extends TestBase {
         
         try { this.testNGCucumberRunner.finish();}
         catch(Exception e) { }
-        finally { CommonWebDriver.getInstance().getWebDriver().quit(); }
+        finally { ExecutionContext.getCurrent().closeWebDriver(); }
     
     }
    
@@ -8,7 +8,7 @@ import cucumber.api.Scenario;
 
 import org.automateit.test.TestBase;
 
-import org.automateit.core.CommonWebDriver;
+import org.automateit.core.ExecutionContext;
 
 /**
  * All specific Step Definition classes should EXTEND this class. It provides:
@@ -36,7 +36,7 @@ public class StepDefinitionsBase extends TestBase {
     @After
     public void afterScenario() {
         
-        try { if(CommonWebDriver.getInstance().getWebDriver() != null) CommonWebDriver.getInstance().getWebDriver().quit(); }
+        try { ExecutionContext.getCurrent().closeWebDriver(); }
         catch(Exception e) { }
        
     }
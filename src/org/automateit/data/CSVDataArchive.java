@@ -45,6 +45,13 @@ public class CSVDataArchive extends DelimitedDataArchiveBase implements DataArch
      */
     public CSVDataArchive() { }
     
+    /**
+     * Copy constructor. The archive uses the table as is, it is not copied.
+     * 
+     * @param table 
+     */
+    public CSVDataArchive(RowTable table) { super(table); }
+    
 
     /**
      * Save the data to a file. Creates a new file, overwriting any 
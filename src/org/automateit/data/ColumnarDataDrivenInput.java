@@ -0,0 +1,510 @@
+/**
+ * This file is part of Automate It!'s free and open source web and mobile 
+ * application testing framework.
+ * 
+ * Automate It! is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Automate It! is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Automate It!.  If not, see <http://www.gnu.org/licenses/>.
+ *  
+ **/
+
+package org.automateit.data;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringTokenizer;
+
+import org.apache.log4j.Logger;
+
+/**
+ * This class is a compact, column oriented store of input data, for large data sets.
+ * <p>
+ * Each column is an array of values indexed by row number, equal values are shared (interned per store),
+ * and the data ids are found with an open addressing hash table (<code>DataIdIndex</code>), so reading a value does
+ * not create any objects. Compared to <code>DataDrivenInputBase</code> (a map of maps per row) it uses 
+ * a fraction of the memory and reads are faster.
+ * <p>
+ * Rows are added with <code>addRow</code>, or read from a delimited file (the data id is the first value of 
+ * each line, as with <code>DelimitedDataDrivenInputBase</code>). A data id added again replaces the previous row.
+ * <code>returnInputDataForDataId</code> builds a map of the row on each call, keyed by column number as a string 
+ * (as <code>DelimitedDataDrivenInputBase</code> does) or as an <code>Integer</code> (as <code>DataDrivenExcel</code> 
+ * does, see <code>setIntegerColumnKeys</code>).
+ * <p>
+ * Once <code>freeze</code> is called (eg. by <code>DataDrivenInputCache</code>, which shares the store between 
+ * callers and threads) the store is read-only and changing it throws <code>IllegalStateException</code>.
+ * 
+ * @author mburnside
+ */
+public class ColumnarDataDrivenInput implements DataDrivenInput {
+    
+    /**
+     * The initial number of rows allocated
+     */
+    private static final int INITIAL_CAPACITY = 64;
+    
+    /**
+     *  logging object
+     */
+    private static Logger logger = Logger.getLogger(ColumnarDataDrivenInput.class);
+    
+    /**
+     * The columns, each an array of values indexed by row number (<code>null</code> where a row has no value)
+     */
+    private String[][] columns = new String[0][];
+    
+    /**
+     * The data id of each row
+     */
+    private String[] ids = new String[INITIAL_CAPACITY];
+    
+    /**
+     * The number of rows
+     */
+    private int rowCount = 0;
+    
+    /**
+     * The row number of each data id
+     */
+    private final DataIdIndex index = new DataIdIndex(INITIAL_CAPACITY);
+    
+    /**
+     * The values already stored, used to share equal values while loading
+     */
+    private Map<String, String> values = new HashMap<String, String>();
+    
+    /**
+     * The row maps are keyed by <code>Integer</code> column number instead of a string
+     */
+    private boolean integerColumnKeys = false;
+    
+    /**
+     * A data id that does not exist returns <code>null</code> instead of throwing
+     */
+    private boolean nullForMissingDataId = false;
+    
+    /**
+     * The store is read-only
+     */
+    private volatile boolean frozen = false;
+    
+    /**
+     * Default Constructor. Rows are added with <code>addRow</code>.
+     */
+    public ColumnarDataDrivenInput() { }
+    
+    /**
+     * Copy constructor. Read a delimited file, one row per line (quoted values can span lines, see <code>DelimitedRowParser</code>).
+     * 
+     * @param filename
+     * @param delimiter the delimiter (a regular expression)
+     * 
+     * @throws Exception 
+     */
+    public ColumnarDataDrivenInput(String filename, String delimiter) throws Exception {
+        
+        String line = null;
+        
+        BufferedReader reader = null;
+        
+        try {
+        
+            reader = new BufferedReader(new FileReader(new File(filename)));
+        
+            while((line = DelimitedRowParser.readRow(reader, delimiter)) != null) {
+                
+                StringTokenizer st = new StringTokenizer(line, delimiter);
+                
+                if(!st.hasMoreTokens()) continue;
+                
+                String[] row = DelimitedRowParser.split(line, delimiter);
+                
+                // a quoted data id is read as a value
+                String dataId = ((line.indexOf(DelimitedRowParser.QUOTE) >= 0) && (row.length > 0) && (row[0].trim().length() > 0)) ? row[0] : st.nextToken();
+                
+                addRow(dataId.trim(), row);
+                
+            }
+            
+            trim();
+            
+        } 
+        catch(Exception e) { throw e; }
+        finally { if(reader != null) reader.close(); }
+        
+    }
+    
+    /**
+     * Add a row of values (column 0 is the first value).
+     * 
+     * @param dataId
+     * @param row
+     */
+    public void addRow(String dataId, String[] row) {
+        
+        checkNotFrozen();
+        
+        if(dataId == null) return;
+        
+        if(rowCount == ids.length) grow(ids.length * 2);
+        
+        if(row.length > columns.length) addColumns(row.length);
+        
+        for(int i = 0; i < row.length; i++) columns[i][rowCount] = intern(row[i]);
+        
+        ids[rowCount] = intern(dataId);
+        
+        index.put(ids[rowCount], rowCount);
+        
+        rowCount++;
+        
+    }
+    
+    /**
+     * Add a row of values (column 0 is the first value).
+     * 
+     * @param dataId
+     * @param row
+     */
+    public void addRow(String dataId, List<String> row) { addRow(dataId, row.toArray(new String[row.size()])); }
+    
+    /**
+     * Release the memory only needed while adding rows. Rows can still be added afterwards.
+     */
+    public void trim() {
+        
+        checkNotFrozen();
+        
+        if(rowCount < ids.length) grow(Math.max(rowCount, 1));
+        
+        values = new HashMap<String, String>();
+        
+    }
+    
+    /**
+     * Get the number of rows.
+     * 
+     * @return 
+     */
+    public int getRowCount() { return rowCount; }
+    
+    /**
+     * Get the number of columns.
+     * 
+     * @return 
+     */
+    public int getColumnCount() { return columns.length; }
+    
+    /**
+     * Get the row number of a data id.
+     * 
+     * @param dataId
+     * 
+     * @return The row number or -1 if the data id does not exist
+     */
+    public int getRow(String dataId) { return index.get(dataId); }
+    
+    /**
+     * Get a value by row number and column number.
+     * 
+     * @param row
+     * @param columnNumber
+     * 
+     * @return The value or <code>null</code> if the row has no value for the column
+     */
+    public String getValue(int row, int columnNumber) { 
+        
+        if((row < 0) || (row >= rowCount) || (columnNumber < 0) || (columnNumber >= columns.length)) return null;
+        
+        return columns[columnNumber][row]; 
+    
+    }
+    
+    /**
+     * Return a set of input data for a given <code>dataId</code> integer.
+     * 
+     * @param dataId The data Id of type <code>integer</code>
+     * 
+     * @return The data set for the given <code>dataId</code>, or <code>null</code> if it does not exist
+     * 
+     * @throws Exception 
+     */
+    public Map returnInputDataForDataId(int dataId) throws Exception { return getRowMap(getRow(String.valueOf(dataId))); }
+    
+    /**
+     * Return a set of input data for a given <code>dataId</code>.
+     * 
+     * @param dataId The data Id of type <code>String</code>
+     * 
+     * @return The data set for the given <code>dataId</code> (<code>null</code> if it does not exist and <code>isNullForMissingDataId</code>)
+     * 
+     * @throws Exception 
+     */
+    public Map returnInputDataForDataId(String dataId) throws Exception {
+        
+        int row = getRow(dataId);
+        
+        if((row < 0) && nullForMissingDataId) return null;
+        
+        if(row < 0) throw new Exception("Unable to return value because data set id does not exist in the input file: " + dataId);
+        
+        return getRowMap(row);
+        
+    }
+    
+    /**
+     * Convenience method for obtaining a single reference to data.
+     * 
+     * @param dataId
+     * @param columnNumber
+     * 
+     * @return The reference to data (not a set of data)
+     *  return null if dataId exists but cell for the particular columnNumber is blank
+     *  
+     * @throws Exception 
+     */
+    public String returnInputDataForDataIdAndColumnNumber(int dataId, int columnNumber) throws Exception { return returnInputDataForDataIdAndColumnNumber(String.valueOf(dataId), columnNumber); }
+    
+    /**
+     * Convenience method for obtaining a single reference to data.
+     * 
+     * @param dataId
+     * @param columnNumber
+     * 
+     * @return The reference to data (not a set of data)
+     *  return null if dataId exists but cell for the particular columnNumber is blank
+     *  
+     * @throws Exception 
+     */
+    public String returnInputDataForDataIdAndColumnNumber(String dataId, int columnNumber) throws Exception {
+        
+        int row = getRow(dataId);
+        
+        if(row < 0) throw new Exception("Unable to return value because data set id does not exist in the input file: " + dataId);
+        
+        return getValue(row, columnNumber);
+        
+    }
+    
+    /**
+     * Return true if the dataId exists, otherwise false
+     * 
+     * @param dataId
+     * 
+     * @return
+     */
+    public boolean hasDataId(int dataId) { return (getRow(String.valueOf(dataId)) >= 0); }
+    
+    /**
+     * Return true if the dataId exists, otherwise false
+     * 
+     * @param dataId
+     * 
+     * @return
+     */
+    public boolean hasDataId(String dataId) { return (getRow(dataId) >= 0); }
+    
+    /**
+     * Get all keys for the collection, in the order they were added
+     * 
+     * @return 
+     */
+    public List<String> getDataIds() {
+        
+        List<String> list = new ArrayList<String>(index.size());
+        
+        // skip rows replaced by a later row with the same data id
+        for(int row = 0; row < rowCount; row++) if(getRow(ids[row]) == row) list.add(ids[row]);
+        
+        return list;
+        
+    }
+    
+    /**
+     * Print out all input
+     * 
+     * @throws Exception 
+     */
+    public void printAllInput() throws Exception {
+        
+        try { for(String dataId : getDataIds()) logger.info("ColumnarDataDrivenInput.printAllInput: " + getRowMap(getRow(dataId))); }
+        catch(Exception e) { throw e; }
+        
+    }
+    
+    /**
+     * Convenience method for obtaining a single reference to data.
+     * 
+     * @param dataId
+     * @param columnNumber
+     * 
+     * @return The reference to data (not a set of data)
+     *  return null if dataId exists but cell for the particular columnNumber is blank
+     *  
+     * @throws Exception 
+     */
+    public String get(int dataId, int columnNumber) throws Exception { return returnInputDataForDataIdAndColumnNumber(dataId, columnNumber); }
+    
+    /**
+     * Convenience method for obtaining a single reference to data.
+     * 
+     * @param dataId
+     * @param columnNumber
+     * 
+     * @return The reference to data (not a set of data)
+     *  return null if dataId exists but cell for the particular columnNumber is blank
+     *  
+     * @throws Exception 
+     */
+    public String get(String dataId, int columnNumber) throws Exception { return returnInputDataForDataIdAndColumnNumber(dataId, columnNumber); }
+    
+    /**
+     * Key the row maps by <code>Integer</code> column number (as <code>DataDrivenExcel</code> does) 
+     * instead of the column number as a string (as the delimited implementations do).
+     * 
+     * @param integerColumnKeys 
+     */
+    public void setIntegerColumnKeys(boolean integerColumnKeys) { 
+        
+        if(integerColumnKeys != this.integerColumnKeys) checkNotFrozen();
+        
+        this.integerColumnKeys = integerColumnKeys; 
+    
+    }
+    
+    /**
+     * Check if the row maps are keyed by <code>Integer</code> column number.
+     * 
+     * @return 
+     */
+    public boolean isIntegerColumnKeys() { return integerColumnKeys; }
+    
+    /**
+     * Return <code>null</code> from <code>returnInputDataForDataId</code> for a data id that does not 
+     * exist (as <code>DataDrivenExcel</code> does) instead of throwing.
+     * 
+     * @param nullForMissingDataId 
+     */
+    public void setNullForMissingDataId(boolean nullForMissingDataId) { 
+        
+        if(nullForMissingDataId != this.nullForMissingDataId) checkNotFrozen();
+        
+        this.nullForMissingDataId = nullForMissingDataId; 
+    
+    }
+    
+    /**
+     * Check if <code>returnInputDataForDataId</code> returns <code>null</code> for a data id that does not exist.
+     * 
+     * @return 
+     */
+    public boolean isNullForMissingDataId() { return nullForMissingDataId; }
+    
+    /**
+     * Make the store read-only, so it can be shared. Rows can not be added afterwards.
+     */
+    public void freeze() { 
+        
+        if(frozen) return;
+        
+        trim();
+        
+        frozen = true; 
+    
+    }
+    
+    /**
+     * Check if the store is read-only.
+     * 
+     * @return 
+     */
+    public boolean isFrozen() { return frozen; }
+    
+    /**
+     * Throw if the store is read-only.
+     */
+    private void checkNotFrozen() { if(frozen) throw new IllegalStateException("This data is shared (see DataDrivenInputCache) and can not be changed"); }
+    
+    /**
+     * Build the map of a row, keyed by column number as a string or an <code>Integer</code>.
+     * 
+     * @param row
+     * 
+     * @return The map or <code>null</code> if the row does not exist
+     */
+    protected Map<Object, String> getRowMap(int row) {
+        
+        if(row < 0) return null;
+        
+        Map<Object, String> rowData = new HashMap<Object, String>();
+        
+        for(int i = 0; i < columns.length; i++) if(columns[i][row] != null) rowData.put(integerColumnKeys ? (Object)Integer.valueOf(i) : String.valueOf(i), columns[i][row]);
+        
+        return rowData;
+        
+    }
+    
+    /**
+     * Share equal values.
+     * 
+     * @param value
+     * 
+     * @return 
+     */
+    private String intern(String value) {
+        
+        if(value == null) return null;
+        
+        String interned = values.get(value);
+        
+        if(interned != null) return interned;
+        
+        values.put(value, value);
+        
+        return value;
+        
+    }
+    
+    /**
+     * Resize the row arrays.
+     * 
+     * @param capacity 
+     */
+    private void grow(int capacity) {
+        
+        ids = Arrays.copyOf(ids, capacity);
+        
+        for(int i = 0; i < columns.length; i++) columns[i] = Arrays.copyOf(columns[i], capacity);
+        
+    }
+    
+    /**
+     * Add columns.
+     * 
+     * @param count the new number of columns
+     */
+    private void addColumns(int count) {
+        
+        int first = columns.length;
+        
+        columns = Arrays.copyOf(columns, count);
+        
+        for(int i = first; i < count; i++) columns[i] = new String[ids.length];
+        
+    }
+    
+}
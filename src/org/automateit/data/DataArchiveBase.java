@@ -18,23 +18,32 @@
 
 package org.automateit.data;
 
-import java.util.Iterator;
+import java.util.AbstractList;
 import java.util.List;
-import java.util.LinkedList;
 
 import org.apache.log4j.Logger;
         
 /**
  * Data archive base class. All data archive classes should extend this class.
  * 
+ * The rows are kept in a <code>RowTable</code>, so adding or replacing a row 
+ * takes constant time, and the table can be read as a 
+ * <code>DataDrivenInput</code> without being saved to a file (see 
+ * <code>getDataDrivenInput</code>). Archives where the same key is expected 
+ * more than once (eg. repeated page timings) can be set to append-only.
+ * 
  * @author mburnside
  */
 public class DataArchiveBase {
     
     /**
-     * Queue object for collecting commands
+     * Rows collected, in the order they were added. This is a view of the 
+     * row table: adding a row here is the same as <code>addData</code> 
+     * (a row with an existing key replaces the previous row, unless the 
+     * archive is append-only), and removing or replacing a row changes 
+     * the table.
      */
-    protected List<String[]> list = new LinkedList<String[]>();
+    protected List<String[]> list = new Rows();
     
     /**
      *  logging object
@@ -42,39 +51,103 @@ public class DataArchiveBase {
     private static Logger log = Logger.getLogger(DataArchiveBase.class);
     
     /**
-     * Add data to be archived. If a key already exists, the value will be updated.
+     * The rows
+     */
+    protected final RowTable table;
+    
+    /**
+     * Default constructor.
+     */
+    public DataArchiveBase() { this(new RowTable()); }
+    
+    /**
+     * Copy constructor. The archive uses the table as is, it is not copied.
+     * 
+     * @param table 
+     */
+    public DataArchiveBase(RowTable table) { this.table = table; }
+    
+    /**
+     * Add data to be archived. If a key already exists, the previous data is 
+     * removed and the new data is added at the end, unless the archive is 
+     * append-only.
      * 
      * @param data
      * 
      * @throws Exception 
      */
-    public void addData(String[] data) throws Exception { 
-        
-        Iterator<String[]> keyIterator = list.iterator();
+    public void addData(String[] data) throws Exception { table.add(data); }
+    
+    /**
+     * Clear/remove all data collected.
+     * 
+     * @throws Exception 
+     */
+    public void clearData() throws Exception { table.clear(); }
+    
+    /**
+     * Set whether every row added is kept, even if its key already exists. 
+     * When turned off, the rows already added are de-duplicated, keeping 
+     * the last row for each key.
+     * 
+     * @param appendOnly 
+     */
+    public void setAppendOnly(boolean appendOnly) { 
         
-        while(keyIterator.hasNext()) { 
-            
-            String[] oldData = keyIterator.next();
-            
-            if(oldData[0].trim().equals(data[0].trim())) {
-              
-              // remove the previous data and overwrite with new data
-              keyIterator.remove();
-              
-            }
-            
-        }
+        table.setAppendOnly(appendOnly); 
         
-        list.add(data); 
+        log.debug("Append only: " + appendOnly);
     
     }
     
     /**
-     * Clear/remove all data collected.
+     * Whether every row added is kept, even if its key already exists.
      * 
-     * @throws Exception 
+     * @return 
+     */
+    public boolean isAppendOnly() { return table.isAppendOnly(); }
+    
+    /**
+     * Get the table of rows collected.
+     * 
+     * @return 
+     */
+    public RowTable getTable() { return table; }
+    
+    /**
+     * Get a data driven input view of the data collected. The view is not a 
+     * copy: data added to the archive afterwards can be read from it.
+     * 
+     * @return 
+     */
+    public DataDrivenInput getDataDrivenInput() { return new RowTableDataDrivenInput(table); }
+    
+    /**
+     * List view of the rows collected, for the archive implementations.
      */
-    public void clearData() throws Exception { list.clear(); }
+    private class Rows extends AbstractList<String[]> {
+        
+        @Override
+        public String[] get(int i) { return table.get(i); }
+        
+        @Override
+        public boolean add(String[] data) { table.add(data); modCount++; return true; }
+        
+        @Override
+        public void add(int i, String[] data) { table.add(i, data); modCount++; }
+        
+        @Override
+        public String[] set(int i, String[] data) { return table.set(i, data); }
+        
+        @Override
+        public String[] remove(int i) { modCount++; return table.remove(i); }
+        
+        @Override
+        public int size() { return table.size(); }
+        
+        @Override
+        public void clear() { table.clear(); modCount++; }
+        
+    }
     
 }
-
@@ -66,6 +66,12 @@ public class DataArchiveFactory {
      */
     public static final int PIPEDELIMITED_APPEND = 7;
     
+    /**
+     * Excel spreadsheet - XLSX file extension, rows are written as they 
+     * are added.
+     */
+    public static final int XLSX_STREAMING = 8;
+    
     /**
      * Default Constructor.
      */
@@ -94,6 +100,10 @@ public class DataArchiveFactory {
                 
                     return new XLSXDataArchive();
                         
+                case XLSX_STREAMING:
+                
+                    return new StreamingXLSXDataArchive();
+                        
                 case CSV:
                 
                     return new CSVDataArchive();
@@ -0,0 +1,546 @@
+/**
+ * This file is part of Automate It!'s free and open source web and mobile 
+ * application testing framework.
+ * 
+ * Automate It! is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Automate It! is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Automate It!.  If not, see <http://www.gnu.org/licenses/>.
+ *  
+ **/
+
+package org.automateit.data;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.log4j.Logger;
+
+import org.automateit.core.StringCapabilities;
+import org.automateit.util.CommonProperties;
+
+/**
+ * This class caches parsed data files, so a data file used by many test 
+ * classes is only parsed once.
+ * <p>
+ * There are two layers, both keyed by the file path, the implementation id 
+ * (and its options) and checked against the file's last modified time and 
+ * size, so a changed file is parsed again:
+ * <ul>
+ * <li>in memory, for the life of the JVM (<code>dataCache</code>, on unless 
+ * set to false)</li>
+ * <li>on disk, a compact binary snapshot of the table in 
+ * <code>dataCacheDirectory</code> (off if not set), read back memory-mapped 
+ * by later runs</li>
+ * </ul>
+ * Cached data is returned as a <code>ColumnarDataDrivenInput</code> shared by 
+ * all the callers and threads, so it is frozen (read-only) before it is 
+ * returned: adding rows to it throws. Entries for files that 
+ * have been deleted are evicted, with their snapshots, when a file is parsed.
+ * 
+ * @author mburnside
+ */
+public class DataDrivenInputCache {
+    
+    /**
+     *  logging object
+     */
+    private static Logger log = Logger.getLogger(DataDrivenInputCache.class);
+    
+    /**
+     * Snapshot file marker ("AIDC")
+     */
+    private static final int MAGIC = 0x41494443;
+    
+    /**
+     * Snapshot file format version
+     */
+    private static final int VERSION = 1;
+    
+    /**
+     * Snapshot text encoding
+     */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    
+    /**
+     * DataDrivenInputCache instance
+     */
+    private static DataDrivenInputCache instance = new DataDrivenInputCache();
+    
+    /**
+     * Parsed data by cache key
+     */
+    private final Map<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+    
+    /**
+     * Whether the in-memory layer is used
+     */
+    private boolean memory = true;
+    
+    /**
+     * Directory of the snapshot files, null if not used
+     */
+    private File directory = null;
+    
+    /**
+     * Default Constructor
+     */
+    private DataDrivenInputCache() { 
+        
+        try {
+            
+            memory = !"false".equalsIgnoreCase(CommonProperties.getInstance().get(StringCapabilities.DATA_CACHE.getCapability()));
+            
+            String path = CommonProperties.getInstance().get(StringCapabilities.DATA_CACHE_DIRECTORY.getCapability());
+            
+            if(path != null && path.trim().length() > 0) directory = new File(path.trim());
+            
+        }
+        catch(Exception e) { log.error(e); }
+        
+        log.debug("Data cache in memory: " + memory + ", directory: " + directory);
+        
+    }
+    
+    /**
+     * Return the instance of this object.
+     * 
+     * @return The instance of this object 
+     */
+    public static DataDrivenInputCache getInstance() { return instance; }
+    
+    /**
+     * Whether data is cached at all.
+     * 
+     * @return 
+     */
+    public boolean isEnabled() { return memory || (directory != null); }
+    
+    /**
+     * Get the data of a file, parsed with a <code>DataDrivenInputFactory</code> 
+     * implementation if it is not cached or the file has changed.
+     * 
+     * @param filename The data file
+     * @param id The id of the implementation to use
+     * @param options The settings the implementation parses with (part of the cache key)
+     * 
+     * @return The data
+     * 
+     * @throws Exception 
+     */
+    public DataDrivenInput getDataDrivenInput(String filename, int id, String options) throws Exception {
+        
+        File file = new File(filename).getCanonicalFile();
+        
+        // read before parsing, so a change while parsing is caught on the next load
+        long modified = file.lastModified();
+        
+        long size = file.length();
+        
+        String cacheKey = file.getPath() + "|" + id + "|" + options;
+        
+        Entry entry = entries.get(cacheKey);
+        
+        if(entry != null && entry.modified == modified && entry.size == size) return entry.input;
+        
+        evictDeleted();
+        
+        File snapshot = (directory == null) ? null : getSnapshotFile(cacheKey);
+        
+        ColumnarDataDrivenInput input = (snapshot == null) ? null : readSnapshot(snapshot, modified, size);
+        
+        if(input == null) {
+            
+            log.debug("Parsing data file: " + filename + " (" + id + ")");
+            
+            input = toColumnar(new DataDrivenInputFactory().createDataDrivenInput(filename, id));
+            
+            if(snapshot != null) {
+
+                try { writeSnapshot(snapshot, modified, size, input); }
+                catch(Exception e) { log.error("Unable to write data cache file for: " + filename + ", " + e); }
+
+            }
+            
+        }
+        
+        // the Excel reader keeps the contract of DataDrivenExcel (Integer column keys, null for a missing data id), a snapshot does not record it
+        if(id == DataDrivenInputFactory.EXCEL) { input.setIntegerColumnKeys(true); input.setNullForMissingDataId(true); }
+        
+        input.freeze();
+        
+        if(memory) entries.put(cacheKey, new Entry(file, snapshot, modified, size, input));
+        
+        return input;
+        
+    }
+    
+    /**
+     * Remove all the data cached in memory.
+     */
+    public void clear() { entries.clear(); }
+    
+    /**
+     * Remove the data cached for files that no longer exist, in memory and 
+     * on disk.
+     */
+    public void evictDeleted() {
+        
+        Iterator<Entry> iterator = entries.values().iterator();
+        
+        while(iterator.hasNext()) {
+            
+            Entry entry = iterator.next();
+            
+            if(entry.file.exists()) continue;
+            
+            log.debug("Data file deleted, evicting: " + entry.file);
+            
+            iterator.remove();
+            
+            if(entry.snapshot != null) entry.snapshot.delete();
+            
+        }
+        
+    }
+    
+    /**
+     * Get the data as a column oriented store.
+     * 
+     * @param parsed
+     * 
+     * @return
+     * 
+     * @throws Exception 
+     */
+    private ColumnarDataDrivenInput toColumnar(DataDrivenInput parsed) throws Exception {
+        
+        if(parsed instanceof ColumnarDataDrivenInput) return (ColumnarDataDrivenInput)parsed;
+        
+        ColumnarDataDrivenInput input = new ColumnarDataDrivenInput();
+        
+        List<String> row = new ArrayList<String>();
+        
+        for(String dataId : parsed.getDataIds()) {
+            
+            Map rowData = parsed.returnInputDataForDataId(dataId);
+            
+            row.clear();
+            
+            for(Object column : rowData.keySet()) {
+                
+                int i = Integer.parseInt(String.valueOf(column));
+                
+                while(row.size() <= i) row.add(null);
+                
+                row.set(i, (String)rowData.get(column));
+                
+            }
+            
+            input.addRow(dataId, row);
+            
+        }
+        
+        input.trim();
+        
+        return input;
+        
+    }
+    
+    /**
+     * Get the snapshot file for a cache key.
+     * 
+     * @param cacheKey
+     * 
+     * @return
+     * 
+     * @throws Exception 
+     */
+    private File getSnapshotFile(String cacheKey) throws Exception {
+        
+        byte[] digest = MessageDigest.getInstance("SHA-1").digest(cacheKey.getBytes(UTF8));
+        
+        StringBuilder name = new StringBuilder();
+        
+        for(byte b : digest) name.append(String.format("%02x", b));
+        
+        return new File(directory, name.append(".bin").toString());
+        
+    }
+    
+    /**
+     * Write a snapshot file. Values are stored once, in a table of distinct 
+     * values, and the cells refer to them by number:
+     * <pre>
+     * magic, version, file modified time, file size, rows, columns, 
+     * values (count, then length and UTF-8 bytes of each), 
+     * data id of each row, then each column's cells (-1 for no value)
+     * </pre>
+     * The file is written next to the snapshot and renamed, so readers 
+     * never see part of a snapshot.
+     * 
+     * @param snapshot
+     * @param modified
+     * @param size
+     * @param input
+     * 
+     * @throws Exception 
+     */
+    private void writeSnapshot(File snapshot, long modified, long size, ColumnarDataDrivenInput input) throws Exception {
+        
+        directory.mkdirs();
+        
+        File tmp = File.createTempFile(snapshot.getName(), ".tmp", directory);
+        
+        DataOutputStream out = null;
+        
+        try {
+            
+            int rows = input.getRowCount();
+            
+            int columns = input.getColumnCount();
+            
+            List<String> dataIds = input.getDataIds();
+            
+            Map<String, Integer> numbers = new HashMap<String, Integer>();
+            
+            List<String> values = new ArrayList<String>();
+            
+            int[] ids = new int[dataIds.size()];
+            
+            int[][] cells = new int[columns][dataIds.size()];
+            
+            for(int r = 0; r < ids.length; r++) {
+                
+                int row = input.getRow(dataIds.get(r));
+                
+                ids[r] = getNumber(dataIds.get(r), numbers, values);
+                
+                for(int c = 0; c < columns; c++) cells[c][r] = getNumber(input.getValue(row, c), numbers, values);
+                
+            }
+            
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 64 * 1024));
+            
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(modified);
+            out.writeLong(size);
+            out.writeInt(ids.length);
+            out.writeInt(columns);
+            out.writeInt(values.size());
+            
+            for(String value : values) {
+                
+                byte[] bytes = value.getBytes(UTF8);
+                
+                out.writeInt(bytes.length);
+                
+                out.write(bytes);
+                
+            }
+            
+            for(int r = 0; r < ids.length; r++) out.writeInt(ids[r]);
+            
+            for(int c = 0; c < columns; c++) for(int r = 0; r < ids.length; r++) out.writeInt(cells[c][r]);
+            
+            out.close();
+            
+            out = null;
+            
+            try { Files.move(tmp.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE); }
+            catch(Exception e) { Files.move(tmp.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING); }
+            
+            log.debug("Wrote data cache file: " + snapshot + " with: " + ids.length + " rows, " + values.size() + " distinct values");
+            
+        }
+        finally {
+            
+            if(out != null) out.close();
+            
+            tmp.delete();
+            
+        }
+        
+    }
+    
+    /**
+     * Read a snapshot file, memory-mapped.
+     * 
+     * @param snapshot
+     * @param modified The data file's last modified time
+     * @param size The data file's size
+     * 
+     * @return The data or <code>null</code> if there is no snapshot, or it is stale or unreadable
+     */
+    private ColumnarDataDrivenInput readSnapshot(File snapshot, long modified, long size) {
+        
+        if(!snapshot.isFile()) return null;
+        
+        RandomAccessFile file = null;
+        
+        try {
+            
+            file = new RandomAccessFile(snapshot, "r");
+            
+            MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+            
+            if(buffer.getInt() != MAGIC || buffer.getInt() != VERSION) return null;
+            
+            if(buffer.getLong() != modified || buffer.getLong() != size) {
+                
+                log.debug("Data cache file is stale: " + snapshot);
+                
+                return null;
+                
+            }
+            
+            int rows = buffer.getInt();
+            
+            int columns = buffer.getInt();
+            
+            String[] values = new String[buffer.getInt()];
+            
+            byte[] bytes = new byte[256];
+            
+            for(int i = 0; i < values.length; i++) {
+                
+                int length = buffer.getInt();
+                
+                if(length > bytes.length) bytes = new byte[Math.max(length, bytes.length * 2)];
+                
+                buffer.get(bytes, 0, length);
+                
+                values[i] = new String(bytes, 0, length, UTF8);
+                
+            }
+            
+            // cells are stored column by column, rows are added row by row
+            int cells = buffer.position() + rows * 4;
+            
+            ColumnarDataDrivenInput input = new ColumnarDataDrivenInput();
+            
+            String[] row = new String[columns];
+            
+            for(int r = 0; r < rows; r++) {
+                
+                String dataId = values[buffer.getInt()];
+                
+                for(int c = 0; c < columns; c++) {
+                    
+                    int number = buffer.getInt(cells + (c * rows + r) * 4);
+                    
+                    row[c] = (number < 0) ? null : values[number];
+                    
+                }
+                
+                input.addRow(dataId, row);
+                
+            }
+            
+            input.trim();
+            
+            log.debug("Read data cache file: " + snapshot + " with: " + rows + " rows");
+            
+            return input;
+            
+        }
+        catch(Exception e) { 
+            
+            log.error("Unable to read data cache file: " + snapshot + ", " + e); 
+            
+            return null;
+        
+        }
+        finally { 
+            
+            try { if(file != null) file.close(); }
+            catch(Exception e) { }
+            
+        }
+        
+    }
+    
+    /**
+     * Get the number of a value in the table of distinct values, adding it 
+     * if needed.
+     * 
+     * @param value
+     * @param numbers
+     * @param values
+     * 
+     * @return The number or -1 for no value
+     */
+    private int getNumber(String value, Map<String, Integer> numbers, List<String> values) {
+        
+        if(value == null) return -1;
+        
+        Integer number = numbers.get(value);
+        
+        if(number == null) {
+            
+            numbers.put(value, number = values.size());
+            
+            values.add(value);
+            
+        }
+        
+        return number;
+        
+    }
+    
+    /**
+     * Data cached in memory, with the state of the file it was parsed from.
+     */
+    private static class Entry {
+        
+        private final File file;
+        
+        private final File snapshot;
+        
+        private final long modified;
+        
+        private final long size;
+        
+        private final ColumnarDataDrivenInput input;
+        
+        private Entry(File file, File snapshot, long modified, long size, ColumnarDataDrivenInput input) {
+            
+            this.file = file;
+            
+            this.snapshot = snapshot;
+            
+            this.modified = modified;
+            
+            this.size = size;
+            
+            this.input = input;
+            
+        }
+        
+    }
+    
+}
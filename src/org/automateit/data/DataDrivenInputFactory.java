@@ -18,6 +18,9 @@
 
 package org.automateit.data;
 
+import org.automateit.core.StringCapabilities;
+import org.automateit.util.CommonProperties;
+
 /**
  * This class is a lightweight factory that returns an obsfuscated instance of 
  * a <code>DataDrivenInput</code> implementation.
@@ -46,13 +49,46 @@ public class DataDrivenInputFactory {
      */
     public static final int DEFAULTDELIMITED = 3;
     
+    /**
+     * Comma separated values, column oriented store for large files.
+     */
+    public static final int COLUMNAR_CSV = 4;
+    
+    /**
+     * Pipe-delimited file, column oriented store for large files.
+     */
+    public static final int COLUMNAR_PIPEDELIMITED = 5;
+    
+    /**
+     * Properties file, column oriented store for large files.
+     */
+    public static final int COLUMNAR_DEFAULTDELIMITED = 6;
+    
+    /**
+     * Comma separated values, memory-mapped and parsed on first access.
+     */
+    public static final int MAPPED_CSV = 7;
+    
+    /**
+     * Pipe-delimited file, memory-mapped and parsed on first access.
+     */
+    public static final int MAPPED_PIPEDELIMITED = 8;
+    
+    /**
+     * Excel spreadsheet, loaded as a workbook (EXCEL reads it as a stream).
+     */
+    public static final int EXCEL_WORKBOOK = 9;
+    
     /**
      * Default Constructor.
      */
     public DataDrivenInputFactory() { }
 
     /**
-     * Get an implementation <code>DataDrivenInput</code>.
+     * Get an implementation <code>DataDrivenInput</code>. Files read into 
+     * memory in full are cached (see <code>DataDrivenInputCache</code>), the 
+     * workbook and memory-mapped implementations are not. Files that are 
+     * read once and deleted should be read with <code>createDataDrivenInput</code>.
      * 
      * @param filename The file of input parameter values
      * @param id The id of the implementation to use
@@ -63,12 +99,42 @@ public class DataDrivenInputFactory {
      */
     public DataDrivenInput getDataDrivenInput(String filename, int id) throws Exception {
         
+        try {
+            
+            DataDrivenInputCache cache = DataDrivenInputCache.getInstance();
+            
+            if(!cache.isEnabled() || id == EXCEL_WORKBOOK || id == MAPPED_CSV || id == MAPPED_PIPEDELIMITED) return createDataDrivenInput(filename, id);
+            
+            return cache.getDataDrivenInput(filename, id, (id == EXCEL) ? getExcelDataSheet() + "|" + getExcelDataNumbers() : "");
+            
+        }
+        catch(Exception e) { throw e; }
+    
+    }
+    
+    /**
+     * Parse a file with an implementation of <code>DataDrivenInput</code>, 
+     * without the cache (eg. for a temporary file).
+     * 
+     * @param filename The file of input parameter values
+     * @param id The id of the implementation to use
+     * 
+     * @return A DataDrivenInput instance
+     * 
+     * @throws Exception 
+     */
+    public DataDrivenInput createDataDrivenInput(String filename, int id) throws Exception {
+        
         try {
         
             switch (id) {
            
                 case EXCEL:
                 
+                    return new StreamingExcelDataDrivenInput(filename, getExcelDataSheet(), getExcelDataNumbers());
+                    
+                case EXCEL_WORKBOOK:
+                
                     return new DataDrivenExcel(filename);
                         
                 case CSV:
@@ -82,6 +148,26 @@ public class DataDrivenInputFactory {
                 case DEFAULTDELIMITED:
                 
                     return new DataDrivenDefault(filename);
+                    
+                case COLUMNAR_CSV:
+                
+                    return new ColumnarDataDrivenInput(filename, DataDrivenCSV.DELIMITER);
+                    
+                case COLUMNAR_PIPEDELIMITED:
+                
+                    return new ColumnarDataDrivenInput(filename, DataDrivenPipeDelimited.DELIMITER);
+                    
+                case COLUMNAR_DEFAULTDELIMITED:
+                
+                    return new ColumnarDataDrivenInput(filename, DataDrivenDefault.DELIMITER);
+                    
+                case MAPPED_CSV:
+                
+                    return new MappedDelimitedDataDrivenInput(filename, ',');
+                    
+                case MAPPED_PIPEDELIMITED:
+                
+                    return new MappedDelimitedDataDrivenInput(filename, '|');
             
                 default:
                         
@@ -92,6 +178,24 @@ public class DataDrivenInputFactory {
         }
         catch(Exception e) { throw e; }
     
-    }    
+    }
+    
+    /**
+     * Get the sheet read from Excel files.
+     * 
+     * @return
+     * 
+     * @throws Exception 
+     */
+    private String getExcelDataSheet() throws Exception { return CommonProperties.getInstance().get(StringCapabilities.EXCEL_DATA_SHEET.getCapability()); }
+    
+    /**
+     * Get how numbers are read from Excel files.
+     * 
+     * @return
+     * 
+     * @throws Exception 
+     */
+    private String getExcelDataNumbers() throws Exception { return CommonProperties.getInstance().get(StringCapabilities.EXCEL_DATA_NUMBERS.getCapability()); }
 
 }
\ No newline at end of file
@@ -0,0 +1,158 @@
+/**
+ * This file is part of Automate It!'s free and open source web and mobile 
+ * application testing framework.
+ * 
+ * Automate It! is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Automate It! is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Automate It!.  If not, see <http://www.gnu.org/licenses/>.
+ *  
+ **/
+
+package org.automateit.data;
+
+/**
+ * This class maps data ids to row numbers with an open addressing hash table 
+ * (no objects per entry). A data id added again replaces the row of the previous one.
+ * 
+ * @author mburnside
+ */
+class DataIdIndex {
+    
+    /**
+     * The data id of each slot (<code>null</code> is empty)
+     */
+    private String[] keys;
+    
+    /**
+     * The row number of each slot
+     */
+    private int[] rows;
+    
+    /**
+     * The number of data ids
+     */
+    private int size = 0;
+    
+    /**
+     * Constructor
+     * 
+     * @param capacity the expected number of data ids
+     */
+    DataIdIndex(int capacity) { 
+        
+        int slots = 16;
+        
+        while(slots < capacity * 2) slots <<= 1;
+        
+        keys = new String[slots];
+        rows = new int[slots];
+        
+    }
+    
+    /**
+     * Add a data id, replacing the row of an equal data id.
+     * 
+     * @param dataId
+     * @param row 
+     */
+    void put(String dataId, int row) {
+        
+        int mask = keys.length - 1;
+        
+        int slot = hash(dataId) & mask;
+        
+        for(; keys[slot] != null; slot = (slot + 1) & mask) {
+            
+            if(dataId.equals(keys[slot])) { rows[slot] = row; return; }
+            
+        }
+        
+        keys[slot] = dataId;
+        rows[slot] = row;
+        
+        // keep the table at most half full
+        if(++size * 2 > keys.length) rehash(keys.length * 2);
+        
+    }
+    
+    /**
+     * Get the row number of a data id.
+     * 
+     * @param dataId
+     * 
+     * @return The row number or -1 if the data id does not exist
+     */
+    int get(String dataId) {
+        
+        if(dataId == null) return -1;
+        
+        int mask = keys.length - 1;
+        
+        for(int slot = hash(dataId) & mask; keys[slot] != null; slot = (slot + 1) & mask) if(dataId.equals(keys[slot])) return rows[slot];
+        
+        return -1;
+        
+    }
+    
+    /**
+     * Get the number of data ids.
+     * 
+     * @return 
+     */
+    int size() { return size; }
+    
+    /**
+     * Resize the table.
+     * 
+     * @param capacity a power of two
+     */
+    private void rehash(int capacity) {
+        
+        String[] oldKeys = keys;
+        int[] oldRows = rows;
+        
+        keys = new String[capacity];
+        rows = new int[capacity];
+        
+        int mask = capacity - 1;
+        
+        for(int i = 0; i < oldKeys.length; i++) {
+            
+            if(oldKeys[i] == null) continue;
+            
+            int slot = hash(oldKeys[i]) & mask;
+            
+            while(keys[slot] != null) slot = (slot + 1) & mask;
+            
+            keys[slot] = oldKeys[i];
+            rows[slot] = oldRows[i];
+            
+        }
+        
+    }
+    
+    /**
+     * Spread the hash code bits so similar data ids (1, 2, 3...) do not cluster.
+     * 
+     * @param dataId
+     * 
+     * @return 
+     */
+    private static int hash(String dataId) {
+        
+        int h = dataId.hashCode() * 0x9E3779B9;
+        
+        return h ^ (h >>> 16);
+        
+    }
+    
+}
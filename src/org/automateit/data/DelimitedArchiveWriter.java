@@ -0,0 +1,489 @@
+/**
+ * This file is part of Automate It!'s free and open source web and mobile 
+ * application testing framework.
+ * 
+ * Automate It! is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Automate It! is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Automate It!.  If not, see <http://www.gnu.org/licenses/>.
+ *  
+ **/
+
+package org.automateit.data;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+import org.automateit.core.StringCapabilities;
+import org.automateit.util.CommonProperties;
+
+/**
+ * Writes delimited data archive rows to a file through a large buffer.
+ * 
+ * There is one writer per file, shared by every archive saving to it, and 
+ * each set of rows is written under the writer's lock so rows from parallel 
+ * tests are never interleaved. The file channel is kept open between saves; 
+ * only the most recently used files are kept open, the others are closed 
+ * when another file is opened. Before each save the open channel is checked 
+ * against the file, and reopened if the file was deleted, rotated or 
+ * replaced since the last save.
+ * 
+ * Fields containing the delimiter, a double quote or a line break are quoted 
+ * as in RFC 4180. Each field is followed by the delimiter, as before.
+ * 
+ * The <code>archiveFsync</code> property sets when the file is forced to 
+ * disk: <code>none</code> (default, left to the operating system), 
+ * <code>save</code> (after each save) or <code>write</code> (after every 
+ * buffer written).
+ * 
+ * @author mburnside
+ */
+class DelimitedArchiveWriter {
+    
+    /**
+     *  logging object
+     */
+    private static Logger log = Logger.getLogger(DelimitedArchiveWriter.class);
+    
+    /**
+     * Never force the file to disk
+     */
+    static final String FSYNC_NONE = "none";
+    
+    /**
+     * Force the file to disk after each save
+     */
+    static final String FSYNC_SAVE = "save";
+    
+    /**
+     * Force the file to disk after every buffer written
+     */
+    static final String FSYNC_WRITE = "write";
+    
+    /**
+     * Size of the write buffer, in characters
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    /**
+     * Number of files kept open
+     */
+    private static final int MAX_OPEN_FILES = 16;
+    
+    /**
+     * Line separator, as before
+     */
+    private static final char NEWLINE = '\n';
+    
+    /**
+     * Writers by file, least recently used first
+     */
+    private static final Map<String, DelimitedArchiveWriter> writers = new LinkedHashMap<String, DelimitedArchiveWriter>(16, 0.75f, true);
+    
+    /**
+     * Writers that are currently open
+     */
+    private static int openWriters = 0;
+    
+    /**
+     * Fsync policy
+     */
+    private static final String fsync = getFsyncPolicy();
+    
+    static {
+        
+        Runtime.getRuntime().addShutdownHook(new Thread("DelimitedArchiveWriter") {
+            
+            @Override
+            public void run() { closeAll(); }
+            
+        });
+        
+    }
+    
+    /**
+     * The file written to
+     */
+    private final File file;
+    
+    /**
+     * Channel to the file, null when closed
+     */
+    private FileChannel channel = null;
+    
+    /**
+     * Text of the rows to be written, allocated while the file is open
+     */
+    private CharBuffer text = null;
+    
+    /**
+     * Encoded text to be written, allocated while the file is open
+     */
+    private ByteBuffer bytes = null;
+    
+    /**
+     * Encoder for the default character set, as FileWriter used
+     */
+    private final CharsetEncoder encoder = Charset.defaultCharset().newEncoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+    
+    /**
+     * Last modified time of the file after the last save
+     */
+    private long lastModified = 0;
+    
+    /**
+     * Number of threads using this writer, guarded by <code>writers</code>
+     */
+    private int users = 0;
+    
+    /**
+     * Copy constructor.
+     * 
+     * @param file 
+     */
+    private DelimitedArchiveWriter(File file) { this.file = file; }
+    
+    /**
+     * Write rows to a file.
+     * 
+     * @param filename The file to write to
+     * @param rows The rows to write
+     * @param append To append to the file or replace its contents
+     * @param delimiter the delimiter (text separator) to use
+     * 
+     * @throws Exception 
+     */
+    static void write(String filename, List<String[]> rows, boolean append, String delimiter) throws Exception {
+        
+        String path = new File(filename).getCanonicalPath();
+        
+        DelimitedArchiveWriter writer = null;
+        
+        synchronized(writers) {
+            
+            writer = writers.get(path);
+            
+            if(writer == null) writers.put(path, writer = new DelimitedArchiveWriter(new File(path)));
+            
+            writer.users++;
+            
+        }
+        
+        try { writer.write(rows, append, delimiter); }
+        finally { synchronized(writers) { writer.users--; } }
+        
+    }
+    
+    /**
+     * Write rows to the file.
+     * 
+     * @param rows The rows to write
+     * @param append To append to the file or replace its contents
+     * @param delimiter the delimiter (text separator) to use
+     * 
+     * @throws Exception 
+     */
+    private synchronized void write(List<String[]> rows, boolean append, String delimiter) throws Exception {
+        
+        try {
+            
+            open();
+            
+            if(append) channel.position(channel.size());
+            else { channel.truncate(0); channel.position(0); }
+            
+            for(String[] data : rows) {
+                
+                for(int i = 0; i < data.length; i++) {
+                    
+                    writeField(data[i], delimiter);
+                    
+                    put(delimiter);
+                    
+                }
+                
+                put(NEWLINE);
+                
+            }
+            
+            drain(true);
+            
+            if(!FSYNC_NONE.equals(fsync)) channel.force(false);
+            
+            lastModified = file.lastModified();
+            
+            log.debug("Wrote: " + rows.size() + " rows to: " + file);
+            
+        }
+        catch(Exception e) { 
+            
+            close();
+            
+            throw e; 
+        
+        }
+        
+    }
+    
+    /**
+     * Write a field, quoting it when it contains the delimiter, a double 
+     * quote or a line break.
+     * 
+     * @param field
+     * @param delimiter
+     * 
+     * @throws Exception 
+     */
+    private void writeField(String field, String delimiter) throws Exception {
+        
+        if(field == null) field = "null";
+        
+        boolean quote = (field.indexOf(delimiter) != -1);
+        
+        for(int i = 0; !quote && i < field.length(); i++) {
+            
+            char c = field.charAt(i);
+            
+            quote = (c == '"' || c == '\n' || c == '\r');
+            
+        }
+        
+        if(!quote) { put(field); return; }
+        
+        put('"');
+        
+        int start = 0;
+        
+        for(int i = field.indexOf('"'); i != -1; i = field.indexOf('"', start)) {
+            
+            put(field.substring(start, i + 1));
+            
+            put('"');
+            
+            start = i + 1;
+            
+        }
+        
+        put(field.substring(start));
+        
+        put('"');
+        
+    }
+    
+    /**
+     * Add text to the buffer, writing the buffer out when it is full.
+     * 
+     * @param s
+     * 
+     * @throws Exception 
+     */
+    private void put(String s) throws Exception {
+        
+        int offset = 0;
+        
+        while(offset < s.length()) {
+            
+            if(!text.hasRemaining()) drain(false);
+            
+            int count = Math.min(text.remaining(), s.length() - offset);
+            
+            text.put(s, offset, offset + count);
+            
+            offset += count;
+            
+        }
+        
+    }
+    
+    /**
+     * Add a character to the buffer, writing the buffer out when it is full.
+     * 
+     * @param c
+     * 
+     * @throws Exception 
+     */
+    private void put(char c) throws Exception {
+        
+        if(!text.hasRemaining()) drain(false);
+        
+        text.put(c);
+        
+    }
+    
+    /**
+     * Write the buffer to the file.
+     * 
+     * @param last Whether all the rows are in the buffer
+     * 
+     * @throws Exception 
+     */
+    private void drain(boolean last) throws Exception {
+        
+        text.flip();
+        
+        // keep a high surrogate at the end of the buffer for the next write
+        int end = text.limit();
+        
+        if(!last && end > 0 && Character.isHighSurrogate(text.get(end - 1))) text.limit(end - 1);
+        
+        encoder.reset();
+        
+        bytes.clear();
+        
+        encoder.encode(text, bytes, true);
+        
+        encoder.flush(bytes);
+        
+        text.limit(end);
+        
+        text.compact();
+        
+        bytes.flip();
+        
+        while(bytes.hasRemaining()) channel.write(bytes);
+        
+        if(FSYNC_WRITE.equals(fsync)) channel.force(false);
+        
+    }
+    
+    /**
+     * Open the file channel. Writers that are not in use are dropped, least 
+     * recently used first, while too many files are open; closed writers 
+     * that are not in use are always dropped.
+     * 
+     * @throws Exception 
+     */
+    private void open() throws Exception {
+        
+        if(channel != null) {
+            
+            if(isCurrent()) return;
+            
+            log.debug("File changed since the last save, reopening: " + file);
+            
+            close();
+            
+        }
+        
+        synchronized(writers) {
+            
+            Iterator<DelimitedArchiveWriter> iterator = writers.values().iterator();
+            
+            while(iterator.hasNext()) {
+                
+                DelimitedArchiveWriter writer = iterator.next();
+                
+                if(writer == this || writer.users > 0) continue;
+                
+                if(writer.channel == null || openWriters >= MAX_OPEN_FILES) { writer.close(); iterator.remove(); }
+                
+            }
+            
+            File parent = file.getParentFile();
+            
+            if(parent != null) parent.mkdirs();
+            
+            channel = new RandomAccessFile(file, "rw").getChannel();
+            
+            text = CharBuffer.allocate(BUFFER_SIZE);
+            
+            bytes = ByteBuffer.allocate((int)(BUFFER_SIZE * encoder.maxBytesPerChar()) + 16);
+            
+            openWriters++;
+            
+        }
+        
+    }
+    
+    /**
+     * Whether the open channel still writes to the file: the file exists and 
+     * has not been changed by anyone else since the last save.
+     * 
+     * @return 
+     * 
+     * @throws Exception 
+     */
+    private boolean isCurrent() throws Exception { return file.exists() && file.length() == channel.size() && file.lastModified() == lastModified; }
+    
+    /**
+     * Close the file channel.
+     */
+    private void close() {
+        
+        synchronized(writers) {
+            
+            if(channel == null) return;
+            
+            try { channel.close(); }
+            catch(Exception e) { log.error(e); }
+            
+            channel = null;
+            
+            text = null;
+            
+            bytes = null;
+            
+            openWriters--;
+            
+        }
+        
+    }
+    
+    /**
+     * Close all the file channels.
+     */
+    static void closeAll() {
+        
+        synchronized(writers) {
+            
+            for(DelimitedArchiveWriter writer : writers.values()) writer.close();
+            
+            writers.clear();
+            
+        }
+        
+    }
+    
+    /**
+     * Get the fsync policy from the properties.
+     * 
+     * @return 
+     */
+    private static String getFsyncPolicy() {
+        
+        try {
+            
+            String policy = CommonProperties.getInstance().get(StringCapabilities.ARCHIVE_FSYNC.getCapability());
+            
+            if(FSYNC_SAVE.equalsIgnoreCase(policy)) return FSYNC_SAVE;
+            
+            if(FSYNC_WRITE.equalsIgnoreCase(policy)) return FSYNC_WRITE;
+            
+        }
+        catch(Exception e) { log.error(e); }
+        
+        return FSYNC_NONE;
+        
+    }
+    
+}
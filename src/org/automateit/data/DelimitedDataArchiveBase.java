@@ -18,15 +18,19 @@
 
 package org.automateit.data;
 
-import java.io.File;
-import java.io.FileWriter;
-import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.apache.log4j.Logger;
         
 /**
  * Data archive base class for archiving to any kind of delimited files.
  * 
+ * Appending saves only write the rows added since the last save to the same 
+ * file. Rows are written through a shared, buffered writer for each file, 
+ * see <code>DelimitedArchiveWriter</code>.
+ * 
  * @author mburnside
  */
 public class DelimitedDataArchiveBase extends DataArchiveBase {
@@ -36,6 +40,23 @@ public class DelimitedDataArchiveBase extends DataArchiveBase {
      */
     private static Logger log = Logger.getLogger(DelimitedDataArchiveBase.class);
     
+    /**
+     * Sequence number of the last row saved to each file
+     */
+    private final Map<String, Long> saved = new HashMap<String, Long>();
+    
+    /**
+     * Default constructor.
+     */
+    public DelimitedDataArchiveBase() { }
+    
+    /**
+     * Copy constructor. The archive uses the table as is, it is not copied.
+     * 
+     * @param table 
+     */
+    public DelimitedDataArchiveBase(RowTable table) { super(table); }
+    
     /**
      * Save the data to a file.
      * 
@@ -45,25 +66,27 @@ public class DelimitedDataArchiveBase extends DataArchiveBase {
      * 
      * @throws Exception 
      */
-    public void saveData(String filename, boolean append, String delimiter) throws Exception {
+    public synchronized void saveData(String filename, boolean append, String delimiter) throws Exception {
         
         try {
             
-            PrintWriter writer = new PrintWriter(new FileWriter(new File(filename), append));
+            Long last = saved.get(filename);
+            
+            List<String[]> rows = null;
+            
+            long sequence = 0;
             
-            for(int i = 0; i < list.size(); i++) {
+            synchronized(table) {
                 
-                String[] data = list.get(i); 
-    
-                for(int j = 0; j < data.length; j++) writer.print(data[j] + delimiter);
+                rows = table.getRowsAddedAfter((append && last != null) ? last : 0);
+                
+                sequence = table.getSequence();
                 
-                writer.print("\n");
-        
             }
-                       
-            writer.close();
             
-            writer = null;
+            DelimitedArchiveWriter.write(filename, rows, append, delimiter);
+            
+            saved.put(filename, sequence);
         
         }
         catch(Exception e) { log.error(e); throw e; }
@@ -94,7 +117,8 @@ public class DelimitedDataArchiveBase extends DataArchiveBase {
     }
     
     /**
-     * Save the data to a file. Appends to the pre-existing file.
+     * Save the data to a file. Appends to the pre-existing file, only the 
+     * rows added since the last save to the file are written.
      * 
      * @param filename
      * @param delimiter the delimiter (text separator) to use
@@ -114,6 +138,18 @@ public class DelimitedDataArchiveBase extends DataArchiveBase {
         
     }
     
+    /**
+     * Clear/remove all data collected.
+     * 
+     * @throws Exception 
+     */
+    @Override
+    public synchronized void clearData() throws Exception { 
+        
+        super.clearData(); 
+        
+        saved.clear();
+    
+    }
     
 }
-
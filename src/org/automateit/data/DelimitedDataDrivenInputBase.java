@@ -27,7 +27,8 @@ import java.util.StringTokenizer;
 
 /**
  * This class allows for use of a delimiter separated value file to provide 
- * input data to a set of tests.
+ * input data to a set of tests. Quoted values, as the archives write them, 
+ * are read back as written (see <code>DelimitedRowParser</code>).
  * 
  * @author mburnside
  */
@@ -45,17 +46,20 @@ public class DelimitedDataDrivenInputBase extends DataDrivenInputBase implements
 
         String line = null;
         
+        BufferedReader reader = null;
+        
         try {
         
-            BufferedReader reader = new BufferedReader(new FileReader(new File(filename)));
+            reader = new BufferedReader(new FileReader(new File(filename)));
         
-            while ((line = reader.readLine()) != null) {
+            while ((line = DelimitedRowParser.readRow(reader, delimiter)) != null) {
                 
                 if(hasDataSetId(line, delimiter)) { inputParameters.put(getDataSetId(line, delimiter).trim(), getDataRow(line, delimiter)); }
         
             }
             
         } catch ( Exception e ) { throw e; }
+        finally { if(reader != null) reader.close(); }
 
     }
     
@@ -94,6 +98,15 @@ public class DelimitedDataDrivenInputBase extends DataDrivenInputBase implements
         
         try {
             
+            // a quoted data id is read as a value
+            if(s.indexOf(DelimitedRowParser.QUOTE) >= 0) {
+                
+                String[] values = DelimitedRowParser.split(s, delimiter);
+                
+                if((values.length > 0) && (values[0].trim().length() > 0)) return values[0].trim();
+                
+            }
+            
             StringTokenizer st = new StringTokenizer(s, delimiter);
             
             return st.nextToken().trim();
@@ -121,7 +134,7 @@ public class DelimitedDataDrivenInputBase extends DataDrivenInputBase implements
             
             rowData = new HashMap();
             
-            String[] array = s.split(delimiter);
+            String[] array = DelimitedRowParser.split(s, delimiter);
             
             for(int i = 0; i < array.length; i++) {
                
@@ -0,0 +1,220 @@
+/**
+ * This file is part of Automate It!'s free and open source web and mobile 
+ * application testing framework.
+ * 
+ * Automate It! is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Automate It! is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Automate It!.  If not, see <http://www.gnu.org/licenses/>.
+ *  
+ **/
+
+package org.automateit.data;
+
+import java.io.BufferedReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class reads the rows of a delimited file the way the archives write them 
+ * (<code>DelimitedArchiveWriter</code>): a value starting with a double quote is 
+ * quoted, <code>""</code> in it is a quote, and it can contain the delimiter and 
+ * line breaks. A quote anywhere else is part of the value.
+ * <p>
+ * Rows without a quote are split with <code>String.split</code>, exactly as before.
+ * 
+ * @author mburnside
+ */
+final class DelimitedRowParser {
+    
+    /**
+     * The quote character
+     */
+    static final char QUOTE = '"';
+    
+    /**
+     * Default Constructor
+     */
+    private DelimitedRowParser() { }
+    
+    /**
+     * Read a row: a line, and the lines after it while a quoted value is open.
+     * 
+     * @param reader
+     * @param delimiter the delimiter (a regular expression, as the readers use it)
+     * 
+     * @return The row or <code>null</code> at the end of the file
+     * 
+     * @throws Exception 
+     */
+    static String readRow(BufferedReader reader, String delimiter) throws Exception {
+        
+        String line = reader.readLine();
+        
+        if((line == null) || (line.indexOf(QUOTE) < 0)) return line;
+        
+        char separator = toChar(delimiter);
+        
+        StringBuilder row = new StringBuilder(line);
+        
+        while(isQuoteOpen(row, separator) && ((line = reader.readLine()) != null)) row.append('\n').append(line);
+        
+        return row.toString();
+        
+    }
+    
+    /**
+     * Split a row into its values. Blank trailing values are not returned, as 
+     * <code>String.split</code> does.
+     * 
+     * @param row
+     * @param delimiter the delimiter (a regular expression, as the readers use it)
+     * 
+     * @return 
+     */
+    static String[] split(String row, String delimiter) {
+        
+        if(row.indexOf(QUOTE) < 0) return row.split(delimiter);
+        
+        return split(row, toChar(delimiter));
+        
+    }
+    
+    /**
+     * Split a row into its values in one pass. Blank trailing values are not 
+     * returned, as <code>String.split</code> does.
+     * 
+     * @param row
+     * @param delimiter
+     * 
+     * @return 
+     */
+    static String[] split(String row, char delimiter) {
+        
+        List<String> values = new ArrayList<String>();
+        
+        int length = row.length();
+        
+        int position = 0;
+        
+        while(position <= length) {
+            
+            if((position < length) && (row.charAt(position) == QUOTE)) {
+                
+                // quoted value, a doubled quote is a quote
+                StringBuilder value = new StringBuilder();
+                
+                int from = ++position;
+                
+                while(position < length) {
+                    
+                    if(row.charAt(position) == QUOTE) {
+                        
+                        value.append(row, from, position);
+                        
+                        if((position + 1 < length) && (row.charAt(position + 1) == QUOTE)) { value.append(QUOTE); position += 2; from = position; continue; }
+                        
+                        from = -1;
+                        
+                        break;
+                        
+                    }
+                    
+                    position++;
+                    
+                }
+                
+                // unterminated quote, take the rest of the row
+                if(from >= 0) value.append(row, from, Math.min(position, length));
+                
+                // skip anything between the closing quote and the delimiter
+                int next = row.indexOf(delimiter, position);
+                
+                values.add(value.toString());
+                
+                position = (next < 0) ? length + 1 : next + 1;
+                
+            }
+            else {
+                
+                int next = row.indexOf(delimiter, position);
+                
+                if(next < 0) next = length;
+                
+                values.add(row.substring(position, next));
+                
+                position = next + 1;
+                
+            }
+            
+        }
+        
+        // blank trailing values are not returned, as String.split does
+        int count = values.size();
+        
+        while((count > 0) && (values.get(count - 1).length() == 0)) count--;
+        
+        return values.subList(0, count).toArray(new String[count]);
+        
+    }
+    
+    /**
+     * Check if a quoted value is still open at the end of the text.
+     * 
+     * @param text
+     * @param delimiter
+     * 
+     * @return 
+     */
+    private static boolean isQuoteOpen(CharSequence text, char delimiter) {
+        
+        boolean quoted = false;
+        
+        boolean valueStart = true;
+        
+        for(int i = 0; i < text.length(); i++) {
+            
+            char c = text.charAt(i);
+            
+            if(quoted) {
+                
+                if(c == QUOTE) {
+                    
+                    if((i + 1 < text.length()) && (text.charAt(i + 1) == QUOTE)) i++;
+                    else quoted = false;
+                    
+                }
+                
+                continue;
+                
+            }
+            
+            if((c == QUOTE) && valueStart) quoted = true;
+            
+            valueStart = (c == delimiter) || (c == '\n');
+            
+        }
+        
+        return quoted;
+        
+    }
+    
+    /**
+     * Get the delimiter character from the delimiter the readers split with 
+     * (eg. <code>","</code> or <code>"\\|"</code>).
+     * 
+     * @param delimiter
+     * 
+     * @return 
+     */
+    private static char toChar(String delimiter) { return delimiter.charAt(delimiter.length() - 1); }
+    
+}
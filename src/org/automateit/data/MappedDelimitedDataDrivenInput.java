@@ -0,0 +1,492 @@
+/**
+ * This file is part of Automate It!'s free and open source web and mobile 
+ * application testing framework.
+ * 
+ * Automate It! is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Automate It! is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Automate It!.  If not, see <http://www.gnu.org/licenses/>.
+ *  
+ **/
+
+package org.automateit.data;
+
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.log4j.Logger;
+
+/**
+ * This class reads a delimited file (CSV, pipe delimited...) lazily: the file is memory-mapped and
+ * only the offset of each row and its data id (the first value) are read when it is opened. The values 
+ * of a row are parsed the first time the row is read, in one pass. 
+ * <p>
+ * Values can be quoted (<code>"a, b"</code>, with <code>""</code> for a quote), and quoted values 
+ * can span lines. Blank trailing values are not returned (<code>null</code>) like with 
+ * <code>DelimitedDataDrivenInputBase</code>. The file is decoded with the default character set, 
+ * which must be ASCII compatible (UTF-8, ISO-8859-1...).
+ * 
+ * @author mburnside
+ */
+public class MappedDelimitedDataDrivenInput implements DataDrivenInput {
+    
+    /**
+     * The quote character
+     */
+    private static final byte QUOTE = '"';
+    
+    /**
+     *  logging object
+     */
+    private static Logger logger = Logger.getLogger(MappedDelimitedDataDrivenInput.class);
+    
+    /**
+     * The file contents
+     */
+    private final MappedByteBuffer buffer;
+    
+    /**
+     * The delimiter
+     */
+    private final char delimiter;
+    
+    /**
+     * The character set of the file
+     */
+    private final Charset charset = Charset.defaultCharset();
+    
+    /**
+     * The start and end (exclusive, without the line terminator) offset of each row
+     */
+    private int[] starts = new int[64];
+    private int[] ends = new int[64];
+    
+    /**
+     * The data id of each row
+     */
+    private String[] ids = new String[64];
+    
+    /**
+     * The number of rows
+     */
+    private int rowCount = 0;
+    
+    /**
+     * The row number of each data id
+     */
+    private final DataIdIndex index = new DataIdIndex(64);
+    
+    /**
+     * The values of each row, parsed on first access
+     */
+    private AtomicReferenceArray<String[]> rows = null;
+    
+    /**
+     * Copy constructor. Map the file and index its rows.
+     * 
+     * @param filename
+     * @param delimiter
+     * 
+     * @throws Exception 
+     */
+    public MappedDelimitedDataDrivenInput(String filename, char delimiter) throws Exception {
+        
+        this.delimiter = delimiter;
+        
+        RandomAccessFile file = null;
+        
+        try {
+            
+            file = new RandomAccessFile(filename, "r");
+            
+            FileChannel channel = file.getChannel();
+            
+            if(channel.size() > Integer.MAX_VALUE) throw new Exception("Unable to map the file because it is larger than 2 GB: " + filename);
+            
+            // the mapping stays valid after the file is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            
+        }
+        catch(Exception e) { throw e; }
+        finally { if(file != null) file.close(); }
+        
+        indexRows();
+        
+        rows = new AtomicReferenceArray<String[]>(rowCount);
+        
+        logger.debug("Indexed delimited file: " + filename + "|" + rowCount + " rows|" + index.size() + " data ids");
+        
+    }
+    
+    /**
+     * Get the number of rows.
+     * 
+     * @return 
+     */
+    public int getRowCount() { return rowCount; }
+    
+    /**
+     * Get the row number of a data id.
+     * 
+     * @param dataId
+     * 
+     * @return The row number or -1 if the data id does not exist
+     */
+    public int getRow(String dataId) { return index.get(dataId); }
+    
+    /**
+     * Get the values of a row.
+     * 
+     * @param row
+     * 
+     * @return The values (not to be changed) or <code>null</code> if the row does not exist
+     */
+    public String[] getValues(int row) {
+        
+        if((row < 0) || (row >= rowCount)) return null;
+        
+        String[] values = rows.get(row);
+        
+        // two threads may both parse the row, the result is the same
+        if(values == null) rows.set(row, values = parseRow(starts[row], ends[row]));
+        
+        return values;
+        
+    }
+    
+    /**
+     * Get a value by row number and column number.
+     * 
+     * @param row
+     * @param columnNumber
+     * 
+     * @return The value or <code>null</code> if the row has no value for the column
+     */
+    public String getValue(int row, int columnNumber) {
+        
+        String[] values = getValues(row);
+        
+        if((values == null) || (columnNumber < 0) || (columnNumber >= values.length)) return null;
+        
+        return values[columnNumber];
+        
+    }
+    
+    /**
+     * Return a set of input data for a given <code>dataId</code> integer.
+     * 
+     * @param dataId The data Id of type <code>integer</code>
+     * 
+     * @return The data set for the given <code>dataId</code>, or <code>null</code> if it does not exist
+     * 
+     * @throws Exception 
+     */
+    public Map returnInputDataForDataId(int dataId) throws Exception { return getRowMap(getRow(String.valueOf(dataId))); }
+    
+    /**
+     * Return a set of input data for a given <code>dataId</code>.
+     * 
+     * @param dataId The data Id of type <code>String</code>
+     * 
+     * @return The data set for the given <code>dataId</code>
+     * 
+     * @throws Exception 
+     */
+    public Map returnInputDataForDataId(String dataId) throws Exception {
+        
+        int row = getRow(dataId);
+        
+        if(row < 0) throw new Exception("Unable to return value because data set id does not exist in the input file: " + dataId);
+        
+        return getRowMap(row);
+        
+    }
+    
+    /**
+     * Convenience method for obtaining a single reference to data.
+     * 
+     * @param dataId
+     * @param columnNumber
+     * 
+     * @return The reference to data (not a set of data)
+     *  return null if dataId exists but cell for the particular columnNumber is blank
+     *  
+     * @throws Exception 
+     */
+    public String returnInputDataForDataIdAndColumnNumber(int dataId, int columnNumber) throws Exception { return returnInputDataForDataIdAndColumnNumber(String.valueOf(dataId), columnNumber); }
+    
+    /**
+     * Convenience method for obtaining a single reference to data.
+     * 
+     * @param dataId
+     * @param columnNumber
+     * 
+     * @return The reference to data (not a set of data)
+     *  return null if dataId exists but cell for the particular columnNumber is blank
+     *  
+     * @throws Exception 
+     */
+    public String returnInputDataForDataIdAndColumnNumber(String dataId, int columnNumber) throws Exception {
+        
+        int row = getRow(dataId);
+        
+        if(row < 0) throw new Exception("Unable to return value because data set id does not exist in the input file: " + dataId);
+        
+        return getValue(row, columnNumber);
+        
+    }
+    
+    /**
+     * Return true if the dataId exists, otherwise false
+     * 
+     * @param dataId
+     * 
+     * @return
+     */
+    public boolean hasDataId(int dataId) { return (getRow(String.valueOf(dataId)) >= 0); }
+    
+    /**
+     * Return true if the dataId exists, otherwise false
+     * 
+     * @param dataId
+     * 
+     * @return
+     */
+    public boolean hasDataId(String dataId) { return (getRow(dataId) >= 0); }
+    
+    /**
+     * Get all keys for the collection, in file order
+     * 
+     * @return 
+     */
+    public List<String> getDataIds() {
+        
+        List<String> list = new ArrayList<String>(index.size());
+        
+        // skip rows replaced by a later row with the same data id
+        for(int row = 0; row < rowCount; row++) if(getRow(ids[row]) == row) list.add(ids[row]);
+        
+        return list;
+        
+    }
+    
+    /**
+     * Print out all input
+     * 
+     * @throws Exception 
+     */
+    public void printAllInput() throws Exception {
+        
+        try { for(String dataId : getDataIds()) logger.info("MappedDelimitedDataDrivenInput.printAllInput: " + getRowMap(getRow(dataId))); }
+        catch(Exception e) { throw e; }
+        
+    }
+    
+    /**
+     * Convenience method for obtaining a single reference to data.
+     * 
+     * @param dataId
+     * @param columnNumber
+     * 
+     * @return The reference to data (not a set of data)
+     *  return null if dataId exists but cell for the particular columnNumber is blank
+     *  
+     * @throws Exception 
+     */
+    public String get(int dataId, int columnNumber) throws Exception { return returnInputDataForDataIdAndColumnNumber(dataId, columnNumber); }
+    
+    /**
+     * Convenience method for obtaining a single reference to data.
+     * 
+     * @param dataId
+     * @param columnNumber
+     * 
+     * @return The reference to data (not a set of data)
+     *  return null if dataId exists but cell for the particular columnNumber is blank
+     *  
+     * @throws Exception 
+     */
+    public String get(String dataId, int columnNumber) throws Exception { return returnInputDataForDataIdAndColumnNumber(dataId, columnNumber); }
+    
+    /**
+     * Build the map of a row, keyed by column number as a string.
+     * 
+     * @param row
+     * 
+     * @return The map or <code>null</code> if the row does not exist
+     */
+    protected Map<String, String> getRowMap(int row) {
+        
+        String[] values = getValues(row);
+        
+        if(values == null) return null;
+        
+        Map<String, String> rowData = new HashMap<String, String>();
+        
+        for(int i = 0; i < values.length; i++) rowData.put(String.valueOf(i), values[i]);
+        
+        return rowData;
+        
+    }
+    
+    /**
+     * Find the rows of the file and read their data ids.
+     */
+    private void indexRows() {
+        
+        int size = buffer.limit();
+        
+        int position = 0;
+        
+        while(position < size) {
+            
+            int start = position;
+            
+            // find the end of the row, line terminators in quoted values are part of the row
+            boolean quoted = false;
+            boolean valueStart = true;
+            
+            for(; position < size; position++) {
+                
+                byte b = buffer.get(position);
+                
+                if(quoted) { 
+                    
+                    if(b == QUOTE) {
+                        
+                        if((position + 1 < size) && (buffer.get(position + 1) == QUOTE)) position++;
+                        else quoted = false;
+                        
+                    }
+                    
+                    continue; 
+                
+                }
+                
+                if((b == '\n') || (b == '\r')) break;
+                
+                if((b == QUOTE) && valueStart) quoted = true;
+                
+                valueStart = (b == delimiter);
+                
+            }
+            
+            int end = position;
+            
+            if((position < size) && (buffer.get(position) == '\r')) position++;
+            if((position < size) && (buffer.get(position) == '\n')) position++;
+            
+            String dataId = readDataId(start, end);
+            
+            if(dataId.length() > 0) addRow(dataId, start, end);
+            
+        }
+        
+    }
+    
+    /**
+     * Read the first value of a row, trimmed.
+     * 
+     * @param start
+     * @param end
+     * 
+     * @return 
+     */
+    private String readDataId(int start, int end) {
+        
+        int position = start;
+        
+        while((position < end) && (buffer.get(position) == ' ')) position++;
+        
+        // a quoted data id is rare, parse the row
+        if((position < end) && (buffer.get(position) == QUOTE)) { 
+            
+            String[] values = parseRow(start, end);
+            
+            return (values.length == 0) ? "" : values[0].trim();
+        
+        }
+        
+        int valueEnd = position;
+        
+        while((valueEnd < end) && (buffer.get(valueEnd) != delimiter)) valueEnd++;
+        
+        return decode(position, valueEnd).trim();
+        
+    }
+    
+    /**
+     * Add a row to the index.
+     * 
+     * @param dataId
+     * @param start
+     * @param end 
+     */
+    private void addRow(String dataId, int start, int end) {
+        
+        if(rowCount == starts.length) {
+            
+            starts = Arrays.copyOf(starts, rowCount * 2);
+            ends = Arrays.copyOf(ends, rowCount * 2);
+            ids = Arrays.copyOf(ids, rowCount * 2);
+            
+        }
+        
+        starts[rowCount] = start;
+        ends[rowCount] = end;
+        ids[rowCount] = dataId;
+        
+        index.put(dataId, rowCount++);
+        
+    }
+    
+    /**
+     * Parse the values of a row in one pass.
+     * 
+     * @param start
+     * @param end
+     * 
+     * @return 
+     */
+    private String[] parseRow(int start, int end) { return DelimitedRowParser.split(decode(start, end), delimiter); }
+    
+    /**
+     * Decode part of the file.
+     * 
+     * @param start
+     * @param end
+     * 
+     * @return 
+     */
+    private String decode(int start, int end) {
+        
+        byte[] bytes = new byte[end - start];
+        
+        ByteBuffer view = buffer.duplicate();
+        
+        view.position(start);
+        
+        view.get(bytes);
+        
+        return new String(bytes, charset);
+        
+    }
+    
+}
@@ -0,0 +1,422 @@
+/**
+ * This file is part of Automate It!'s free and open source web and mobile 
+ * application testing framework.
+ * 
+ * Automate It! is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Automate It! is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Automate It!.  If not, see <http://www.gnu.org/licenses/>.
+ *  
+ **/
+
+package org.automateit.data;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory table of rows, shared by the data archives and the data driven 
+ * input that views them (<code>RowTableDataDrivenInput</code>), so data can 
+ * go from one to the other without being copied or written to a file.
+ * 
+ * Rows are kept in the order they were added, in an array with a hash index 
+ * on the (trimmed) key in the first column, so adding, replacing or finding 
+ * a row takes constant time. Adding a row with an existing key removes the 
+ * previous row, unless the table is append-only (eg. repeated page timings).
+ * 
+ * @author mburnside
+ */
+public class RowTable {
+    
+    /**
+     * The initial number of rows allocated
+     */
+    private static final int INITIAL_CAPACITY = 16;
+    
+    /**
+     * Row store, replaced rows are left as null until the store is compacted
+     */
+    private String[][] rows = new String[INITIAL_CAPACITY][];
+    
+    /**
+     * Sequence number of each row in the row store
+     */
+    private long[] sequences = new long[INITIAL_CAPACITY];
+    
+    /**
+     * Sequence number of the last row added
+     */
+    private long sequence = 0;
+    
+    /**
+     * Number of slots used in the row store, including replaced rows
+     */
+    private int used = 0;
+    
+    /**
+     * Number of replaced rows in the row store
+     */
+    private int removed = 0;
+    
+    /**
+     * Position of the last row for each key in the row store
+     */
+    private final Map<String, Integer> index = new HashMap<String, Integer>();
+    
+    /**
+     * Keep every row added, even if the key already exists
+     */
+    private boolean appendOnly = false;
+    
+    /**
+     * Default constructor.
+     */
+    public RowTable() { }
+    
+    /**
+     * Add a row. If the key already exists, the previous row is removed and 
+     * the new row is added at the end, unless the table is append-only.
+     * 
+     * @param data 
+     */
+    public synchronized void add(String[] data) { 
+        
+        Integer position = index.put(getKey(data), used);
+        
+        // remove the previous row and overwrite with the new row
+        if(position != null && !appendOnly) { rows[position] = null; removed++; }
+        
+        if(used == rows.length) {
+            
+            if(removed > used / 2) compact();
+            else {
+                
+                String[][] newRows = new String[rows.length * 2][];
+                
+                System.arraycopy(rows, 0, newRows, 0, used);
+                
+                rows = newRows;
+                
+                long[] newSequences = new long[rows.length];
+                
+                System.arraycopy(sequences, 0, newSequences, 0, used);
+                
+                sequences = newSequences;
+                
+            }
+            
+            // compacting moved the row the key was just indexed at
+            index.put(getKey(data), used);
+            
+        }
+    
+        sequences[used] = ++sequence;
+    
+        rows[used++] = data;
+    
+    }
+    
+    /**
+     * Get a row by position, in the order the rows were added.
+     * 
+     * @param i
+     * 
+     * @return 
+     */
+    public synchronized String[] get(int i) {
+        
+        if(removed > 0) compact();
+        
+        if(i < 0 || i >= used) throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + used);
+        
+        return rows[i];
+        
+    }
+    
+    /**
+     * Get the row for a key. For an append-only table, this is the last row 
+     * added with the key.
+     * 
+     * @param key
+     * 
+     * @return The row or <code>null</code> if the key does not exist
+     */
+    public synchronized String[] get(String key) {
+        
+        Integer position = index.get(key);
+        
+        return (position == null) ? null : rows[position];
+        
+    }
+    
+    /**
+     * Get the keys, in the order the rows were added. For an append-only 
+     * table, a key is listed once, at its last row.
+     * 
+     * @return 
+     */
+    public synchronized List<String> getKeys() {
+        
+        List<String> keys = new ArrayList<String>(used - removed);
+        
+        for(int i = 0; i < used; i++) {
+            
+            if(rows[i] == null) continue;
+            
+            String key = getKey(rows[i]);
+            
+            if(key != null && index.get(key) == i) keys.add(key);
+            
+        }
+        
+        return keys;
+        
+    }
+    
+    /**
+     * Replace the row at a position, in the order the rows were added. The 
+     * row keeps its position and sequence number, so it is not written 
+     * again by incremental saves.
+     * 
+     * @param i
+     * @param data
+     * 
+     * @return The row replaced
+     */
+    public synchronized String[] set(int i, String[] data) {
+        
+        String[] previous = get(i);
+        
+        rows[i] = data;
+        
+        reindex();
+        
+        return previous;
+        
+    }
+    
+    /**
+     * Insert a row at a position, in the order the rows were added. A row 
+     * inserted before the end is not written by incremental saves.
+     * 
+     * @param i
+     * @param data 
+     */
+    public synchronized void add(int i, String[] data) {
+        
+        if(removed > 0) compact();
+        
+        if(i < 0 || i > used) throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + used);
+        
+        if(i == used) { add(data); return; }
+        
+        if(used == rows.length) {
+            
+            String[][] newRows = new String[rows.length * 2][];
+            
+            System.arraycopy(rows, 0, newRows, 0, used);
+            
+            rows = newRows;
+            
+            long[] newSequences = new long[rows.length];
+            
+            System.arraycopy(sequences, 0, newSequences, 0, used);
+            
+            sequences = newSequences;
+            
+        }
+        
+        System.arraycopy(rows, i, rows, i + 1, used - i);
+        
+        System.arraycopy(sequences, i, sequences, i + 1, used - i);
+        
+        rows[i] = data;
+        
+        // keep the sequence numbers in order for getRowsAddedAfter
+        sequences[i] = (i == 0) ? 0 : sequences[i - 1];
+        
+        used++;
+        
+        reindex();
+        
+    }
+    
+    /**
+     * Remove the row at a position, in the order the rows were added.
+     * 
+     * @param i
+     * 
+     * @return The row removed
+     */
+    public synchronized String[] remove(int i) {
+        
+        String[] previous = get(i);
+        
+        System.arraycopy(rows, i + 1, rows, i, used - i - 1);
+        
+        System.arraycopy(sequences, i + 1, sequences, i, used - i - 1);
+        
+        rows[--used] = null;
+        
+        reindex();
+        
+        return previous;
+        
+    }
+    
+    /**
+     * Get the number of rows.
+     * 
+     * @return 
+     */
+    public synchronized int size() { return used - removed; }
+    
+    /**
+     * Remove all rows.
+     */
+    public synchronized void clear() {
+        
+        rows = new String[INITIAL_CAPACITY][];
+        
+        sequences = new long[INITIAL_CAPACITY];
+        
+        used = 0;
+        
+        removed = 0;
+        
+        index.clear();
+        
+    }
+    
+    /**
+     * Get the sequence number of the last row added. Every row added gets 
+     * a higher number than the rows added before it.
+     * 
+     * @return 
+     */
+    public synchronized long getSequence() { return sequence; }
+    
+    /**
+     * Get the rows added after the row with the given sequence number that 
+     * have not been replaced since, in the order they were added.
+     * 
+     * @param sequence
+     * 
+     * @return 
+     */
+    public synchronized List<String[]> getRowsAddedAfter(long sequence) {
+        
+        int first = used;
+        
+        while(first > 0 && sequences[first - 1] > sequence) first--;
+        
+        List<String[]> added = new ArrayList<String[]>(used - first);
+        
+        for(int i = first; i < used; i++) if(rows[i] != null) added.add(rows[i]);
+        
+        return added;
+        
+    }
+    
+    /**
+     * Set whether every row added is kept, even if its key already exists. 
+     * When turned off, the rows already added are de-duplicated, keeping 
+     * the last row for each key.
+     * 
+     * @param appendOnly 
+     */
+    public synchronized void setAppendOnly(boolean appendOnly) { 
+        
+        if(this.appendOnly && !appendOnly) {
+            
+            index.clear();
+            
+            for(int i = 0; i < used; i++) {
+                
+                if(rows[i] == null) continue;
+                
+                Integer position = index.put(getKey(rows[i]), i);
+                
+                if(position != null) { rows[position] = null; removed++; }
+                
+            }
+            
+        }
+        
+        this.appendOnly = appendOnly; 
+    
+    }
+    
+    /**
+     * Whether every row added is kept, even if its key already exists.
+     * 
+     * @return 
+     */
+    public synchronized boolean isAppendOnly() { return appendOnly; }
+    
+    /**
+     * Get the key of a row, the trimmed value of its first column.
+     * 
+     * @param data
+     * 
+     * @return 
+     */
+    private String getKey(String[] data) { return (data.length == 0 || data[0] == null) ? null : data[0].trim(); }
+    
+    /**
+     * Rebuild the key index after rows have been moved, indexing the last 
+     * row for each key.
+     */
+    private void reindex() {
+        
+        index.clear();
+        
+        for(int i = 0; i < used; i++) if(rows[i] != null) index.put(getKey(rows[i]), i);
+        
+    }
+    
+    /**
+     * Move the remaining rows to the front of the row store.
+     */
+    private void compact() {
+        
+        int count = 0;
+        
+        for(int i = 0; i < used; i++) {
+            
+            if(rows[i] == null) continue;
+            
+            if(count != i) {
+                
+                rows[count] = rows[i];
+                
+                sequences[count] = sequences[i];
+                
+                // rows move in order, so the last row for a key is indexed last
+                index.put(getKey(rows[count]), count);
+                
+            }
+            
+            count++;
+            
+        }
+        
+        for(int i = count; i < used; i++) rows[i] = null;
+        
+        used = count;
+        
+        removed = 0;
+        
+    }
+    
+}
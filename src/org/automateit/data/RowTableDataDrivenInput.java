@@ -0,0 +1,221 @@
+/**
+ * This file is part of Automate It!'s free and open source web and mobile 
+ * application testing framework.
+ * 
+ * Automate It! is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Automate It! is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Automate It!.  If not, see <http://www.gnu.org/licenses/>.
+ *  
+ **/
+
+package org.automateit.data;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+/**
+ * This class reads a <code>RowTable</code>, eg. the rows of a data archive, 
+ * as data driven input. The table is not copied: rows added to it afterwards 
+ * can be read as well.
+ * 
+ * The data id is the (trimmed) first value of a row and column 0 is the first 
+ * value, as with a delimited file saved from the archive and read back. 
+ * Values are returned as they were added (not split, trimmed or converted to 
+ * text).
+ * 
+ * @author mburnside
+ */
+public class RowTableDataDrivenInput implements DataDrivenInput {
+    
+    /**
+     *  logging object
+     */
+    private static Logger logger = Logger.getLogger(RowTableDataDrivenInput.class);
+    
+    /**
+     * The table read
+     */
+    private final RowTable table;
+    
+    /**
+     * Copy constructor.
+     * 
+     * @param table 
+     */
+    public RowTableDataDrivenInput(RowTable table) { this.table = table; }
+    
+    /**
+     * Get the table read.
+     * 
+     * @return 
+     */
+    public RowTable getTable() { return table; }
+    
+    /**
+     * Return a set of input data for a given <code>dataId</code> integer.
+     * 
+     * @param dataId The data Id of type <code>integer</code>
+     * 
+     * @return The data set for the given <code>dataId</code>, or <code>null</code> if it does not exist
+     * 
+     * @throws Exception 
+     */
+    public Map returnInputDataForDataId(int dataId) throws Exception { return getRowMap(table.get(String.valueOf(dataId))); }
+    
+    /**
+     * Return a set of input data for a given <code>dataId</code>.
+     * 
+     * @param dataId The data Id of type <code>String</code>
+     * 
+     * @return The data set for the given <code>dataId</code>
+     * 
+     * @throws Exception 
+     */
+    public Map returnInputDataForDataId(String dataId) throws Exception { return getRowMap(getRow(dataId)); }
+    
+    /**
+     * Convenience method for obtaining a single reference to data.
+     * 
+     * @param dataId
+     * @param columnNumber
+     * 
+     * @return The reference to data (not a set of data)
+     *  return null if dataId exists but cell for the particular columnNumber is blank
+     *  
+     * @throws Exception 
+     */
+    public String returnInputDataForDataIdAndColumnNumber(int dataId, int columnNumber) throws Exception { return returnInputDataForDataIdAndColumnNumber(String.valueOf(dataId), columnNumber); }
+    
+    /**
+     * Convenience method for obtaining a single reference to data.
+     * 
+     * @param dataId
+     * @param columnNumber
+     * 
+     * @return The reference to data (not a set of data)
+     *  return null if dataId exists but cell for the particular columnNumber is blank
+     *  
+     * @throws Exception 
+     */
+    public String returnInputDataForDataIdAndColumnNumber(String dataId, int columnNumber) throws Exception {
+        
+        String[] row = getRow(dataId);
+        
+        return (columnNumber >= 0 && columnNumber < row.length) ? row[columnNumber] : null;
+        
+    }
+    
+    /**
+     * Return true if the dataId exists, otherwise false
+     * 
+     * @param dataId
+     * 
+     * @return
+     */
+    public boolean hasDataId(int dataId) { return hasDataId(String.valueOf(dataId)); }
+    
+    /**
+     * Return true if the dataId exists, otherwise false
+     * 
+     * @param dataId
+     * 
+     * @return
+     */
+    public boolean hasDataId(String dataId) { return (table.get(dataId) != null); }
+    
+    /**
+     * Print out all input
+     * 
+     * @throws Exception 
+     */
+    public void printAllInput() throws Exception {
+        
+        try { for(String dataId : getDataIds()) logger.info("RowTableDataDrivenInput.printAllInput: " + getRowMap(table.get(dataId))); }
+        catch(Exception e) { throw e; }
+        
+    }
+    
+    /**
+     * Get all keys for the collection, in the order they were added
+     * 
+     * @return 
+     */
+    public List<String> getDataIds() { return table.getKeys(); }
+    
+    /**
+     * Convenience method for obtaining a single reference to data.
+     * 
+     * @param dataId
+     * @param columnNumber
+     * 
+     * @return The reference to data (not a set of data)
+     *  return null if dataId exists but cell for the particular columnNumber is blank
+     *  
+     * @throws Exception 
+     */
+    public String get(int dataId, int columnNumber) throws Exception { return returnInputDataForDataIdAndColumnNumber(dataId, columnNumber); }
+    
+    /**
+     * Convenience method for obtaining a single reference to data.
+     * 
+     * @param dataId
+     * @param columnNumber
+     * 
+     * @return The reference to data (not a set of data)
+     *  return null if dataId exists but cell for the particular columnNumber is blank
+     *  
+     * @throws Exception 
+     */
+    public String get(String dataId, int columnNumber) throws Exception { return returnInputDataForDataIdAndColumnNumber(dataId, columnNumber); }
+    
+    /**
+     * Get the row for a data id.
+     * 
+     * @param dataId
+     * 
+     * @return
+     * 
+     * @throws Exception if the data id does not exist
+     */
+    private String[] getRow(String dataId) throws Exception {
+        
+        String[] row = table.get(dataId);
+        
+        if(row == null) throw new Exception("Unable to return value because data set id does not exist in the input file: " + dataId);
+        
+        return row;
+        
+    }
+    
+    /**
+     * Build the map of a row, keyed by column number as a string.
+     * 
+     * @param row
+     * 
+     * @return The map or <code>null</code> if there is no row
+     */
+    private Map<String, String> getRowMap(String[] row) {
+        
+        if(row == null) return null;
+        
+        Map<String, String> rowData = new HashMap<String, String>();
+        
+        for(int i = 0; i < row.length; i++) if(row[i] != null) rowData.put(String.valueOf(i), row[i]);
+        
+        return rowData;
+        
+    }
+    
+}
@@ -0,0 +1,289 @@
+/**
+ * This file is part of Automate It!'s free and open source web and mobile 
+ * application testing framework.
+ * 
+ * Automate It! is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Automate It! is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Automate It!.  If not, see <http://www.gnu.org/licenses/>.
+ *  
+ **/
+
+package org.automateit.data;
+
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.parsers.SAXParserFactory;
+
+import org.apache.log4j.Logger;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * This class allows for use of an Excel spreadsheet (.xlsx) to provide input data to
+ * a set of tests, reading the sheet as a stream of XML events (POI event model) instead of
+ * loading the workbook, so only the values are kept (in a <code>ColumnarDataDrivenInput</code>).
+ * <p>
+ * The data id is the value of the first column, and the row maps are keyed by <code>Integer</code> 
+ * column number, as with <code>DataDrivenExcel</code>. Text, inline text, 
+ * formula results and booleans are read as text; numbers are truncated to integers (as <code>DataDrivenExcel</code> 
+ * does) unless <code>NUMBERS_DECIMAL</code> is used, which keeps them as written (<code>2.50</code> is <code>2.5</code>).
+ * 
+ * @author mburnside
+ */
+public class StreamingExcelDataDrivenInput extends ColumnarDataDrivenInput {
+    
+    /**
+     * Numbers are truncated to integers
+     */
+    public static final String NUMBERS_INTEGER = "integer";
+    
+    /**
+     * Numbers are kept as written
+     */
+    public static final String NUMBERS_DECIMAL = "decimal";
+    
+    /**
+     *  logging object
+     */
+    private static Logger logger = Logger.getLogger(StreamingExcelDataDrivenInput.class);
+    
+    /**
+     * Copy constructor. Read the first sheet, numbers truncated to integers.
+     * 
+     * @param filename
+     * 
+     * @throws Exception 
+     */
+    public StreamingExcelDataDrivenInput(String filename) throws Exception { this(filename, null, NUMBERS_INTEGER); }
+    
+    /**
+     * Copy constructor.
+     * 
+     * @param filename
+     * @param sheetName the name of the sheet to read, the first sheet if <code>null</code>
+     * @param numbers <code>NUMBERS_INTEGER</code> or <code>NUMBERS_DECIMAL</code>
+     * 
+     * @throws Exception 
+     */
+    public StreamingExcelDataDrivenInput(String filename, String sheetName, String numbers) throws Exception {
+        
+        OPCPackage pkg = null;
+        
+        // keep the contract of DataDrivenExcel
+        setIntegerColumnKeys(true);
+        
+        setNullForMissingDataId(true);
+        
+        try {
+            
+            pkg = OPCPackage.open(filename, PackageAccess.READ);
+            
+            XSSFReader reader = new XSSFReader(pkg);
+            
+            ReadOnlySharedStringsTable sharedStrings = new ReadOnlySharedStringsTable(pkg);
+            
+            InputStream sheet = getSheet(reader, sheetName);
+            
+            if(sheet == null) throw new Exception("Unable to find the sheet: " + sheetName + " in the file: " + filename);
+            
+            try {
+                
+                SAXParserFactory factory = SAXParserFactory.newInstance();
+                
+                factory.setNamespaceAware(true);
+                
+                XMLReader parser = factory.newSAXParser().getXMLReader();
+                
+                parser.setContentHandler(new SheetHandler(sharedStrings, NUMBERS_DECIMAL.equalsIgnoreCase(numbers)));
+                
+                parser.parse(new InputSource(sheet));
+                
+            }
+            finally { sheet.close(); }
+            
+            trim();
+            
+            logger.debug("Read the spreadsheet: " + filename + "|" + getRowCount() + " rows");
+            
+        }
+        catch(Exception e) { throw e; }
+        finally { if(pkg != null) pkg.revert(); }
+        
+    }
+    
+    /**
+     * Get the data of a sheet.
+     * 
+     * @param reader
+     * @param sheetName the name of the sheet, the first sheet if <code>null</code>
+     * 
+     * @return The sheet data or <code>null</code> if there is no such sheet
+     * 
+     * @throws Exception 
+     */
+    private InputStream getSheet(XSSFReader reader, String sheetName) throws Exception {
+        
+        XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator)reader.getSheetsData();
+        
+        while(sheets.hasNext()) {
+            
+            InputStream sheet = sheets.next();
+            
+            if((sheetName == null) || sheetName.trim().equals(sheets.getSheetName())) return sheet;
+            
+            sheet.close();
+            
+        }
+        
+        return null;
+        
+    }
+    
+    /**
+     * Get the column index of a cell reference (<code>C12</code> is 2).
+     * 
+     * @param reference
+     * 
+     * @return The index or -1 if the reference has no column
+     */
+    static int getColumnIndex(String reference) {
+        
+        int column = 0;
+        
+        int i = 0;
+        
+        for(; (i < reference.length()) && Character.isLetter(reference.charAt(i)); i++) column = (column * 26) + (Character.toUpperCase(reference.charAt(i)) - 'A' + 1);
+        
+        return column - 1;
+        
+    }
+    
+    /**
+     * Reads the rows of a sheet and adds them to the store.
+     */
+    private class SheetHandler extends DefaultHandler {
+        
+        private final ReadOnlySharedStringsTable sharedStrings;
+        
+        private final boolean decimal;
+        
+        /**
+         * The values of the current row
+         */
+        private final List<String> row = new ArrayList<String>();
+        
+        /**
+         * The current cell
+         */
+        private String cellType = null;
+        private int column = -1;
+        private final StringBuilder text = new StringBuilder();
+        private boolean inValue = false;
+        
+        SheetHandler(ReadOnlySharedStringsTable sharedStrings, boolean decimal) { 
+            
+            this.sharedStrings = sharedStrings; 
+            this.decimal = decimal;
+        
+        }
+        
+        @Override
+        public void startElement(String uri, String localName, String name, Attributes attributes) {
+            
+            if("row".equals(localName)) { row.clear(); column = -1; }
+            else if("c".equals(localName)) {
+                
+                String reference = attributes.getValue("r");
+                
+                column = (reference == null) ? column + 1 : getColumnIndex(reference);
+                
+                cellType = attributes.getValue("t");
+                
+                text.setLength(0);
+                
+            }
+            else if("v".equals(localName) || ("t".equals(localName) && "inlineStr".equals(cellType))) inValue = true;
+            
+        }
+        
+        @Override
+        public void characters(char[] ch, int start, int length) { if(inValue) text.append(ch, start, length); }
+        
+        @Override
+        public void endElement(String uri, String localName, String name) {
+            
+            if("v".equals(localName) || "t".equals(localName)) inValue = false;
+            else if("c".equals(localName)) {
+                
+                String value = getValue();
+                
+                if((value != null) && (column >= 0)) {
+                    
+                    while(row.size() <= column) row.add(null);
+                    
+                    row.set(column, value);
+                    
+                }
+                
+            }
+            else if("row".equals(localName)) {
+                
+                if(!row.isEmpty() && (row.get(0) != null)) addRow(row.get(0), row);
+                
+            }
+            
+        }
+        
+        /**
+         * Convert the value of the current cell.
+         * 
+         * @return The value or <code>null</code> for blank and error cells
+         */
+        private String getValue() {
+            
+            if((text.length() == 0) && !"inlineStr".equals(cellType)) return null;
+            
+            String value = text.toString();
+            
+            if("s".equals(cellType)) return sharedStrings.getEntryAt(Integer.parseInt(value.trim()));
+            
+            if("inlineStr".equals(cellType) || "str".equals(cellType)) return value;
+            
+            if("b".equals(cellType)) return "1".equals(value.trim()) ? "true" : "false";
+            
+            if("e".equals(cellType)) return null;
+            
+            // numeric
+            try {
+                
+                if(decimal) return (new BigDecimal(value.trim())).stripTrailingZeros().toPlainString();
+                else return String.valueOf((int)Double.parseDouble(value.trim()));
+                
+            }
+            catch(Exception e) { return value; }
+            
+        }
+        
+    }
+    
+}
@@ -0,0 +1,379 @@
+/**
+ * This file is part of Automate It!'s free and open source web and mobile 
+ * application testing framework.
+ * 
+ * Automate It! is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Automate It! is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Automate It!.  If not, see <http://www.gnu.org/licenses/>.
+ *  
+ **/
+
+package org.automateit.data;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Data archive for archiving to XLSX (Excel) files that writes the rows as 
+ * they are added instead of keeping them until the file is saved.
+ * 
+ * Each row is written as plain (inline) string cells to a temporary sheet 
+ * file through a fixed size buffer, so only the rows in the buffer are held 
+ * in memory. All cells share the workbook's default cell style. 
+ * <code>saveData</code> packages the sheet into an XLSX file and can be 
+ * called more than once; rows added afterwards are kept for the next save.
+ * 
+ * Rows are appended in the order they are added: unlike the other archives, 
+ * adding a row with an existing key does not replace the earlier row.
+ * 
+ * The rows are not kept in memory, so unlike <code>XLSXDataArchive</code> 
+ * this is not a <code>DataArchiveBase</code> and the rows can not be read 
+ * back from the archive: save the data and read the file instead. 
+ * <code>close</code> (or <code>clearData</code>) closes and deletes the 
+ * temporary file, call it when the archive is no longer used.
+ * 
+ * @author mburnside
+ */
+public class StreamingXLSXDataArchive implements DataArchive {
+    
+    /**
+     *  logging object
+     */
+    private static Logger log = Logger.getLogger(StreamingXLSXDataArchive.class);
+    
+    /**
+     * Name of the sheet the rows are saved to.
+     */
+    private static final String SHEET_NAME = "Saved Data";
+    
+    /**
+     * Size of the buffer rows are written through.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    private static final String CONTENT_TYPES = 
+            "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n" +
+            "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">" +
+            "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>" +
+            "<Default Extension=\"xml\" ContentType=\"application/xml\"/>" +
+            "<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>" +
+            "<Override PartName=\"/xl/worksheets/sheet1.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>" +
+            "<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>" +
+            "</Types>";
+    
+    private static final String RELS = 
+            "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n" +
+            "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">" +
+            "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument\" Target=\"xl/workbook.xml\"/>" +
+            "</Relationships>";
+    
+    private static final String WORKBOOK = 
+            "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n" +
+            "<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\">" +
+            "<sheets><sheet name=\"" + SHEET_NAME + "\" sheetId=\"1\" r:id=\"rId1\"/></sheets>" +
+            "</workbook>";
+    
+    private static final String WORKBOOK_RELS = 
+            "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n" +
+            "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">" +
+            "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet\" Target=\"worksheets/sheet1.xml\"/>" +
+            "<Relationship Id=\"rId2\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/styles\" Target=\"styles.xml\"/>" +
+            "</Relationships>";
+    
+    /**
+     * A single default style shared by every cell.
+     */
+    private static final String STYLES = 
+            "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n" +
+            "<styleSheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">" +
+            "<fonts count=\"1\"><font><sz val=\"11\"/><name val=\"Calibri\"/><family val=\"2\"/></font></fonts>" +
+            "<fills count=\"2\"><fill><patternFill patternType=\"none\"/></fill><fill><patternFill patternType=\"gray125\"/></fill></fills>" +
+            "<borders count=\"1\"><border><left/><right/><top/><bottom/><diagonal/></border></borders>" +
+            "<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>" +
+            "<cellXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/></cellXfs>" +
+            "<cellStyles count=\"1\"><cellStyle name=\"Normal\" xfId=\"0\" builtinId=\"0\"/></cellStyles>" +
+            "</styleSheet>";
+    
+    private static final String SHEET_START = 
+            "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n" +
+            "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>";
+    
+    private static final String SHEET_END = "</sheetData></worksheet>";
+    
+    /**
+     * Temporary file holding the rows written so far
+     */
+    private File rowFile = null;
+    
+    /**
+     * Writer for the temporary row file
+     */
+    private Writer writer = null;
+    
+    /**
+     * Number of rows written so far
+     */
+    private int rowCount = 0;
+    
+    /**
+     * Column references (A, B, ...) computed so far
+     */
+    private String[] columns = new String[0];
+    
+    /**
+     * Default constructor.
+     */
+    public StreamingXLSXDataArchive() { }
+    
+    /**
+     * Add a row to the archive. The row is written out right away.
+     * 
+     * @param data
+     * 
+     * @throws Exception 
+     */
+    @Override
+    public synchronized void addData(String[] data) throws Exception {
+        
+        try {
+            
+            if(writer == null) {
+                
+                rowFile = File.createTempFile("automateit", ".xml");
+                
+                rowFile.deleteOnExit();
+                
+                writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(rowFile), "UTF-8"), BUFFER_SIZE);
+                
+            }
+            
+            rowCount++;
+            
+            writer.write("<row r=\"");
+            writer.write(String.valueOf(rowCount));
+            writer.write("\">");
+            
+            for(int i = 0; i < data.length; i++) {
+                
+                if(data[i] == null) continue;
+                
+                writer.write("<c r=\"");
+                writer.write(getColumn(i));
+                writer.write(String.valueOf(rowCount));
+                writer.write("\" t=\"inlineStr\"><is><t");
+                
+                if(data[i].length() > 0 && (Character.isWhitespace(data[i].charAt(0)) || Character.isWhitespace(data[i].charAt(data[i].length() - 1)))) writer.write(" xml:space=\"preserve\"");
+                
+                writer.write(">");
+                
+                writeEscaped(data[i]);
+                
+                writer.write("</t></is></c>");
+                
+            }
+            
+            writer.write("</row>");
+            
+        }
+        catch(Exception e) { log.error(e); throw e; }
+        
+    }
+    
+    /**
+     * Save the rows added so far to an XLSX file.
+     * 
+     * @param filename
+     * 
+     * @throws Exception 
+     */
+    @Override
+    public synchronized void saveData(String filename) throws Exception {
+        
+        ZipOutputStream out = null;
+        
+        try {
+            
+            log.debug("Saving: " + rowCount + " rows to filename: " + filename);
+            
+            if(writer != null) writer.flush();
+            
+            out = new ZipOutputStream(new FileOutputStream(filename));
+            
+            writeEntry(out, "[Content_Types].xml", CONTENT_TYPES);
+            writeEntry(out, "_rels/.rels", RELS);
+            writeEntry(out, "xl/workbook.xml", WORKBOOK);
+            writeEntry(out, "xl/_rels/workbook.xml.rels", WORKBOOK_RELS);
+            writeEntry(out, "xl/styles.xml", STYLES);
+            
+            out.putNextEntry(new ZipEntry("xl/worksheets/sheet1.xml"));
+            
+            out.write(SHEET_START.getBytes("UTF-8"));
+            
+            if(rowFile != null) {
+                
+                InputStream in = new FileInputStream(rowFile);
+                
+                try {
+                    
+                    byte[] buffer = new byte[BUFFER_SIZE];
+                    
+                    int count = 0;
+                    
+                    while((count = in.read(buffer)) != -1) out.write(buffer, 0, count);
+                    
+                }
+                finally { in.close(); }
+                
+            }
+            
+            out.write(SHEET_END.getBytes("UTF-8"));
+            
+            out.closeEntry();
+            
+        }
+        catch(Exception e) { log.error(e); throw e; }
+        finally { if(out != null) out.close(); }
+        
+    }
+    
+    /**
+     * Clear/remove all data collected.
+     * 
+     * @throws Exception 
+     */
+    @Override
+    public synchronized void clearData() throws Exception { 
+        
+        try {
+            
+            if(writer != null) writer.close();
+            
+            if(rowFile != null) rowFile.delete();
+            
+        }
+        finally {
+            
+            writer = null;
+            
+            rowFile = null;
+            
+            rowCount = 0;
+            
+        }
+        
+    }
+    
+    /**
+     * Close and delete the temporary file holding the rows added so far 
+     * (same as <code>clearData</code>).
+     * 
+     * @throws Exception 
+     */
+    public void close() throws Exception { clearData(); }
+    
+    /**
+     * Get the number of rows added so far.
+     * 
+     * @return 
+     */
+    public synchronized int getRowCount() { return rowCount; }
+    
+    /**
+     * Get the column reference (A, B, ..., Z, AA, ...) for a column index.
+     * 
+     * @param index
+     * 
+     * @return 
+     */
+    private String getColumn(int index) {
+        
+        if(index >= columns.length) {
+            
+            String[] newColumns = new String[Math.max(index + 1, columns.length * 2)];
+            
+            System.arraycopy(columns, 0, newColumns, 0, columns.length);
+            
+            for(int i = columns.length; i < newColumns.length; i++) {
+                
+                StringBuilder column = new StringBuilder();
+                
+                for(int n = i + 1; n > 0; n = (n - 1) / 26) column.insert(0, (char)('A' + (n - 1) % 26));
+                
+                newColumns[i] = column.toString();
+                
+            }
+            
+            columns = newColumns;
+            
+        }
+        
+        return columns[index];
+        
+    }
+    
+    /**
+     * Write text escaped for XML, dropping characters XML does not allow.
+     * 
+     * @param text
+     * 
+     * @throws Exception 
+     */
+    private void writeEscaped(String text) throws Exception {
+        
+        for(int i = 0; i < text.length(); i++) {
+            
+            char c = text.charAt(i);
+            
+            switch(c) {
+                
+                case '&': writer.write("&amp;"); break;
+                case '<': writer.write("&lt;"); break;
+                case '>': writer.write("&gt;"); break;
+                case '"': writer.write("&quot;"); break;
+                
+                default: if(c >= 0x20 || c == '\t' || c == '\n' || c == '\r') writer.write(c);
+                
+            }
+            
+        }
+        
+    }
+    
+    /**
+     * Write a package part to the file.
+     * 
+     * @param out
+     * @param name
+     * @param content
+     * 
+     * @throws Exception 
+     */
+    private void writeEntry(ZipOutputStream out, String name, String content) throws Exception {
+        
+        out.putNextEntry(new ZipEntry(name));
+        
+        out.write(content.getBytes("UTF-8"));
+        
+        out.closeEntry();
+        
+    }
+    
+}
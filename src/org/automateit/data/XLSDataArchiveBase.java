@@ -24,7 +24,6 @@ import org.apache.log4j.Logger;
 
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.CreationHelper;
 import org.apache.poi.ss.usermodel.Sheet;
         
 /**
@@ -48,36 +47,32 @@ public class XLSDataArchiveBase extends DataArchiveBase {
      */
     public void saveData(Workbook workbook, String filename) throws Exception {
         
+        FileOutputStream fileOut = null;
+        
         try {
             
-            CreationHelper createHelper = workbook.getCreationHelper();
+            log.debug("Saving: " + list.size() + " rows to filename: " + filename);
     
             Sheet sheet = workbook.createSheet("Saved Data");
+            
+            int i = 0;
     
-            for(int i = 0; i < list.size(); i++) {
-                
-                Row row = sheet.createRow((short)i);
+            for(String[] data : list) {
                 
-                String[] data = list.get(i); 
+                Row row = sheet.createRow(i++);
     
-                for (int j = 0; j < data.length; j++) {
-                    
-                    log.debug("For row: " + i + ", creating column: " + j + " with data: " + data[j]);
-                    
-                    row.createCell(j).setCellValue(createHelper.createRichTextString(data[j]));
-            
-                }
+                // plain string cells, rich text adds a run object per cell
+                for (int j = 0; j < data.length; j++) if(data[j] != null) row.createCell(j).setCellValue(data[j]);
         
             }
             
-            FileOutputStream fileOut = new FileOutputStream(filename);
+            fileOut = new FileOutputStream(filename);
             
             workbook.write(fileOut);
-            
-            fileOut.close();
         
         }
         catch(Exception e) { log.error(e); throw e; }
+        finally { if(fileOut != null) fileOut.close(); }
         
     }
     
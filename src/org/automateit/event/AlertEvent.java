@@ -17,21 +17,91 @@
  **/
 package org.automateit.event;
 
+import java.io.File;
+
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import org.testng.ITestResult;
 
 import org.apache.log4j.Logger;
 
+import org.automateit.core.StringCapabilities;
+import org.automateit.util.CommonProperties;
+import org.automateit.util.TextMatcher;
 import org.automateit.util.Utils;
 
 /**
  * An object that alerts listeners to important events
+ * <p>
+ * Alerts are sent to the alert handlers by a shared dispatcher so the test thread never waits 
+ * on them: each handler has its own bounded queue, drained in order by a small pool of threads, 
+ * failed alerts are retried with an exponential backoff, and duplicate alerts sent within the 
+ * coalesce window are dropped. Call <code>flush</code> to wait for the queued alerts to be sent.
+ * <p>
+ * The keyword and ignore files are compiled once and reloaded when they change.
  * 
  * @author mburnside
  */
 public class AlertEvent extends Thread {
     
+    /**
+     * The default number of threads sending alerts
+     */
+    public static final int DEFAULT_DISPATCHER_THREADS = 2;
+    
+    /**
+     * The default number of alerts waiting per handler
+     */
+    public static final int DEFAULT_QUEUE_SIZE = 100;
+    
+    /**
+     * The default number of times a failed alert is retried
+     */
+    public static final int DEFAULT_MAX_RETRIES = 3;
+    
+    /**
+     * The default time to wait before the first retry (ms), doubled for each retry
+     */
+    public static final int DEFAULT_RETRY_BACKOFF = 1000;
+    
+    /**
+     * The default time duplicate alerts are dropped for (ms)
+     */
+    public static final int DEFAULT_COALESCE_WINDOW = 60000;
+    
+    /**
+     * The default time to wait for the queued alerts to be sent (ms)
+     */
+    public static final long DEFAULT_FLUSH_TIMEOUT = 30000;
+    
+    /**
+     * The minimum time between checks of the keyword and ignore files for changes (ms)
+     */
+    public static final long RELOAD_CHECK_INTERVAL = 1000;
+    
+    /**
+     * The number of dispatched alerts remembered before the ones outside the coalesce window are forgotten
+     */
+    private static final int MAX_COALESCE_KEYS = 1000;
+    
     /**
      * The list of keywords/test names that indicate severity action
      */
@@ -42,10 +112,31 @@ public class AlertEvent extends Thread {
      */
     protected List<String> ignoreList = null;
     
+    /**
+     * The keywords/test names, for hash lookups
+     */
+    private volatile Set<String> keywords = Collections.emptySet();
+    
+    /**
+     * The exception messages to ignore, compiled to be found in one pass over an error message
+     */
+    private volatile TextMatcher ignoreMatcher = new TextMatcher(null);
+    
+    /**
+     * The modification time of the loaded keyword and ignore files
+     */
+    private long keywordFileTime = -1;
+    private long ignoreFileTime = -1;
+    
+    /**
+     * The last time the files were checked for changes
+     */
+    private volatile long lastReloadCheck = 0;
+    
     /**
      * The list of AlertHandler classes to handle the actual physical execution/handling of events
      */
-    protected List<AlertHandler> alertHandlers = new ArrayList<AlertHandler>();
+    protected List<AlertHandler> alertHandlers = new CopyOnWriteArrayList<AlertHandler>();
     
     /**
      * The utilities class to use
@@ -67,6 +158,61 @@ public class AlertEvent extends Thread {
      */
     public final String ALERT_IGNORE_FILEPATH = "./conf/alert_ignore.txt";
     
+    /**
+     * The threads sending the alerts
+     */
+    private final ScheduledThreadPoolExecutor dispatcher = new ScheduledThreadPoolExecutor(DEFAULT_DISPATCHER_THREADS, new ThreadFactory() {
+        
+        private final AtomicInteger count = new AtomicInteger();
+        
+        public Thread newThread(Runnable runnable) {
+            
+            Thread thread = new Thread(runnable, "AlertDispatcher-" + count.incrementAndGet());
+            
+            thread.setDaemon(true);
+            
+            return thread;
+            
+        }
+        
+    });
+    
+    /**
+     * The queue of each alert handler
+     */
+    private final Map<AlertHandler, HandlerQueue> queues = new ConcurrentHashMap<AlertHandler, HandlerQueue>();
+    
+    /**
+     * The last time each alert was dispatched, for coalescing duplicates
+     */
+    private final Map<String, Long> lastDispatched = new ConcurrentHashMap<String, Long>();
+    
+    /**
+     * Settings
+     */
+    private volatile int queueSize = DEFAULT_QUEUE_SIZE;
+    private volatile int maxRetries = DEFAULT_MAX_RETRIES;
+    private volatile long retryBackoff = DEFAULT_RETRY_BACKOFF;
+    private volatile long coalesceWindow = DEFAULT_COALESCE_WINDOW;
+    
+    /**
+     * The number of alerts queued but not yet sent (or given up on)
+     */
+    private final AtomicInteger pending = new AtomicInteger();
+    
+    /**
+     * Counters for reporting
+     */
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    
+    /**
+     * Lock used to wait for the queues to drain
+     */
+    private final Object drainLock = new Object();
+    
     /**
      * Reference to this object
      */
@@ -86,11 +232,79 @@ public class AlertEvent extends Thread {
         
         logger.debug("Creating new instance of AlertEvent");
         
-        try { keywordList = utils.getListFromFile(ALERTFILEPATH); }
-        catch(Exception e) { logger.debug(e); }
+        reload();
+        
+        try { configure(CommonProperties.getInstance()); }
+        catch(Exception e) { logger.error(e); }
+        
+        Runtime.getRuntime().addShutdownHook(new Thread("AlertEvent-shutdown") {
+            
+            public void run() { flush(DEFAULT_FLUSH_TIMEOUT); }
+            
+        });
+        
+    }
+    
+    /**
+     * Configure the dispatcher from the framework properties.
+     * 
+     * @param properties 
+     */
+    public synchronized void configure(Properties properties) {
+        
+        int threads = getInt(properties, StringCapabilities.ALERT_DISPATCHER_THREADS.getCapability(), DEFAULT_DISPATCHER_THREADS);
+        
+        if(threads > 0) dispatcher.setCorePoolSize(threads);
+        
+        // the queue size only applies to the handlers registered from now on
+        queueSize = Math.max(1, getInt(properties, StringCapabilities.ALERT_QUEUE_SIZE.getCapability(), DEFAULT_QUEUE_SIZE));
+        
+        maxRetries = Math.max(0, getInt(properties, StringCapabilities.ALERT_MAX_RETRIES.getCapability(), DEFAULT_MAX_RETRIES));
+        
+        retryBackoff = Math.max(0, getInt(properties, StringCapabilities.ALERT_RETRY_BACKOFF.getCapability(), DEFAULT_RETRY_BACKOFF));
+        
+        coalesceWindow = Math.max(0, getInt(properties, StringCapabilities.ALERT_COALESCE_WINDOW.getCapability(), DEFAULT_COALESCE_WINDOW));
+        
+        logger.debug("Alert dispatcher configured: " + threads + "|" + queueSize + "|" + maxRetries + "|" + retryBackoff + "|" + coalesceWindow);
+        
+    }
+    
+    /**
+     * Load the keyword and ignore files if they changed since they were loaded.
+     */
+    public synchronized void reload() {
+        
+        lastReloadCheck = System.currentTimeMillis();
+        
+        long time = (new File(ALERTFILEPATH)).lastModified();
+        
+        if(time != keywordFileTime) {
+            
+            keywordFileTime = time;
+            
+            try { keywordList = utils.getListFromFile(ALERTFILEPATH); }
+            catch(Exception e) { logger.debug(e); keywordList = new ArrayList<String>(); }
+            
+            keywords = new HashSet<String>(keywordList);
+            
+            logger.debug("Loaded alert keywords: " + keywords.size());
+            
+        }
+        
+        time = (new File(ALERT_IGNORE_FILEPATH)).lastModified();
         
-        try { ignoreList = utils.getListFromFile(ALERT_IGNORE_FILEPATH); }
-        catch(Exception e) { logger.debug(e); }
+        if(time != ignoreFileTime) {
+            
+            ignoreFileTime = time;
+            
+            try { ignoreList = utils.getListFromFile(ALERT_IGNORE_FILEPATH); }
+            catch(Exception e) { logger.debug(e); ignoreList = new ArrayList<String>(); }
+            
+            ignoreMatcher = new TextMatcher(ignoreList);
+            
+            logger.debug("Loaded alert ignore texts: " + ignoreMatcher.size());
+            
+        }
         
     }
     
@@ -104,8 +318,10 @@ public class AlertEvent extends Thread {
         
         logger.info("Sending alert to alert handlers: " + alertHandlers.size() + "|" + ignoreAlertKeywords);
        
+        if(System.currentTimeMillis() - lastReloadCheck >= RELOAD_CHECK_INTERVAL) reload();
+       
         // If the test name or other keyword is not in the list of things to alert for, then skip
-        if(!ignoreAlertKeywords && !keywordList.contains(result.getName())) return;
+        if(!ignoreAlertKeywords && !keywords.contains(result.getName())) return;
        
         // if the throwable does not contain an error (is null) then do not send
         if(!ignoreAlertKeywords && (result.getThrowable() == null)) return;
@@ -113,12 +329,10 @@ public class AlertEvent extends Thread {
         // If the error is in the list of errors to ignore then return without doing anything
         if(!ignoreAlertKeywords && errorMessageIgnore(result.getThrowable().getMessage())) return;
         
-        for(AlertHandler alertHandler : alertHandlers) {
-    
-            try { alertHandler.execute(result); }
-            catch(Exception e) { logger.info(e); }
-            
-        }
+        // the same test with the same parameters, status and error is a duplicate
+        String key = result.getTestClass().getName() + "." + result.getName() + "|" + Arrays.hashCode(result.getParameters()) + "|" + result.getStatus() + "|" + ((result.getThrowable() == null) ? "" : result.getThrowable().getMessage());
+        
+        dispatch(new Alert(key, result, null));
         
     }
     
@@ -138,14 +352,7 @@ public class AlertEvent extends Thread {
        
         logger.info("Sending alert to alert handlers: " + alertHandlers.size());
         
-        for(AlertHandler alertHandler : alertHandlers) {
-            
-            logger.info("Sending alert to alert handler: " + alertHandler);
-    
-            try { alertHandler.execute(message); }
-            catch(Exception e) { logger.error(e); }
-            
-        }
+        dispatch(new Alert(String.valueOf(message), null, message));
         
     }
     
@@ -154,7 +361,7 @@ public class AlertEvent extends Thread {
      * 
      * @param alertHandler
      */
-    public void register(AlertHandler alertHandler) {  
+    public synchronized void register(AlertHandler alertHandler) {  
     
         try { 
             
@@ -164,6 +371,8 @@ public class AlertEvent extends Thread {
                 
                 logger.debug("Adding a registered alert handler implementation: " + alertHandler);
                 
+                queues.put(alertHandler, new HandlerQueue(alertHandler, queueSize));
+                
                 alertHandlers.add(alertHandler);
                 
             }
@@ -174,20 +383,288 @@ public class AlertEvent extends Thread {
     }
     
     /**
-     * Check if any part of the error message text is 
+     * Wait for all queued alerts to be sent.
+     * 
+     * @param timeout the maximum time to wait (ms)
+     * 
+     * @return <code>true</code> if the queues were drained
+     */
+    public boolean flush(long timeout) {
+        
+        long deadline = System.currentTimeMillis() + timeout;
+        
+        synchronized(drainLock) {
+            
+            while(pending.get() > 0) {
+                
+                long remaining = deadline - System.currentTimeMillis();
+                
+                if(remaining <= 0) {
+                    
+                    logger.warn("Timed out waiting for alerts to be sent: " + pending.get());
+                    
+                    return false;
+                
+                }
+                
+                try { drainLock.wait(remaining); }
+                catch(InterruptedException e) { Thread.currentThread().interrupt(); return false; }
+                
+            }
+            
+        }
+        
+        return true;
+        
+    }
+    
+    /**
+     * Wait for all queued alerts to be sent.
+     * 
+     * @return <code>true</code> if the queues were drained
+     */
+    public boolean flush() { return flush(DEFAULT_FLUSH_TIMEOUT); }
+    
+    /**
+     * Get the number of alerts sent to a handler.
+     * 
+     * @return 
+     */
+    public long getSentCount() { return sentCount.get(); }
+    
+    /**
+     * Get the number of alerts dropped because the same alert was sent within the coalesce window.
+     * 
+     * @return 
+     */
+    public long getCoalescedCount() { return coalescedCount.get(); }
+    
+    /**
+     * Get the number of alerts dropped because a handler queue was full.
+     * 
+     * @return 
+     */
+    public long getDroppedCount() { return droppedCount.get(); }
+    
+    /**
+     * Get the number of alerts that failed after all retries.
+     * 
+     * @return 
+     */
+    public long getFailedCount() { return failedCount.get(); }
+    
+    /**
+     * Check if any of the ignore texts is part of the error message text (ignoring case).
      * 
      * @param errorMessage
      * 
      * @return
      */
-    protected boolean errorMessageIgnore(String errorMessage) {
+    protected boolean errorMessageIgnore(String errorMessage) { return (errorMessage != null) && ignoreMatcher.matches(errorMessage); }
+    
+    /**
+     * Queue an alert to every handler unless the same alert was dispatched within the coalesce window.
+     * 
+     * @param alert 
+     */
+    protected void dispatch(Alert alert) {
+        
+        if(isDuplicate(alert.key)) {
+            
+            long coalesced = coalescedCount.incrementAndGet();
+            
+            logger.debug("Dropping duplicate alert: " + alert.key + "|" + coalesced);
+            
+            return;
+            
+        }
+        
+        for(AlertHandler alertHandler : alertHandlers) {
+            
+            HandlerQueue queue = queues.get(alertHandler);
+            
+            if(queue != null) queue.offer(alert);
+            
+        }
+        
+    }
+    
+    /**
+     * Check if an alert was already dispatched within the coalesce window, and if not record it as dispatched now.
+     * 
+     * @param key
+     * 
+     * @return 
+     */
+    protected boolean isDuplicate(String key) {
+        
+        if(coalesceWindow <= 0) return false;
+        
+        long now = System.currentTimeMillis();
+        
+        Long last = lastDispatched.get(key);
+        
+        if((last != null) && (now - last.longValue() < coalesceWindow)) return true;
+        
+        // another thread dispatched the same alert first
+        if((last == null) ? (lastDispatched.putIfAbsent(key, now) != null) : !lastDispatched.replace(key, last, now)) return true;
+        
+        if(lastDispatched.size() > MAX_COALESCE_KEYS) {
+            
+            for(Iterator<Long> i = lastDispatched.values().iterator(); i.hasNext();) if(now - i.next().longValue() >= coalesceWindow) i.remove();
+            
+        }
         
-        for(String ignoreText : ignoreList) if(errorMessage.trim().toLowerCase().contains(ignoreText.trim().toLowerCase())) return true;
-      
-        // if we go through the entire list and didnt find it then return false
         return false;
         
     }
     
+    /**
+     * Mark a queued alert as done and wake up anyone waiting on flush.
+     */
+    private void done() {
+        
+        if(pending.decrementAndGet() > 0) return;
+        
+        synchronized(drainLock) { drainLock.notifyAll(); }
+        
+    }
+    
+    /**
+     * Get an integer property value.
+     * 
+     * @param properties
+     * @param key
+     * @param defaultValue
+     * 
+     * @return 
+     */
+    private int getInt(Properties properties, String key, int defaultValue) {
+        
+        try { return Integer.parseInt(properties.getProperty(key).trim()); }
+        catch(Exception e) { return defaultValue; }
+        
+    }
+    
+    /**
+     * An alert waiting to be sent, either a test result or a message.
+     */
+    protected static class Alert {
+        
+        private final String key;
+        
+        private final ITestResult result;
+        
+        private final String message;
+        
+        Alert(String key, ITestResult result, String message) { this.key = key; this.result = result; this.message = message; }
+        
+        void sendTo(AlertHandler alertHandler) throws Exception {
+            
+            if(result != null) alertHandler.execute(result);
+            else alertHandler.execute(message);
+            
+        }
+        
+    }
+    
+    /**
+     * The alerts waiting for one handler. They are sent in order by at most one dispatcher thread 
+     * at a time, and a failed alert is retried (after a backoff) before the ones behind it are sent.
+     */
+    private class HandlerQueue implements Runnable {
+        
+        private final AlertHandler alertHandler;
+        
+        private final BlockingQueue<Alert> alerts;
+        
+        /**
+         * Indicates a dispatcher thread is sending (or scheduled to send) this queue
+         */
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+        
+        /**
+         * The number of failed attempts of the alert at the head of the queue
+         */
+        private int attempts = 0;
+        
+        HandlerQueue(AlertHandler alertHandler, int size) { 
+            
+            this.alertHandler = alertHandler; 
+            this.alerts = new ArrayBlockingQueue<Alert>(size);
+        
+        }
+        
+        void offer(Alert alert) {
+            
+            pending.incrementAndGet();
+            
+            if(!alerts.offer(alert)) { 
+                
+                done();
+                
+                logger.warn("Alert queue is full, dropping alert for handler: " + alertHandler + "|" + droppedCount.incrementAndGet());
+                
+                return;
+                
+            }
+            
+            schedule();
+            
+        }
+        
+        void schedule() {
+            
+            if(!scheduled.compareAndSet(false, true)) return;
+            
+            try { dispatcher.execute(this); }
+            catch(RejectedExecutionException e) { scheduled.set(false); logger.error(e); }
+            
+        }
+        
+        public void run() {
+            
+            Alert alert = null;
+            
+            while((alert = alerts.peek()) != null) {
+                
+                try { alert.sendTo(alertHandler); sentCount.incrementAndGet(); }
+                catch(Exception e) {
+                    
+                    if(++attempts <= maxRetries) {
+                        
+                        long delay = retryBackoff << Math.min(attempts - 1, 16);
+                        
+                        logger.warn("Unable to send alert, retrying in " + delay + " ms: " + alertHandler + "|" + alert.key + "|" + e);
+                        
+                        // stay scheduled, the alerts behind this one wait for the retry
+                        dispatcher.schedule(this, delay, TimeUnit.MILLISECONDS);
+                        
+                        return;
+                        
+                    }
+                    
+                    logger.error("Unable to send alert after " + maxRetries + " retries: " + alertHandler + "|" + alert.key + "|" + e);
+                    
+                    failedCount.incrementAndGet();
+                    
+                }
+                
+                attempts = 0;
+                
+                alerts.poll();
+                
+                done();
+                
+            }
+            
+            scheduled.set(false);
+            
+            // an alert may have been queued after the last check
+            if(!alerts.isEmpty()) schedule();
+            
+        }
+        
+    }
+    
 }
-
@@ -81,10 +81,10 @@ public class EmailAlertHandler extends TestListenerAdapter implements AlertHandl
             
             loadProperties();
             
-            (new SendEmailThread(props, result)).start(); 
+            (new SendEmailThread(props, result)).send(); 
         
         }
-        catch(Exception e) { logger.debug(e); }  
+        catch(Exception e) { throw e; }  
     
     }
     
@@ -101,10 +101,10 @@ public class EmailAlertHandler extends TestListenerAdapter implements AlertHandl
             
             loadProperties();
             
-            (new SendEmailThread(props, message)).start(); 
+            (new SendEmailThread(props, message)).send(); 
         
         }
-        catch(Exception e) { logger.debug(e); }  
+        catch(Exception e) { throw e; }  
     
     }
     
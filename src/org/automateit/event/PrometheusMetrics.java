@@ -0,0 +1,426 @@
+/**
+ * This file is part of Automate It!'s free and open source web and mobile 
+ * application testing framework.
+ * 
+ * Automate It! is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Automate It! is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Automate It!.  If not, see <http://www.gnu.org/licenses/>.
+ *  
+ **/
+
+package org.automateit.event;
+
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.apache.log4j.Logger;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Histogram;
+import io.prometheus.client.SummaryMetricFamily;
+import io.prometheus.client.exporter.PushGateway;
+import io.prometheus.client.exporter.common.TextFormat;
+
+import org.automateit.core.StringCapabilities;
+import org.automateit.util.CommonProperties;
+import org.automateit.util.LatencyHistogram;
+import org.automateit.util.SummaryPerformance;
+import org.automateit.util.SummaryPerformanceBean;
+
+/**
+ * This class holds the Prometheus metrics of the whole test run in one long-lived registry:
+ * test results and durations, page load latency (from <code>SummaryPerformance</code>), element lookup
+ * latency, web driver command latency and screenshot cost, and the test result gauges of 
+ * <code>PrometheusPushGatewayAlertHandler</code>.
+ * <p>
+ * The metrics can be scraped from an embedded <code>/metrics</code> HTTP endpoint, started when
+ * <code>prometheusMetricsPort</code> is set (or with <code>startServer</code>), and/or pushed to a 
+ * Push Gateway in batches with <code>startPushExporter</code>.
+ * 
+ * @author mburnside
+ */
+public class PrometheusMetrics {
+    
+    /**
+     * The path of the metrics endpoint
+     */
+    public static final String METRICS_PATH = "/metrics";
+    
+    /**
+     * Buckets (seconds) for test durations
+     */
+    private static final double[] TEST_DURATION_BUCKETS = { 1, 2.5, 5, 10, 30, 60, 120, 300, 600, 1800 };
+    
+    /**
+     * The page load percentiles exported
+     */
+    private static final double[] PAGE_LOAD_QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+    
+    /**
+     * The instance of this singleton class
+     */
+    private static PrometheusMetrics instance = new PrometheusMetrics();
+    
+    /**
+     *  logging object
+     */
+    private static final Logger logger = Logger.getLogger(PrometheusMetrics.class);
+    
+    /**
+     * The registry of all the metrics of the run
+     */
+    private final CollectorRegistry registry = new CollectorRegistry(true);
+    
+    private final Counter testResults = Counter.build().name("automateit_test_results_total").help("Test results").labelNames("test_class", "result").register(registry);
+    
+    private final Histogram testDuration = Histogram.build().name("automateit_test_duration_seconds").help("Test duration").labelNames("test_class").buckets(TEST_DURATION_BUCKETS).register(registry);
+    
+    private final Gauge testsRunning = Gauge.build().name("automateit_tests_running").help("Tests running").register(registry);
+    
+    private final Gauge testLastEnd = Gauge.build().name("automateit_test_last_end_timestamp_seconds").help("End time of the last test").register(registry);
+    
+    private final Histogram elementLookup = Histogram.build().name("automateit_element_lookup_seconds").help("Element lookup latency").labelNames("result").register(registry);
+    
+    private final Histogram commandDuration = Histogram.build().name("automateit_command_duration_seconds").help("Web driver command latency").labelNames("command").register(registry);
+    
+    private final Histogram screenshotCost = Histogram.build().name("automateit_screenshot_seconds").help("Screenshot capture and write time").labelNames("stage").register(registry);
+    
+    private final Gauge pushTestResult = Gauge.build().name("test_results").help("Test result (0 pass, 1 fail)").labelNames("test_name", "env").register(registry);
+    
+    private final Gauge pushTestDuration = Gauge.build().name("test_duration").help("Test duration (seconds)").labelNames("test_name", "env").register(registry);
+    
+    private final Gauge pushTestTimestamp = Gauge.build().name("test_timestamp").help("Test end time (seconds)").labelNames("test_name", "env").register(registry);
+    
+    /**
+     * The metrics endpoint, or <code>null</code> if not started
+     */
+    private HttpServer server = null;
+    
+    /**
+     * The push exporter timer, or <code>null</code> if not started
+     */
+    private ScheduledExecutorService pushExecutor = null;
+    
+    /**
+     * The Push Gateway client, or <code>null</code> if the push exporter is not started
+     */
+    private PushGateway pushGateway = null;
+    
+    /**
+     * The Push Gateway job name
+     */
+    private String pushJob = null;
+    
+    /**
+     * Default Constructor. Starts the metrics endpoint when <code>prometheusMetricsPort</code> is set.
+     */
+    protected PrometheusMetrics() { 
+        
+        new PageLoadCollector().register(registry);
+        
+        try {
+            
+            String port = CommonProperties.getInstance().get(StringCapabilities.PROMETHEUS_METRICS_PORT.getCapability());
+            
+            if((port != null) && (port.trim().length() > 0)) startServer(Integer.parseInt(port.trim()));
+            
+        }
+        catch(Exception e) { logger.error("Unable to start the Prometheus metrics endpoint: " + e); }
+        
+    }
+    
+    /**
+     * Return the instance of this object.
+     * 
+     * @return The instance of this object 
+     */
+    public static PrometheusMetrics getInstance() { return instance; }
+    
+    /**
+     * Get the registry of all the metrics of the run.
+     * 
+     * @return 
+     */
+    public CollectorRegistry getRegistry() { return registry; }
+    
+    /**
+     * Record that a test started.
+     */
+    public void testStarted() { testsRunning.inc(); }
+    
+    /**
+     * Record the result of a test.
+     * 
+     * @param testClass
+     * @param result for example PASS, FAIL or SKIP
+     * @param durationMillis 
+     */
+    public void testFinished(String testClass, String result, long durationMillis) {
+        
+        testsRunning.dec();
+        
+        testResults.labels(testClass, result).inc();
+        
+        testDuration.labels(testClass).observe(durationMillis / 1000.0);
+        
+        testLastEnd.setToCurrentTime();
+        
+    }
+    
+    /**
+     * Record an element lookup.
+     * 
+     * @param nanos
+     * @param found 
+     */
+    public void observeElementLookup(long nanos, boolean found) { elementLookup.labels(found ? "found" : "not_found").observe(nanos / 1e9); }
+    
+    /**
+     * Record a web driver command.
+     * 
+     * @param command The command name only (see <code>CommandRecord.getCommandName</code>), 
+     * each distinct value is a new series
+     * @param millis 
+     */
+    public void observeCommand(String command, long millis) { commandDuration.labels(command).observe(millis / 1000.0); }
+    
+    /**
+     * Record the result of a test (or the whole suite) for the Push Gateway, replacing the previous 
+     * values with the same labels.
+     * 
+     * @param testName the test name label
+     * @param environment the target environment label
+     * @param resultValue 0 for pass, 1 for fail
+     * @param duration the duration (seconds)
+     * @param endTime the end time (ms)
+     */
+    public void recordTestResult(String testName, String environment, double resultValue, double duration, long endTime) {
+        
+        pushTestResult.labels(testName, environment).set(resultValue);
+        
+        pushTestDuration.labels(testName, environment).set(duration);
+        
+        pushTestTimestamp.labels(testName, environment).set(endTime / 1000.0);
+        
+    }
+    
+    /**
+     * Record screenshot cost.
+     * 
+     * @param stage for example capture or write
+     * @param nanos 
+     */
+    public void observeScreenshot(String stage, long nanos) { screenshotCost.labels(stage).observe(nanos / 1e9); }
+    
+    /**
+     * Start the <code>/metrics</code> endpoint (once).
+     * 
+     * @param port
+     * 
+     * @throws Exception 
+     */
+    public synchronized void startServer(int port) throws Exception {
+        
+        if(server != null) return;
+        
+        try {
+            
+            server = HttpServer.create(new InetSocketAddress(port), 0);
+            
+            server.createContext(METRICS_PATH, new HttpHandler() {
+                
+                public void handle(HttpExchange exchange) { 
+                    
+                    try {
+                        
+                        exchange.getResponseHeaders().set("Content-Type", TextFormat.CONTENT_TYPE_004);
+                        
+                        exchange.sendResponseHeaders(200, 0);
+                        
+                        Writer writer = new OutputStreamWriter(exchange.getResponseBody(), "UTF-8");
+                        
+                        try { TextFormat.write004(writer, registry.metricFamilySamples()); }
+                        finally { writer.close(); }
+                        
+                    }
+                    catch(Exception e) { logger.debug("Unable to write the metrics: " + e); }
+                    finally { exchange.close(); }
+                    
+                }
+                
+            });
+            
+            server.setExecutor(Executors.newSingleThreadExecutor(getThreadFactory("PrometheusMetrics-server")));
+            
+            // the dispatcher threads are daemons only when started from a daemon thread, so the endpoint does not keep the run alive
+            Thread starter = getThreadFactory("PrometheusMetrics-start").newThread(new Runnable() { public void run() { server.start(); } });
+            
+            starter.start();
+            
+            starter.join();
+            
+            logger.info("Prometheus metrics endpoint started at: http://localhost:" + server.getAddress().getPort() + METRICS_PATH);
+            
+        }
+        catch(Exception e) { server = null; throw e; }
+        
+    }
+    
+    /**
+     * Get the port of the metrics endpoint.
+     * 
+     * @return The port or -1 if not started
+     */
+    public synchronized int getServerPort() { return (server == null) ? -1 : server.getAddress().getPort(); }
+    
+    /**
+     * Stop the <code>/metrics</code> endpoint.
+     */
+    public synchronized void stopServer() {
+        
+        if(server == null) return;
+        
+        server.stop(0);
+        
+        server = null;
+        
+    }
+    
+    /**
+     * Push the registry to a Push Gateway in batches, every <code>interval</code> ms and once more when the JVM exits.
+     * 
+     * @param address the Push Gateway address (host:port)
+     * @param job the job name
+     * @param interval
+     */
+    public synchronized void startPushExporter(final String address, final String job, long interval) {
+        
+        if(pushExecutor != null) return;
+        
+        pushGateway = new PushGateway(address);
+        
+        pushJob = job;
+        
+        pushExecutor = Executors.newSingleThreadScheduledExecutor(getThreadFactory("PrometheusMetrics-push"));
+        
+        final Runnable push = new Runnable() {
+            
+            public void run() {
+                
+                try { push(); }
+                catch(Exception e) { logger.error("Unable to push metrics to the Push Gateway: " + address + "|" + e); }
+                
+            }
+            
+        };
+        
+        pushExecutor.scheduleWithFixedDelay(push, interval, interval, TimeUnit.MILLISECONDS);
+        
+        Runtime.getRuntime().addShutdownHook(new Thread(push, "PrometheusMetrics-push-shutdown"));
+        
+    }
+    
+    /**
+     * Push the registry to the Push Gateway now (eg. at the end of a suite), if the push exporter is started.
+     * 
+     * @throws Exception 
+     */
+    public void push() throws Exception {
+        
+        PushGateway pushGateway = null;
+        
+        String job = null;
+        
+        synchronized(this) { pushGateway = this.pushGateway; job = pushJob; }
+        
+        if(pushGateway != null) pushGateway.pushAdd(registry, job);
+        
+    }
+    
+    /**
+     * Get a factory of daemon threads.
+     * 
+     * @param name
+     * 
+     * @return 
+     */
+    private static ThreadFactory getThreadFactory(final String name) {
+        
+        return new ThreadFactory() {
+            
+            public Thread newThread(Runnable runnable) {
+                
+                Thread thread = new Thread(runnable, name);
+                
+                thread.setDaemon(true);
+                
+                return thread;
+                
+            }
+            
+        };
+        
+    }
+    
+    /**
+     * Exports the page load time histograms of <code>SummaryPerformance</code> as a summary (seconds).
+     */
+    private static class PageLoadCollector extends Collector {
+        
+        @Override
+        public List<MetricFamilySamples> collect() {
+            
+            List<Double> quantiles = new ArrayList<Double>();
+            
+            for(double quantile : PAGE_LOAD_QUANTILES) quantiles.add(quantile);
+            
+            SummaryMetricFamily pageLoad = new SummaryMetricFamily("automateit_page_load_seconds", "Page load latency", Arrays.asList("page"), quantiles);
+            
+            for(SummaryPerformanceBean pageSummary : SummaryPerformance.getInstance().getPageSummaries()) {
+                
+                LatencyHistogram histogram = pageSummary.getHistogram();
+                
+                List<Double> values = new ArrayList<Double>();
+                
+                for(double quantile : PAGE_LOAD_QUANTILES) values.add(histogram.getPercentile(quantile * 100) / 1000.0);
+                
+                pageLoad.addMetric(Collections.singletonList(pageSummary.getPageName()), histogram.getCount(), histogram.getTotal() / 1000.0, values);
+                
+            }
+            
+            List<MetricFamilySamples> samples = new ArrayList<MetricFamilySamples>();
+            
+            samples.add(pageLoad);
+            
+            return samples;
+            
+        }
+        
+    }
+    
+}
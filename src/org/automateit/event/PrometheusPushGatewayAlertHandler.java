@@ -26,6 +26,7 @@ import org.testng.ITestContext;
 import org.testng.ITestResult;
 import org.testng.TestListenerAdapter;
 
+import org.automateit.util.CommonProperties;
 import org.automateit.util.Utils;
 
 /**
@@ -36,6 +37,10 @@ import org.automateit.util.Utils;
  * 
  * It registers itself during test startup.
  * 
+ * The results are recorded in the <code>PrometheusMetrics</code> registry, which is pushed to the 
+ * Push Gateway in batches by its push exporter (every <code>push_interval</code> ms, at the end 
+ * of the suite and when the JVM exits). The settings are loaded once from <code>PROPERTIES_FILE</code>.
+ * 
  * @author mburnside
  */
 public class PrometheusPushGatewayAlertHandler extends TestListenerAdapter implements AlertHandler {
@@ -101,19 +106,44 @@ public class PrometheusPushGatewayAlertHandler extends TestListenerAdapter imple
     public static final String TEST_STATUS_FAIL = "1";
     
     /**
-     * The framework utilities object that helps do stuff easy
+     * The Push Gateway address property name
+     */
+    public static final String HOST = "host";
+    
+    /**
+     * The job name property name
+     */
+    public static final String BATCH_JOB_NAME = "batch_job_name";
+    
+    /**
+     * The push interval (ms) property name
+     */
+    public static final String PUSH_INTERVAL = "push_interval";
+    
+    /**
+     * The default push interval (ms)
+     */
+    public static final long DEFAULT_PUSH_INTERVAL = 10000;
+    
+    /**
+     * The registry the results are recorded in
      */
-    private final Utils utils = new Utils();
+    private final PrometheusMetrics metrics = PrometheusMetrics.getInstance();
    
     /**
      *  logging object
      */
     private static final Logger logger = Logger.getLogger(PrometheusPushGatewayAlertHandler.class);
     
+    /**
+     * The Push Gateway settings, <code>null</code> until they are loaded
+     */
+    private static Properties props = null;
+    
     /**
      * Default Constructor
      */
-    public PrometheusPushGatewayAlertHandler() { }
+    public PrometheusPushGatewayAlertHandler() { startPushExporter(); }
     
     /**
      * Uniquely handle an alert event.
@@ -122,64 +152,31 @@ public class PrometheusPushGatewayAlertHandler extends TestListenerAdapter imple
      * 
      * @throws Exception 
      */
-    public synchronized void execute(ITestResult result) throws Exception { 
+    public void execute(ITestResult result) throws Exception { 
         
         try { 
             
-            Properties props = utils.loadProperties(PROPERTIES_FILE);
-            
             String testClassName = result.getTestClass().getName();
             
-            logger.info("Sending data to PushGateway for test: " + testClassName + "|" + result.isSuccess());
-            
-            props.put(TEST_CLASS, testClassName.replace(".","_"));
-            
-            props.put(TEST_NAME, result.getName());
-          
-            props.put(TEST_DURATION, String.valueOf((new Long(result.getEndMillis() - result.getStartMillis())).intValue() / 1000));
-            
-            props.put(TEST_START_TIME, String.valueOf(result.getStartMillis()));
+            logger.info("Recording data for PushGateway for test: " + testClassName + "|" + result.isSuccess());
             
-            props.put(TEST_END_TIME, String.valueOf(result.getEndMillis()));
-           
-            if(System.getenv(TEST_GROUP) != null) props.put(TEST_GROUP, System.getenv(TEST_GROUP));
-            else props.put(TEST_GROUP, "none");
+            String testName = getTestLabel(testClassName.replace(".","_") + '_' + result.getName());
             
-            if(System.getenv(TEST_ENVIRONMENT) != null) props.put(TEST_ENVIRONMENT, System.getenv(TEST_ENVIRONMENT));
-            else props.put(TEST_ENVIRONMENT, "none");
-            
-            if(result.isSuccess()) { props.put(TEST_RESULT, "PASS"); props.put(TEST_RESULT_VALUE, TEST_STATUS_PASS); }
-            else { props.put(TEST_RESULT, "FAIL"); props.put(TEST_RESULT_VALUE, TEST_STATUS_FAIL); }
-            
-            (new SendPrometheusPushGatewayMessageThread(props, result)).start();
-            
-            try { Thread.sleep(2000); }
-            catch(Exception le) { }
+            metrics.recordTestResult(testName, getEnvironment(), result.isSuccess() ? 0 : 1, (result.getEndMillis() - result.getStartMillis()) / 1000, result.getEndMillis());
         
         }
-        catch(Exception e) { e.printStackTrace(); logger.debug(e); }  
+        catch(Exception e) { throw e; }  
        
     }
     
     /**
-     * Uniquely handle an alert event.
+     * Uniquely handle an alert event. Messages have no metric value so they are only logged.
      * 
      * @param message
      * 
      * @throws Exception 
      */
-    public synchronized void execute(String message) throws Exception { 
-        
-        try { 
-            
-            Properties props = utils.loadProperties(PROPERTIES_FILE);
-            
-            (new SendPrometheusPushGatewayMessageThread(props, message)).start(); 
-        
-        }
-        catch(Exception e) { logger.debug(e); }  
-    
-    }
+    public void execute(String message) throws Exception { logger.info("Not sending a message to PushGateway: " + message); }
     
     /**
      * Do actions after a test case execution failure.
@@ -233,30 +230,69 @@ public class PrometheusPushGatewayAlertHandler extends TestListenerAdapter imple
         
         try { 
             
-            Properties props = utils.loadProperties(PROPERTIES_FILE);
-            
             long duration = ((context.getEndDate().getTime() - context.getStartDate().getTime())) / 1000;
             
-            props.put(TEST_DURATION, String.valueOf(duration));
-            
-            props.put(TEST_END_TIME, String.valueOf(context.getEndDate().getTime()));
-            
             // if there are any skipped tests or failed tests mark as test status FAIL
-            if((context.getSkippedTests().size() != 0) || context.getFailedTests().size() != 0) { props.put(TEST_RESULT, "FAIL"); props.put(TEST_RESULT_VALUE, TEST_STATUS_FAIL); }
-            else { props.put(TEST_RESULT, "PASS"); props.put(TEST_RESULT_VALUE, TEST_STATUS_PASS); }
+            boolean failed = (context.getSkippedTests().size() != 0) || (context.getFailedTests().size() != 0);
             
-            if(System.getenv(TEST_ENVIRONMENT) != null) props.put(TEST_ENVIRONMENT, System.getenv(TEST_ENVIRONMENT));
-            else props.put(TEST_ENVIRONMENT, "none");
-           
-            (new SendPrometheusPushGatewayMessageThread(props)).start();
+            metrics.recordTestResult(getTestLabel(context.getName()), getEnvironment(), failed ? 1 : 0, duration, context.getEndDate().getTime());
             
-            try { Thread.sleep(2000); }
-            catch(Exception le) { }
+            metrics.push();
         
         }
-        catch(Exception e) { e.printStackTrace(); logger.debug(e); }   
+        catch(Exception e) { logger.error("Unable to send data to PushGateway: " + e); }   
     
     }
     
+    /**
+     * Load the settings (once) and start the push exporter of <code>PrometheusMetrics</code> 
+     * if a Push Gateway host is configured.
+     */
+    private static synchronized void startPushExporter() {
+        
+        if(props != null) return;
+        
+        props = new Properties();
+        
+        try { props = (new Utils()).loadProperties(PROPERTIES_FILE); }
+        catch(Exception e) { logger.debug(e); }
+        
+        if(props.getProperty(HOST) == null) { logger.debug("No Push Gateway host is configured in: " + PROPERTIES_FILE); return; }
+        
+        long interval = DEFAULT_PUSH_INTERVAL;
+        
+        try { if(props.getProperty(PUSH_INTERVAL) != null) interval = Long.parseLong(props.getProperty(PUSH_INTERVAL).trim()); }
+        catch(Exception e) { logger.debug(e); }
+        
+        PrometheusMetrics.getInstance().startPushExporter(props.getProperty(HOST).trim(), props.getProperty(BATCH_JOB_NAME), interval);
+        
+    }
+    
+    /**
+     * Get the test name label value, the flow name if it is set.
+     * 
+     * @param testName
+     * 
+     * @return 
+     */
+    private String getTestLabel(String testName) {
+        
+        if(CommonProperties.getInstance().getFlowName() != null) return CommonProperties.getInstance().getFlowName();
+        else return testName;
+        
+    }
+    
+    /**
+     * Get the target environment label value.
+     * 
+     * @return 
+     */
+    private String getEnvironment() {
+        
+        if(System.getenv(TEST_ENVIRONMENT) != null) return System.getenv(TEST_ENVIRONMENT);
+        else return "none";
+        
+    }
+    
 }
 
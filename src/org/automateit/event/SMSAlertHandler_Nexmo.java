@@ -81,10 +81,10 @@ public class SMSAlertHandler_Nexmo extends TestListenerAdapter implements AlertH
             
             loadProperties();
             
-            (new SendSMSThread_Nexmo(props, result)).start(); 
+            (new SendSMSThread_Nexmo(props, result)).send(); 
         
         }
-        catch(Exception e) { logger.debug(e); }  
+        catch(Exception e) { throw e; }  
     
     }
     
@@ -101,10 +101,10 @@ public class SMSAlertHandler_Nexmo extends TestListenerAdapter implements AlertH
             
             loadProperties();
             
-            (new SendSMSThread_Nexmo(props, message)).start(); 
+            (new SendSMSThread_Nexmo(props, message)).send(); 
         
         }
-        catch(Exception e) { logger.debug(e); }  
+        catch(Exception e) { throw e; }  
     
     }
     
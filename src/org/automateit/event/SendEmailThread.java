@@ -55,8 +55,8 @@ public class SendEmailThread extends SendMessageThreadBase {
      */
     public SendEmailThread(Properties props, String message) { super(props, message); }
     
-    //@Override
-    public void run() {
+    @Override
+    public void send() throws Exception {
         
         try {
             
@@ -87,7 +87,7 @@ public class SendEmailThread extends SendMessageThreadBase {
             Transport.send(mimeMessage);  
             
         }
-        catch(Exception e) { logger.error(e); }
+        catch(Exception e) { throw e; }
         
     }
     
@@ -99,6 +99,24 @@ public class SendMessageThreadBase extends Thread {
     
     }
     
+    /**
+     * Send the message or event on the calling thread.
+     * 
+     * @throws Exception 
+     */
+    public void send() throws Exception { }
+    
+    /**
+     * Send the message or event, used when this object is started as a thread.
+     */
+    @Override
+    public void run() {
+        
+        try { send(); }
+        catch(Exception e) { logger.error(e); }
+        
+    }
+    
     /**
      * Get the platform name.
      * 
@@ -61,8 +61,8 @@ public class SendSMSThread_Nexmo extends SendMessageThreadBase {
      */
     public SendSMSThread_Nexmo(Properties props, String message) { super(props, message); }
     
-    //@Override
-    public void run() {
+    @Override
+    public void send() throws Exception {
         
         TextMessage textMessage = null;
         
@@ -87,7 +87,7 @@ public class SendSMSThread_Nexmo extends SendMessageThreadBase {
             }
             
         }
-        catch(Exception e) { logger.error(e); }
+        catch(Exception e) { throw e; }
         
     }
     
@@ -60,8 +60,8 @@ public class SendZabbixMessageThread extends SendMessageThreadBase {
      */
     public SendZabbixMessageThread(Properties props, String message) { super(props, message); }
     
-    //@Override
-    public void run() {
+    @Override
+    public void send() throws Exception {
         
         try {
             
@@ -93,10 +93,10 @@ public class SendZabbixMessageThread extends SendMessageThreadBase {
             logger.info("result:" + result);
 		
             if(result.success()) logger.info("Zabbix - Sent successfully.");
-            else logger.info("Zabbix - Unable to Send (unsuccessful).");
+            else throw new Exception("Zabbix - Unable to Send (unsuccessful): " + result);
             
         }
-        catch(Exception e) { logger.error(e); }
+        catch(Exception e) { throw e; }
         
     }
     
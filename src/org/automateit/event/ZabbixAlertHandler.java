@@ -81,10 +81,10 @@ public class ZabbixAlertHandler extends TestListenerAdapter implements AlertHand
             
             loadProperties();
             
-            (new SendZabbixMessageThread(props, result)).start(); 
+            (new SendZabbixMessageThread(props, result)).send(); 
         
         }
-        catch(Exception e) { logger.debug(e); }  
+        catch(Exception e) { throw e; }  
     
     }
     
@@ -101,10 +101,10 @@ public class ZabbixAlertHandler extends TestListenerAdapter implements AlertHand
             
             loadProperties();
             
-            (new SendZabbixMessageThread(props, message)).start(); 
+            (new SendZabbixMessageThread(props, message)).send(); 
         
         }
-        catch(Exception e) { logger.debug(e); }  
+        catch(Exception e) { throw e; }  
     
     }
     
@@ -0,0 +1,629 @@
+/**
+ * This file is part of Automate It!'s free and open source web and mobile 
+ * application testing framework.
+ * 
+ * Automate It! is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Automate It! is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Automate It!.  If not, see <http://www.gnu.org/licenses/>.
+ *  
+ **/
+
+package org.automateit.mobile;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.log4j.Logger;
+
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.remote.DesiredCapabilities;
+
+import io.appium.java_client.AppiumDriver;
+import io.appium.java_client.android.AndroidDriver;
+import io.appium.java_client.ios.IOSDriver;
+
+import org.automateit.core.BooleanCapabilities;
+import org.automateit.core.StringCapabilities;
+
+/**
+ * This class keeps Appium sessions alive across screens and test classes.
+ * <p>
+ * A new session pays for the app install and launch. With session reuse a session given back with 
+ * <code>release</code> is kept (keyed by server URL and desired capabilities) and handed out again by 
+ * <code>acquire</code>, after a soft reset of the app (<code>terminateApp</code> then <code>activateApp</code>) 
+ * instead of a reinstall. Sessions created later for a key that already had one use <code>noReset</code>, 
+ * since the app is already installed.
+ * <p>
+ * The next session can be started in the background while the current test runs (<code>preProvision</code>).
+ * Only use this when the server has more than one device matching the capabilities (a grid or device farm), 
+ * since a second session on a single device ends the first one.
+ * <p>
+ * Session creation latency is recorded for every session started.
+ * 
+ * @author mburnside
+ */
+public class AppiumSessionManager {
+    
+    /**
+     * The instance of this singleton class
+     */
+    private static AppiumSessionManager instance = new AppiumSessionManager();
+    
+    /**
+     * Logging object
+     */
+    private static Logger logger = Logger.getLogger(AppiumSessionManager.class);
+    
+    /**
+     * The idle sessions per key
+     */
+    private final Map<String, LinkedList<AppiumSession>> idle = new HashMap<String, LinkedList<AppiumSession>>();
+    
+    /**
+     * The sessions in use
+     */
+    private final Map<AppiumDriver<?>, AppiumSession> inUse = new IdentityHashMap<AppiumDriver<?>, AppiumSession>();
+    
+    /**
+     * The keys that already had a session (app installed)
+     */
+    private final Set<String> provisioned = new HashSet<String>();
+    
+    /**
+     * The number of sessions being started in the background per key
+     */
+    private final Map<String, Integer> starting = new HashMap<String, Integer>();
+    
+    /**
+     * Starts sessions in the background
+     */
+    private final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+        
+        public Thread newThread(Runnable runnable) {
+            
+            Thread thread = new Thread(runnable, "AppiumSessionManager");
+            
+            thread.setDaemon(true);
+            
+            return thread;
+            
+        }
+        
+    });
+    
+    /**
+     * Session creation latency metrics (ms)
+     */
+    private long creationCount = 0;
+    
+    private long creationFailures = 0;
+    
+    private long creationTotalTime = 0;
+    
+    private long creationMinTime = Long.MAX_VALUE;
+    
+    private long creationMaxTime = 0;
+    
+    private long creationLastTime = 0;
+    
+    /**
+     * Reuse metrics
+     */
+    private long reuseCount = 0;
+    
+    private long softResetTotalTime = 0;
+    
+    private long retiredCount = 0;
+    
+    /**
+     * Default Constructor
+     */
+    protected AppiumSessionManager() {
+        
+        Runtime.getRuntime().addShutdownHook(new Thread("AppiumSessionManager-shutdown") {
+            
+            @Override
+            public void run() { shutdown(); }
+            
+        });
+        
+    }
+    
+    /**
+     * Return the instance of this object.
+     * 
+     * @return The instance of this object 
+     */
+    public static AppiumSessionManager getInstance() { return instance; }
+    
+    /**
+     * Get the key of a session - the server URL and the desired capabilities (sorted).
+     * 
+     * @param url
+     * @param desiredCapabilities
+     * 
+     * @return 
+     */
+    public static String getKey(URL url, DesiredCapabilities desiredCapabilities) { 
+        
+        return url + "|" + new TreeMap<String, Object>(desiredCapabilities.asMap()); 
+    
+    }
+    
+    /**
+     * Get a session: an idle session for the same URL and capabilities (soft reset), a session started in 
+     * the background, or a new session.
+     * 
+     * @param url
+     * @param desiredCapabilities
+     * @param android
+     * 
+     * @return
+     * 
+     * @throws Exception 
+     */
+    public AppiumDriver<WebElement> acquire(URL url, DesiredCapabilities desiredCapabilities, boolean android) throws Exception {
+        
+        try {
+            
+            String key = getKey(url, desiredCapabilities);
+            
+            while(true) {
+                
+                AppiumSession session = null;
+                
+                synchronized(this) {
+                    
+                    LinkedList<AppiumSession> sessions = getIdle(key);
+                    
+                    if(sessions.isEmpty() && (getStarting(key) > 0)) { wait(1000); continue; }
+                    
+                    if(sessions.isEmpty()) break;
+                    
+                    session = sessions.removeFirst();
+                    
+                }
+                
+                // a fresh (pre-provisioned) session has not been used yet and needs no reset
+                boolean reused = !session.isFresh();
+                
+                if(reused && !softReset(session)) { retire(session); continue; }
+                
+                synchronized(this) { if(reused) reuseCount++; inUse.put(session.getDriver(), session); }
+                
+                logger.info("Reusing appium session: " + session.getDriver().getSessionId());
+                
+                return session.getDriver();
+                
+            }
+            
+            AppiumSession session = create(key, url, desiredCapabilities, android, true);
+            
+            synchronized(this) { inUse.put(session.getDriver(), session); }
+            
+            return session.getDriver();
+            
+        }
+        catch(Exception e) { throw e; }
+        
+    }
+    
+    /**
+     * Start sessions in the background until <code>count</code> idle sessions are available or being 
+     * started for the URL and capabilities.
+     * 
+     * @param url
+     * @param desiredCapabilities
+     * @param android
+     * @param count 
+     */
+    public void preProvision(final URL url, final DesiredCapabilities desiredCapabilities, final boolean android, int count) {
+        
+        final String key = getKey(url, desiredCapabilities);
+        
+        synchronized(this) {
+            
+            count = count - getIdle(key).size() - getStarting(key);
+            
+            if(count <= 0) return;
+            
+            starting.put(key, getStarting(key) + count);
+            
+        }
+        
+        for(int i = 0; i < count; i++) {
+            
+            executor.execute(new Runnable() {
+                
+                public void run() {
+                    
+                    AppiumSession session = null;
+                    
+                    try { session = create(key, url, desiredCapabilities, android, true); }
+                    catch(Exception e) { logger.error("Unable to pre-provision an appium session: " + e); }
+                    
+                    synchronized(AppiumSessionManager.this) {
+                        
+                        starting.put(key, getStarting(key) - 1);
+                        
+                        if(session != null) getIdle(key).add(session);
+                        
+                        AppiumSessionManager.this.notifyAll();
+                        
+                    }
+                    
+                }
+                
+            });
+            
+        }
+        
+    }
+    
+    /**
+     * Create a new session that is not kept for reuse. The creation time is recorded.
+     * 
+     * @param url
+     * @param desiredCapabilities
+     * @param android
+     * 
+     * @return
+     * 
+     * @throws Exception 
+     */
+    public AppiumDriver<WebElement> create(URL url, DesiredCapabilities desiredCapabilities, boolean android) throws Exception {
+        
+        try { return create(getKey(url, desiredCapabilities), url, desiredCapabilities, android, false).getDriver(); }
+        catch(Exception e) { throw e; }
+        
+    }
+    
+    /**
+     * Give a session back so that it can be reused. The app is terminated so the device is left idle.
+     * 
+     * @param driver
+     * 
+     * @return <code>true</code> if the session is managed here and was kept
+     */
+    public boolean release(AppiumDriver<?> driver) {
+        
+        AppiumSession session = null;
+        
+        synchronized(this) { session = inUse.remove(driver); }
+        
+        if(session == null) return false;
+        
+        session.setFresh(false);
+        
+        try { if(session.getAppId() != null) driver.terminateApp(session.getAppId()); }
+        catch(Exception e) { logger.debug("Unable to terminate the app on release: " + e); }
+        
+        synchronized(this) { getIdle(session.getKey()).add(session); notifyAll(); }
+        
+        return true;
+        
+    }
+    
+    /**
+     * Quit a session (managed or not).
+     * 
+     * @param driver 
+     */
+    public void quit(AppiumDriver<?> driver) {
+        
+        AppiumSession session = null;
+        
+        synchronized(this) { session = inUse.remove(driver); }
+        
+        if(session != null) retire(session);
+        else {
+            
+            try { driver.quit(); }
+            catch(Exception e) { }
+            
+        }
+        
+    }
+    
+    /**
+     * Quit all the idle sessions.
+     */
+    public void shutdown() {
+        
+        List<AppiumSession> sessions = new ArrayList<AppiumSession>();
+        
+        synchronized(this) {
+            
+            for(LinkedList<AppiumSession> list : idle.values()) sessions.addAll(list);
+            
+            idle.clear();
+            
+        }
+        
+        for(AppiumSession session : sessions) retire(session);
+        
+    }
+    
+    /**
+     * Get the number of sessions created.
+     * 
+     * @return 
+     */
+    public synchronized long getCreationCount() { return creationCount; }
+    
+    /**
+     * Get the number of sessions that could not be created.
+     * 
+     * @return 
+     */
+    public synchronized long getCreationFailures() { return creationFailures; }
+    
+    /**
+     * Get the average session creation time (ms).
+     * 
+     * @return 
+     */
+    public synchronized long getAverageCreationTime() { return (creationCount == 0) ? 0 : (creationTotalTime / creationCount); }
+    
+    /**
+     * Get the shortest session creation time (ms).
+     * 
+     * @return 
+     */
+    public synchronized long getMinCreationTime() { return (creationCount == 0) ? 0 : creationMinTime; }
+    
+    /**
+     * Get the longest session creation time (ms).
+     * 
+     * @return 
+     */
+    public synchronized long getMaxCreationTime() { return creationMaxTime; }
+    
+    /**
+     * Get the last session creation time (ms).
+     * 
+     * @return 
+     */
+    public synchronized long getLastCreationTime() { return creationLastTime; }
+    
+    /**
+     * Get the number of times a session was reused (soft reset), not counting pre-provisioned sessions 
+     * handed out for the first time.
+     * 
+     * @return 
+     */
+    public synchronized long getReuseCount() { return reuseCount; }
+    
+    /**
+     * Get the average soft reset time (ms).
+     * 
+     * @return 
+     */
+    public synchronized long getAverageSoftResetTime() { return (reuseCount == 0) ? 0 : (softResetTotalTime / reuseCount); }
+    
+    /**
+     * Create a new session and record the creation time.
+     * 
+     * @param key
+     * @param url
+     * @param desiredCapabilities
+     * @param android
+     * @param reuse <code>true</code> if the session is kept for reuse
+     * 
+     * @return
+     * 
+     * @throws Exception 
+     */
+    protected AppiumSession create(String key, URL url, DesiredCapabilities desiredCapabilities, boolean android, boolean reuse) throws Exception {
+        
+        DesiredCapabilities capabilities = new DesiredCapabilities(desiredCapabilities);
+        
+        // the app is already installed by an earlier reused session for this key
+        synchronized(this) { 
+            
+            if(reuse && provisioned.contains(key)) { 
+                
+                capabilities.setCapability(BooleanCapabilities.NO_RESET.getCapability(), true);
+                
+                capabilities.setCapability(BooleanCapabilities.FULL_RESET.getCapability(), false);
+                
+            }
+        
+        }
+        
+        long start = System.nanoTime();
+        
+        try {
+            
+            AppiumDriver<WebElement> driver = null;
+            
+            if(android) driver = new AndroidDriver<WebElement>(url, capabilities);
+            else driver = new IOSDriver<WebElement>(url, capabilities);
+            
+            long time = (System.nanoTime() - start) / 1000000;
+            
+            synchronized(this) {
+                
+                if(reuse) provisioned.add(key);
+                
+                creationCount++;
+                
+                creationTotalTime += time;
+                
+                creationLastTime = time;
+                
+                creationMinTime = Math.min(creationMinTime, time);
+                
+                creationMaxTime = Math.max(creationMaxTime, time);
+                
+            }
+            
+            logger.info("Appium session created in " + time + " ms: " + driver.getSessionId());
+            
+            return new AppiumSession(key, driver, getAppId(capabilities, android));
+            
+        }
+        catch(Exception e) { synchronized(this) { creationFailures++; } throw e; }
+        
+    }
+    
+    /**
+     * Restart the app of the session.
+     * 
+     * @param session
+     * 
+     * @return <code>true</code> if the app was restarted
+     */
+    protected boolean softReset(AppiumSession session) {
+        
+        long start = System.nanoTime();
+        
+        try {
+            
+            if(session.getAppId() == null) { session.getDriver().getContext(); return true; }
+            
+            try { session.getDriver().terminateApp(session.getAppId()); }
+            catch(Exception e) { }
+            
+            session.getDriver().activateApp(session.getAppId());
+            
+            synchronized(this) { softResetTotalTime += (System.nanoTime() - start) / 1000000; }
+            
+            return true;
+            
+        }
+        catch(Exception e) { logger.debug("Unable to soft reset appium session: " + e); return false; }
+        
+    }
+    
+    /**
+     * Get the app id (package or bundle id) of the capabilities.
+     * 
+     * @param capabilities
+     * @param android
+     * 
+     * @return The app id or <code>null</code> if not set
+     */
+    private String getAppId(DesiredCapabilities capabilities, boolean android) {
+        
+        Object appId = null;
+        
+        if(android) {
+            
+            appId = capabilities.getCapability(StringCapabilities.APP_PACKAGE_CAPS.getCapability());
+            
+            if(appId == null) appId = capabilities.getCapability(StringCapabilities.APP_PACKAGE.getCapability());
+            
+        }
+        else appId = capabilities.getCapability(StringCapabilities.BUNDLE_ID.getCapability());
+        
+        return (appId == null) ? null : appId.toString();
+        
+    }
+    
+    /**
+     * Quit the session.
+     * 
+     * @param session 
+     */
+    private void retire(AppiumSession session) {
+        
+        synchronized(this) { retiredCount++; }
+        
+        try { session.getDriver().quit(); }
+        catch(Exception e) { }
+        
+    }
+    
+    /**
+     * Get the idle sessions of the key.
+     * 
+     * @param key
+     * 
+     * @return 
+     */
+    private LinkedList<AppiumSession> getIdle(String key) {
+        
+        LinkedList<AppiumSession> sessions = idle.get(key);
+        
+        if(sessions == null) { sessions = new LinkedList<AppiumSession>(); idle.put(key, sessions); }
+        
+        return sessions;
+        
+    }
+    
+    /**
+     * Get the number of sessions being started for the key.
+     * 
+     * @param key
+     * 
+     * @return 
+     */
+    private int getStarting(String key) {
+        
+        Integer count = starting.get(key);
+        
+        return (count == null) ? 0 : count.intValue();
+        
+    }
+    
+    /**
+     * Return a summary of the session metrics.
+     * 
+     * @return 
+     */
+    @Override
+    public synchronized String toString() {
+        
+        return "AppiumSessionManager[created=" + creationCount + ", failed=" + creationFailures + ", creationTime(avg/min/max/last ms)=" + getAverageCreationTime() + "/" + getMinCreationTime() + "/" + creationMaxTime + "/" + creationLastTime + ", reused=" + reuseCount + ", softResetTime(avg ms)=" + getAverageSoftResetTime() + ", retired=" + retiredCount + ", inUse=" + inUse.size() + "]";
+        
+    }
+    
+    /**
+     * A session and the app it drives.
+     */
+    protected static class AppiumSession {
+        
+        private final String key;
+        
+        private final AppiumDriver<WebElement> driver;
+        
+        private final String appId;
+        
+        private boolean fresh = true;
+        
+        AppiumSession(String key, AppiumDriver<WebElement> driver, String appId) { this.key = key; this.driver = driver; this.appId = appId; }
+        
+        String getKey() { return key; }
+        
+        AppiumDriver<WebElement> getDriver() { return driver; }
+        
+        String getAppId() { return appId; }
+        
+        boolean isFresh() { return fresh; }
+        
+        void setFresh(boolean fresh) { this.fresh = fresh; }
+        
+    }
+    
+}
@@ -46,11 +46,11 @@ import io.appium.java_client.AppiumDriver;
 import io.appium.java_client.android.AndroidDriver;
 import io.appium.java_client.android.nativekey.AndroidKey;
 import io.appium.java_client.android.nativekey.KeyEvent;
-import io.appium.java_client.ios.IOSDriver;
 import io.appium.java_client.TouchAction;
 import io.appium.java_client.touch.offset.PointOption;
 import io.appium.java_client.touch.WaitOptions;
 import io.appium.java_client.MobileElement;
+import io.appium.java_client.HasOnScreenKeyboard;
 
 import org.automateit.core.Capabilities;
 import org.automateit.core.ViewBase;
@@ -58,6 +58,8 @@ import org.automateit.core.BooleanCapabilities;
 import org.automateit.core.StringCapabilities;
 import org.automateit.data.DataDrivenInput;
 import org.automateit.core.CommonWebDriver;
+import org.automateit.util.AdaptiveWait;
+import org.automateit.util.CommandRecord;
  
 /**
  * This class is the base class for all other screen classes to use.
@@ -80,6 +82,16 @@ public class BaseScreen extends ViewBase {
      */
     private static final int DEFAULT_LINES_LOGCAT = 5000;
     
+    /**
+     * Maximum time (ms) to wait for the keyboard or a web element when entering data
+     */
+    private static final long INPUT_WAIT_TIME = 1000;
+    
+    /**
+     * Time (ms) between screen snapshots while waiting for an element class to appear
+     */
+    private static final long SNAPSHOT_POLLING_INTERVAL = 500;
+    
     /**
      * Logging class
      */
@@ -144,7 +156,8 @@ public class BaseScreen extends ViewBase {
         
             logger.error(e.getMessage());
         
-            if(this.driver != null) quit();
+            // the session failed, do not give it back for reuse
+            if(this.driver != null) quit(true);
            
             createNewWebDriver();
             
@@ -184,7 +197,7 @@ public class BaseScreen extends ViewBase {
         
         logger.info("Stopping webdriver session");
             
-        commandList.addToList("stopSession(quit)");
+        CommandRecord command = getCommandList().addToList("stopSession(quit)");
         
         try {
             
@@ -196,6 +209,7 @@ public class BaseScreen extends ViewBase {
         
         }
         catch(Exception e) { }
+        finally { command.finish(); }
         
     }
     
@@ -217,9 +231,14 @@ public class BaseScreen extends ViewBase {
         
         logger.info("Attempting to perform swipe on screen at: start(" + startX + "," + startY + ") finish:(" + endX + "," + endY + ") for duration of: " + duration + " seconds");
             
-        commandList.addToList("swipe: " + startX + "," + startY + "-" + endX + "," + endY);
+        CommandRecord command = getCommandList().addToList("swipe: " + startX + "," + startY + "-" + endX + "," + endY);
+        
+        try {
+            
+            scroll(startX, startY, endX, endY, duration);
         
-        scroll(startX, startY, endX, endY, duration);
+        }
+        finally { command.finish(); }
        
     }
     
@@ -244,11 +263,16 @@ public class BaseScreen extends ViewBase {
         
         logger.info("Attempting to perform tap on screen at: " + x + "," + y);
             
-        commandList.addToList("tap: " + x + "," + y);
+        CommandRecord command = getCommandList().addToList("tap: " + x + "," + y);
         
-        TouchAction touchAction = new TouchAction(this.driver);
+        try {
             
-        touchAction.tap(PointOption.point(x, y)).perform();
+            TouchAction touchAction = new TouchAction(this.driver);
+            
+            touchAction.tap(PointOption.point(x, y)).perform();
+        
+        }
+        finally { command.finish(); }
        
     }
     
@@ -269,11 +293,16 @@ public class BaseScreen extends ViewBase {
         
         logger.info("Attempting to perform tap on screen at web element: " + webelement);
             
-        commandList.addToList("tap: " + webelement);
+        CommandRecord command = getCommandList().addToList("tap: " + webelement);
         
-        TouchAction touchAction = new TouchAction(this.driver);
+        try {
+            
+            TouchAction touchAction = new TouchAction(this.driver);
            
-        touchAction.tap(PointOption.point(webelement.getLocation().getX(), webelement.getLocation().getY())).perform();
+            touchAction.tap(PointOption.point(webelement.getLocation().getX(), webelement.getLocation().getY())).perform();
+        
+        }
+        finally { command.finish(); }
         
     }
     
@@ -286,13 +315,18 @@ public class BaseScreen extends ViewBase {
         
         logger.info("Attempting to perform tap on screen at web element at location: " + locator);
             
-        commandList.addToList("tap: " + locator);
+        CommandRecord command = getCommandList().addToList("tap: " + locator);
         
-        TouchAction touchAction = new TouchAction(this.driver);
+        try {
+            
+            TouchAction touchAction = new TouchAction(this.driver);
             
-        WebElement webelement = getWebElementByXPath(locator);
+            WebElement webelement = getWebElementByXPath(locator);
            
-        touchAction.tap(PointOption.point(webelement.getLocation().getX(), webelement.getLocation().getY())).perform();
+            touchAction.tap(PointOption.point(webelement.getLocation().getX(), webelement.getLocation().getY())).perform();
+        
+        }
+        finally { command.finish(); }
          
     }
     
@@ -329,11 +363,16 @@ public class BaseScreen extends ViewBase {
         
         logger.info("Attempting to perform scroll on mobile screen; start: " + startX + ":" + startY + ", end: " + endX + ":" + endY + ", duration: " + duration);
             
-        commandList.addToList("scroll: start: " + startX + ":" + startY + ", end: " + endX + ":" + endY + ", duration: " + duration);
+        CommandRecord command = getCommandList().addToList("scroll: start: " + startX + ":" + startY + ", end: " + endX + ":" + endY + ", duration: " + duration);
         
-        TouchAction touchAction = new TouchAction(this.driver);
+        try {
+            
+            TouchAction touchAction = new TouchAction(this.driver);
            
-        touchAction.press(PointOption.point(startX, startY)).waitAction((new WaitOptions()).withDuration(Duration.ofSeconds(duration))).moveTo(PointOption.point(endX, endY)).release().perform(); 
+            touchAction.press(PointOption.point(startX, startY)).waitAction((new WaitOptions()).withDuration(Duration.ofSeconds(duration))).moveTo(PointOption.point(endX, endY)).release().perform();
+        
+        }
+        finally { command.finish(); } 
        
     }
     
@@ -355,15 +394,20 @@ public class BaseScreen extends ViewBase {
         
         logger.info("Scroll Down");
             
-        commandList.addToList("Scroll Down");
+        CommandRecord command = getCommandList().addToList("Scroll Down");
         
-        JavascriptExecutor js = (JavascriptExecutor) driver;
+        try {
+            
+            JavascriptExecutor js = (JavascriptExecutor) driver;
  
-        HashMap<String, String> scrollObject = new HashMap<String, String>();
+            HashMap<String, String> scrollObject = new HashMap<String, String>();
 
-        scrollObject.put("direction", "down");
+            scrollObject.put("direction", "down");
    
-        js.executeScript("mobile: scroll", scrollObject);
+            js.executeScript("mobile: scroll", scrollObject);
+        
+        }
+        finally { command.finish(); }
 
     }
     
@@ -376,7 +420,7 @@ public class BaseScreen extends ViewBase {
         
         logger.info("Scroll Up");
             
-        commandList.addToList("Scroll Up");
+        CommandRecord command = getCommandList().addToList("Scroll Up");
         
         try {
              
@@ -392,9 +436,157 @@ public class BaseScreen extends ViewBase {
             
         }
         catch(Exception e) { throw e; }
+        finally { command.finish(); }
+        
+    }
+    
+    /**
+     * Take a snapshot of the screen element hierarchy using a single page source call.
+     * 
+     * @return
+     * 
+     * @throws Exception 
+     */
+    protected ScreenSnapshot getScreenSnapshot() throws Exception {
+        
+        try { return new ScreenSnapshot(this.driver.getPageSource()); }
+        catch(Exception e) { throw new BaseScreenException(e); }
+        
+    }
+    
+    /**
+     * Take a snapshot of the screen element hierarchy, waiting (up to the timeout) for 
+     * an element of the class to appear - the same way <code>findElements</code> waits 
+     * on the implicit wait.
+     * 
+     * @param className
+     * 
+     * @return
+     * 
+     * @throws Exception 
+     */
+    protected ScreenSnapshot getScreenSnapshot(String className) throws Exception {
+        
+        boolean found = false;
+        
+        try {
+            
+            long end = System.currentTimeMillis() + (getSnapshotTimeout() * 1000);
+            
+            ScreenSnapshot snapshot = getScreenSnapshot();
+            
+            while(!snapshot.hasClassName(className) && (System.currentTimeMillis() < end)) {
+                
+                delay(SNAPSHOT_POLLING_INTERVAL);
+                
+                snapshot = getScreenSnapshot();
+                
+            }
+            
+            found = snapshot.hasClassName(className);
+            
+            return snapshot;
+            
+        }
+        catch(Exception e) { throw e; }
+        finally { addLookupScreenshotToReport(!found); }
+        
+    }
+    
+    /**
+     * Get the time (seconds) to wait for an element class to appear in a snapshot.
+     * 
+     * @return 
+     */
+    private long getSnapshotTimeout() {
+        
+        try { return (new Long(properties.get("timeout"))).longValue(); }
+        catch(Exception e) { return 0; }
+        
+    }
+    
+    /**
+     * Get the web element for an element of a screen snapshot, used for the final click/tap.
+     * <p>
+     * The element at the snapshot's class index is checked against the snapshot (text, 
+     * content description, name, resource id or bounds) - usually two driver calls. If the 
+     * screen has changed since the snapshot was taken (eg. a list was reordered) the other 
+     * elements of the class are searched for one that matches the snapshot.
+     * 
+     * @param element
+     * 
+     * @return
+     * 
+     * @throws Exception 
+     */
+    protected WebElement getWebElement(ScreenSnapshot.ScreenElement element) throws Exception {
+        
+        try {
+            
+            List<WebElement> elements = this.driver.findElements(By.className(element.getClassName()));
+            
+            int index = element.getClassIndex();
+            
+            if((index < elements.size()) && isSameElement(element, elements.get(index))) return elements.get(index);
+            
+            logger.debug("Screen has changed since the snapshot was taken, searching for: " + element);
+            
+            for(int i = 0; i < elements.size(); i++) if((i != index) && isSameElement(element, elements.get(i))) return elements.get(i);
+            
+            throw new BaseScreenException("Screen has changed since the snapshot was taken, unable to get web element: " + element);
+            
+        }
+        catch(Exception e) { throw e; }
+        
+    }
+    
+    /**
+     * Check a web element is the element of a screen snapshot, using the most specific 
+     * attribute the snapshot has: text, content description, name (iOS), resource id, 
+     * else the bounds.
+     * 
+     * @param element
+     * @param webElement
+     * 
+     * @return <code>true</code> if the web element matches (or the snapshot has nothing to compare)
+     */
+    private boolean isSameElement(ScreenSnapshot.ScreenElement element, WebElement webElement) {
+        
+        try {
+            
+            if(!isEmpty(element.getAttribute("text"))) return element.getAttribute("text").equals(webElement.getText());
+            
+            if(!isEmpty(element.getContentDescription())) return element.getContentDescription().equals(webElement.getAttribute("contentDescription"));
+            
+            if(!isEmpty(element.getAttribute("name"))) return element.getAttribute("name").equals(webElement.getAttribute("name"));
+            
+            if(!isEmpty(element.getResourceId())) return element.getResourceId().equals(webElement.getAttribute("resourceId"));
+            
+            if(element.hasBounds()) {
+                
+                Point location = webElement.getLocation();
+                Dimension size = webElement.getSize();
+                
+                return (element.getCenterX() == location.getX() + (size.getWidth() / 2)) && (element.getCenterY() == location.getY() + (size.getHeight() / 2));
+                
+            }
+            
+            return true;
+            
+        }
+        catch(Exception e) { return false; }
         
     }
     
+    /**
+     * Indicates a snapshot attribute is not set.
+     * 
+     * @param value
+     * 
+     * @return 
+     */
+    private static boolean isEmpty(String value) { return (value == null) || (value.length() == 0); }
+    
     /**
      * Return the web element matching the type and containing the text.
      * 
@@ -409,35 +601,20 @@ public class BaseScreen extends ViewBase {
         
         logger.info("getWebElementContainingText:" + text + "," + className);
             
-        commandList.addToList("getWebElementContainingText:" + text + "|" + className);
+        CommandRecord command = getCommandList().addToList("getWebElementContainingText:" + text + "|" + className);
         
         try {
              
-            List<WebElement> elements = findElements(By.className(className));
+            ScreenSnapshot.ScreenElement element = getScreenSnapshot(className).find(className, ScreenSnapshot.Attribute.NAME, ScreenSnapshot.TextMatch.CONTAINS, false, true, text);
             
-            for(WebElement element:elements) {
-                
-                if(!element.isDisplayed() || !element.isEnabled()) continue;
-               
-                String data1 = element.getAttribute("name");
-               
-                if(data1 == null) continue;
-                
-                String data = data1.trim();
-               
-                if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
-                   
-                logger.info("Checking element text value: " + data + "|" + data.contains(text));
-                
-                if(data.contains(text)) return element;
-                
-            }
+            if(element != null) return getWebElement(element);
             
             // if we get here, we could not find the element so throw an exception
             throw new Exception("Could not find text in any screen element matching type: " + className + " and text: " + text);
             
         }
         catch(Exception e) { printDOM(); throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -455,10 +632,11 @@ public class BaseScreen extends ViewBase {
         
         logger.info("clickOnWebElementContainingText:" + text + "," + className);
             
-        commandList.addToList("clickOnWebElementContainingText:" + text + "|" + className);
+        CommandRecord command = getCommandList().addToList("clickOnWebElementContainingText:" + text + "|" + className);
         
         try { return getWebElementContainingText(text, className).getAttribute("name").trim(); }
         catch(Exception e) { printDOM(); throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -474,10 +652,11 @@ public class BaseScreen extends ViewBase {
         
         logger.info("clickOnWebElementContainingText:" + text + "|" + className);
             
-        commandList.addToList("clickOnWebElementContainingText:" + text + "|" + className);
+        CommandRecord command = getCommandList().addToList("clickOnWebElementContainingText:" + text + "|" + className);
         
         try { getWebElementContainingText(text, className).click(); }
         catch(Exception e) { printDOM(); throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -493,41 +672,19 @@ public class BaseScreen extends ViewBase {
         
         logger.info("clickOnSecondWebElementContainingText:" + text + "|" + className);
             
-        commandList.addToList("clickOnSecondWebElementContainingText:" + text + "|" + className);
-        
-        boolean foundFirstOccurrance = false;
+        CommandRecord command = getCommandList().addToList("clickOnSecondWebElementContainingText:" + text + "|" + className);
         
         try {
              
-            List<WebElement> elements = findElements(By.className(className));
+            List<ScreenSnapshot.ScreenElement> elements = getScreenSnapshot(className).findAll(className, ScreenSnapshot.Attribute.NAME, ScreenSnapshot.TextMatch.CONTAINS, false, true, 2, text);
             
-            for(WebElement element:elements) {
+            if(elements.size() > 1) {
                 
-                if(!element.isDisplayed() || !element.isEnabled()) continue;
-               
-                String data1 = element.getAttribute("name");
-                
-                if(data1 == null) continue;
+                getWebElement(elements.get(1)).click();
                 
-                String data = data1.trim();
-               
-                if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
-                   
-                logger.info("Checking element text value: " + data);
-                
-                if(data.contains(text)) {
-                    
-                    if(foundFirstOccurrance) {
-                        
-                        element.click();
-                        
-                        delay(2000);
-                      
-                        return;
-                    }
-                    else { foundFirstOccurrance = true; }
+                delay(2000);
                 
-                }
+                return;
                 
             }
             
@@ -536,6 +693,7 @@ public class BaseScreen extends ViewBase {
             
         }
         catch(Exception e) { printDOM(); throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -551,38 +709,29 @@ public class BaseScreen extends ViewBase {
     public void clickOnWebElementContainingText(String text1, String text2, String className) throws Exception {
         
         logger.info("clickOnWebElementContainingText:" + text1 + "|" + text2 + "|" + className);
-            
-        commandList.addToList("clickOnWebElementContainingText:" + text1 + "|" + text2 + "|" + className);
-       
+        
+        CommandRecord command = getCommandList().addToList("clickOnWebElementContainingText:" + text1 + "|" + text2 + "|" + className);
+        
         try {
             
-            List<WebElement> elements = findElements(By.className(className));
+            ScreenSnapshot.ScreenElement element = getScreenSnapshot(className).find(className, ScreenSnapshot.Attribute.NAME, ScreenSnapshot.TextMatch.CONTAINS, false, false, text1, text2);
             
-            for (WebElement element:elements) {
-                
-                String data = element.getAttribute("name").trim();
+            if(element != null) {
                 
-                if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
+                getWebElement(element).click();
                 
-                logger.info("Checking text value of attribute: " + data + "|" + text1 + "|" + text2);
-                   
-                if(data.contains(text1) || data.contains(text2)) {
-                   
-                    element.click();
-                    
-                    delay(2000);
-                        
-                    return;
+                delay(2000);
                 
-                }
+                return;
                 
             }
             
-            // if we get here, we could not find the element so throw an exception    
+            // if we get here, we could not find the element so throw an exception
             throw new Exception("Could not find text in any screen element matching type: " + className + " and text1: " + text1 + " and text2: " + text2);
             
         }
         catch(Exception e) { printDOM(); throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -598,10 +747,11 @@ public class BaseScreen extends ViewBase {
         
         logger.info("clickOnWebElementMatchingText:" + text + "|" + className);
         
-        commandList.addToList("clickOnWebElementMatchingText:" + text + "|" + className);
+        CommandRecord command = getCommandList().addToList("clickOnWebElementMatchingText:" + text + "|" + className);
         
         try { clickOnWebElementMatchingText(text, className, false); }
         catch(Exception e) { printDOM(); throw e; }
+        finally { command.finish(); }
         
     }
     
@@ -618,55 +768,28 @@ public class BaseScreen extends ViewBase {
         
         logger.info("clickOnWebElementMatchingText:" + text + "|" + className + "|" + ignoreCase);
         
-        commandList.addToList("clickOnWebElementMatchingText(ignoreCase):" + text + "|" + className + "|" + ignoreCase);
+        CommandRecord command = getCommandList().addToList("clickOnWebElementMatchingText(ignoreCase):" + text + "|" + className + "|" + ignoreCase);
         
         try {
             
-            List<WebElement> elements = findElements(By.className(className));
+            ScreenSnapshot.ScreenElement element = getScreenSnapshot(className).find(className, ScreenSnapshot.Attribute.NAME, ScreenSnapshot.TextMatch.EQUALS, ignoreCase, false, text);
             
-            for (WebElement element:elements) {
+            if(element != null) {
                 
-                String data = element.getAttribute("name");
-                
-                if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
+                getWebElement(element).click();
                 
-                logger.info("Checking text value of attribute: " + data);
-                
-                if(ignoreCase) {
-                    
-                    if(data.toLowerCase().trim().equals(text.trim().toLowerCase())) {
-                    
-                        element.click();
-                    
-                        delay(2000);
-                        
-                        return;
-                
-                    }
-                    
-                }
-                else {
-                    
-                    if(data.trim().equals(text.trim())) {
-                    
-                        element.click();
-                    
-                        delay(2000);
-                        
-                        return;
+                delay(2000);
                 
-                    }
-                    
-                }
+                return;
                 
             }
             
             // if we get here, we could not find the element so throw an exception
             throw new Exception("Could not find text in any screen element matching type: " + className + " and text: " + text);
             
-            
         }
         catch(Exception e) { printDOM(); throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -683,38 +806,28 @@ public class BaseScreen extends ViewBase {
         
         logger.info("clickOnWebElementMatchingText:" + text1 + "|" + text2 + "|" + className);
         
-        commandList.addToList("clickOnWebElementMatchingText:" + text1 + "|" + text2 + "|" + className);
+        CommandRecord command = getCommandList().addToList("clickOnWebElementMatchingText:" + text1 + "|" + text2 + "|" + className);
         
         try {
             
-            List<WebElement> elements = findElements(By.className(className));
+            ScreenSnapshot.ScreenElement element = getScreenSnapshot(className).find(className, ScreenSnapshot.Attribute.NAME, ScreenSnapshot.TextMatch.EQUALS, false, false, text1, text2);
             
-            for (WebElement element:elements) {
+            if(element != null) {
                 
-                String data = element.getAttribute("name");
+                getWebElement(element).click();
                 
-                if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
+                delay(2000);
                 
-                logger.info("Checking text value of attribute: " + data);
-                
-                if(data.trim().equals(text1.trim()) || data.trim().equals(text2.trim())) {
-                    
-                    element.click();
-                    
-                    delay(2000);
-                        
-                    return;
-                
-                }
+                return;
                 
             }
             
             // if we get here, we could not find the element so throw an exception
             throw new Exception("Could not find text in any screen element matching type: " + className + " and text: " + text1 + "|" + text2);
             
-            
         }
         catch(Exception e) { printDOM(); throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -730,10 +843,11 @@ public class BaseScreen extends ViewBase {
         
         logger.info("Validating that element of type: " + className + " contains text: " + text + " appears on the screen somewhere.");
             
-        commandList.addToList("validateWebElementContainingText:" + text + "|" + className);
+        CommandRecord command = getCommandList().addToList("validateWebElementContainingText:" + text + "|" + className);
         
         try { validateWebElementContainingText(text, className, false); }
         catch(Exception e) { printDOM(); throw e; }
+        finally { command.finish(); }
         
     }
     
@@ -750,36 +864,18 @@ public class BaseScreen extends ViewBase {
         
         logger.info("Validating that element of type: " + className + " contains text: " + text + " appears on the screen somewhere.");
             
-        commandList.addToList("validateWebElementContainingText(ignoreCase):" + text + "|" + className + "|" + ignoreCase);
+        CommandRecord command = getCommandList().addToList("validateWebElementContainingText(ignoreCase):" + text + "|" + className + "|" + ignoreCase);
         
         try {
             
-            List<WebElement> elements = findElements(By.className(className));
-           
-            for (WebElement element:elements) {
-               
-                if(element == null) continue;
-                
-                String data1 = element.getAttribute("name");
-                
-                if((data1 == null) || (data1.trim().length() == 0)) continue; // blank, so ignore
-                
-                String data = data1.trim();
-                
-                if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
-                
-                logger.info("Checking text value of attribute: " + data + "|"+ text);
-                   
-                if(ignoreCase) { if(data.toLowerCase().contains(text.toLowerCase())) return; }
-                else { if(data.contains(text)) return; }
-                
-            }
+            if(getScreenSnapshot(className).find(className, ScreenSnapshot.Attribute.NAME, ScreenSnapshot.TextMatch.CONTAINS, ignoreCase, false, text) != null) return;
             
             // if we get here, we could not find the element so throw an exception
             throw new Exception("Could not validate a screen component with text in any screen element matching type: " + className + " and text: " + text);
                    
         }
         catch(Exception e) { printDOM(); throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -795,10 +891,11 @@ public class BaseScreen extends ViewBase {
         
         logger.info("Validating that element of type: " + className + " matches text: " + text + " appears on the screen somewhere.");
             
-        commandList.addToList("validateWebElementMatchingText:" + text + "|" + className);
+        CommandRecord command = getCommandList().addToList("validateWebElementMatchingText:" + text + "|" + className);
         
         try { validateWebElementMatchingText(text, className, false); }
         catch(Exception e) { printDOM(); throw e; }
+        finally { command.finish(); }
         
     }
     
@@ -815,30 +912,18 @@ public class BaseScreen extends ViewBase {
         
         logger.info("Validating that element of type: " + className + " matches text: " + text + " appears on the screen somewhere.");
             
-        commandList.addToList("validateWebElementMatchingText(ignoreCase):" + text + "|" + className + "|" + ignoreCase);
+        CommandRecord command = getCommandList().addToList("validateWebElementMatchingText(ignoreCase):" + text + "|" + className + "|" + ignoreCase);
         
         try {
             
-            List<WebElement> elements = this.driver.findElements(By.className(className));
-           
-            for (WebElement element:elements) {
-                
-                String data = element.getAttribute("name").trim();
-                
-                if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
-                
-                logger.info("Checking text value of attribute: " + data);
-                   
-                if(ignoreCase) { if(data.toLowerCase().equals(text.toLowerCase())) return; }
-                else { if(data.equals(text)) return; }
-                
-            }
+            if(getScreenSnapshot(className).find(className, ScreenSnapshot.Attribute.NAME, ScreenSnapshot.TextMatch.EQUALS, ignoreCase, false, text) != null) return;
             
             // if we get here, we could not find the element so throw an exception
             throw new Exception("Could not validate a screen component with text in any screen element matching type: " + className + " and text: " + text);
                    
         }
         catch(Exception e) { printDOM(); throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -854,10 +939,11 @@ public class BaseScreen extends ViewBase {
         
         logger.info("Validating that element of type: " + className + " contains text: " + text + " appears on the screen somewhere.");
             
-        commandList.addToList("validateWebElementContainingTextValueAttribute:" + text + "|" + className);
+        CommandRecord command = getCommandList().addToList("validateWebElementContainingTextValueAttribute:" + text + "|" + className);
         
         try { validateWebElementContainingTextValueAttribute(text, className, false); }
         catch(Exception e) { printDOM(); throw e; }
+        finally { command.finish(); }
         
     }
     
@@ -874,36 +960,18 @@ public class BaseScreen extends ViewBase {
         
         logger.info("Validating that element of type: " + className + " contains text: " + text + " appears on the screen somewhere.");
             
-        commandList.addToList("validateWebElementContainingTextValueAttribute(ignoreCase):" + text + "|" + className + "|" + ignoreCase);
+        CommandRecord command = getCommandList().addToList("validateWebElementContainingTextValueAttribute(ignoreCase):" + text + "|" + className + "|" + ignoreCase);
         
         try {
             
-            List<WebElement> elements = findElements(By.className(className));
-           
-            for (WebElement element:elements) {
-                
-                if(element == null) continue;
-                
-                String data1 = element.getText();
-                
-                if(data1 == null) continue;
-                
-                String data = data1.trim();
-                
-                if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
-                
-                logger.info("Checking text value of attribute:" + text + "|" + data);
-                 
-                if(ignoreCase) { if(data.toLowerCase().contains(text.toLowerCase())) return; }
-                else { if(data.contains(text)) return; }
-                
-            }
+            if(getScreenSnapshot(className).find(className, ScreenSnapshot.Attribute.TEXT, ScreenSnapshot.TextMatch.CONTAINS, ignoreCase, false, text) != null) return;
             
             // if we get here, we could not find the element so throw an exception
             throw new Exception("Could not validate a screen component with text in any screen element containing type: " + className + " and text: " + text);
                    
         }
         catch(Exception e) { printDOM(); throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -919,10 +987,11 @@ public class BaseScreen extends ViewBase {
         
         logger.info("Validating that element of type: " + className + " contains text: " + text + " appears on the screen somewhere.");
             
-        commandList.addToList("validateWebElementContainingText_ContentDescription:" + text + "|" + className);
+        CommandRecord command = getCommandList().addToList("validateWebElementContainingText_ContentDescription:" + text + "|" + className);
         
         try { validateWebElementContainingText_ContentDescription(text, className, false); }
         catch(Exception e) { printDOM(); throw e; }
+        finally { command.finish(); }
         
     }
     
@@ -939,36 +1008,18 @@ public class BaseScreen extends ViewBase {
         
         logger.info("Validating that element of type: " + className + " contains text: " + text + " appears on the screen somewhere.");
             
-        commandList.addToList("validateWebElementContainingText_ContentDescription:" + text + "|" + className + "|" + ignoreCase);
+        CommandRecord command = getCommandList().addToList("validateWebElementContainingText_ContentDescription:" + text + "|" + className + "|" + ignoreCase);
         
         try {
             
-            List<WebElement> elements = findElements(By.className(className));
-           
-            for (WebElement element:elements) {
-                
-                if(element == null) continue;
-                
-                String data1 = element.getAttribute("contentDescription");
-                
-                if(data1 == null) continue;
-                
-                String data = data1.trim();
-                
-                if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
-                
-                logger.info("Checking text value of attribute: " + data);
-                   
-                if(ignoreCase) { if(data.toLowerCase().contains(text.toLowerCase())) return; }
-                else { if(data.contains(text)) return; }
-                
-            }
+            if(getScreenSnapshot(className).find(className, ScreenSnapshot.Attribute.CONTENT_DESCRIPTION, ScreenSnapshot.TextMatch.CONTAINS, ignoreCase, false, text) != null) return;
             
             // if we get here, we could not find the element so throw an exception
             throw new Exception("Could not validate a screen component with text in any screen element matching type: " + className + " and text: " + text + " in the Content Description attribute");
                    
         }
         catch(Exception e) { printDOM(); throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -984,10 +1035,11 @@ public class BaseScreen extends ViewBase {
         
         logger.info("Validating that element of type: " + className + " matches text: " + text + " appears on the screen somewhere.");
             
-        commandList.addToList("validateWebElementMatchingText_ContentDescription:" + text + "|" + className);
+        CommandRecord command = getCommandList().addToList("validateWebElementMatchingText_ContentDescription:" + text + "|" + className);
         
         try { validateWebElementMatchingText_ContentDescription(text, className, false); }
         catch(Exception e) { printDOM(); throw e; }
+        finally { command.finish(); }
         
     }
     
@@ -1004,36 +1056,18 @@ public class BaseScreen extends ViewBase {
         
         logger.info("Validating that element of type: " + className + " matches text: " + text + " appears on the screen somewhere.");
             
-        commandList.addToList("validateWebElementMatchingText_ContentDescription:" + text + "|" + className + "|" + ignoreCase);
+        CommandRecord command = getCommandList().addToList("validateWebElementMatchingText_ContentDescription:" + text + "|" + className + "|" + ignoreCase);
         
         try {
             
-            List<WebElement> elements = findElements(By.className(className));
-           
-            for (WebElement element:elements) {
-                
-                if(element == null) continue;
-                
-                String data1 = element.getAttribute("contentDescription");
-                
-                if(data1 == null) continue;
-                
-                String data = data1.trim();
-                
-                if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
-                
-                logger.info("Checking text value of attribute: " + data);
-                   
-                if(ignoreCase) { if(data.toLowerCase().equals(text.toLowerCase())) return; }
-                else { if(data.contains(text)) return; }
-                
-            }
+            if(getScreenSnapshot(className).find(className, ScreenSnapshot.Attribute.CONTENT_DESCRIPTION, ScreenSnapshot.TextMatch.EQUALS, ignoreCase, false, text) != null) return;
             
             // if we get here, we could not find the element so throw an exception
             throw new Exception("Could not validate a screen component with text in any screen element matching type: " + className + " and text: " + text + " in the Content Description attribute");
                    
         }
         catch(Exception e) { printDOM(); throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -1049,9 +1083,14 @@ public class BaseScreen extends ViewBase {
      */
     public WebElement getWebElementContainingText_ContentDescription(String text, String className) throws Exception {
             
-        commandList.addToList("getWebElementContainingText_ContentDescription:" + text + "|" + className );
+        CommandRecord command = getCommandList().addToList("getWebElementContainingText_ContentDescription:" + text + "|" + className );
+        
+        try {
+            
+            return getWebElementContainingText_ContentDescription(text, className, false);
         
-        return getWebElementContainingText_ContentDescription(text, className, false);
+        }
+        finally { command.finish(); }
         
     }
     
@@ -1067,9 +1106,14 @@ public class BaseScreen extends ViewBase {
      */
     public WebElement getWebElementMatchingText_ContentDescription(String text, String className) throws Exception {
             
-        commandList.addToList("getWebElementMatchingText_ContentDescription:" + text + "|" + className );
+        CommandRecord command = getCommandList().addToList("getWebElementMatchingText_ContentDescription:" + text + "|" + className );
         
-        return getWebElementMatchingText_ContentDescription(text, className, false);
+        try {
+            
+            return getWebElementMatchingText_ContentDescription(text, className, false);
+        
+        }
+        finally { command.finish(); }
         
     }
     
@@ -1085,9 +1129,14 @@ public class BaseScreen extends ViewBase {
      */
     public void clickOnWebElementContainingText_ContentDescription(String text, String className) throws Exception {
             
-        commandList.addToList("clickOnWebElementContainingText_ContentDescription:" + text + "|" + className );
+        CommandRecord command = getCommandList().addToList("clickOnWebElementContainingText_ContentDescription:" + text + "|" + className );
         
-        getWebElementContainingText_ContentDescription(text, className, false).click();
+        try {
+            
+            getWebElementContainingText_ContentDescription(text, className, false).click();
+        
+        }
+        finally { command.finish(); }
         
     }
     
@@ -1102,9 +1151,14 @@ public class BaseScreen extends ViewBase {
      */
     public void clickOnWebElementContainingText_ContentDescription(String text, String className, boolean ignoreCase) throws Exception {
             
-        commandList.addToList("clickOnWebElementContainingText_ContentDescription:" + text + "|" + className  + "|" + ignoreCase);
+        CommandRecord command = getCommandList().addToList("clickOnWebElementContainingText_ContentDescription:" + text + "|" + className  + "|" + ignoreCase);
         
-        getWebElementContainingText_ContentDescription(text, className, ignoreCase).click();
+        try {
+            
+            getWebElementContainingText_ContentDescription(text, className, ignoreCase).click();
+        
+        }
+        finally { command.finish(); }
         
     }
     
@@ -1120,9 +1174,14 @@ public class BaseScreen extends ViewBase {
      */
     public void clickOnWebElementMatchingText_ContentDescription(String text, String className) throws Exception {
             
-        commandList.addToList("clickOnWebElementMatchingText_ContentDescription:" + text + "|" + className );
+        CommandRecord command = getCommandList().addToList("clickOnWebElementMatchingText_ContentDescription:" + text + "|" + className );
         
-        getWebElementMatchingText_ContentDescription(text, className, false).click();
+        try {
+            
+            getWebElementMatchingText_ContentDescription(text, className, false).click();
+        
+        }
+        finally { command.finish(); }
         
     }
     
@@ -1137,9 +1196,14 @@ public class BaseScreen extends ViewBase {
      */
     public void clickOnWebElementMatchingText_ContentDescription(String text, String className, boolean ignoreCase) throws Exception {
             
-        commandList.addToList("clickOnWebElementMatchingText_ContentDescription:" + text + "|" + className  + "|" + ignoreCase);
+        CommandRecord command = getCommandList().addToList("clickOnWebElementMatchingText_ContentDescription:" + text + "|" + className  + "|" + ignoreCase);
+        
+        try {
+            
+            getWebElementMatchingText_ContentDescription(text, className, ignoreCase).click();
         
-        getWebElementMatchingText_ContentDescription(text, className, ignoreCase).click();
+        }
+        finally { command.finish(); }
         
     }
     
@@ -1154,36 +1218,20 @@ public class BaseScreen extends ViewBase {
      */
     public WebElement getWebElementContainingText_ContentDescription(String text, String className, boolean ignoreCase) throws Exception {
             
-        commandList.addToList("getWebElementContainingText_ContentDescription:" + text + "|" + className + "|" + ignoreCase);
+        CommandRecord command = getCommandList().addToList("getWebElementContainingText_ContentDescription:" + text + "|" + className + "|" + ignoreCase);
         
         try {
             
-            List<WebElement> elements = findElements(By.className(className));
-           
-            for (WebElement element:elements) {
-                
-                if(element == null) continue;
-                
-                String data1 = element.getAttribute("contentDescription");
-                
-                if(data1 == null) continue;
-                
-                String data = data1.trim();
-                
-                if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
-                
-                logger.info("Checking text value of attribute: " + data);
-                   
-                if(ignoreCase) { if(data.toLowerCase().contains(text.toLowerCase())) return element; }
-                else { if(data.contains(text)) return element; }
-                
-            }
+            ScreenSnapshot.ScreenElement element = getScreenSnapshot(className).find(className, ScreenSnapshot.Attribute.CONTENT_DESCRIPTION, ScreenSnapshot.TextMatch.CONTAINS, ignoreCase, false, text);
+            
+            if(element != null) return getWebElement(element);
             
             // if we get here, we could not find the element so throw an exception
             throw new Exception("Could not find a screen component with text in any screen element matching type: " + className + " and text: " + text + " in the Content Description attribute");
                    
         }
         catch(Exception e) { printDOM(); throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -1198,52 +1246,20 @@ public class BaseScreen extends ViewBase {
      */
     public WebElement getWebElementMatchingText_ContentDescription(String text, String className, boolean ignoreCase) throws Exception {
             
-        commandList.addToList("getWebElementMatchingText_ContentDescription:" + text + "|" + className + "|" + ignoreCase);
+        CommandRecord command = getCommandList().addToList("getWebElementMatchingText_ContentDescription:" + text + "|" + className + "|" + ignoreCase);
         
         try {
             
-            List<WebElement> elements = findElements(By.className(className));
-           
-            for (WebElement element:elements) {
-                
-                if(element == null) continue;
-                
-                String data1 = element.getAttribute("contentDescription");
-                
-                if(data1 == null) continue;
-                
-                String data = data1.trim();
-                
-                if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
-                
-                logger.info("Checking text value of attribute: " + data);
-                   
-                if(ignoreCase) { 
-                    
-                    if(data.toLowerCase().equals(text.toLowerCase())) {
-                        
-                        return element;
-                    
-                    } 
-                    
-                }
-                else { 
-                    
-                    if(data.equals(text)) {
-        
-                        return element;
-                
-                    }
-                    
-                }
-                
-            }
+            ScreenSnapshot.ScreenElement element = getScreenSnapshot(className).find(className, ScreenSnapshot.Attribute.CONTENT_DESCRIPTION, ScreenSnapshot.TextMatch.EQUALS, ignoreCase, false, text);
+            
+            if(element != null) return getWebElement(element);
             
             // if we get here, we could not find the element so throw an exception
             throw new Exception("Could not find a screen component with text in any screen element matching type: " + className + " and text: " + text + " in the Content Description attribute");
                    
         }
         catch(Exception e) { printDOM(); throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -1259,10 +1275,11 @@ public class BaseScreen extends ViewBase {
         
         logger.info("Validating that element of type: " + className + " contains text: " + text + " appears on the screen somewhere.");
             
-        commandList.addToList("validateWebElementMatchingTextValueAttribute:" + text + "|" + className);
+        CommandRecord command = getCommandList().addToList("validateWebElementMatchingTextValueAttribute:" + text + "|" + className);
         
         try { validateWebElementMatchingTextValueAttribute(text, className, false); }
         catch(Exception e) { printDOM(); throw e; }
+        finally { command.finish(); }
         
     }
     
@@ -1279,30 +1296,18 @@ public class BaseScreen extends ViewBase {
         
         logger.info("Validating that element of type: " + className + " contains text: " + text + " appears on the screen somewhere.");
             
-        commandList.addToList("validateWebElementMatchingTextValueAttribute(ignoreCase):" + text + "|" + className + "|" + ignoreCase);
+        CommandRecord command = getCommandList().addToList("validateWebElementMatchingTextValueAttribute(ignoreCase):" + text + "|" + className + "|" + ignoreCase);
         
         try {
             
-            List<WebElement> elements = findElements(By.className(className));
-           
-            for (WebElement element:elements) {
-                
-                String data = element.getText().trim();
-                
-                if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
-                
-                logger.info("Checking text value of attribute: " + data);
-                   
-                if(ignoreCase) { if(data.toLowerCase().equals(text.toLowerCase())) return; }
-                else { if(data.equals(text)) return; }
-                
-            }
+            if(getScreenSnapshot(className).find(className, ScreenSnapshot.Attribute.TEXT, ScreenSnapshot.TextMatch.EQUALS, ignoreCase, false, text) != null) return;
             
             // if we get here, we could not find the element so throw an exception
             throw new Exception("Could not validate a screen component with text in any screen element matching type: " + className + " and text: " + text);
                    
         }
         catch(Exception e) { printDOM(); throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -1318,10 +1323,11 @@ public class BaseScreen extends ViewBase {
         
         logger.info("Validate that there is a web element at resource id containing the text expected: " + resourceId + "|" + expectedText);
             
-        commandList.addToList("validateElementWithResourceIdContainingText:" + resourceId + "|" + expectedText);
+        CommandRecord command = getCommandList().addToList("validateElementWithResourceIdContainingText:" + resourceId + "|" + expectedText);
         
         try { validateElementWithResourceIdContainingText(resourceId, expectedText, false); }
         catch(Exception e) { printDOM(); throw e; }
+        finally { command.finish(); }
         
     }
     
@@ -1338,7 +1344,7 @@ public class BaseScreen extends ViewBase {
         
         logger.info("Validate that there is a web element at resource id containing the text expected: " + resourceId + "|" + expectedText + "|" + ignoreCase);
             
-        commandList.addToList("validateElementWithResourceIdContainingText(ignoreCase):" + resourceId + "|" + expectedText + "|" + ignoreCase);
+        CommandRecord command = getCommandList().addToList("validateElementWithResourceIdContainingText(ignoreCase):" + resourceId + "|" + expectedText + "|" + ignoreCase);
         
         try { 
             
@@ -1355,6 +1361,7 @@ public class BaseScreen extends ViewBase {
                  
         }
         catch(Exception e) { printDOM(); throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -1370,10 +1377,11 @@ public class BaseScreen extends ViewBase {
         
         logger.info("Validate that there is a web element at resource id matching the text expected: " + resourceId + "|" + expectedText);
             
-        commandList.addToList("validateElementWithResourceIdMatchingText:" + resourceId + "|" + expectedText);
+        CommandRecord command = getCommandList().addToList("validateElementWithResourceIdMatchingText:" + resourceId + "|" + expectedText);
         
         try { validateElementWithResourceIdMatchingText(resourceId, expectedText, false); }
         catch(Exception e) { printDOM(); throw e; }
+        finally { command.finish(); }
         
     }
     
@@ -1390,7 +1398,7 @@ public class BaseScreen extends ViewBase {
         
         logger.info("Validate that there is a web element at resource id matching the text expected: " + resourceId + "|" + expectedText + "|" + ignoreCase);
             
-        commandList.addToList("validateElementWithResourceIdMatchingText:" + resourceId + "|" + expectedText + "|" + ignoreCase);
+        CommandRecord command = getCommandList().addToList("validateElementWithResourceIdMatchingText:" + resourceId + "|" + expectedText + "|" + ignoreCase);
         
         try { 
             
@@ -1407,6 +1415,7 @@ public class BaseScreen extends ViewBase {
                  
         }
         catch(Exception e) { printDOM(); throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -1422,10 +1431,11 @@ public class BaseScreen extends ViewBase {
         
         logger.info("Clicking on web element of type: " + className + " containing text: " + text + " appears on the screen somewhere.");
         
-        commandList.addToList("clickOnWebElementContainingTextValueAttribute:" + text + "|" + className);
+        CommandRecord command = getCommandList().addToList("clickOnWebElementContainingTextValueAttribute:" + text + "|" + className);
         
         try { clickOnWebElementContainingTextValueAttribute(text, className, false); }
         catch(Exception e) { printDOM(); throw e; }
+        finally { command.finish(); }
         
     }
     
@@ -1442,56 +1452,28 @@ public class BaseScreen extends ViewBase {
         
         logger.info("Clicking on web element of type: " + className + " containing text: " + text + " appears on the screen somewhere.");
         
-        commandList.addToList("clickOnWebElementContainingTextValueAttribute(ignoreCase):" + text + "|" + className + "|" + ignoreCase);
+        CommandRecord command = getCommandList().addToList("clickOnWebElementContainingTextValueAttribute(ignoreCase):" + text + "|" + className + "|" + ignoreCase);
         
         try {
             
-            List<WebElement> elements = findElements(By.className(className));
-          
-            for (WebElement element:elements) {
+            ScreenSnapshot.ScreenElement element = getScreenSnapshot(className).find(className, ScreenSnapshot.Attribute.TEXT, ScreenSnapshot.TextMatch.CONTAINS, ignoreCase, true, text);
+            
+            if(element != null) {
                 
-                if(!element.isDisplayed()) continue;
+                getWebElement(element).click();
                 
-                String data = element.getText().trim();
+                delay(3000);
                 
-                if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
-                
-                logger.info("Checking text value of attribute: " + data);
-                  
-                if(ignoreCase) { 
-                
-                    if(data.toLowerCase().contains(text.toLowerCase())) {
-                    
-                        element.click();
-                    
-                        delay(3000);
-                    
-                        return;
-                    
-                    };
-                    
-                }
-                else {
-                    
-                    if(data.contains(text)) {
-                    
-                        element.click();
-                    
-                        delay(3000);
-                    
-                        return;
-                    
-                    };
-                    
-                }
+                return;
                 
             }
             
             // if we get here, we could not find the element so throw an exception
             throw new Exception("Could not validate a screen component with text in any screen element matching type: " + className + " and text: " + text);
-                   
+            
         }
         catch(Exception e) { printDOM(); throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -1507,10 +1489,11 @@ public class BaseScreen extends ViewBase {
         
         logger.info("Clicking on web element of type: " + className + " matches text: " + text + " appears on the screen somewhere.");
         
-        commandList.addToList("clickOnWebElementMatchingTextValueAttribute:" + text + "|" + className);
+        CommandRecord command = getCommandList().addToList("clickOnWebElementMatchingTextValueAttribute:" + text + "|" + className);
         
         try { clickOnWebElementMatchingTextValueAttribute(text, className, false); }
         catch(Exception e) { printDOM(); throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -1527,54 +1510,28 @@ public class BaseScreen extends ViewBase {
         
         logger.info("Clicking on web element of type: " + className + " matches text: " + text + " appears on the screen somewhere.");
         
-        commandList.addToList("clickOnWebElementMatchingTextValueAttribute(ignoreCase):" + text + "|" + className + "|" + ignoreCase);
+        CommandRecord command = getCommandList().addToList("clickOnWebElementMatchingTextValueAttribute(ignoreCase):" + text + "|" + className + "|" + ignoreCase);
         
         try {
-          
-            List<WebElement> elements = findElements(By.className(className));
             
-            for (WebElement element:elements) {
-                
-                String data = element.getText().trim();
+            ScreenSnapshot.ScreenElement element = getScreenSnapshot(className).find(className, ScreenSnapshot.Attribute.TEXT, ScreenSnapshot.TextMatch.EQUALS, ignoreCase, false, text);
+            
+            if(element != null) {
                 
-                if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
+                getWebElement(element).click();
                 
-                logger.info("Checking text value of attribute: " + data);
-                   
-                if(ignoreCase) { 
+                delay(3000);
                 
-                    if(data.toLowerCase().equals(text.toLowerCase())) {
-                    
-                        element.click();
-                    
-                        delay(3000);
-                    
-                        return;
-                    
-                    };
-                    
-                }
-                else {
-                    
-                    if(data.equals(text)) {
-                    
-                        element.click();
-                    
-                        delay(3000);
-                    
-                        return;
-                    
-                    };
-                    
-                }
+                return;
                 
             }
             
             // if we get here, we could not find the element so throw an exception
             throw new Exception("Could not validate a screen component with text in any screen element matching type: " + className + " and text: " + text);
-                   
+            
         }
         catch(Exception e) { printDOM(); throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -1589,7 +1546,7 @@ public class BaseScreen extends ViewBase {
         
         logger.info("Validating that element of name: " + name + " exists");
             
-        commandList.addToList("validateWebElementContainingTextByName:" + name);
+        CommandRecord command = getCommandList().addToList("validateWebElementContainingTextByName:" + name);
         
         try {
             
@@ -1600,6 +1557,7 @@ public class BaseScreen extends ViewBase {
                    
         }
         catch(Exception e) { printDOM(); throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -1613,24 +1571,15 @@ public class BaseScreen extends ViewBase {
      */
     public void validateAllWebElementsDoNotContainText(String text, String className) throws Exception {
         
-        commandList.addToList("validateAllWebElementsDoNotContainText:" + text + "|" + className);
+        CommandRecord command = getCommandList().addToList("validateAllWebElementsDoNotContainText:" + text + "|" + className);
         
         try {
             
-            List<WebElement> elements = findElements(By.className(className));
-            
-            for (WebElement element:elements) {
-                
-                String data = element.getAttribute("name").trim();
-                
-                if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
-                   
-                if(data.contains(text)) throw new Exception("Found a web element / screen component with text and matching type: " + className + " and text: " + text + ", it was not expected to be visible");
-                
-            }
+            if(getScreenSnapshot().find(className, ScreenSnapshot.Attribute.NAME, ScreenSnapshot.TextMatch.CONTAINS, false, false, text) != null) throw new Exception("Found a web element / screen component with text and matching type: " + className + " and text: " + text + ", it was not expected to be visible");
             
         }
         catch(Exception e) { printDOM(); throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -1644,24 +1593,15 @@ public class BaseScreen extends ViewBase {
      */
     public void validateAllWebElementsDoNotContainTextByValueAttribute(String text, String className) throws Exception {
         
-        commandList.addToList("validateAllWebElementsDoNotContainTextByValueAttribute:" + text + "|" + className);
+        CommandRecord command = getCommandList().addToList("validateAllWebElementsDoNotContainTextByValueAttribute:" + text + "|" + className);
         
         try {
             
-            List<WebElement> elements = findElements(By.className(className));
-            
-            for (WebElement element:elements) {
-                
-                String data = element.getText().trim();
-                
-                if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
-                   
-                if(data.contains(text)) throw new Exception("Found a web element / screen component with text and matching type: " + className + " and text: " + text + ", it was not expected to be visible");
-                
-            }
+            if(getScreenSnapshot().find(className, ScreenSnapshot.Attribute.TEXT, ScreenSnapshot.TextMatch.CONTAINS, false, false, text) != null) throw new Exception("Found a web element / screen component with text and matching type: " + className + " and text: " + text + ", it was not expected to be visible");
             
         }
         catch(Exception e) { printDOM(); throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -1675,21 +1615,19 @@ public class BaseScreen extends ViewBase {
      */
     protected int getElementTypeIndexMatchingText(String text, String className) throws Exception {
         
-        commandList.addToList("getElementTypeIndexMatchingText:" + className + "|" + text);
+        CommandRecord command = getCommandList().addToList("getElementTypeIndexMatchingText:" + className + "|" + text);
         
         try {
-           
-            List<WebElement> elements = findElements(By.className(className));
             
             int index = 1;
             
-            for (WebElement element:elements) {
+            for(ScreenSnapshot.ScreenElement element:getScreenSnapshot(className).getElementsByClassName(className)) {
                 
-                String data = element.getAttribute("name").trim();
+                String data = element.getName();
                 
                 if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
                    
-                if(data.equals(text)) return index;
+                if(data.trim().equals(text)) return index;
                 
                 index++;
                 
@@ -1700,6 +1638,7 @@ public class BaseScreen extends ViewBase {
             
         }
         catch(Exception e) { printDOM(); throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -1713,23 +1652,19 @@ public class BaseScreen extends ViewBase {
      */
     protected int getElementTypeIndexContainingText(String text, String className) throws Exception {
         
-        commandList.addToList("getElementTypeIndexContainingText:" + className + "|" + text);
+        CommandRecord command = getCommandList().addToList("getElementTypeIndexContainingText:" + className + "|" + text);
         
         try {
             
-            List<WebElement> elements = findElements(By.className(className));
-            
             int index = 1;
             
-            for (WebElement element:elements) {
+            for(ScreenSnapshot.ScreenElement element:getScreenSnapshot(className).getElementsByClassName(className)) {
                 
-                String data = element.getAttribute("name").trim();
+                String data = element.getName();
                 
                 if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
-                
-                logger.info("Checking if name attribute of type: " + className + " contains: " + text + "|" + data);
                    
-                if(data.contains(text)) return index;
+                if(data.trim().contains(text)) return index;
                 
                 index++;
                 
@@ -1740,6 +1675,7 @@ public class BaseScreen extends ViewBase {
             
         }
         catch(Exception e) { printDOM(); throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -1758,28 +1694,19 @@ public class BaseScreen extends ViewBase {
        
         logger.info("Preparing to find the id of : " + text);
         
-        commandList.addToList("getWebElementIdForElementNameAttributeContainsText:" + className + "|" + text);
+        CommandRecord command = getCommandList().addToList("getWebElementIdForElementNameAttributeContainsText:" + className + "|" + text);
         
         try {
             
-            List<WebElement> elements = findElements(By.className(className));
-           
-            for (WebElement element:elements) {
-                   
-                String value = element.getAttribute("name").trim();
-                 
-                if((value == null) || (value.trim().length() == 0)) continue; // null or blank, so ignore
-                
-                logger.info("Checking for " + value + "|" + text);
-               
-                if(value.trim().equals(text)) return ((RemoteWebElement) element).getId();
-                
-            }
+            ScreenSnapshot.ScreenElement element = getScreenSnapshot(className).find(className, ScreenSnapshot.Attribute.NAME, ScreenSnapshot.TextMatch.EQUALS, false, false, text);
+            
+            if(element != null) return ((RemoteWebElement)getWebElement(element)).getId();
           
             throw new Exception("Unable to find cell displayed value for text: " + text);
           
         }
         catch(Exception e) { printDOM(); throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -1798,28 +1725,19 @@ public class BaseScreen extends ViewBase {
        
         logger.info("Preparing to find the id of : " + text);
         
-        commandList.addToList("getWebElementIdForTextElementValueAttributeContainsText:" + elementType + "|" + text);
+        CommandRecord command = getCommandList().addToList("getWebElementIdForTextElementValueAttributeContainsText:" + elementType + "|" + text);
         
         try {
             
-            List<WebElement> elements = findElements(By.className(elementType));
-           
-            for (WebElement element:elements) {
-                   
-                String value = element.getText().trim();
-                 
-                if((value == null) || (value.trim().length() == 0)) continue; // null or blank, so ignore
-                
-                logger.info("Checking for " + value + "|" + text);
-               
-                if(value.trim().equals(text)) return ((RemoteWebElement) element).getId();
-                
-            }
+            ScreenSnapshot.ScreenElement element = getScreenSnapshot(elementType).find(elementType, ScreenSnapshot.Attribute.TEXT, ScreenSnapshot.TextMatch.EQUALS, false, false, text);
+            
+            if(element != null) return ((RemoteWebElement)getWebElement(element)).getId();
           
             throw new Exception("Unable to find web element id for displayed value element: " + text + "|" + elementType);
           
         }
         catch(Exception e) { printDOM(); throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -1833,28 +1751,11 @@ public class BaseScreen extends ViewBase {
      */
     protected int getElementTypeMatchingNameAttributeTextCount(String text, String elementType) throws Exception {
         
-        commandList.addToList("getElementTypeMatchingNameAttributeTextCount:" + text + "|" + elementType);
-        
-        int count = 0;
+        CommandRecord command = getCommandList().addToList("getElementTypeMatchingNameAttributeTextCount:" + text + "|" + elementType);
         
-        try {
-            
-            List<WebElement> elements = findElements(By.className(elementType));    
-            
-            for (WebElement element:elements) {
-                
-                String data = element.getAttribute("name").trim();
-                
-                if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
-                   
-                if(data.trim().equals(text)) count++;
-                
-            }
-            
-            return count;
-            
-        }
+        try { return getScreenSnapshot(elementType).findAll(elementType, ScreenSnapshot.Attribute.NAME, ScreenSnapshot.TextMatch.EQUALS, false, false, 0, text).size(); }
         catch(Exception e) { printDOM(); throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -1868,28 +1769,11 @@ public class BaseScreen extends ViewBase {
      */
     protected int getElementTypeContainsNameAttributeTextCount(String text, String elementType) throws Exception {
         
-        commandList.addToList("getElementTypeContainsNameAttributeTextCount:" + text + "|" + elementType);
-        
-        int count = 0;
+        CommandRecord command = getCommandList().addToList("getElementTypeContainsNameAttributeTextCount:" + text + "|" + elementType);
         
-        try {
-            
-            List<WebElement> elements = findElements(By.className(elementType));    
-            
-            for (WebElement element:elements) {
-                
-                String data = element.getAttribute("name").trim();
-                
-                if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
-                   
-                if(data.contains(text)) count++;
-                
-            }
-            
-            return count;
-            
-        }
+        try { return getScreenSnapshot(elementType).findAll(elementType, ScreenSnapshot.Attribute.NAME, ScreenSnapshot.TextMatch.CONTAINS, false, false, 0, text).size(); }
         catch(Exception e) { printDOM(); throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -1970,27 +1854,22 @@ public class BaseScreen extends ViewBase {
      */
     protected WebElement getWebElementAtLocationByClassNameAndNameAttributeValue(String className, String name) throws Exception {
         
+        CommandRecord command = null;
+        
         try {
             
-            commandList.addToList("getWebElementAtLocationByClassNameAndNameAttributeValue:" + className + "|" + name);
+            command = getCommandList().addToList("getWebElementAtLocationByClassNameAndNameAttributeValue:" + className + "|" + name);
             
-            List<WebElement> elements = findElements(By.className(className));    
+            ScreenSnapshot.ScreenElement element = getScreenSnapshot(className).find(className, ScreenSnapshot.Attribute.NAME, ScreenSnapshot.TextMatch.CONTAINS, false, false, name);
             
-            for (WebElement element:elements) {
-                
-                String data = element.getAttribute("name").trim();
-                
-                if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
-                   
-                if(data.contains(name)) return element;
-                
-            }
+            if(element != null) return getWebElement(element);
             
             // if we get here it was not found
             throw new Exception("Unable to find web element using classname: " + className + " and name: " + name);
             
         }
         catch(Exception e) { printDOM(); throw new BaseScreenException(e); }
+        finally { if(command != null) command.finish(); }
         
     }
     
@@ -2006,29 +1885,22 @@ public class BaseScreen extends ViewBase {
      */
     protected WebElement getWebElementAtLocationByClassNameAndValueAttributeValue(String className, String value) throws Exception {
         
+        CommandRecord command = null;
+        
         try {
             
-            commandList.addToList("getWebElementAtLocationByClassNameAndValueAttributeValue:" + className + "|" + value);
+            command = getCommandList().addToList("getWebElementAtLocationByClassNameAndValueAttributeValue:" + className + "|" + value);
             
-            List<WebElement> elements = findElements(By.className(className));    
+            ScreenSnapshot.ScreenElement element = getScreenSnapshot(className).find(className, ScreenSnapshot.Attribute.TEXT, ScreenSnapshot.TextMatch.CONTAINS, false, false, value);
             
-            for(WebElement element:elements) {
-                
-                String data = element.getText().trim();
-                
-                //logger.info("Data found1: " + value + "|" + data);
-                
-                if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
-                   
-                if(data.trim().contains(value.trim())) return element;
-                
-            }
+            if(element != null) return getWebElement(element);
             
             // if we get here it was not found
             throw new Exception("Unable to find/get web element using classname: " + className + " and value: " + value);
             
         }
         catch(Exception e) { printDOM(); throw new BaseScreenException(e); }
+        finally { if(command != null) command.finish(); }
         
     }
     
@@ -2044,27 +1916,22 @@ public class BaseScreen extends ViewBase {
      */
     protected WebElement getWebElementAtLocationByClassNameAndValueAttributeValueEquals(String className, String value) throws Exception {
         
+        CommandRecord command = null;
+        
         try {
             
-            commandList.addToList("getWebElementAtLocationByClassNameAndValueAttributeValue:" + className + "|" + value);
+            command = getCommandList().addToList("getWebElementAtLocationByClassNameAndValueAttributeValue:" + className + "|" + value);
             
-            List<WebElement> elements = findElements(By.className(className));    
+            ScreenSnapshot.ScreenElement element = getScreenSnapshot(className).find(className, ScreenSnapshot.Attribute.TEXT, ScreenSnapshot.TextMatch.EQUALS, false, false, value);
             
-            for (WebElement element:elements) {
-                
-                String data = element.getText().trim();
-                
-                if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
-                   
-                if(data.trim().equals(value.trim())) return element;
-                
-            }
+            if(element != null) return getWebElement(element);
             
             // if we get here it was not found
             throw new Exception("Unable to find/get web element using classname: " + className + " and value: " + value);
             
         }
         catch(Exception e) { printDOM(); throw new BaseScreenException(e); }
+        finally { if(command != null) command.finish(); }
         
     }
     
@@ -2082,19 +1949,54 @@ public class BaseScreen extends ViewBase {
 
         logger.info("Get the element contains text: " + text + " appears on the screen somewhere.");
 
-        commandList.addToList("getElement(contain):" + text);
+        CommandRecord command = getCommandList().addToList("getElement(contain):" + text);
 
-        for (WebElement element:elements) {
+        try {
+            
+            for (WebElement element:elements) {
 
-            String data = element.getText().trim();
+                String data = element.getText().trim();
 
-            if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
+                if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
             
-            if(data.equals(text.trim())) return element;
+                if(data.equals(text.trim())) return element;
             
+            }
+        
+            return null;
+        
         }
+        finally { command.finish(); }
+
+    }
+    
+    /**
+     * Fetch the web element of type <code>className</code> matching the given text, 
+     * resolved against a screen snapshot.
+     *
+     * @param className
+     * @param text
+     *
+     * @return web element
+     *
+     * @throws Exception
+     */
+    public WebElement getElementsByText(String className, String text) throws Exception {
+
+        logger.info("Get the element contains text: " + text + " appears on the screen somewhere.");
+
+        CommandRecord command = getCommandList().addToList("getElement(contain):" + className + "|" + text);
+
+        try {
+            
+            ScreenSnapshot.ScreenElement element = getScreenSnapshot(className).find(className, ScreenSnapshot.Attribute.TEXT, ScreenSnapshot.TextMatch.EQUALS, false, false, text);
         
-        return null;
+            if(element == null) return null;
+        
+            return getWebElement(element);
+        
+        }
+        finally { command.finish(); }
 
     }
    
@@ -2107,7 +2009,7 @@ public class BaseScreen extends ViewBase {
         
         logger.info("androidGoBack");
         
-        commandList.addToList("androidGoBack");
+        CommandRecord command = getCommandList().addToList("androidGoBack");
     
         try { 
             
@@ -2117,6 +2019,7 @@ public class BaseScreen extends ViewBase {
         
         }
         catch(Exception e) { throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -2129,7 +2032,7 @@ public class BaseScreen extends ViewBase {
         
         logger.info("androidClickEnterKey");
         
-        commandList.addToList("androidClickEnterKey");
+        CommandRecord command = getCommandList().addToList("androidClickEnterKey");
     
         try { 
             
@@ -2145,6 +2048,7 @@ public class BaseScreen extends ViewBase {
         
         }
         catch(Exception e) { throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -2159,7 +2063,7 @@ public class BaseScreen extends ViewBase {
         
         logger.debug("Clear web element");
         
-        commandList.addToList("clearWebElement");
+        CommandRecord command = getCommandList().addToList("clearWebElement");
         
         try { element.clear(); }
         catch(Exception e) { 
@@ -2173,6 +2077,7 @@ public class BaseScreen extends ViewBase {
             }
             
         }
+        finally { command.finish(); }
         
     }
     
@@ -2187,10 +2092,11 @@ public class BaseScreen extends ViewBase {
         
         logger.debug("Clear web element: " + locator);
         
-        commandList.addToList("clearWebElement:" + locator);
+        CommandRecord command = getCommandList().addToList("clearWebElement:" + locator);
     
         try { clearWebElement(getWebElementByXPath(locator)); }
         catch(Exception e) { throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -2205,10 +2111,11 @@ public class BaseScreen extends ViewBase {
         
         logger.debug("Clear web element by resource id: " + resourceId);
         
-        commandList.addToList("clearWebElementByResourceId:" + resourceId);
+        CommandRecord command = getCommandList().addToList("clearWebElementByResourceId:" + resourceId);
     
         try { clearWebElement(getWebElementAtResourceId(resourceId)); }
         catch(Exception e) { throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -2224,10 +2131,11 @@ public class BaseScreen extends ViewBase {
         
         logger.debug("Clear web element by value and classname: " + value + "|" + classname);
         
-        commandList.addToList("clearWebElementByValueAndClassname:" + value + "|" + classname);
+        CommandRecord command = getCommandList().addToList("clearWebElementByValueAndClassname:" + value + "|" + classname);
     
         try { clearWebElement(getWebElementAtLocationByClassNameAndValueAttributeValue(classname, value)); }
         catch(Exception e) { throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -2246,7 +2154,7 @@ public class BaseScreen extends ViewBase {
        
         logger.info("Preparing to find web element for element type: " + elementType + " and attribute value: " + attributeValue + " and attribute name: " + attributeName);
         
-        commandList.addToList("getWebElementWithNameAttributeContainsText:" + elementType + "|" + attributeName + "|" + attributeValue);
+        CommandRecord command = getCommandList().addToList("getWebElementWithNameAttributeContainsText:" + elementType + "|" + attributeName + "|" + attributeValue);
         
         try {
           
@@ -2270,6 +2178,7 @@ public class BaseScreen extends ViewBase {
           
         }
         catch(Exception e) { printDOM(); throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -2286,10 +2195,11 @@ public class BaseScreen extends ViewBase {
        
         logger.info("Preparing to find web element by id: " + id);
         
-        commandList.addToList("getWebElementWithId:" + id);
+        CommandRecord command = getCommandList().addToList("getWebElementWithId:" + id);
         
         try { return getWebElementAtResourceId(id); }
         catch(Exception e) { printDOM(); throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -2306,10 +2216,11 @@ public class BaseScreen extends ViewBase {
        
         logger.info("Get the web element at resource id: " + resourceId);
         
-        commandList.addToList("getWebElementAtResourceId:" + resourceId);
+        CommandRecord command = getCommandList().addToList("getWebElementAtResourceId:" + resourceId);
         
         try { return find(By.id(resourceId)); }
         catch(Exception e) { printDOM(); throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -2324,10 +2235,11 @@ public class BaseScreen extends ViewBase {
         
         logger.info("Clicking on web element at location: " + xpath);
             
-        commandList.addToList("click:" + xpath);
+        CommandRecord command = getCommandList().addToList("click:" + xpath);
         
         try { getWebElementByXPath(xpath).click(); }
         catch(Exception e) { throw e; }
+        finally { command.finish(); }
         
     }
     
@@ -2342,10 +2254,11 @@ public class BaseScreen extends ViewBase {
         
         logger.info("Clicking on web element with resource id: " + id);
              
-        commandList.addToList("clickUsingResourceId:" + id);
+        CommandRecord command = getCommandList().addToList("clickUsingResourceId:" + id);
         
         try { getWebElementAtResourceId(id).click(); }
         catch(Exception e) { printDOM(); throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -2360,10 +2273,11 @@ public class BaseScreen extends ViewBase {
         
         logger.info("Clicking on web element with name: " + name);
              
-        commandList.addToList("clickUsingElementName:" + name);
+        CommandRecord command = getCommandList().addToList("clickUsingElementName:" + name);
         
         try { getWebElementByName(name).click(); }
         catch(Exception e) { printDOM(); throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -2378,10 +2292,11 @@ public class BaseScreen extends ViewBase {
         
         logger.info("Get value at web element with resource id: " + id);
              
-        commandList.addToList("getValueAtWebElementWithResourceId:" + id);
+        CommandRecord command = getCommandList().addToList("getValueAtWebElementWithResourceId:" + id);
         
         try { return getWebElementAtResourceId(id).getText(); }
         catch(Exception e) { printDOM(); throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -2396,10 +2311,11 @@ public class BaseScreen extends ViewBase {
         
         logger.info("Verify value at web element with resource id: " + id);
              
-        commandList.addToList("verifyWebElementWithResourceId:" + id);
+        CommandRecord command = getCommandList().addToList("verifyWebElementWithResourceId:" + id);
         
         try { getWebElementAtResourceId(id); }
         catch(Exception e) { printDOM(); throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -2413,7 +2329,7 @@ public class BaseScreen extends ViewBase {
      */
     public void enterDataIntoWebElement(String xpath, String text) throws Exception {
         
-        commandList.addToList("enterDataIntoWebElement:" + text + "|" + xpath);
+        CommandRecord command = getCommandList().addToList("enterDataIntoWebElement:" + text + "|" + xpath);
             
         logger.info("Enter data into a component: " + text);
     
@@ -2427,16 +2343,17 @@ public class BaseScreen extends ViewBase {
             
             if(properties.isAndroid()) webElement.click();
             
-            try { Thread.sleep(1000); } catch(Exception e) { }
+            waitForKeyboard(true);
             
             webElement.sendKeys(text);
             
             minimizeKeyboard();
             
-            try { Thread.sleep(1000); } catch(Exception e) { }
+            waitForKeyboard(false);
            
         }
         catch(Exception e) { throw e; }
+        finally { command.finish(); }
         
     }
     
@@ -2450,7 +2367,7 @@ public class BaseScreen extends ViewBase {
      */
     public void enterDataIOS(String xpath, String text) throws Exception {
         
-        commandList.addToList("enterDataIntoWebElement:" + text + "|" + xpath);
+        CommandRecord command = getCommandList().addToList("enterDataIntoWebElement:" + text + "|" + xpath);
             
         logger.info("Enter data into a component: " + text);
     
@@ -2462,14 +2379,15 @@ public class BaseScreen extends ViewBase {
             
             if(text == null) return;
             
-            try { Thread.sleep(1000); } catch(Exception e) { }
+            waitForWebElementToBeReady(webElement);
             
             webElement.sendKeys(text);
             
-            try { Thread.sleep(1000); } catch(Exception e) { }
+            waitForWebElementText(webElement, text);
             
         }
         catch(Exception e) { throw e; }
+        finally { command.finish(); }
         
     }
     
@@ -2483,7 +2401,7 @@ public class BaseScreen extends ViewBase {
      */
     public void enterSearchDataIOSByElementName(String name, String text) throws Exception {
         
-        commandList.addToList("enterDataIOSByElementName:" + text + "|" + name);
+        CommandRecord command = getCommandList().addToList("enterDataIOSByElementName:" + text + "|" + name);
             
         logger.info("Enter data into a component: " + text);
     
@@ -2497,14 +2415,15 @@ public class BaseScreen extends ViewBase {
             
             webElement.click();
             
-            try { Thread.sleep(1000); } catch(Exception e) { }
+            waitForKeyboard(true);
             
             webElement.sendKeys(text);
             
-            try { Thread.sleep(1000); } catch(Exception e) { }
+            waitForWebElementText(webElement, text);
             
         }
         catch(Exception e) { throw e; }
+        finally { command.finish(); }
         
     }
     
@@ -2518,7 +2437,7 @@ public class BaseScreen extends ViewBase {
      */
     public void enterDataAndSearchIOS(String xpath, String text) throws Exception {
         
-        commandList.addToList("enterDataAndSearchIOS:" + text + "|" + xpath);
+        CommandRecord command = getCommandList().addToList("enterDataAndSearchIOS:" + text + "|" + xpath);
             
         logger.info("Enter data into a component: " + text);
     
@@ -2530,6 +2449,7 @@ public class BaseScreen extends ViewBase {
             
         }
         catch(Exception e) { throw e; }
+        finally { command.finish(); }
         
     }
     
@@ -2543,7 +2463,7 @@ public class BaseScreen extends ViewBase {
      */
     public void enterDataIntoWebElementByResourceId(String resourceId, String text) throws Exception {
         
-        commandList.addToList("enterDataIntoWebElementByResourceId:" + text + "|" + resourceId);
+        CommandRecord command = getCommandList().addToList("enterDataIntoWebElementByResourceId:" + text + "|" + resourceId);
             
         logger.info("Enter data into a component by resource id: " + text + "|" + resourceId);
     
@@ -2557,19 +2477,106 @@ public class BaseScreen extends ViewBase {
             
             if(properties.isAndroid()) webElement.click();
             
-            try { Thread.sleep(1000); } catch(Exception e) { }
+            waitForKeyboard(true);
             
             webElement.sendKeys(text);
             
             minimizeKeyboard();
             
-            try { Thread.sleep(1000); } catch(Exception e) { }
+            waitForKeyboard(false);
            
         }
         catch(Exception e) { printDOM(); throw new BaseScreenException(e); }
+        finally { command.finish(); }
+        
+    }
+    
+    
+    /**
+     * Wait (up to <code>INPUT_WAIT_TIME</code>) for the on screen keyboard to be shown or hidden.
+     * 
+     * Falls back to a fixed delay if the driver cannot report the keyboard state.
+     * 
+     * @param shown
+     * 
+     * @throws Exception 
+     */
+    protected void waitForKeyboard(final boolean shown) throws Exception {
+        
+        if(!(this.driver instanceof HasOnScreenKeyboard)) {
+            
+            delay(INPUT_WAIT_TIME);
+            
+            return;
+            
+        }
+        
+        AdaptiveWait.getInstance().until(getClass().getSimpleName() + "|keyboardShown:" + shown, INPUT_WAIT_TIME, new AdaptiveWait.Condition() {
+            
+            @Override
+            public boolean isSatisfied() { 
+                
+                try { return ((HasOnScreenKeyboard)driver).isKeyboardShown() == shown; }
+                catch(Exception e) { return false; }
+                
+            }
+            
+        });
+        
+    }
+    
+    /**
+     * Wait (up to <code>INPUT_WAIT_TIME</code>) for a web element to be displayed and enabled.
+     * 
+     * @param webElement
+     * 
+     * @throws Exception 
+     */
+    protected void waitForWebElementToBeReady(final WebElement webElement) throws Exception {
+        
+        AdaptiveWait.getInstance().until(getClass().getSimpleName() + "|webElementReady", INPUT_WAIT_TIME, new AdaptiveWait.Condition() {
+            
+            @Override
+            public boolean isSatisfied() { 
+                
+                try { return webElement.isDisplayed() && webElement.isEnabled(); }
+                catch(Exception e) { return false; }
+                
+            }
+            
+        });
         
     }
     
+    /**
+     * Wait (up to <code>INPUT_WAIT_TIME</code>) for the text entered into a web element to show in the element.
+     * 
+     * @param webElement
+     * @param text
+     * 
+     * @throws Exception 
+     */
+    protected void waitForWebElementText(final WebElement webElement, final String text) throws Exception {
+        
+        AdaptiveWait.getInstance().until(getClass().getSimpleName() + "|webElementText", INPUT_WAIT_TIME, new AdaptiveWait.Condition() {
+            
+            @Override
+            public boolean isSatisfied() { 
+                
+                try { 
+                    
+                    String data = webElement.getText();
+                    
+                    return (data != null) && data.contains(text); 
+                
+                }
+                catch(Exception e) { return false; }
+                
+            }
+            
+        });
+        
+    }
     
     /**
      * Minimize/dismiss the keyboard from view.
@@ -2578,23 +2585,28 @@ public class BaseScreen extends ViewBase {
      */
     public void minimizeKeyboard() throws Exception {
         
-        commandList.addToList("minimize keyboard");
+        CommandRecord command = getCommandList().addToList("minimize keyboard");
         
-        logger.info("minimize keyboard");
+        try {
+            
+            logger.info("minimize keyboard");
         
-        //android
-        if(properties.isAndroid()) {
+            //android
+            if(properties.isAndroid()) {
             
-            try { driver.hideKeyboard(); }
-            catch(Exception e) { }
+                try { driver.hideKeyboard(); }
+                catch(Exception e) { }
             
-        }
-        else if(properties.isIOS()) {
+            }
+            else if(properties.isIOS()) {
             
-            try { clickUsingResourceId("Done"); }    
-            catch(Exception e2) { }
+                try { clickUsingResourceId("Done"); }    
+                catch(Exception e2) { }
             
-        }   
+            }
+        
+        }
+        finally { command.finish(); }   
          
     }
     
@@ -2609,10 +2621,11 @@ public class BaseScreen extends ViewBase {
         
         logger.info("Asserting a webelement is visible on the screen: " + xpath);
         
-        commandList.addToList("assertWebElementIsVisible|" + xpath);
+        CommandRecord command = getCommandList().addToList("assertWebElementIsVisible|" + xpath);
         
         try { Assert.assertNotNull(getWebElementByXPath(xpath)); }
         catch(Exception e) { throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -2627,10 +2640,11 @@ public class BaseScreen extends ViewBase {
         
         logger.info("Asserting text value of webelement attribute is equal to: " + expectedValue);
         
-        commandList.addToList("assertTextValueOfWebElementIsEqual|" + xpath + "|" + expectedValue);
+        CommandRecord command = getCommandList().addToList("assertTextValueOfWebElementIsEqual|" + xpath + "|" + expectedValue);
         
         try { Assert.assertEquals(getWebElementByXPath(xpath).getText().trim(), expectedValue); }
         catch(Exception e) { throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -2647,10 +2661,11 @@ public class BaseScreen extends ViewBase {
         
         logger.info("Get display value from web element at location: " + xpath);
             
-        commandList.addToList("getDisplayedValue:" + xpath);
+        CommandRecord command = getCommandList().addToList("getDisplayedValue:" + xpath);
         
         try { return getWebElementByXPath(xpath).getText(); }
         catch(Exception e) { throw e; }
+        finally { command.finish(); }
         
     }
     
@@ -2664,7 +2679,7 @@ public class BaseScreen extends ViewBase {
         
         logger.info("Checking if element visible on the screen: " + locator);
     
-        commandList.addToList("isVisible: " + locator);
+        CommandRecord command = getCommandList().addToList("isVisible: " + locator);
             
         try { 
             
@@ -2674,6 +2689,7 @@ public class BaseScreen extends ViewBase {
         
         }
         catch(Exception e) { return false; }
+        finally { command.finish(); }
         
     }
     
@@ -2790,7 +2806,7 @@ public class BaseScreen extends ViewBase {
         
         logger.info("Perform scroll to top into drop down");
    
-        commandList.addToList("scrollToTopInDropDown|" + className);
+        CommandRecord command = getCommandList().addToList("scrollToTopInDropDown|" + className);
 
         try {
 
@@ -2818,6 +2834,7 @@ public class BaseScreen extends ViewBase {
             
         } 
         catch(Exception e) { throw e; }
+        finally { command.finish(); }
         
     }
 
@@ -2835,7 +2852,7 @@ public class BaseScreen extends ViewBase {
         
         logger.info("Perform scroll one step into drop down");
  
-        commandList.addToList("scrollNextInDropDown|" + className);
+        CommandRecord command = getCommandList().addToList("scrollNextInDropDown|" + className);
 
         try {
 
@@ -2862,6 +2879,7 @@ public class BaseScreen extends ViewBase {
 
         } 
         catch(Exception e) { throw e; }
+        finally { command.finish(); }
     }
 
     /**
@@ -2878,7 +2896,7 @@ public class BaseScreen extends ViewBase {
         
         logger.info("Search for the element of type: " + className + " conatains text: " + text + " by scrolling into the drop down");
     
-        commandList.addToList("searchByScrollingInDropDown:" + text + "|" + className);
+        CommandRecord command = getCommandList().addToList("searchByScrollingInDropDown:" + text + "|" + className);
 
         WebElement webElement = null;
 
@@ -2902,6 +2920,7 @@ public class BaseScreen extends ViewBase {
 
         } 
         catch (Exception e) { throw e; }
+        finally { command.finish(); }
         
     }
 
@@ -2942,11 +2961,13 @@ public class BaseScreen extends ViewBase {
 
         WebElement webElement = null;
 
+        CommandRecord command = null;
+        
         try {
 
             logger.info("Search for the element of type: " + className + " conatains text: " + text + " appears in the drop down and select the same");
 
-            commandList.addToList("searchAndSelectTextFromDropDown:" + text + "|" + className);
+            command = getCommandList().addToList("searchAndSelectTextFromDropDown:" + text + "|" + className);
 
             // fetch all visible options found in drop down
             List<WebElement> elements = this.driver.findElements(By.className(className));
@@ -2975,6 +2996,7 @@ public class BaseScreen extends ViewBase {
 
         } 
         catch (Exception e) { throw e; }
+        finally { if(command != null) command.finish(); }
         
     }
     
@@ -3057,7 +3079,7 @@ public class BaseScreen extends ViewBase {
         
         logger.info("verifyContainingText:" + text + "|" + className + "|" + attributeName);
             
-        commandList.addToList("verifyContainingText:" + text + "|" + className + "|" + attributeName);
+        CommandRecord command = getCommandList().addToList("verifyContainingText:" + text + "|" + className + "|" + attributeName);
         
         try {
              
@@ -3091,6 +3113,7 @@ public class BaseScreen extends ViewBase {
             
         }
         catch(Exception e) { printDOM(); throw new BaseScreenException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -3109,10 +3132,11 @@ public class BaseScreen extends ViewBase {
         
         logger.info("scrollAcrossRegion|" + startX + "|" + startY + "|" + endX + "|" + endY + "|" + duration);
             
-        commandList.addToList("scrollAcrossRegion|" + startX + "|" + startY + "|" + endX + "|" + endY + "|" + duration);
+        CommandRecord command = getCommandList().addToList("scrollAcrossRegion|" + startX + "|" + startY + "|" + endX + "|" + endY + "|" + duration);
         
         try { swipe(startX, startY, endX, endY, duration); }
         catch(Exception e) { throw e; }
+        finally { command.finish(); }
         
     }
     
@@ -3125,7 +3149,7 @@ public class BaseScreen extends ViewBase {
         
         logger.info("swipeUpDeviceScreen");
             
-        commandList.addToList("swipeUpDeviceScreen");
+        CommandRecord command = getCommandList().addToList("swipeUpDeviceScreen");
         
         try { 
             
@@ -3141,6 +3165,7 @@ public class BaseScreen extends ViewBase {
            
         }
         catch(Exception e) { throw e; }
+        finally { command.finish(); }
         
     }
     
@@ -3153,7 +3178,7 @@ public class BaseScreen extends ViewBase {
         
         logger.info("swipeDownDeviceScreen");
             
-        commandList.addToList("swipeDownDeviceScreen");
+        CommandRecord command = getCommandList().addToList("swipeDownDeviceScreen");
         
         try { 
             
@@ -3169,6 +3194,7 @@ public class BaseScreen extends ViewBase {
             
         }
         catch(Exception e) { throw e; }
+        finally { command.finish(); }
         
     }
     
@@ -3181,10 +3207,11 @@ public class BaseScreen extends ViewBase {
         
         logger.info("scrollPullDown_Down");
             
-        commandList.addToList("scrollPullDown_Down");
+        CommandRecord command = getCommandList().addToList("scrollPullDown_Down");
         
         try { scrollAcrossRegion(50, 500, 50, 50, 2); }
         catch(Exception e) { throw e; }
+        finally { command.finish(); }
         
     }
     
@@ -3197,10 +3224,11 @@ public class BaseScreen extends ViewBase {
         
         logger.info("scrollPullDown_Up");
             
-        commandList.addToList("scrollPullDown_Down");
+        CommandRecord command = getCommandList().addToList("scrollPullDown_Down");
         
         try { scrollAcrossRegion(50, 50, 50, 500, 2); }
         catch(Exception e) { throw e; }
+        finally { command.finish(); }
         
     }
     
@@ -3213,7 +3241,7 @@ public class BaseScreen extends ViewBase {
         
         logger.info("swipeUpDeviceScreen_Left");
             
-        commandList.addToList("swipeUpDeviceScreen_Left");
+        CommandRecord command = getCommandList().addToList("swipeUpDeviceScreen_Left");
         
         try { 
             
@@ -3229,6 +3257,7 @@ public class BaseScreen extends ViewBase {
            
         }
         catch(Exception e) { throw e; }
+        finally { command.finish(); }
         
     }
     
@@ -3241,7 +3270,7 @@ public class BaseScreen extends ViewBase {
         
         logger.info("swipeDownDeviceScreen_Left");
             
-        commandList.addToList("swipeDownDeviceScreen_Left");
+        CommandRecord command = getCommandList().addToList("swipeDownDeviceScreen_Left");
         
         try { 
             
@@ -3257,26 +3286,43 @@ public class BaseScreen extends ViewBase {
             
         }
         catch(Exception e) { throw e; }
+        finally { command.finish(); }
         
     }
     
     /**
-     * Stop the session.
+     * Stop the session. When appium sessions are reused the session is given back to the
+     * <code>AppiumSessionManager</code> (app terminated) instead.
+     */
+    public void quit() { quit(false); }
+    
+    /**
+     * Stop the session. When appium sessions are reused and the session did not fail, it is 
+     * given back to the <code>AppiumSessionManager</code> (app terminated) instead; a failed 
+     * session is always quit, so it is not handed to the next screen.
+     * 
+     * @param failed <code>true</code> if the session failed (eg. on a retry)
      */
-    public void quit() { 
+    public void quit(boolean failed) { 
         
         logger.info("Closing webdriver");
             
-        commandList.addToList("quit");
+        CommandRecord command = getCommandList().addToList("quit");
         
         try {
             
-            if(this.driver != null) driver.quit(); 
+            if(this.driver != null) {
+                
+                if(failed || !getReuseAppiumSession()) AppiumSessionManager.getInstance().quit(this.driver);
+                else if(!AppiumSessionManager.getInstance().release(this.driver)) driver.quit();
+                
+            }
             
             logger.info("Webdriver closed");
             
         }
         catch(Exception e) { }
+        finally { command.finish(); }
         
     }
     
@@ -3311,6 +3357,19 @@ public class BaseScreen extends ViewBase {
         
     }
     
+    /**
+     * Check if appium sessions are kept alive and reused (<code>reuseAppiumSession</code>).
+     * 
+     * @return 
+     */
+    protected boolean getReuseAppiumSession() {
+        
+        String reuseAppiumSession = properties.get(BooleanCapabilities.REUSE_APPIUM_SESSION.getCapability());
+        
+        return (reuseAppiumSession != null) && Boolean.parseBoolean(reuseAppiumSession.trim());
+        
+    }
+    
     /**
      * This method does the actual creation of the web driver (appium driver)
      */
@@ -3330,9 +3389,13 @@ public class BaseScreen extends ViewBase {
           
         }
        
+        CommandRecord command = null;
+        
+        AppiumDriver<WebElement> created = null;
+        
         try {
             
-            commandList.addToList("createNewWebDriver: " + properties.get(StringCapabilities.DEVICE.getCapability()));
+            command = getCommandList().addToList("createNewWebDriver: " + properties.get(StringCapabilities.DEVICE.getCapability()));
             
             logger.info("Preparing to create a new web driver instance for device type: " + properties.get(StringCapabilities.DEVICE.getCapability()));
             logger.info("Preparing to create a new web driver instance at URL: " + properties.get(StringCapabilities.URL.getCapability()));
@@ -3352,8 +3415,18 @@ public class BaseScreen extends ViewBase {
                 
             }
             
-            if(properties.isAndroid()) this.driver = new AndroidDriver(new URL(properties.get(StringCapabilities.URL.getCapability())), desiredCapabilities);
-            else this.driver = new IOSDriver(new URL(properties.get(StringCapabilities.URL.getCapability())), desiredCapabilities);
+            URL url = new URL(properties.get(StringCapabilities.URL.getCapability()));
+            
+            if(getReuseAppiumSession()) {
+                
+                this.driver = created = AppiumSessionManager.getInstance().acquire(url, desiredCapabilities, properties.isAndroid());
+                
+                // start the next session while this one is used
+                if(properties.get(StringCapabilities.APPIUM_SESSION_PRE_PROVISION.getCapability()) != null) 
+                    AppiumSessionManager.getInstance().preProvision(url, desiredCapabilities, properties.isAndroid(), Integer.parseInt(properties.get(StringCapabilities.APPIUM_SESSION_PRE_PROVISION.getCapability()).trim()));
+                
+            }
+            else this.driver = created = AppiumSessionManager.getInstance().create(url, desiredCapabilities, properties.isAndroid());
             
             setTimeout();
             
@@ -3367,7 +3440,21 @@ public class BaseScreen extends ViewBase {
             logger.info("New webdriver created successfully: " + this.driver);
             
         }
-        catch(Exception e) { logger.error(e); }
+        catch(Exception e) { 
+            
+            logger.error(e); 
+            
+            // the session could not be set up, do not keep it for reuse
+            if((created != null) && !hasBeenInitialized) { 
+                
+                AppiumSessionManager.getInstance().quit(created); 
+                
+                this.driver = null; 
+            
+            }
+        
+        }
+        finally { if(command != null) command.finish(); }
         
     }
     
@@ -3537,34 +3624,39 @@ public class BaseScreen extends ViewBase {
      */
     public void validateNotificationReceived(String messageText) throws Exception {
         
-        commandList.addToList("validateNotificationReceived|" + messageText);
+        CommandRecord command = getCommandList().addToList("validateNotificationReceived|" + messageText);
         
-        if(isAndroid()) {
+        try {
             
-            androidClickHome();
+            if(isAndroid()) {
             
-            ((AndroidDriver) driver).openNotifications();
+                androidClickHome();
             
-            delay(5000);
+                ((AndroidDriver) driver).openNotifications();
+            
+                delay(5000);
    
-            List<WebElement> allnotifications = this.driver.findElements(By.id("android:id/title"));
+                List<WebElement> allnotifications = this.driver.findElements(By.id("android:id/title"));
    
-            logger.info("Number of notifications: " + allnotifications.size());
+                logger.info("Number of notifications: " + allnotifications.size());
  
-            for(WebElement webElement : allnotifications) {
+                for(WebElement webElement : allnotifications) {
        
-                logger.info("Notification text to search: " + webElement.getText());
+                    logger.info("Notification text to search: " + webElement.getText());
        
-                if(((MobileElement)webElement).getText().contains(messageText)) return;
+                    if(((MobileElement)webElement).getText().contains(messageText)) return;
           
-            }
+                }
             
-            printDOM();
+                printDOM();
             
-            validateMessageReceived(messageText);
+                validateMessageReceived(messageText);
+        
+            }
+            else throw new BaseScreenException("Verifications of Notifications received on iOS not yet supported");
         
         }
-        else throw new BaseScreenException("Verifications of Notifications received on iOS not yet supported");
+        finally { command.finish(); }
         
     }
     
@@ -3577,39 +3669,44 @@ public class BaseScreen extends ViewBase {
      */
     public void validateMessageReceived(String messageText) throws Exception {
         
-        commandList.addToList("validateMessageReceived|" + messageText);
+        CommandRecord command = getCommandList().addToList("validateMessageReceived|" + messageText);
         
-        if(isAndroid()) {
+        try {
             
-            androidClickHome();
+            if(isAndroid()) {
             
-            try { clickOnWebElementContainingTextValueAttribute("Apps", "android.widget.TextView"); }
-            catch(Exception le) { }
+                androidClickHome();
             
-            delay(1000);
+                try { clickOnWebElementContainingTextValueAttribute("Apps", "android.widget.TextView"); }
+                catch(Exception le) { }
+            
+                delay(1000);
             
-            addScreenshotToReport();
+                addScreenshotToReport();
             
-            clickOnWebElementContainingTextValueAttribute("Messages", "android.widget.TextView");
+                clickOnWebElementContainingTextValueAttribute("Messages", "android.widget.TextView");
    
-            delay(2000);
+                delay(2000);
             
-            addScreenshotToReport();
+                addScreenshotToReport();
       
-            clickOnWebElementContainingTextValueAttribute(messageText, "android.widget.TextView");
+                clickOnWebElementContainingTextValueAttribute(messageText, "android.widget.TextView");
             
-            delay(2000);
+                delay(2000);
             
-            addScreenshotToReport();
+                addScreenshotToReport();
             
-            try { clickOnWebElementContainingTextValueAttribute("CANCEL", "android.widget.Button"); }
-            catch(Exception le) { }
+                try { clickOnWebElementContainingTextValueAttribute("CANCEL", "android.widget.Button"); }
+                catch(Exception le) { }
             
-            addScreenshotToReport();
+                addScreenshotToReport();
            
-        }
+            }
 
-        else throw new BaseScreenException("Verifications of Notification received on iOS not yet supported");
+            else throw new BaseScreenException("Verifications of Notification received on iOS not yet supported");
+        
+        }
+        finally { command.finish(); }
         
     }
     
@@ -3622,48 +3719,53 @@ public class BaseScreen extends ViewBase {
      */
     public void deleteMessage(String messageText) throws Exception {
         
-        commandList.addToList("validateMessageReceived|" + messageText);
+        CommandRecord command = getCommandList().addToList("validateMessageReceived|" + messageText);
         
-        if(isAndroid()) {
+        try {
             
-            clickOnWebElementContainingText_ContentDescription("More options",  "android.widget.Button");
+            if(isAndroid()) {
             
-            delay(2000);
+                clickOnWebElementContainingText_ContentDescription("More options",  "android.widget.Button");
+            
+                delay(2000);
             
-            addScreenshotToReport();
+                addScreenshotToReport();
             
-            clickOnWebElementContainingText_ContentDescription("Delete",  "android.widget.TextView");
+                clickOnWebElementContainingText_ContentDescription("Delete",  "android.widget.TextView");
             
-            delay(2000);
+                delay(2000);
             
-            addScreenshotToReport();
+                addScreenshotToReport();
             
-            try { 
+                try { 
                 
-                clickOnWebElementContainingTextValueAttribute("All",  "android.widget.TextView");  
+                    clickOnWebElementContainingTextValueAttribute("All",  "android.widget.TextView");  
                 
-                delay(2000); 
+                    delay(2000); 
                 
-                addScreenshotToReport();
+                    addScreenshotToReport();
                 
-                clickOnWebElementContainingText_ContentDescription("DELETE",  "android.widget.Button");
+                    clickOnWebElementContainingText_ContentDescription("DELETE",  "android.widget.Button");
                 
-                delay(2000);
+                    delay(2000);
                 
-                addScreenshotToReport();
+                    addScreenshotToReport();
             
-            }
-            catch(Exception le) { }
+                }
+                catch(Exception le) { }
             
-            clickOnWebElementContainingTextValueAttribute("DELETE", "android.widget.Button");
+                clickOnWebElementContainingTextValueAttribute("DELETE", "android.widget.Button");
             
-            delay(2000);
+                delay(2000);
             
-            addScreenshotToReport();
+                addScreenshotToReport();
           
-        }
+            }
 
-        else throw new BaseScreenException("Verifications of Notification received on iOS not yet supported");
+            else throw new BaseScreenException("Verifications of Notification received on iOS not yet supported");
+        
+        }
+        finally { command.finish(); }
         
     }
     
@@ -3769,17 +3871,22 @@ public class BaseScreen extends ViewBase {
      */
     public void enterTextInWebElementContainingText_ContentDescription(String text, String contentDescriptionText, String className) throws Exception {
             
-        commandList.addToList("enterTextInWebElementContainingText_ContentDescription:" + text + "|" + contentDescriptionText + "|" + className );
+        CommandRecord command = getCommandList().addToList("enterTextInWebElementContainingText_ContentDescription:" + text + "|" + contentDescriptionText + "|" + className );
         
-        WebElement webElement = getWebElementContainingText_ContentDescription(contentDescriptionText, className, false);
+        try {
+            
+            WebElement webElement = getWebElementContainingText_ContentDescription(contentDescriptionText, className, false);
         
-        webElement.click();
+            webElement.click();
             
-        delay(1000);
+            delay(1000);
             
-        webElement.sendKeys(text);
+            webElement.sendKeys(text);
             
-        minimizeKeyboard();
+            minimizeKeyboard();
+        
+        }
+        finally { command.finish(); }
         
     }
     
@@ -3793,9 +3900,14 @@ public class BaseScreen extends ViewBase {
      */
     public void clearTextInWebElementContainingText_ContentDescription(String contentDescriptionText, String className) throws Exception {
             
-        commandList.addToList("clearTextInWebElementContainingText_ContentDescription:" + contentDescriptionText + "|" + className );
+        CommandRecord command = getCommandList().addToList("clearTextInWebElementContainingText_ContentDescription:" + contentDescriptionText + "|" + className );
         
-        clearWebElement(getWebElementContainingText_ContentDescription(contentDescriptionText, className));
+        try {
+            
+            clearWebElement(getWebElementContainingText_ContentDescription(contentDescriptionText, className));
+        
+        }
+        finally { command.finish(); }
         
     }
     
@@ -3810,17 +3922,22 @@ public class BaseScreen extends ViewBase {
      */
     public void enterTextInWebElementMatchingText_ContentDescription(String text, String contentDescriptionText, String className) throws Exception {
             
-        commandList.addToList("enterTextInWebElementMatchingText_ContentDescription:" + text + "|" + contentDescriptionText + "|" + className );
+        CommandRecord command = getCommandList().addToList("enterTextInWebElementMatchingText_ContentDescription:" + text + "|" + contentDescriptionText + "|" + className );
         
-        WebElement webElement = getWebElementMatchingText_ContentDescription(contentDescriptionText, className, false);
+        try {
+            
+            WebElement webElement = getWebElementMatchingText_ContentDescription(contentDescriptionText, className, false);
         
-        webElement.click();
+            webElement.click();
             
-        delay(1000);
+            delay(1000);
             
-        webElement.sendKeys(text);
+            webElement.sendKeys(text);
             
-        minimizeKeyboard();
+            minimizeKeyboard();
+        
+        }
+        finally { command.finish(); }
         
     }
     
@@ -3834,9 +3951,14 @@ public class BaseScreen extends ViewBase {
      */
     public void clearTextInWebElementMatchingText_ContentDescription(String contentDescriptionText, String className) throws Exception {
             
-        commandList.addToList("clearTextInWebElementMatchingText_ContentDescription:" + contentDescriptionText + "|" + className );
+        CommandRecord command = getCommandList().addToList("clearTextInWebElementMatchingText_ContentDescription:" + contentDescriptionText + "|" + className );
         
-        clearWebElement(getWebElementMatchingText_ContentDescription(contentDescriptionText, className));
+        try {
+            
+            clearWebElement(getWebElementMatchingText_ContentDescription(contentDescriptionText, className));
+        
+        }
+        finally { command.finish(); }
         
     }
     
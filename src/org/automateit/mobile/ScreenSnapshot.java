@@ -0,0 +1,637 @@
+/**
+ * This file is part of Automate It!'s free and open source web and mobile 
+ * application testing framework.
+ * 
+ * Automate It! is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Automate It! is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Automate It!.  If not, see <http://www.gnu.org/licenses/>.
+ *  
+ **/
+
+package org.automateit.mobile;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import org.xml.sax.InputSource;
+
+/**
+ * This class holds an in-memory index of the element hierarchy (page source) 
+ * of a mobile screen.
+ * 
+ * The page source is fetched from the driver in a single call and parsed once, 
+ * so scanning many elements for a text, content description, value or resource id 
+ * does not cost a round trip to the Appium server per element and attribute. 
+ * 
+ * Both the UiAutomator2 (Android) and XCUITest (iOS) page source formats are supported.
+ * 
+ * @author mburnside
+ */
+public class ScreenSnapshot {
+    
+    /**
+     * The element attribute to compare with the expected text
+     */
+    public enum Attribute { 
+        
+        /**
+         * Same as <code>getAttribute("name")</code>
+         */
+        NAME, 
+        
+        /**
+         * Same as <code>getText()</code>
+         */
+        TEXT, 
+        
+        /**
+         * Same as <code>getAttribute("contentDescription")</code>
+         */
+        CONTENT_DESCRIPTION, 
+        
+        /**
+         * Same as <code>getAttribute("value")</code>
+         */
+        VALUE, 
+        
+        /**
+         * Same as <code>getAttribute("resourceId")</code>
+         */
+        RESOURCE_ID 
+    
+    }
+    
+    /**
+     * How the attribute value is compared with the expected text
+     */
+    public enum TextMatch { CONTAINS, EQUALS }
+    
+    /**
+     * Android bounds format: [x1,y1][x2,y2]
+     */
+    private static final Pattern BOUNDS = Pattern.compile("\\[(-?\\d+),(-?\\d+)\\]\\[(-?\\d+),(-?\\d+)\\]");
+    
+    /**
+     * All elements in document order
+     */
+    private final List<ScreenElement> elements = new ArrayList<ScreenElement>();
+    
+    /**
+     * Elements by class name
+     */
+    private final Map<String, List<ScreenElement>> byClassName = new HashMap<String, List<ScreenElement>>();
+    
+    /**
+     * Elements by (trimmed) text
+     */
+    private final Map<String, List<ScreenElement>> byText = new HashMap<String, List<ScreenElement>>();
+    
+    /**
+     * Elements by (trimmed) content description
+     */
+    private final Map<String, List<ScreenElement>> byContentDescription = new HashMap<String, List<ScreenElement>>();
+    
+    /**
+     * Elements by (trimmed) value
+     */
+    private final Map<String, List<ScreenElement>> byValue = new HashMap<String, List<ScreenElement>>();
+    
+    /**
+     * Elements by resource id
+     */
+    private final Map<String, List<ScreenElement>> byResourceId = new HashMap<String, List<ScreenElement>>();
+    
+    /**
+     * Time the snapshot was taken
+     */
+    private final long timestamp = System.currentTimeMillis();
+    
+    /**
+     * Copy Constructor.
+     * 
+     * @param pageSource
+     * 
+     * @throws Exception 
+     */
+    public ScreenSnapshot(String pageSource) throws Exception {
+        
+        try {
+            
+            if(pageSource == null) throw new BaseScreenException("Page source is null, unable to create a screen snapshot");
+            
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setExpandEntityReferences(false);
+            
+            DocumentBuilder builder = factory.newDocumentBuilder();
+            
+            Document document = builder.parse(new InputSource(new StringReader(pageSource)));
+            
+            index(document.getDocumentElement());
+            
+        }
+        catch(Exception e) { throw e; }
+        
+    }
+    
+    /**
+     * Walk the element hierarchy and index each element.
+     * 
+     * @param root 
+     */
+    private void index(Element root) {
+        
+        List<Element> stack = new ArrayList<Element>();
+        
+        stack.add(root);
+        
+        while(!stack.isEmpty()) {
+            
+            Element node = stack.remove(stack.size() - 1);
+            
+            String className = node.hasAttribute("class") ? node.getAttribute("class") : node.hasAttribute("type") ? node.getAttribute("type") : node.getTagName();
+            
+            List<ScreenElement> sameClass = byClassName.get(className);
+            
+            if(sameClass == null) byClassName.put(className, sameClass = new ArrayList<ScreenElement>());
+            
+            ScreenElement element = new ScreenElement(className, sameClass.size(), attributesOf(node));
+            
+            elements.add(element);
+            
+            sameClass.add(element);
+            
+            put(byText, element.getText(), element);
+            put(byContentDescription, element.getContentDescription(), element);
+            put(byValue, element.getValue(), element);
+            put(byResourceId, element.getResourceId(), element);
+            
+            // push the children in reverse so they are visited in document order
+            NodeList children = node.getChildNodes();
+            
+            for(int i = children.getLength() - 1; i >= 0; i--) {
+                
+                Node child = children.item(i);
+                
+                if(child.getNodeType() == Node.ELEMENT_NODE) stack.add((Element)child);
+                
+            }
+            
+        }
+        
+    }
+    
+    /**
+     * Copy the attributes of an element.
+     * 
+     * @param node
+     * 
+     * @return 
+     */
+    private static Map<String, String> attributesOf(Element node) {
+        
+        NamedNodeMap attributes = node.getAttributes();
+        
+        Map<String, String> map = new HashMap<String, String>(attributes.getLength() * 2);
+        
+        for(int i = 0; i < attributes.getLength(); i++) {
+            
+            Node attribute = attributes.item(i);
+            
+            map.put(attribute.getNodeName(), attribute.getNodeValue());
+            
+        }
+        
+        return map;
+        
+    }
+    
+    /**
+     * Add an element to an index if the key is not blank.
+     * 
+     * @param index
+     * @param key
+     * @param element 
+     */
+    private static void put(Map<String, List<ScreenElement>> index, String key, ScreenElement element) {
+        
+        if((key == null) || (key.trim().length() == 0)) return;
+        
+        List<ScreenElement> list = index.get(key.trim());
+        
+        if(list == null) index.put(key.trim(), list = new ArrayList<ScreenElement>());
+        
+        list.add(element);
+        
+    }
+    
+    /**
+     * Get a list from an index.
+     * 
+     * @param index
+     * @param key
+     * 
+     * @return 
+     */
+    private static List<ScreenElement> get(Map<String, List<ScreenElement>> index, String key) {
+        
+        if(key == null) return Collections.<ScreenElement>emptyList();
+        
+        List<ScreenElement> list = index.get(key.trim());
+        
+        if(list == null) return Collections.<ScreenElement>emptyList();
+        
+        return Collections.unmodifiableList(list);
+        
+    }
+    
+    /**
+     * Get all the elements in document order.
+     * 
+     * @return 
+     */
+    public List<ScreenElement> getElements() { return Collections.unmodifiableList(elements); }
+    
+    /**
+     * Get the elements of a class in document order.
+     * 
+     * @param className
+     * 
+     * @return 
+     */
+    public List<ScreenElement> getElementsByClassName(String className) { return get(byClassName, className); }
+    
+    /**
+     * Get the elements with exactly this text.
+     * 
+     * @param text
+     * 
+     * @return 
+     */
+    public List<ScreenElement> getElementsByText(String text) { return get(byText, text); }
+    
+    /**
+     * Get the elements with exactly this content description.
+     * 
+     * @param contentDescription
+     * 
+     * @return 
+     */
+    public List<ScreenElement> getElementsByContentDescription(String contentDescription) { return get(byContentDescription, contentDescription); }
+    
+    /**
+     * Get the elements with exactly this value.
+     * 
+     * @param value
+     * 
+     * @return 
+     */
+    public List<ScreenElement> getElementsByValue(String value) { return get(byValue, value); }
+    
+    /**
+     * Get the elements with this resource id.
+     * 
+     * @param resourceId
+     * 
+     * @return 
+     */
+    public List<ScreenElement> getElementsByResourceId(String resourceId) { return get(byResourceId, resourceId); }
+    
+    /**
+     * Indicates there is at least one element of the class.
+     * 
+     * @param className
+     * 
+     * @return 
+     */
+    public boolean hasClassName(String className) { return byClassName.containsKey(className); }
+    
+    /**
+     * Get the time the snapshot was taken.
+     * 
+     * @return 
+     */
+    public long getTimestamp() { return timestamp; }
+    
+    /**
+     * Find the first element of the class whose attribute matches any of the texts.
+     * 
+     * Blank attribute values are ignored.
+     * 
+     * @param className
+     * @param attribute
+     * @param textMatch
+     * @param ignoreCase
+     * @param interactableOnly only consider elements that are displayed and enabled
+     * @param texts
+     * 
+     * @return The element or <code>null</code> if nothing matched
+     */
+    public ScreenElement find(String className, Attribute attribute, TextMatch textMatch, boolean ignoreCase, boolean interactableOnly, String... texts) {
+        
+        List<ScreenElement> matches = findAll(className, attribute, textMatch, ignoreCase, interactableOnly, 1, texts);
+        
+        return matches.isEmpty() ? null : matches.get(0);
+        
+    }
+    
+    /**
+     * Find the elements of the class whose attribute matches any of the texts.
+     * 
+     * Blank attribute values are ignored.
+     * 
+     * @param className
+     * @param attribute
+     * @param textMatch
+     * @param ignoreCase
+     * @param interactableOnly only consider elements that are displayed and enabled
+     * @param limit maximum number of elements to return, 0 for all
+     * @param texts
+     * 
+     * @return 
+     */
+    public List<ScreenElement> findAll(String className, Attribute attribute, TextMatch textMatch, boolean ignoreCase, boolean interactableOnly, int limit, String... texts) {
+        
+        List<ScreenElement> matches = new ArrayList<ScreenElement>();
+        
+        String[] expected = new String[texts.length];
+        
+        for(int i = 0; i < texts.length; i++) expected[i] = (texts[i] == null) ? null : ignoreCase ? texts[i].trim().toLowerCase() : texts[i].trim();
+        
+        for(ScreenElement element:getElementsByClassName(className)) {
+            
+            if(interactableOnly && (!element.isDisplayed() || !element.isEnabled())) continue;
+            
+            String data = element.get(attribute);
+            
+            if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
+            
+            data = ignoreCase ? data.trim().toLowerCase() : data.trim();
+            
+            for(String text:expected) {
+                
+                if(text == null) continue;
+                
+                if((textMatch == TextMatch.EQUALS) ? data.equals(text) : data.contains(text)) {
+                    
+                    matches.add(element);
+                    
+                    break;
+                    
+                }
+                
+            }
+            
+            if((limit > 0) && (matches.size() >= limit)) break;
+            
+        }
+        
+        return matches;
+        
+    }
+    
+    /**
+     * A single element of the screen snapshot.
+     */
+    public static class ScreenElement {
+        
+        private final String className;
+        
+        private final int classIndex;
+        
+        private final Map<String, String> attributes;
+        
+        private final int[] bounds;
+        
+        ScreenElement(String className, int classIndex, Map<String, String> attributes) {
+            
+            this.className = className;
+            this.classIndex = classIndex;
+            this.attributes = attributes;
+            this.bounds = parseBounds(attributes);
+            
+        }
+        
+        /**
+         * Get the class name (element type).
+         * 
+         * @return 
+         */
+        public String getClassName() { return className; }
+        
+        /**
+         * Get the (0-based) position of this element among the elements of the same class, 
+         * which is the position in <code>findElements(By.className(...))</code>.
+         * 
+         * @return 
+         */
+        public int getClassIndex() { return classIndex; }
+        
+        /**
+         * Get a raw page source attribute.
+         * 
+         * @param name
+         * 
+         * @return The value or <code>null</code> if not present
+         */
+        public String getAttribute(String name) { return attributes.get(name); }
+        
+        /**
+         * Get the value of an attribute.
+         * 
+         * @param attribute
+         * 
+         * @return 
+         */
+        public String get(Attribute attribute) {
+            
+            switch(attribute) {
+                
+                case TEXT: return getText();
+                
+                case CONTENT_DESCRIPTION: return getContentDescription();
+                
+                case VALUE: return getValue();
+                
+                case RESOURCE_ID: return getResourceId();
+                
+                default: return getName();
+                
+            }
+            
+        }
+        
+        /**
+         * Get the name - the content description (or text when there is none) on Android, the name on iOS.
+         * 
+         * @return 
+         */
+        public String getName() {
+            
+            if(attributes.containsKey("name")) return attributes.get("name");
+            
+            String contentDescription = getContentDescription();
+            
+            if((contentDescription != null) && (contentDescription.length() > 0)) return contentDescription;
+            
+            return attributes.get("text");
+            
+        }
+        
+        /**
+         * Get the text - the text on Android, the value (or label when there is none) on iOS.
+         * 
+         * @return 
+         */
+        public String getText() {
+            
+            if(attributes.containsKey("text")) return attributes.get("text");
+            
+            String value = attributes.get("value");
+            
+            if((value != null) && (value.length() > 0)) return value;
+            
+            return attributes.get("label");
+            
+        }
+        
+        /**
+         * Get the content description (Android).
+         * 
+         * @return 
+         */
+        public String getContentDescription() { return attributes.get("content-desc"); }
+        
+        /**
+         * Get the value - the value on iOS, the text on Android.
+         * 
+         * @return 
+         */
+        public String getValue() { return attributes.containsKey("value") ? attributes.get("value") : attributes.get("text"); }
+        
+        /**
+         * Get the resource id (Android).
+         * 
+         * @return 
+         */
+        public String getResourceId() { return attributes.get("resource-id"); }
+        
+        /**
+         * Indicates the element is displayed (defaults to true when not reported).
+         * 
+         * @return 
+         */
+        public boolean isDisplayed() { 
+            
+            String displayed = attributes.containsKey("displayed") ? attributes.get("displayed") : attributes.get("visible");
+            
+            return (displayed == null) || Boolean.parseBoolean(displayed);
+        
+        }
+        
+        /**
+         * Indicates the element is enabled (defaults to true when not reported).
+         * 
+         * @return 
+         */
+        public boolean isEnabled() { 
+            
+            String enabled = attributes.get("enabled");
+            
+            return (enabled == null) || Boolean.parseBoolean(enabled); 
+        
+        }
+        
+        /**
+         * Indicates the element has a known location on the screen.
+         * 
+         * @return 
+         */
+        public boolean hasBounds() { return bounds != null; }
+        
+        /**
+         * Get the horizontal center of the element.
+         * 
+         * @return 
+         */
+        public int getCenterX() { return (bounds == null) ? -1 : bounds[0] + (bounds[2] / 2); }
+        
+        /**
+         * Get the vertical center of the element.
+         * 
+         * @return 
+         */
+        public int getCenterY() { return (bounds == null) ? -1 : bounds[1] + (bounds[3] / 2); }
+        
+        /**
+         * Parse the location and size (x, y, width, height) of the element.
+         * 
+         * @param attributes
+         * 
+         * @return The bounds or <code>null</code> if not present
+         */
+        private static int[] parseBounds(Map<String, String> attributes) {
+            
+            try {
+                
+                String bounds = attributes.get("bounds");
+                
+                if(bounds != null) {
+                    
+                    Matcher matcher = BOUNDS.matcher(bounds);
+                    
+                    if(!matcher.matches()) return null;
+                    
+                    int x1 = Integer.parseInt(matcher.group(1));
+                    int y1 = Integer.parseInt(matcher.group(2));
+                    
+                    return new int[] { x1, y1, Integer.parseInt(matcher.group(3)) - x1, Integer.parseInt(matcher.group(4)) - y1 };
+                    
+                }
+                
+                if(!attributes.containsKey("x") || !attributes.containsKey("y") || !attributes.containsKey("width") || !attributes.containsKey("height")) return null;
+                
+                return new int[] { Integer.parseInt(attributes.get("x")), Integer.parseInt(attributes.get("y")), Integer.parseInt(attributes.get("width")), Integer.parseInt(attributes.get("height")) };
+                
+            }
+            catch(NumberFormatException e) { return null; }
+            
+        }
+        
+        /**
+         * Return a description of the element.
+         * 
+         * @return 
+         */
+        @Override
+        public String toString() { return className + "[" + classIndex + "]" + attributes; }
+        
+    }
+    
+}
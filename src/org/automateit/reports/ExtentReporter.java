@@ -31,10 +31,15 @@ import com.aventstack.extentreports.reporter.ExtentHtmlReporter;
 import com.aventstack.extentreports.reporter.configuration.ChartLocation;
 import com.aventstack.extentreports.reporter.configuration.Theme;
 
+import org.automateit.core.ExecutionContext;
+
 import org.automateit.util.Utils;
 
 /**
  * This class manages reports obects for the Eyent Reporting framework
+ * <p>
+ * The current test is kept per execution context, so tests running in parallel
+ * each log to their own test in the shared report.
  * 
  * @author mburnside
  */
@@ -55,10 +60,6 @@ public class ExtentReporter implements Reporter {
      */
     private ExtentReports extentReports = null;
  
-    /**
-     * ExtentTest obect
-     */
-    private ExtentTest extentTest = null;
    
     /**
      *  logging object, logging conf is defined in conf/log4j.properties
@@ -123,7 +124,7 @@ public class ExtentReporter implements Reporter {
         
         try { 
             
-            extentTest = extentReports.createTest(testName).createNode("Steps"); 
+            synchronized(extentReports) { setExtentTest(extentReports.createTest(testName).createNode("Steps")); }
             
             info("Test Started");
         
@@ -141,7 +142,7 @@ public class ExtentReporter implements Reporter {
      */
     public void logFail(String testName) throws Exception {
         
-        try { extentTest.fail("Test Failed"); }
+        try { getExtentTest().fail("Test Failed"); }
         catch(Exception e) { throw e; }
         
     }
@@ -156,7 +157,7 @@ public class ExtentReporter implements Reporter {
      */
     public void logFail(String testName, Throwable throwable) throws Exception {
         
-        try { extentTest.fail("Test Failed"); extentTest.fail(throwable); }
+        try { ExtentTest extentTest = getExtentTest(); extentTest.fail("Test Failed"); extentTest.fail(throwable); }
         catch(Exception e) { throw e; }
         
     }
@@ -170,7 +171,7 @@ public class ExtentReporter implements Reporter {
      */
     public void logPass(String testName) throws Exception {
         
-        try { extentTest.pass("Test Passed"); }
+        try { getExtentTest().pass("Test Passed"); }
         catch(Exception e) { throw e; }
         
     }
@@ -183,7 +184,7 @@ public class ExtentReporter implements Reporter {
      */
     public void logSkip(String testName) throws Exception {
  
-        try { extentTest = extentReports.createTest(testName).skip("Test Skipped"); }
+        try { synchronized(extentReports) { setExtentTest(extentReports.createTest(testName).skip("Test Skipped")); } }
         catch(Exception e) { throw e; }
       
     }
@@ -199,7 +200,7 @@ public class ExtentReporter implements Reporter {
             
             logger.debug("Flushing");
             
-            extentReports.flush(); 
+            synchronized(extentReports) { extentReports.flush(); }
         
         }
         catch(Exception e) { logger.error(e); throw e; }
@@ -213,7 +214,7 @@ public class ExtentReporter implements Reporter {
      */
     public void info(String message) {
  
-        try { extentTest.info(message); }
+        try { getExtentTest().info(message); }
         catch(Exception e) { }
       
     }
@@ -225,7 +226,7 @@ public class ExtentReporter implements Reporter {
      */
     public void debug(String message) {
  
-        try { extentTest.debug(message); }
+        try { getExtentTest().debug(message); }
         catch(Exception e) { }
       
     }
@@ -237,7 +238,7 @@ public class ExtentReporter implements Reporter {
      */
     public void warn(String message) {
  
-        try { extentTest.warning(message); }
+        try { getExtentTest().warning(message); }
         catch(Exception e) { }
       
     }
@@ -249,7 +250,7 @@ public class ExtentReporter implements Reporter {
      */
     public void error(String message) {
  
-        try { extentTest.error(message); }
+        try { getExtentTest().error(message); }
         catch(Exception e) { }
       
     }
@@ -261,7 +262,7 @@ public class ExtentReporter implements Reporter {
      */
     public void fatal(String message) {
  
-        try { extentTest.fatal(message); }
+        try { getExtentTest().fatal(message); }
         catch(Exception e) { }
       
     }
@@ -273,7 +274,7 @@ public class ExtentReporter implements Reporter {
      */
     public void addImageToReport(String imagePath) {
  
-        try { extentTest.addScreenCaptureFromPath(imagePath); }
+        try { getExtentTest().addScreenCaptureFromPath(imagePath); }
         catch(Exception e) { }
       
     }
@@ -286,11 +287,25 @@ public class ExtentReporter implements Reporter {
      */
     public void addImageToReport(String imagePath, String title) {
  
-        try { extentTest.addScreenCaptureFromPath(imagePath, title); }
+        try { getExtentTest().addScreenCaptureFromPath(imagePath, title); }
         catch(Exception e) { }
       
     }
     
+    /**
+     * Get the test of the current execution context.
+     * 
+     * @return 
+     */
+    protected ExtentTest getExtentTest() { return (ExtentTest)ExecutionContext.getCurrent().getAttribute(this); }
+    
+    /**
+     * Set the test of the current execution context.
+     * 
+     * @param extentTest 
+     */
+    protected void setExtentTest(ExtentTest extentTest) { ExecutionContext.getCurrent().setAttribute(this, extentTest); }
+    
 }
 
 
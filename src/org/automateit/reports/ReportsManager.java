@@ -18,8 +18,7 @@
 
 package org.automateit.reports;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.log4j.Logger;
 
@@ -37,7 +36,7 @@ public class ReportsManager {
     /**
      * ExtentReports object
      */
-    private List<Reporter> reporters = new ArrayList();
+    private CopyOnWriteArrayList<Reporter> reporters = new CopyOnWriteArrayList<Reporter>();
 
     /**
      *  logging object, logging conf is defined in conf/log4j.properties
@@ -80,7 +79,7 @@ public class ReportsManager {
      */
     public void addReporter(Reporter reporter) throws Exception {
         
-        try { if(!reporters.contains(reporter)) reporters.add(reporter); }
+        try { reporters.addIfAbsent(reporter); }
         catch(Exception e) { throw e; }
         
     }
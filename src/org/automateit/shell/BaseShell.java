@@ -30,6 +30,7 @@ import com.jcraft.jsch.JSch;
 import com.jcraft.jsch.Session;
 
 import org.automateit.util.CommandList;
+import org.automateit.util.CommandRecord;
 import org.automateit.util.CommonProperties;
 import org.automateit.util.Utils;
 
@@ -92,10 +93,24 @@ public class BaseShell {
     protected Properties connectionProperties = null;
     
     /**
-     * Command List
+     * Command List of the thread that built this object.
+     * 
+     * @deprecated A page can be built on another thread than the one running 
+     * the test (eg. in @BeforeClass), so commands recorded here may not reach 
+     * the test's reports; use <code>getCommandList()</code> instead.
      */
+    @Deprecated
     protected CommandList commandList = CommandList.getInstance();
     
+    /**
+     * Get the command list of the current execution context (the thread 
+     * running the test), which the reports read. It is looked up on each 
+     * call, as a page can be built on another thread (eg. in @BeforeClass).
+     * 
+     * @return 
+     */
+    protected CommandList getCommandList() { return CommandList.getInstance(); }
+    
     /**
      * Default Constructor. The first screen that appears on the app must use this constructor
      * 
@@ -150,11 +165,13 @@ public class BaseShell {
      */
     public void connect(String username, String password, String hostname, String port, Properties connectionProperties) throws Exception {
         
+        CommandRecord command = null;
+        
         try { 
             
             logger.info("Attempting a new ssh connection: " + username + "|" + password + "|" + port + "|" + connectionProperties);
             
-            commandList.addToList("connect|" + username + "|" + password + "|" + port + "|" + connectionProperties);
+            command = getCommandList().addToList("connect|" + username + "|" + password + "|" + port + "|" + connectionProperties);
             
             if(!this.connectionProperties.containsKey("private_key_file")) throw new Exception("The properties/configuration file must contain key: private_key_file");
             if(!this.connectionProperties.containsKey("private_key_password")) throw new Exception("The properties/configuration file must contain key: private_key_password");
@@ -171,6 +188,7 @@ public class BaseShell {
             
         }
         catch(Exception e) { throw e; }
+        finally { if(command != null) command.finish(); }
         
     }
     
@@ -186,11 +204,13 @@ public class BaseShell {
      */
     public void connect(String username, String password, String hostname, String port) throws Exception {
         
+        CommandRecord command = null;
+        
         try { 
             
             logger.info("Attempting a new ssh connection: " + username + "|" + password + "|" + port);
             
-            commandList.addToList("connect|" + username + "|" + password + "|" + port);
+            command = getCommandList().addToList("connect|" + username + "|" + password + "|" + port);
             
             if(!this.connectionProperties.containsKey("private_key_file")) throw new Exception("The properties/configuration file must contain key: private_key_file");
             if(!this.connectionProperties.containsKey("private_key_password")) throw new Exception("The properties/configuration file must contain key: private_key_password");
@@ -209,6 +229,7 @@ public class BaseShell {
             
         }
         catch(Exception e) { throw e; }
+        finally { if(command != null) command.finish(); }
         
     }
     
@@ -242,14 +263,17 @@ public class BaseShell {
      */
     public void delay(long milliseconds) {
         
+        CommandRecord command = null;
+        
         try { 
             
-            commandList.addToList("delay|" + milliseconds);
+            command = getCommandList().addToList("delay|" + milliseconds);
             
             Thread.sleep(milliseconds); 
         
         } 
         catch(Exception e) { }
+        finally { if(command != null) command.finish(); }
         
     }
     
@@ -264,11 +288,13 @@ public class BaseShell {
      */
     public String enter(String command) throws Exception {
         
+        CommandRecord record = null;
+        
         try { 
             
             logger.info("Entering this command: " + command);
             
-            commandList.addToList("enter|" + command);
+            record = getCommandList().addToList("enter|" + command);
             
             this.channel = this.session.openChannel("exec");
     
@@ -294,6 +320,7 @@ public class BaseShell {
             
         }
         catch(Exception e) { throw e; }
+        finally { if(record != null) record.finish(); }
         
     }
     
@@ -348,14 +375,17 @@ public class BaseShell {
      */
     public void setConfig(String key, String value) {
         
+        CommandRecord command = null;
+        
         try { 
             
-            commandList.addToList("setConfig:" + key + "|" + value);
+            command = getCommandList().addToList("setConfig:" + key + "|" + value);
             
             if(this.jsch != null) this.jsch.setConfig(key, value); 
         
         }
         catch(Exception e) { }
+        finally { if(command != null) command.finish(); }
         
     }
     
@@ -364,14 +394,17 @@ public class BaseShell {
      */
     public void close() {
         
+        CommandRecord command = null;
+        
         try { 
             
-            commandList.addToList("close");
+            command = getCommandList().addToList("close");
             
             if(this.session != null) this.session.disconnect(); 
         
         }
         catch(Exception e) { }
+        finally { if(command != null) command.finish(); }
         
     }
     
@@ -21,11 +21,24 @@ package org.automateit.test;
 
 import java.io.File;
 import java.io.FilenameFilter;
+import java.lang.reflect.Method;
 import java.util.Date;
+import java.util.Iterator;
 
 import org.apache.log4j.Logger;
 
 import org.testng.Assert;
+import org.testng.ITestResult;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.AfterSuite;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.BeforeSuite;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import org.automateit.core.ExecutionContext;
+import org.automateit.core.ExecutionContextPool;
+import org.automateit.core.StringCapabilities;
 
 import org.automateit.core.ViewBase;
 
@@ -35,10 +48,13 @@ import org.automateit.data.DataArchive;
 
 import org.automateit.util.Utils;
 
+import org.automateit.testng.DataDrivenInputRows;
 import org.automateit.testng.TestNGUtils;
 
 import org.automateit.util.CommonProperties;
 
+import org.automateit.web.WebDriverFactory;
+
 import org.automateit.web.pages.BaseMobileWebPage;
 
 /**
@@ -78,6 +94,12 @@ public class TestBase extends ViewBase {
      */
     public static final String DATADIRECTORY = "." + File.separator + "data" + File.separator;
     
+    /**
+     * Name of the parallel data provider that runs a test once per data set 
+     * (<code>@Test(dataProvider = TestBase.DATA_DRIVEN_INPUT)</code>)
+     */
+    public static final String DATA_DRIVEN_INPUT = "dataDrivenInput";
+    
     /**
      * Logging class
      */
@@ -165,6 +187,128 @@ public class TestBase extends ViewBase {
         
     }
     
+    /**
+     * Parallel data provider that runs a test once per data set of 
+     * <code>getDataProviderInput</code>, in the shard of data ids set for 
+     * this JVM (see <code>DataDrivenInputRows</code>). The test method takes 
+     * the data id and the data set:
+     * 
+     * <pre>
+     * &#64;Test(dataProvider = DATA_DRIVEN_INPUT)
+     * public void testLogin(String dataId, Map data) throws Exception { ... }
+     * </pre>
+     * 
+     * Each invocation runs with its own execution context (web driver) from 
+     * <code>ExecutionContextPool</code>. The number of invocations run at the 
+     * same time is set by the suite's <code>data-provider-thread-count</code>.
+     * 
+     * @return
+     * 
+     * @throws Exception 
+     */
+    @DataProvider(name = DATA_DRIVEN_INPUT, parallel = true)
+    public Iterator<Object[]> provideDataDrivenInput() throws Exception {
+        
+        try { return new DataDrivenInputRows(getDataProviderInput()); }
+        catch(Exception e) { logger.error(e); throw e; }
+        
+    }
+    
+    /**
+     * Get the data sets run by the <code>DATA_DRIVEN_INPUT</code> data 
+     * provider. By default the file set with <code>dataProviderFile</code>; 
+     * override to use other data (eg. a Cucumber DataTable).
+     * 
+     * @return
+     * 
+     * @throws Exception 
+     */
+    protected DataDrivenInput getDataProviderInput() throws Exception {
+        
+        String dataFile = CommonProperties.getInstance().get(StringCapabilities.DATA_PROVIDER_FILE.getCapability());
+        
+        if(dataFile == null) throw new Exception("No data for the " + DATA_DRIVEN_INPUT + " data provider: set " + StringCapabilities.DATA_PROVIDER_FILE.getCapability() + " or override getDataProviderInput()");
+        
+        return setupDataDrivenInput(dataFile.trim());
+        
+    }
+    
+    /**
+     * Start the pooled web driver sessions (<code>webDriverPoolSize</code>) in the 
+     * background when <code>useWebDriverPool</code> is enabled, so the first test 
+     * also gets a warm session.
+     */
+    @BeforeSuite(alwaysRun = true)
+    public void warmWebDriverPool() {
+        
+        try {
+            
+            WebDriverFactory webDriverFactory = new WebDriverFactory();
+            
+            String webDriverId = CommonProperties.getInstance().get(StringCapabilities.ID_SELENIUM_DRIVER.getCapability());
+            
+            if(!webDriverFactory.getUseWebDriverPool() || (webDriverId == null)) return;
+            
+            webDriverFactory.warmWebDriverPool(webDriverId, CommonProperties.getInstance().get(StringCapabilities.URL.getCapability()));
+            
+        }
+        catch(Exception e) { logger.error("Unable to warm the web driver pool: " + e); }
+        
+    }
+    
+    /**
+     * Give a test that runs once per data set its own execution context 
+     * from the pool.
+     * 
+     * @param method 
+     */
+    @BeforeMethod(alwaysRun = true)
+    public void acquireDataProviderContext(Method method) { if(usesDataDrivenInput(method)) ExecutionContextPool.getInstance().acquire(); }
+    
+    /**
+     * Give the execution context back to the pool, after the test listeners 
+     * (screenshots, reports) have used it. The web driver of a failed 
+     * invocation is closed rather than handed to the next data set.
+     * 
+     * @param method 
+     * @param result 
+     */
+    @AfterMethod(alwaysRun = true)
+    public void releaseDataProviderContext(Method method, ITestResult result) { 
+        
+        if(usesDataDrivenInput(method)) ExecutionContextPool.getInstance().release((result != null) && (result.getStatus() == ITestResult.FAILURE)); 
+    
+    }
+    
+    /**
+     * Close the execution contexts of all the threads that ran tests, and the 
+     * pooled ones (quit their web drivers).
+     */
+    @AfterSuite(alwaysRun = true)
+    public void closeExecutionContexts() { 
+        
+        ExecutionContextPool.getInstance().closeAll(); 
+        
+        ExecutionContext.closeAll();
+    
+    }
+    
+    /**
+     * Whether a test method runs once per data set of the 
+     * <code>DATA_DRIVEN_INPUT</code> data provider.
+     * 
+     * @param method
+     * 
+     * @return 
+     */
+    private boolean usesDataDrivenInput(Method method) {
+        
+        Test test = (method == null) ? null : method.getAnnotation(Test.class);
+        
+        return (test != null) && DATA_DRIVEN_INPUT.equals(test.dataProvider());
+        
+    }
+    
     /**
      * Get a data archive object so we save whatever data needed.
      * 
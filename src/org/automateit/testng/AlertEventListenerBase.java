@@ -87,9 +87,11 @@ public class AlertEventListenerBase extends TestListenerAdapter {
     
     /**
      * This method is invoked after all the tests have run and all their Configuration methods have been called.
+     * 
+     * Waits for the queued alerts to be sent.
      */
     @Override
-    public void onFinish(ITestContext context) { }
+    public void onFinish(ITestContext context) { AlertEvent.getInstance().flush(); }
     
     /**
      * This method does all reporting into TestNG/ReportsNG.
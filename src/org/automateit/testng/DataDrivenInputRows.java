@@ -0,0 +1,198 @@
+/**
+ * This file is part of Automate It!'s free and open source web and mobile 
+ * application testing framework.
+ * 
+ * Automate It! is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Automate It! is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Automate It!.  If not, see <http://www.gnu.org/licenses/>.
+ *  
+ **/
+
+package org.automateit.testng;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.apache.log4j.Logger;
+
+import org.automateit.core.StringCapabilities;
+import org.automateit.data.DataDrivenInput;
+import org.automateit.util.CommonProperties;
+
+/**
+ * TestNG data provider rows for a <code>DataDrivenInput</code> (CSV, Excel, 
+ * Cucumber DataTable, ...): one row per data id, with the data id and the 
+ * data set (<code>returnInputDataForDataId</code>) as the test parameters. 
+ * Data sets are read as the rows are requested, not up front.
+ * <p>
+ * The data ids can be split in shards, so the data sets are run across 
+ * several JVMs or CI nodes: with <code>dataShardCount</code> N, only the data 
+ * ids whose hash is <code>dataShardIndex</code> (0 to N-1) modulo N are 
+ * returned. The settings are read from the system properties first (eg. 
+ * <code>-DdataShardIndex=2</code> on a CI node), then from the properties file.
+ * 
+ * @author mburnside
+ */
+public class DataDrivenInputRows implements Iterator<Object[]> {
+    
+    /**
+     *  logging object
+     */
+    private static Logger logger = Logger.getLogger(DataDrivenInputRows.class);
+    
+    /**
+     * The data read
+     */
+    private final DataDrivenInput input;
+    
+    /**
+     * The data ids
+     */
+    private final List<String> dataIds;
+    
+    /**
+     * The shard returned
+     */
+    private final int shardIndex;
+    
+    /**
+     * The number of shards
+     */
+    private final int shardCount;
+    
+    /**
+     * Position of the next data id in the shard, or the number of data ids
+     */
+    private int next = -1;
+    
+    /**
+     * Copy constructor. The shard is taken from <code>dataShardIndex</code> 
+     * and <code>dataShardCount</code> (all data ids if not set).
+     * 
+     * @param input
+     * 
+     * @throws Exception 
+     */
+    public DataDrivenInputRows(DataDrivenInput input) throws Exception { this(input, getSetting(StringCapabilities.DATA_SHARD_INDEX.getCapability(), 0), getSetting(StringCapabilities.DATA_SHARD_COUNT.getCapability(), 1)); }
+    
+    /**
+     * Copy constructor.
+     * 
+     * @param input
+     * @param shardIndex The shard returned (0 to <code>shardCount</code> - 1)
+     * @param shardCount The number of shards
+     * 
+     * @throws Exception 
+     */
+    public DataDrivenInputRows(DataDrivenInput input, int shardIndex, int shardCount) throws Exception {
+        
+        if(shardCount < 1 || shardIndex < 0 || shardIndex >= shardCount) throw new Exception("Invalid data shard: " + shardIndex + " of: " + shardCount);
+        
+        this.input = input;
+        
+        this.dataIds = input.getDataIds();
+        
+        this.shardIndex = shardIndex;
+        
+        this.shardCount = shardCount;
+        
+        logger.info("Data provider rows for: " + dataIds.size() + " data ids, shard: " + shardIndex + " of: " + shardCount);
+        
+    }
+    
+    /**
+     * Whether a data id is in a shard. The shard of a data id is the same 
+     * in every JVM.
+     * 
+     * @param dataId
+     * @param shardIndex
+     * @param shardCount
+     * 
+     * @return 
+     */
+    public static boolean isInShard(String dataId, int shardIndex, int shardCount) { return ((dataId.hashCode() & Integer.MAX_VALUE) % shardCount) == shardIndex; }
+    
+    /**
+     * Whether there is another row.
+     * 
+     * @return 
+     */
+    public boolean hasNext() { 
+        
+        if(next < 0) next = find(0);
+        
+        return (next < dataIds.size()); 
+    
+    }
+    
+    /**
+     * Get the next row: the data id and its data set.
+     * 
+     * @return 
+     */
+    public Object[] next() {
+        
+        if(!hasNext()) throw new NoSuchElementException();
+        
+        String dataId = dataIds.get(next);
+        
+        next = find(next + 1);
+        
+        try { return new Object[] { dataId, input.returnInputDataForDataId(dataId) }; }
+        catch(Exception e) { throw new RuntimeException("Unable to read data set: " + dataId, e); }
+        
+    }
+    
+    /**
+     * Rows can not be removed.
+     */
+    public void remove() { throw new UnsupportedOperationException(); }
+    
+    /**
+     * Find the next data id in the shard.
+     * 
+     * @param from
+     * 
+     * @return The position or the number of data ids
+     */
+    private int find(int from) {
+        
+        int i = from;
+        
+        while(i < dataIds.size() && !isInShard(dataIds.get(i), shardIndex, shardCount)) i++;
+        
+        return i;
+        
+    }
+    
+    /**
+     * Get an integer setting, from the system properties or the properties file.
+     * 
+     * @param name
+     * @param defaultValue
+     * 
+     * @return 
+     */
+    private static int getSetting(String name, int defaultValue) {
+        
+        String value = System.getProperty(name);
+        
+        if(value == null) value = CommonProperties.getInstance().get(name);
+        
+        if(value == null || value.trim().length() == 0) return defaultValue;
+        
+        return Integer.parseInt(value.trim());
+        
+    }
+    
+}
@@ -27,6 +27,7 @@ import org.testng.TestListenerAdapter;
 import org.automateit.reports.ReportsManager;
 import org.automateit.reports.ExtentReporter;
 
+import org.automateit.util.ScreenshotPipeline;
 import org.automateit.util.Utils;
 
 /**
@@ -146,7 +147,14 @@ public class ExtentReportTestListener extends TestListenerAdapter {
     @Override
     public void onFinish(ITestContext context) { 
         
-        try { extentReporter.finishReport(); }
+        try { 
+            
+            // make sure all screenshots referenced by the report have been written
+            ScreenshotPipeline.getInstance().flush();
+            
+            extentReporter.finishReport(); 
+        
+        }
         catch(Exception e) { }
     
     }
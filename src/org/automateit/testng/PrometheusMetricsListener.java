@@ -0,0 +1,102 @@
+/**
+ * This file is part of Automate It!'s free and open source web and mobile 
+ * application testing framework.
+ * 
+ * Automate It! is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Automate It! is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Automate It!.  If not, see <http://www.gnu.org/licenses/>.
+ *  
+ **/
+
+package org.automateit.testng;
+
+import org.apache.log4j.Logger;
+import org.testng.ITestContext;
+import org.testng.ITestResult;
+import org.testng.TestListenerAdapter;
+
+import org.automateit.event.PrometheusMetrics;
+
+/**
+ * This class is added to testng task to listen for events.
+ * 
+ * It records the test results and durations into the Prometheus metrics of the run
+ * (see <code>PrometheusMetrics</code>), which are served from the <code>/metrics</code> endpoint
+ * when <code>prometheusMetricsPort</code> is set.
+ * 
+ * @author mburnside
+ */
+public class PrometheusMetricsListener extends TestListenerAdapter {
+    
+    /**
+     *  logging object, logging conf is defined in conf/log4j.properties
+     */
+    protected static Logger log = Logger.getLogger(PrometheusMetricsListener.class);
+    
+    /**
+     * The metrics of the run
+     */
+    private PrometheusMetrics metrics = PrometheusMetrics.getInstance();
+    
+    /**
+     * Do actions before a test case execution.
+     * 
+     * @param result 
+     */
+    @Override
+    public void onTestStart(ITestResult result) { metrics.testStarted(); }
+    
+    /**
+     * Do actions after a test case execution failure.
+     * 
+     * @param result 
+     */
+    @Override
+    public void onTestFailure(ITestResult result) { testFinished(result, "FAIL"); }
+
+    /**
+     * Do actions after a test case execution skipped.
+     * 
+     * @param result 
+     */
+    @Override
+    public void onTestSkipped(ITestResult result) { testFinished(result, "SKIP"); }
+
+    /**
+     * Do actions after a test case execution success (no reported fail
+     * during test case execution).
+     * 
+     * @param result 
+     */
+    @Override
+    public void onTestSuccess(ITestResult result) { testFinished(result, "PASS"); }
+    
+    /**
+     * This method is invoked after the test class is instantiated and before any configuration method is called.
+     */
+    @Override
+    public void onStart(ITestContext context) { log.info("Recording Prometheus metrics for: " + context.getName()); }
+    
+    /**
+     * Record the result of a test.
+     * 
+     * @param result
+     * @param status 
+     */
+    private void testFinished(ITestResult result, String status) {
+        
+        try { metrics.testFinished(result.getTestClass().getName(), status, result.getEndMillis() - result.getStartMillis()); }
+        catch(Exception e) { log.error("Unable to record the test result: " + e); }
+        
+    }
+   
+}
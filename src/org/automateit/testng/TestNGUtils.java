@@ -57,7 +57,7 @@ import org.testng.Reporter;
 import org.automateit.data.DataArchive;
 import org.automateit.data.DataDrivenInput;
 import org.automateit.data.PipeDelimitedAppendDataArchive;
-import org.automateit.data.XLSXDataArchive;
+import org.automateit.data.StreamingXLSXDataArchive;
 import org.automateit.util.CommandList;
 import org.automateit.util.CommonProperties;
 import org.automateit.util.PerformanceCapture;
@@ -100,20 +100,27 @@ public class TestNGUtils {
      */
     private final String PERFORMANCELOGDIV = "performancelogdiv";
     
+    /**
+     * Percentiles that can have a page load time threshold (<code>p50PageLoadTimeThreshold</code>, ...)
+     */
+    private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+    
+    private static final String[] PERCENTILE_NAMES = { "p50", "p90", "p99", "p999" };
+    
     /**
      * Data archive to use.
      */
-    private final DataArchive dataArchive = new XLSXDataArchive();
+    private final DataArchive dataArchive = new StreamingXLSXDataArchive();
     
     /**
-     * CVS data archive object.
+     * CVS data archive object, keeps every page load (the from page is the key).
      */
-    private final DataArchive csvDataArchive = new PipeDelimitedAppendDataArchive();
+    private final PipeDelimitedAppendDataArchive csvDataArchive = new PipeDelimitedAppendDataArchive();
     
     /**
      * Default Constructor
      */
-    public TestNGUtils() { }
+    public TestNGUtils() { csvDataArchive.setAppendOnly(true); }
     
     /**
      * This method adds screenshot and other information to the test report.
@@ -167,7 +174,7 @@ public class TestNGUtils {
         
         savePerformanceToCSVFile(screenshotFile + "_DataArchive.txt");
         
-        try { dataArchive.clearData(); }
+        try { dataArchive.clearData(); csvDataArchive.clearData(); }
         catch(Exception e) { }
         
     }
@@ -254,6 +261,14 @@ public class TestNGUtils {
     	
     	if (capturePageLoadPerformance()) {    		
     		
+            StreamingXLSXDataArchive pageSummaryArchive = new StreamingXLSXDataArchive();
+            
+            StreamingXLSXDataArchive averageTimeOverThresholdArchive = new StreamingXLSXDataArchive();
+            
+            StreamingXLSXDataArchive maxTimeOverThresholdArchive = new StreamingXLSXDataArchive();
+            
+            StreamingXLSXDataArchive percentileTimeOverThresholdArchive = new StreamingXLSXDataArchive();
+            
             try { 
     			
                 String totalTimeImageFile 	= performancePath + "totalTime.png";
@@ -270,19 +285,17 @@ public class TestNGUtils {
 		
                 DefaultPieDataset pageHitDataset = new DefaultPieDataset();
 		  
-                DataArchive pageSummaryArchive = new XLSXDataArchive();
-		
-                DataArchive averageTimeOverThresholdArchive = new XLSXDataArchive();
-
-                DataArchive maxTimeOverThresholdArchive = new XLSXDataArchive();
-		    
                 // Add Header Row
 
-                pageSummaryArchive.addData(new String[] { "Page", "Total Load Time (ms)", "Max Load Time (milli sec)", "Average Load Time (ms)", "Page Hit" });
+                pageSummaryArchive.addData(new String[] { "Page", "Total Load Time (ms)", "Max Load Time (milli sec)", "Average Load Time (ms)", "Page Hit", "p50 (ms)", "p90 (ms)", "p99 (ms)", "p999 (ms)" });
 		
                 averageTimeOverThresholdArchive.addData(new String[] { "Page", "Average Load Time (ms)> " + getAveragePageLoadTimeThreshold() });
 
                 maxTimeOverThresholdArchive.addData(new String[] { "Page", "Max Load Time (ms)> " + getMaxPageLoadTimeThreshold() });
+                
+                percentileTimeOverThresholdArchive.addData(new String[] { "Page", "Percentile", "Load Time (ms)", "Threshold (ms)" });
+                
+                boolean usePercentileThresholds = false;
 		    	
                 // Retrieve data for each pages
 
@@ -309,7 +322,11 @@ public class TestNGUtils {
                         String.valueOf(pageSummary.getTotalPageLoadTime()), 
                         String.valueOf(pageSummary.getMaxPageLoadTime()),
                         String.valueOf(pageSummary.getAveragePageLoadTime()),
-                        String.valueOf(pageSummary.getPageHit()) 
+                        String.valueOf(pageSummary.getPageHit()),
+                        String.valueOf(pageSummary.getPercentilePageLoadTime(50)),
+                        String.valueOf(pageSummary.getPercentilePageLoadTime(90)),
+                        String.valueOf(pageSummary.getPercentilePageLoadTime(99)),
+                        String.valueOf(pageSummary.getPercentilePageLoadTime(99.9))
                     };
 		    
                     pageSummaryArchive.addData(data);
@@ -329,6 +346,19 @@ public class TestNGUtils {
                         maxTimeOverThresholdArchive.addData(data1);
 	    		
                     }
+                    
+                    for (int i = 0; i < PERCENTILES.length; i++) {
+                        
+                        long threshold = getPageLoadTimeThreshold(PERCENTILE_NAMES[i] + "PageLoadTimeThreshold");
+                        
+                        if (threshold <= 0) continue;
+                        
+                        usePercentileThresholds = true;
+                        
+                        if (pageSummary.isPercentileTimeOverThreshold(PERCENTILES[i], threshold)) 
+                            percentileTimeOverThresholdArchive.addData(new String[] { pageSummary.getPageName(), PERCENTILE_NAMES[i], String.valueOf(pageSummary.getPercentilePageLoadTime(PERCENTILES[i])), String.valueOf(threshold) });
+                        
+                    }
 	    			
 	    	
                     pageCount++;
@@ -351,6 +381,10 @@ public class TestNGUtils {
 	    	
                 if (getAveragePageLoadTimeThreshold() > 0) averageTimeOverThresholdArchive.saveData(avgLoadThresholdFile);
                 if (getMaxPageLoadTimeThreshold() > 0) maxTimeOverThresholdArchive.saveData(maxLoadThresholdFile);
+                if (usePercentileThresholds) percentileTimeOverThresholdArchive.saveData(performancePath + "PercentileTimeOverThreshold.xlsx");
+                
+                // Save the histograms so they can be merged with other runs
+                SummaryPerformance.getInstance().saveHistograms(performancePath + "PerformanceHistograms.properties");
 	    	
                 // Generate HTML report
                 Collections.sort(individualPageLoadFile);
@@ -364,6 +398,13 @@ public class TestNGUtils {
                         individualPageLoadFile);
 	    	}
 	        catch(Exception e) { }
+            finally {
+                
+                // close and delete the temporary files of the archives
+                try { pageSummaryArchive.close(); averageTimeOverThresholdArchive.close(); maxTimeOverThresholdArchive.close(); percentileTimeOverThresholdArchive.close(); }
+                catch(Exception e) { }
+                
+            }
     	
         }
         
@@ -455,7 +496,9 @@ public class TestNGUtils {
             Reporter.log("<p>");
             
             PerformanceCaptureBean bean = list.get(i);
-            Reporter.log(bean.getTime() + " - " + bean.getPageName());
+            Reporter.log(bean.getTime() + " - " + bean.getPageName() + ((bean.getBrowserTimingString().length() > 0) ? " (browser: " + bean.getBrowserTimingString() + ")" : ""));
+            
+            logger.debug("Page load spans (ms): " + bean.getSpan());
             
             barChartDataset.addValue(bean.getTime(), "Label", (i+1) + "."+bean.getPageName());            
             
@@ -526,6 +569,19 @@ public class TestNGUtils {
     
     }
     
+    /**     
+     * @param property the name of the threshold property (for example p99PageLoadTimeThreshold)
+     * 
+     * @return page load time threshold (in milli-second) or 0 if not set
+     */
+    private long getPageLoadTimeThreshold(String property) {
+    	
+        String thresholdStr = properties.getProperty(property);
+    	
+    	return (thresholdStr == null) ? 0 : Long.parseLong(thresholdStr.trim());
+    
+    }
+    
     /**     
      * @return max page load time threshold (in milli-second)
      */
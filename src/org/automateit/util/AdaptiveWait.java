@@ -0,0 +1,263 @@
+/**
+ * This file is part of Automate It!'s free and open source web and mobile 
+ * application testing framework.
+ * 
+ * Automate It! is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Automate It! is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Automate It!.  If not, see <http://www.gnu.org/licenses/>.
+ *  
+ **/
+
+package org.automateit.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+/**
+ * This class waits for conditions by polling them, instead of sleeping for a fixed time.
+ * <p>
+ * Each wait is identified by a key (for example the page class name and the condition name) 
+ * and the time the condition took to be satisfied is kept in a latency history for the key.
+ * <ul>
+ * <li>Without history, the condition is polled with an exponential backoff 
+ * (<code>MIN_POLLING_INTERVAL</code> doubling up to <code>MAX_POLLING_INTERVAL</code>).</li>
+ * <li>With history, the backoff is capped so that a poll lands at the start of the typical 
+ * readiness window (3/4 of the median latency), the condition is polled tightly 
+ * (<code>MIN_POLLING_INTERVAL</code>) through the window (up to 5/4 of the 90th percentile latency), 
+ * and then the backoff continues.</li>
+ * </ul>
+ * 
+ * @author mburnside
+ */
+public class AdaptiveWait {
+    
+    /**
+     * A condition to wait for.
+     */
+    public interface Condition { boolean isSatisfied() throws Exception; }
+    
+    /**
+     * Shortest time (ms) between polls
+     */
+    public static final long MIN_POLLING_INTERVAL = 50;
+    
+    /**
+     * Longest time (ms) between polls
+     */
+    public static final long MAX_POLLING_INTERVAL = 1000;
+    
+    /**
+     * Number of latency samples kept for each key
+     */
+    public static final int HISTORY_SIZE = 20;
+    
+    /**
+     * AdaptiveWait instance
+     */
+    private static AdaptiveWait instance = new AdaptiveWait();
+    
+    /**
+     *  logging object
+     */
+    private static Logger logger = Logger.getLogger(AdaptiveWait.class);
+    
+    /**
+     * Latency history by key
+     */
+    private final Map<String, LatencyHistory> histories = new HashMap<String, LatencyHistory>();
+    
+    /**
+     * Default Constructor
+     */
+    public AdaptiveWait() { }
+    
+    /**
+     * Return the instance of this object.
+     * 
+     * @return The instance of this object 
+     */
+    public static AdaptiveWait getInstance() { return instance; }
+    
+    /**
+     * Wait for a condition to be satisfied.
+     * 
+     * @param key identifies the condition (and its latency history)
+     * @param timeout the maximum time (ms) to wait
+     * @param condition
+     * 
+     * @return <code>true</code> if the condition was satisfied, <code>false</code> if the timeout expired
+     * 
+     * @throws Exception 
+     */
+    public boolean until(String key, long timeout, Condition condition) throws Exception {
+        
+        LatencyHistory history = getHistory(key);
+        
+        long windowStart = -1;
+        long windowEnd = -1;
+        
+        if(history.getCount() > 0) {
+            
+            windowStart = (history.getMedian() * 3) / 4;
+            windowEnd = ((history.getPercentile(90) * 5) / 4) + MIN_POLLING_INTERVAL;
+            
+        }
+        
+        long start = System.nanoTime();
+        
+        long backoff = MIN_POLLING_INTERVAL;
+        
+        int polls = 0;
+        
+        while(true) {
+            
+            polls++;
+            
+            if(condition.isSatisfied()) {
+                
+                long elapsed = (System.nanoTime() - start) / 1000000;
+                
+                history.add(elapsed);
+                
+                if(logger.isDebugEnabled()) logger.debug("Condition satisfied: " + key + "|" + elapsed + "ms|" + polls + " polls");
+                
+                return true;
+                
+            }
+            
+            long elapsed = (System.nanoTime() - start) / 1000000;
+            
+            if(elapsed >= timeout) {
+                
+                logger.debug("Condition was not satisfied before the timeout: " + key + "|" + timeout + "ms|" + polls + " polls");
+                
+                return false;
+                
+            }
+            
+            long interval = MIN_POLLING_INTERVAL;
+            
+            if((windowEnd < 0) || (elapsed < windowStart) || (elapsed >= windowEnd)) {
+                
+                // before the window do not poll past its start
+                interval = (elapsed < windowStart) ? Math.max(Math.min(backoff, windowStart - elapsed), MIN_POLLING_INTERVAL) : backoff;
+                
+                backoff = Math.min(backoff * 2, MAX_POLLING_INTERVAL);
+                
+            }
+            
+            Thread.sleep(Math.min(interval, timeout - elapsed));
+            
+        }
+        
+    }
+    
+    /**
+     * Get the latency history for a key.
+     * 
+     * @param key
+     * 
+     * @return 
+     */
+    public synchronized LatencyHistory getHistory(String key) {
+        
+        LatencyHistory history = histories.get(key);
+        
+        if(history == null) histories.put(key, history = new LatencyHistory());
+        
+        return history;
+        
+    }
+    
+    /**
+     * Removes all latency history.
+     */
+    public synchronized void clear() { histories.clear(); }
+    
+    /**
+     * Return the latency history of all keys.
+     * 
+     * @return 
+     */
+    @Override
+    public synchronized String toString() { return "AdaptiveWait" + histories; }
+    
+    /**
+     * The latest latency samples (ms) of a condition.
+     */
+    public static class LatencyHistory {
+        
+        private final long[] samples = new long[HISTORY_SIZE];
+        
+        private int count = 0;
+        
+        private int next = 0;
+        
+        /**
+         * Add a sample, replacing the oldest one when full.
+         * 
+         * @param latency 
+         */
+        public synchronized void add(long latency) {
+            
+            samples[next] = latency;
+            
+            next = (next + 1) % samples.length;
+            
+            if(count < samples.length) count++;
+            
+        }
+        
+        /**
+         * Get the number of samples.
+         * 
+         * @return 
+         */
+        public synchronized int getCount() { return count; }
+        
+        /**
+         * Get the median latency.
+         * 
+         * @return The median or -1 if there are no samples
+         */
+        public long getMedian() { return getPercentile(50); }
+        
+        /**
+         * Get a percentile of the latency (nearest rank).
+         * 
+         * @param percentile
+         * 
+         * @return The percentile or -1 if there are no samples
+         */
+        public synchronized long getPercentile(int percentile) {
+            
+            if(count == 0) return -1;
+            
+            long[] sorted = Arrays.copyOf(samples, count);
+            
+            Arrays.sort(sorted);
+            
+            int rank = (int)Math.ceil((percentile / 100.0) * count);
+            
+            return sorted[Math.min(Math.max(rank, 1), count) - 1];
+            
+        }
+        
+        @Override
+        public synchronized String toString() { return "[count=" + count + ", p50=" + getMedian() + ", p90=" + getPercentile(90) + "]"; }
+        
+    }
+    
+}
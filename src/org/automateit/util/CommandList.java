@@ -19,21 +19,86 @@
 
 package org.automateit.util;
 
-import java.util.LinkedList;
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.apache.log4j.Logger;
 
+import org.automateit.core.ExecutionContext;
+import org.automateit.core.StringCapabilities;
+
 /**
  * This class contains the list of commands that were run by selenium.
+ * <p>
+ * The commands are kept as <code>CommandRecord</code> objects in a fixed capacity ring buffer
+ * (<code>commandListCapacity</code>, default 4096), so long runs do not grow the heap: once the buffer 
+ * is full the oldest commands are dropped. Adding a command does not lock - it takes the next sequence 
+ * number and swaps the record into its slot.
+ * <p>
+ * <code>clear</code> starts a new window (for example per test) without touching the buffer and 
+ * <code>getAllInList</code>/<code>getRecords</code> return the commands of the current window. 
+ * <code>mark</code> and <code>getRecordsSince</code> give other windows.
+ * <p>
+ * When <code>commandListSpillFile</code> is set every command is also written to that file (by a background 
+ * thread, when it is dropped from the buffer or on <code>flush</code>), keeping the full history.
  * 
  * @author mburnside@Automate It!
  */
 public class CommandList {
     
     /**
-     * Queue object for collecting commands
+     * The default number of commands kept
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+    
+    /**
+     * The time (ms) between writes to the spill file
+     */
+    private static final long SPILL_INTERVAL = 1000;
+    
+    /**
+     * The ring buffer
+     */
+    private final AtomicReferenceArray<CommandRecord> records;
+    
+    /**
+     * The capacity of the ring buffer (a power of two)
      */
-    private LinkedList list = new LinkedList();
+    private final int capacity;
+    
+    /**
+     * The sequence number of the next command
+     */
+    private final AtomicLong next = new AtomicLong(0);
+    
+    /**
+     * The sequence number of the first command of the current window
+     */
+    private volatile long windowStart = 0;
+    
+    /**
+     * The commands written to the spill file are the ones before this sequence number
+     */
+    private volatile long spilled = 0;
+    
+    /**
+     * The commands waiting to be written to the spill file (shared by the lists spilling to the same file), 
+     * or <code>null</code> if not spilling
+     */
+    private final ConcurrentLinkedQueue<CommandRecord> spillQueue;
+    
+    /**
+     * The writer of the spill file, or <code>null</code> if not spilling
+     */
+    private final SpillWriter spillWriter;
     
     /**
      *  logging object
@@ -41,57 +106,154 @@ public class CommandList {
     private static Logger log = Logger.getLogger(CommandList.class);
     
     /**
-     * CommandList instance
+     * Default Constructor. Uses the capacity and spill file configured in the properties.
      */
-    private static CommandList instance = new CommandList();
+    public CommandList() { this(getConfiguredCapacity(), CommonProperties.getInstance().get(StringCapabilities.COMMAND_LIST_SPILL_FILE.getCapability())); }
     
     /**
-     * Default Constructor
+     * Constructor
+     * 
+     * @param capacity the number of commands kept (rounded up to a power of two)
+     * @param spillFile the file to write all commands to or <code>null</code>
      */
-    public CommandList() { }
+    public CommandList(int capacity, String spillFile) {
+        
+        int size = 1;
+        
+        while(size < Math.max(1, capacity)) size <<= 1;
+        
+        this.capacity = size;
+        
+        this.records = new AtomicReferenceArray<CommandRecord>(size);
+        
+        if((spillFile == null) || (spillFile.trim().length() == 0)) { this.spillWriter = null; this.spillQueue = null; }
+        else {
+            
+            this.spillWriter = SpillWriter.getSpillWriter(spillFile.trim(), this);
+            
+            this.spillQueue = spillWriter.getQueue();
+            
+        }
+        
+    }
     
     /**
-     * Return the instance of this object.
+     * Return the instance of this object for the current execution context.
      * 
      * @return The instance of this object 
      */
-    public static CommandList getInstance() { return instance; }
+    public static CommandList getInstance() { return ExecutionContext.getCurrent().getCommandList(); }
     
     /**
-     * Add a command to the list.
+     * Add a command to the list. Text of the form "command: arguments" is split into the command and its arguments.
      * 
      * @param s the command that was run 
+     * 
+     * @return The record, <code>finish</code> or <code>setDuration</code> can be used to record the time the command took
      */
-    public void addToList(String s) { list.add(s); }
+    public CommandRecord addToList(String s) { 
+        
+        if(s == null) return addToList("null", new Object[0]);
+        
+        int index = s.indexOf(": ");
+        
+        if(index < 0) return addToList(s, new Object[0]);
+        else return addToList(s.substring(0, index), s.substring(index + 2));
+    
+    }
     
     /**
-     * Removes all commands in the list.
+     * Add a command to the list. The text of the command is not built until it is read.
+     * 
+     * @param command the command that was run
+     * @param arguments the arguments of the command
+     * 
+     * @return The record, <code>finish</code> or <code>setDuration</code> can be used to record the time the command took
      */
-    public void clear() { list.clear(); }
+    public CommandRecord addToList(String command, Object... arguments) {
+        
+        long sequence = next.getAndIncrement();
+        
+        CommandRecord record = new CommandRecord(sequence, command, arguments);
+        
+        CommandRecord dropped = records.getAndSet((int)(sequence & (capacity - 1)), record);
+        
+        if((spillQueue != null) && (dropped != null) && (dropped.getSequence() >= spilled)) spillQueue.add(dropped);
+        
+        return record;
+        
+    }
     
     /**
-     * Get all of the commands in the list.
+     * Start a new window, the commands already recorded are no longer returned by <code>getAllInList</code>.
+     */
+    public void clear() { windowStart = next.get(); }
+    
+    /**
+     * Get the sequence number of the next command, to get the commands recorded from now on with <code>getRecordsSince</code>.
+     * 
+     * @return 
+     */
+    public long mark() { return next.get(); }
+    
+    /**
+     * Get the commands of the current window that are still in the buffer.
+     * 
+     * @return 
+     */
+    public List<CommandRecord> getRecords() { return getRecordsSince(windowStart); }
+    
+    /**
+     * Get the commands recorded from the sequence number on that are still in the buffer.
+     * 
+     * @param mark
+     * 
+     * @return 
+     */
+    public List<CommandRecord> getRecordsSince(long mark) {
+        
+        long end = next.get();
+        
+        long start = Math.max(mark, end - capacity);
+        
+        List<CommandRecord> list = new ArrayList<CommandRecord>((int)Math.max(0, end - start));
+        
+        for(long sequence = start; sequence < end; sequence++) {
+            
+            CommandRecord record = records.get((int)(sequence & (capacity - 1)));
+            
+            // skip slots not written yet or already overwritten by a newer command
+            if((record != null) && (record.getSequence() == sequence)) list.add(record);
+            
+        }
+        
+        return list;
+        
+    }
+    
+    /**
+     * Get all of the commands in the current window.
      * 
      * @return 
      */
     public String[] getAllInList() { 
         
-        Object[] objectList = list.toArray();
+        List<CommandRecord> list = getRecords();
         
-        String[] stringList = new String[objectList.length];
+        String[] stringList = new String[list.size()];
 
-        for (int i = 0; i < objectList.length; i++) stringList[i] = objectList[i].toString();
+        for (int i = 0; i < stringList.length; i++) stringList[i] = list.get(i).toString();
 
         return stringList; 
     
     }
     
     /**
-     * Get the size of the list.
+     * Get the number of commands in the current window.
      * 
      * @return 
      */
-    public int getSize() { return list.size(); }
+    public int getSize() { return (int)Math.min(next.get() - windowStart, capacity); }
     
     /**
      * Indicates if command list contains no commands
@@ -99,5 +261,168 @@ public class CommandList {
      * @return 
      */
     public boolean isEmpty() { return (getSize() == 0); }
+    
+    /**
+     * Get the number of commands kept.
+     * 
+     * @return 
+     */
+    public int getCapacity() { return capacity; }
+    
+    /**
+     * Queue the commands still in the buffer for the spill file, so the file has the full history.
+     */
+    public void flush() {
+        
+        if(spillQueue == null) return;
+        
+        long end = next.get();
+        
+        spillQueue.addAll(getRecordsSince(spilled));
+        
+        spilled = end;
+        
+    }
+    
+    /**
+     * Queue the commands still in the buffer for the spill file and unregister the list from 
+     * the spill writer (which flushes the lists it knows at shutdown), so the list can be garbage collected.
+     */
+    public void close() {
+        
+        if(spillWriter == null) return;
+        
+        flush();
+        
+        spillWriter.lists.remove(this);
+        
+    }
+    
+    /**
+     * Get the capacity configured in the properties (<code>commandListCapacity</code>).
+     * 
+     * @return 
+     */
+    private static int getConfiguredCapacity() {
+        
+        try { return Integer.parseInt(CommonProperties.getInstance().get(StringCapabilities.COMMAND_LIST_CAPACITY.getCapability()).trim()); }
+        catch(Exception e) { return DEFAULT_CAPACITY; }
+        
+    }
+            
+    /**
+     * Writes the commands of the lists spilling to a file, one writer thread per file.
+     */
+    private static class SpillWriter extends Thread {
+        
+        /**
+         * The writers per file
+         */
+        private static final Map<String, SpillWriter> writers = new HashMap<String, SpillWriter>();
+        
+        private final String spillFile;
+        
+        private final ConcurrentLinkedQueue<CommandRecord> queue = new ConcurrentLinkedQueue<CommandRecord>();
+        
+        private final List<CommandList> lists = new CopyOnWriteArrayList<CommandList>();
+        
+        /**
+         * Get (start if needed) the writer of the file and register the list with it.
+         * 
+         * @param spillFile
+         * @param list
+         * 
+         * @return 
+         */
+        static synchronized SpillWriter getSpillWriter(String spillFile, CommandList list) {
+            
+            SpillWriter writer = writers.get(spillFile);
+            
+            if(writer == null) {
+                
+                writer = new SpillWriter(spillFile);
+                
+                writers.put(spillFile, writer);
+                
+                writer.start();
+                
+                final SpillWriter shutdownWriter = writer;
+                
+                // write what is still in the buffers when the run ends
+                Runtime.getRuntime().addShutdownHook(new Thread("CommandList-spill-shutdown") {
+                    
+                    @Override
+                    public void run() { 
+                        
+                        for(CommandList commandList : shutdownWriter.lists) commandList.flush();
+                        
+                        shutdownWriter.interrupt();
+                        
+                        try { shutdownWriter.join(SPILL_INTERVAL * 5); }
+                        catch(Exception e) { }
+                    
+                    }
+                    
+                });
+                
+            }
+            
+            writer.lists.add(list);
+            
+            return writer;
             
-}
\ No newline at end of file
+        }
+        
+        private SpillWriter(String spillFile) { 
+            
+            super("CommandList-spill");
+            
+            this.spillFile = spillFile; 
+            
+            setDaemon(true);
+        
+        }
+        
+        ConcurrentLinkedQueue<CommandRecord> getQueue() { return queue; }
+        
+        @Override
+        public void run() {
+            
+            try {
+                
+                BufferedWriter out = new BufferedWriter(new FileWriter(spillFile, true));
+                
+                try {
+                    
+                    while(!isInterrupted()) {
+                        
+                        write(out);
+                        
+                        try { Thread.sleep(SPILL_INTERVAL); }
+                        catch(InterruptedException e) { break; }
+                        
+                    }
+                    
+                    write(out);
+                    
+                }
+                finally { out.close(); }
+                
+            }
+            catch(Exception e) { log.error("Unable to write the command list spill file: " + spillFile + "|" + e); }
+            
+        }
+        
+        private void write(BufferedWriter out) throws Exception {
+            
+            CommandRecord record = null;
+            
+            while((record = queue.poll()) != null) { out.write(record.toLogString()); out.newLine(); }
+            
+            out.flush();
+            
+        }
+        
+    }
+    
+}
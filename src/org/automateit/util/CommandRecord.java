@@ -0,0 +1,205 @@
+/**
+ * This file is part of Automate It!'s free and open source web and mobile 
+ * application testing framework.
+ * 
+ * Automate It! is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Automate It! is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Automate It!.  If not, see <http://www.gnu.org/licenses/>.
+ *  
+ **/
+
+package org.automateit.util;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.automateit.event.PrometheusMetrics;
+
+/**
+ * This class is a single command run by selenium/appium, as kept by <code>CommandList</code>.
+ * <p>
+ * The text of the command is only built when it is read (reports, spill file), not when the 
+ * command is recorded.
+ * 
+ * @author mburnside@Automate It!
+ */
+public class CommandRecord {
+    
+    /**
+     * The separator used between the arguments of a command
+     */
+    public static final String ARGUMENT_SEPARATOR = "|";
+    
+    /**
+     * The sequence number of the record in its command list
+     */
+    private final long sequence;
+    
+    /**
+     * The time the command was recorded (ms since epoch)
+     */
+    private final long timestamp;
+    
+    /**
+     * The name of the thread that ran the command
+     */
+    private final String thread;
+    
+    /**
+     * The command (for example "click")
+     */
+    private final String command;
+    
+    /**
+     * The arguments of the command
+     */
+    private final Object[] arguments;
+    
+    /**
+     * The time the command took (ms) or -1 if not known
+     */
+    private volatile long duration = -1;
+    
+    /**
+     * Constructor
+     * 
+     * @param sequence
+     * @param command
+     * @param arguments 
+     */
+    public CommandRecord(long sequence, String command, Object... arguments) {
+        
+        this.sequence = sequence;
+        
+        this.timestamp = System.currentTimeMillis();
+        
+        this.thread = Thread.currentThread().getName();
+        
+        this.command = command;
+        
+        this.arguments = arguments;
+        
+    }
+    
+    /**
+     * Get the sequence number of the record in its command list.
+     * 
+     * @return 
+     */
+    public long getSequence() { return sequence; }
+    
+    /**
+     * Get the time the command was recorded (ms since epoch).
+     * 
+     * @return 
+     */
+    public long getTimestamp() { return timestamp; }
+    
+    /**
+     * Get the name of the thread that ran the command.
+     * 
+     * @return 
+     */
+    public String getThread() { return thread; }
+    
+    /**
+     * Get the command.
+     * 
+     * @return 
+     */
+    public String getCommand() { return command; }
+    
+    /**
+     * Get the arguments of the command.
+     * 
+     * @return 
+     */
+    public Object[] getArguments() { return arguments; }
+    
+    /**
+     * Get the time the command took (ms) or -1 if not known.
+     * 
+     * @return 
+     */
+    public long getDuration() { return duration; }
+    
+    /**
+     * Set the time the command took (ms). The metrics only get the command 
+     * name, the full text is kept for the command log.
+     * 
+     * @param duration 
+     */
+    public void setDuration(long duration) { 
+        
+        this.duration = duration; 
+        
+        PrometheusMetrics.getInstance().observeCommand(getCommandName(), duration);
+        
+    }
+    
+    /**
+     * Get the name of the command, the text up to the first ':', '|' or space, 
+     * without the values the callers append to it (text, locators, etc.).
+     * 
+     * @return 
+     */
+    public String getCommandName() {
+        
+        if(command == null) return "";
+        
+        for(int i = 0; i < command.length(); i++) {
+            
+            char c = command.charAt(i);
+            
+            if(c == ':' || c == '|' || c == ' ') return command.substring(0, i);
+            
+        }
+        
+        return command;
+        
+    }
+    
+    /**
+     * Set the time the command took from the time it was recorded.
+     */
+    public void finish() { setDuration(System.currentTimeMillis() - timestamp); }
+    
+    /**
+     * Return the command and its arguments as it is shown in the reports.
+     * 
+     * @return 
+     */
+    @Override
+    public String toString() {
+        
+        StringBuilder text = new StringBuilder(command);
+        
+        for(int i = 0; i < arguments.length; i++) text.append((i == 0) ? ": " : ARGUMENT_SEPARATOR).append(arguments[i]);
+        
+        if(duration >= 0) text.append(" (").append(duration).append(" ms)");
+        
+        return text.toString();
+        
+    }
+    
+    /**
+     * Return the record with its timestamp, sequence number and thread (as written to the spill file).
+     * 
+     * @return 
+     */
+    public String toLogString() { 
+        
+        return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(new Date(timestamp)) + " #" + sequence + " [" + thread + "] " + toString(); 
+    
+    }
+    
+}
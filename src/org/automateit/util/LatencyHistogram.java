@@ -0,0 +1,290 @@
+/**
+ * This file is part of Automate It!'s free and open source web and mobile 
+ * application testing framework.
+ * 
+ * Automate It! is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Automate It! is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Automate It!.  If not, see <http://www.gnu.org/licenses/>.
+ *  
+ **/
+
+package org.automateit.util;
+
+/**
+ * This class is a constant memory latency histogram (ms) with log-linear buckets.
+ * <p>
+ * Values below 64 ms are counted exactly. Above that each power of two range is split in 32 buckets,
+ * so a percentile is within about 3% of the recorded value. Count, total, min and max are exact.
+ * Histograms can be merged (across threads or runs) and saved as text with <code>encode</code>/<code>decode</code>.
+ * 
+ * @author mburnside
+ */
+public class LatencyHistogram {
+    
+    /**
+     * The number of sub-buckets per power of two (and values counted exactly below twice this)
+     */
+    private static final int SUB_BUCKETS = 32;
+    
+    /**
+     * Bits of the sub-bucket count
+     */
+    private static final int SUB_BUCKET_BITS = 5;
+    
+    /**
+     * The number of buckets (values up to Long.MAX_VALUE)
+     */
+    private static final int BUCKETS = (2 * SUB_BUCKETS) + ((63 - SUB_BUCKET_BITS) * SUB_BUCKETS);
+    
+    /**
+     * The count of each bucket
+     */
+    private final long[] counts = new long[BUCKETS];
+    
+    private long count = 0;
+    
+    private long total = 0;
+    
+    private long min = Long.MAX_VALUE;
+    
+    private long max = 0;
+    
+    /**
+     * Default Constructor
+     */
+    public LatencyHistogram() { }
+    
+    /**
+     * Record a value (ms). Negative values are recorded as 0.
+     * 
+     * @param value 
+     */
+    public synchronized void record(long value) {
+        
+        if(value < 0) value = 0;
+        
+        counts[getBucket(value)]++;
+        
+        count++;
+        
+        total += value;
+        
+        min = Math.min(min, value);
+        
+        max = Math.max(max, value);
+        
+    }
+    
+    /**
+     * Add the values of another histogram to this one.
+     * 
+     * @param other 
+     */
+    public void merge(LatencyHistogram other) {
+        
+        if((other == null) || (other == this)) return;
+        
+        long[] otherCounts;
+        long otherCount, otherTotal, otherMin, otherMax;
+        
+        synchronized(other) {
+            
+            otherCounts = other.counts.clone();
+            otherCount = other.count;
+            otherTotal = other.total;
+            otherMin = other.min;
+            otherMax = other.max;
+            
+        }
+        
+        synchronized(this) {
+            
+            for(int i = 0; i < BUCKETS; i++) counts[i] += otherCounts[i];
+            
+            count += otherCount;
+            
+            total += otherTotal;
+            
+            min = Math.min(min, otherMin);
+            
+            max = Math.max(max, otherMax);
+            
+        }
+        
+    }
+    
+    /**
+     * Get the number of values recorded.
+     * 
+     * @return 
+     */
+    public synchronized long getCount() { return count; }
+    
+    /**
+     * Get the total of the values recorded.
+     * 
+     * @return 
+     */
+    public synchronized long getTotal() { return total; }
+    
+    /**
+     * Get the average of the values recorded.
+     * 
+     * @return The average or 0 when empty
+     */
+    public synchronized long getAverage() { return (count == 0) ? 0 : (total / count); }
+    
+    /**
+     * Get the smallest value recorded.
+     * 
+     * @return The value or 0 when empty
+     */
+    public synchronized long getMin() { return (count == 0) ? 0 : min; }
+    
+    /**
+     * Get the largest value recorded.
+     * 
+     * @return 
+     */
+    public synchronized long getMax() { return max; }
+    
+    /**
+     * Get the value at a percentile (for example 99.9), the highest value of its bucket (at most the max value).
+     * 
+     * @param percentile 0 to 100
+     * 
+     * @return The value or 0 when empty
+     */
+    public synchronized long getPercentile(double percentile) {
+        
+        if(count == 0) return 0;
+        
+        long rank = (long)Math.ceil((Math.min(100, Math.max(0, percentile)) / 100.0) * count);
+        
+        if(rank < 1) rank = 1;
+        
+        long seen = 0;
+        
+        for(int i = 0; i < BUCKETS; i++) {
+            
+            seen += counts[i];
+            
+            if(seen >= rank) return Math.max(getMin(), Math.min(max, getBucketHighestValue(i)));
+            
+        }
+        
+        return max;
+        
+    }
+    
+    /**
+     * Save the histogram as text: <code>count,total,min,max</code> then <code>bucket:count</code> for each bucket used.
+     * 
+     * @return 
+     */
+    public synchronized String encode() {
+        
+        StringBuilder text = new StringBuilder().append(count).append(',').append(total).append(',').append(getMin()).append(',').append(max);
+        
+        for(int i = 0; i < BUCKETS; i++) if(counts[i] != 0) text.append(',').append(i).append(':').append(counts[i]);
+        
+        return text.toString();
+        
+    }
+    
+    /**
+     * Load a histogram saved with <code>encode</code>.
+     * 
+     * @param text
+     * 
+     * @return
+     * 
+     * @throws Exception 
+     */
+    public static LatencyHistogram decode(String text) throws Exception {
+        
+        try {
+            
+            LatencyHistogram histogram = new LatencyHistogram();
+            
+            String[] fields = text.trim().split(",");
+            
+            histogram.count = Long.parseLong(fields[0]);
+            histogram.total = Long.parseLong(fields[1]);
+            histogram.min = (histogram.count == 0) ? Long.MAX_VALUE : Long.parseLong(fields[2]);
+            histogram.max = Long.parseLong(fields[3]);
+            
+            for(int i = 4; i < fields.length; i++) {
+                
+                int index = fields[i].indexOf(':');
+                
+                histogram.counts[Integer.parseInt(fields[i].substring(0, index))] = Long.parseLong(fields[i].substring(index + 1));
+                
+            }
+            
+            return histogram;
+            
+        }
+        catch(Exception e) { throw new Exception("Unable to decode latency histogram: " + text, e); }
+        
+    }
+    
+    /**
+     * Get the bucket of a value.
+     * 
+     * @param value
+     * 
+     * @return 
+     */
+    private static int getBucket(long value) {
+        
+        if(value < (2 * SUB_BUCKETS)) return (int)value;
+        
+        // shift so that the value keeps SUB_BUCKET_BITS + 1 significant bits
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        
+        return (2 * SUB_BUCKETS) + ((shift - 1) * SUB_BUCKETS) + (int)((value >> shift) - SUB_BUCKETS);
+        
+    }
+    
+    /**
+     * Get the highest value of a bucket.
+     * 
+     * @param bucket
+     * 
+     * @return 
+     */
+    private static long getBucketHighestValue(int bucket) {
+        
+        if(bucket < (2 * SUB_BUCKETS)) return bucket;
+        
+        int shift = ((bucket - (2 * SUB_BUCKETS)) / SUB_BUCKETS) + 1;
+        
+        long mantissa = ((bucket - (2 * SUB_BUCKETS)) % SUB_BUCKETS) + SUB_BUCKETS;
+        
+        return ((mantissa + 1) << shift) - 1;
+        
+    }
+    
+    /**
+     * Return a summary of the histogram.
+     * 
+     * @return 
+     */
+    @Override
+    public String toString() { 
+        
+        return "count=" + getCount() + ", avg=" + getAverage() + ", min=" + getMin() + ", p50=" + getPercentile(50) + ", p90=" + getPercentile(90) + ", p99=" + getPercentile(99) + ", p999=" + getPercentile(99.9) + ", max=" + getMax(); 
+    
+    }
+    
+}
@@ -18,19 +18,60 @@
 
 package org.automateit.util;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.log4j.Logger;
 
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+import org.automateit.core.ExecutionContext;
+
 /**
  * This class keeps track of page loading performance.
+ * <p>
+ * Each thread has its own page load in progress, so overlapping start/stop calls from different 
+ * threads do not overwrite each other. Parts of a page load are timed as nested spans with 
+ * <code>startSpan</code>/<code>stopSpan</code> (for example navigation, then the ajax wait, then 
+ * the DOM settle wait) and sleep time is kept apart from the active time.
  * 
  * @author mburnside
  */
 public class PerformanceCapture {
     
-    private PerformanceCaptureBean bean = null;
+    /**
+     * Gets the browser Navigation Timing (relative to the navigation start) and Largest Contentful Paint
+     * times (ms), and the time origin of the document to tell a new navigation from an in-page update.
+     */
+    public static final String BROWSER_TIMING_SCRIPT = 
+        "var callback = arguments[arguments.length - 1]; var result = {}; " +
+        "function positive(v) { return (v > 0) ? v : null; } " +
+        "try { " +
+        "  var nav = performance.getEntriesByType ? performance.getEntriesByType('navigation')[0] : null; " +
+        "  if (nav) { result.ttfb = positive(nav.responseStart); result.domContentLoaded = positive(nav.domContentLoadedEventEnd); result.load = positive(nav.loadEventEnd); } " +
+        "  else if (performance.timing) { var t = performance.timing; var s = t.navigationStart; " +
+        "    result.ttfb = positive(t.responseStart - s); result.domContentLoaded = positive(t.domContentLoadedEventEnd) && positive(t.domContentLoadedEventEnd - s); result.load = positive(t.loadEventEnd) && positive(t.loadEventEnd - s); } " +
+        "  result.origin = performance.timeOrigin || (performance.timing && performance.timing.navigationStart); " +
+        "} catch(e) { } " +
+        "var done = false; function finish() { if (!done) { done = true; callback(result); } } " +
+        "try { " +
+        "  var observer = new PerformanceObserver(function(list) { var entries = list.getEntries(); if (entries.length) result.lcp = entries[entries.length - 1].startTime; finish(); }); " +
+        "  observer.observe({ type: 'largest-contentful-paint', buffered: true }); " +
+        "  setTimeout(function() { try { observer.disconnect(); } catch(e) { } finish(); }, 50); " +
+        "} catch(e) { finish(); }";
+    
+    /**
+     * The page load in progress of each thread
+     */
+    private final ThreadLocal<PerformanceCaptureBean> bean = new ThreadLocal<PerformanceCaptureBean>();
+    
+    /**
+     * The innermost open span of each thread
+     */
+    private final ThreadLocal<PerformanceSpan> span = new ThreadLocal<PerformanceSpan>();
     
     /**
      * Queue object for collecting commands
@@ -38,14 +79,14 @@ public class PerformanceCapture {
     private List<PerformanceCaptureBean> list = new LinkedList<PerformanceCaptureBean>();
     
     /**
-     *  logging object
+     * The time origin of the last document browser timing was taken from
      */
-    private static Logger logger = Logger.getLogger(PerformanceCapture.class);
+    private volatile Object lastTimeOrigin = null;
     
     /**
-     * PerformanceCapture instance
+     *  logging object
      */
-    private static PerformanceCapture instance = new PerformanceCapture();
+    private static Logger logger = Logger.getLogger(PerformanceCapture.class);
     
     /**
      * Default Constructor
@@ -53,28 +94,43 @@ public class PerformanceCapture {
     public PerformanceCapture() { }
     
     /**
-     * Return the instance of this object.
+     * Return the instance of this object for the current execution context.
      * 
      * @return The instance of this object 
      */
-    public static PerformanceCapture getInstance() { return instance; }
+    public static PerformanceCapture getInstance() { return ExecutionContext.getCurrent().getPerformanceCapture(); }
     
     /**
      * Stop the timer and mark the end time of the page load.
      * 
      * @param pageName the name of the page that just loaded 
      */
-    public void stop(String pageName) { 
+    public void stop(String pageName) { stop(pageName, null); }
+    
+    /**
+     * Stop the timer and mark the end time of the page load. The browser timing data of the page
+     * is added when the page was navigated to since the last page load.
+     * 
+     * @param pageName the name of the page that just loaded 
+     * @param driver the web driver to get the browser timing data from or <code>null</code>
+     */
+    public void stop(String pageName, WebDriver driver) { 
+        
+        PerformanceCaptureBean current = bean.get();
         
-        if(bean == null) return;
+        if(current == null) return;
         
         logger.debug("Marking the end time for page loading: " + pageName);
         
-        this.bean.markEndTime(pageName);
+        current.markEndTime(pageName);
         
-        list.add(this.bean);
+        bean.remove();
         
-        this.bean = null;
+        span.remove();
+        
+        if(driver instanceof JavascriptExecutor) addBrowserTiming(current, (JavascriptExecutor)driver);
+        
+        synchronized(this) { list.add(current); }
         
     }
     
@@ -85,32 +141,83 @@ public class PerformanceCapture {
      */
     public void start(String fromPageName) {
         
-        this.bean = new PerformanceCaptureBean();
+        PerformanceCaptureBean current = new PerformanceCaptureBean();
+        
+        current.markStartTime(fromPageName);
+        
+        bean.set(current);
+        
+        span.set(current.getSpan());
+        
+    }
+    
+    /**
+     * Start a span nested in the innermost open span of the page load in progress.
+     * 
+     * @param name
+     * 
+     * @return The span or <code>null</code> if no page load is in progress
+     */
+    public PerformanceSpan startSpan(String name) {
+        
+        PerformanceSpan parent = span.get();
+        
+        if(parent == null) return null;
+        
+        PerformanceSpan child = new PerformanceSpan(name, parent);
+        
+        span.set(child);
+        
+        return child;
+        
+    }
+    
+    /**
+     * Stop a span started with <code>startSpan</code>.
+     * 
+     * @param child the span, may be <code>null</code>
+     */
+    public void stopSpan(PerformanceSpan child) {
+        
+        if(child == null) return;
         
-        this.bean.markStartTime(fromPageName);
+        child.stop();
+        
+        if(span.get() == child) span.set(child.getParent());
         
     }
     
-    public void addSleepTime(long millis) { if(this.bean!=null) this.bean.addSleepTime(millis); } 
+    /**
+     * Add sleep (hard-coded delay) time to the innermost open span of the page load in progress.
+     * 
+     * @param millis 
+     */
+    public void addSleepTime(long millis) { 
+        
+        PerformanceSpan current = span.get();
+        
+        if(current != null) current.addSleepTime(millis * 1000000); 
+    
+    } 
     
     /**
      * Removes all commands in the list.
      */
-    public void clear() { list.clear(); }
+    public synchronized void clear() { list.clear(); }
     
     /**
      * Get all of the commands in the list.
      * 
      * @return 
      */
-    public List<PerformanceCaptureBean> getAllInList() { return this.list; }
+    public synchronized List<PerformanceCaptureBean> getAllInList() { return new ArrayList<PerformanceCaptureBean>(this.list); }
     
     /**
      * Get the size of the list.
      * 
      * @return 
      */
-    public int getSize() { return list.size(); }
+    public synchronized int getSize() { return list.size(); }
     
     /**
      * Indicates if command list contains no commands
@@ -118,5 +225,31 @@ public class PerformanceCapture {
      * @return 
      */
     public boolean isEmpty() { return (getSize() == 0); }
+    
+    /**
+     * Add the browser timing data to the page load, if the document is new.
+     * 
+     * @param current
+     * @param driver 
+     */
+    private void addBrowserTiming(PerformanceCaptureBean current, JavascriptExecutor driver) {
+        
+        try {
+            
+            Map<?, ?> timing = (Map<?, ?>)driver.executeAsyncScript(BROWSER_TIMING_SCRIPT);
+            
+            Object timeOrigin = (timing == null) ? null : timing.get("origin");
+            
+            // same document: the page was updated in place, its navigation timing belongs to an earlier page load
+            if((timeOrigin == null) || timeOrigin.equals(lastTimeOrigin)) return;
+            
+            lastTimeOrigin = timeOrigin;
+            
+            current.setBrowserTiming(timing);
+            
+        }
+        catch(Exception e) { logger.debug("Unable to get the browser timing data: " + e); }
+        
+    }
             
-}
\ No newline at end of file
+}
@@ -18,40 +18,54 @@
 
 package org.automateit.util;
 
-import java.util.Date;
+import java.util.Map;
 
 /**
  * This class is a data transfer object that has details of web page load
  * performance.
+ * <p>
+ * The page load is timed with <code>System.nanoTime</code> as a root <code>PerformanceSpan</code>
+ * with nested spans for its parts. Times from the browser's own Navigation Timing and 
+ * Largest Contentful Paint data are added when the page was navigated to (-1 if not known).
  * 
  * @author mburnside
  */
 public class PerformanceCaptureBean  {
 
     /**
-     * Page load start time
+     * The page load (root span)
      */
-    private long startTime = 0;
+    private PerformanceSpan span = null;
     
     /**
-     * Page load end time
+     * The name of the page that was loaded
      */
-    private long endTime = 0;
+    private String pageName = null;
     
     /**
-     * Amount of time (milli-sec) hard-coded delay
+     * The name of the page that was loaded from
      */
-    private long sleepTime = 0;
+    private String fromPageName = null;
     
     /**
-     * The name of the page that was loaded
+     * Browser time to first byte (ms)
      */
-    private String pageName = null;
+    private long timeToFirstByte = -1;
     
     /**
-     * The name of the page that was loaded from
+     * Browser DOMContentLoaded time (ms)
      */
-    private String fromPageName = null;
+    private long domContentLoadedTime = -1;
+    
+    /**
+     * Browser load event time (ms)
+     */
+    private long loadEventTime = -1;
+    
+    /**
+     * Browser largest contentful paint time (ms)
+     */
+    private long largestContentfulPaintTime = -1;
     
     /**
      * Default Constructor
@@ -65,7 +79,7 @@ public class PerformanceCaptureBean  {
      */
     public void markStartTime(String fromPageName) { 
     	
-    	this.startTime = getCurrentTime();
+    	this.span = new PerformanceSpan("pageLoad", null);
     	this.fromPageName = fromPageName;
     }
     
@@ -76,24 +90,31 @@ public class PerformanceCaptureBean  {
      */
     public void markEndTime(String pageName) { 
         
-        this.endTime = getCurrentTime(); 
+        if(span != null) span.stop(); 
         this.pageName = pageName;
     
     }
     
     /**
-     * Get the current time in <code>long</code> format.
+     * Get the page load span.
      * 
-     * @return the current time 
+     * @return 
      */
-    private long getCurrentTime() { return (new Date()).getTime(); }
+    public PerformanceSpan getSpan() { return this.span; }
     
     /**
-     * Get the total time for page load.
+     * Get the total time for page load (ms).
      * 
      * @return 
      */
-    public long getTime() { return endTime - startTime; }
+    public long getTime() { return (span == null) ? 0 : span.getDuration() / 1000000; }
+    
+    /**
+     * Get the time for page load without the hard-coded delays (ms).
+     * 
+     * @return 
+     */
+    public long getActiveTime() { return (span == null) ? 0 : span.getActiveTime() / 1000000; }
     
     /**
      * Get the page name (or message).
@@ -112,10 +133,10 @@ public class PerformanceCaptureBean  {
      * @param millis (in milli-sec) that page was put to sleep
      */
     public void addSleepTime(long millis) {
-    	this.sleepTime += millis;    	
+    	if(span != null) span.addSleepTime(millis * 1000000);
     }
     
-    public long getSleepTime() { return this.sleepTime; }
+    public long getSleepTime() { return (span == null) ? 0 : span.getSleepTime() / 1000000; }
     
     public String getSleepTimeString() {
     	    	
@@ -126,4 +147,72 @@ public class PerformanceCaptureBean  {
     	return s;
     }
     
+    /**
+     * Set the browser timing data (ms): <code>ttfb</code>, <code>domContentLoaded</code>, <code>load</code> and <code>lcp</code>.
+     * 
+     * @param timing 
+     */
+    public void setBrowserTiming(Map<?, ?> timing) {
+        
+        timeToFirstByte = getTiming(timing, "ttfb");
+        domContentLoadedTime = getTiming(timing, "domContentLoaded");
+        loadEventTime = getTiming(timing, "load");
+        largestContentfulPaintTime = getTiming(timing, "lcp");
+        
+    }
+    
+    /**
+     * @return Browser time to first byte (ms) or -1 if not known
+     */
+    public long getTimeToFirstByte() { return timeToFirstByte; }
+    
+    /**
+     * @return Browser DOMContentLoaded time (ms) or -1 if not known
+     */
+    public long getDOMContentLoadedTime() { return domContentLoadedTime; }
+    
+    /**
+     * @return Browser load event time (ms) or -1 if not known
+     */
+    public long getLoadEventTime() { return loadEventTime; }
+    
+    /**
+     * @return Browser largest contentful paint time (ms) or -1 if not known
+     */
+    public long getLargestContentfulPaintTime() { return largestContentfulPaintTime; }
+    
+    /**
+     * Get the browser timing data as text, empty if not known.
+     * 
+     * @return 
+     */
+    public String getBrowserTimingString() {
+        
+        StringBuilder s = new StringBuilder();
+        
+        if(timeToFirstByte >= 0) s.append(" ttfb ").append(timeToFirstByte);
+        if(domContentLoadedTime >= 0) s.append(" dcl ").append(domContentLoadedTime);
+        if(loadEventTime >= 0) s.append(" load ").append(loadEventTime);
+        if(largestContentfulPaintTime >= 0) s.append(" lcp ").append(largestContentfulPaintTime);
+        
+        return s.toString().trim();
+        
+    }
+    
+    /**
+     * Get a timing value (ms).
+     * 
+     * @param timing
+     * @param key
+     * 
+     * @return The value or -1 if not set
+     */
+    private long getTiming(Map<?, ?> timing, String key) {
+        
+        Object value = (timing == null) ? null : timing.get(key);
+        
+        return (value instanceof Number) ? Math.round(((Number)value).doubleValue()) : -1;
+        
+    }
+    
 }
@@ -0,0 +1,213 @@
+/**
+ * This file is part of Automate It!'s free and open source web and mobile 
+ * application testing framework.
+ * 
+ * Automate It! is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Automate It! is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Automate It!.  If not, see <http://www.gnu.org/licenses/>.
+ *  
+ **/
+
+package org.automateit.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class is a timed part of a page load (for example navigation, waiting for ajax, waiting 
+ * for the DOM to settle). Spans nest, the page load itself is the root span.
+ * <p>
+ * The time is measured with <code>System.nanoTime</code>, so it is not affected by changes to the 
+ * wall clock. Sleep (hard-coded delay) time is kept apart from the active time.
+ * 
+ * @author mburnside
+ */
+public class PerformanceSpan {
+    
+    /**
+     * The name of the span
+     */
+    private final String name;
+    
+    /**
+     * The enclosing span, or <code>null</code> for the root span
+     */
+    private final PerformanceSpan parent;
+    
+    /**
+     * The nested spans
+     */
+    private final List<PerformanceSpan> children = new ArrayList<PerformanceSpan>();
+    
+    /**
+     * Start time (ns, <code>System.nanoTime</code>)
+     */
+    private final long startTime;
+    
+    /**
+     * End time (ns) or 0 while the span is open
+     */
+    private long endTime = 0;
+    
+    /**
+     * The time slept (ns) in this span and its nested spans
+     */
+    private long sleepTime = 0;
+    
+    /**
+     * Constructor. Starts the span.
+     * 
+     * @param name
+     * @param parent 
+     */
+    public PerformanceSpan(String name, PerformanceSpan parent) {
+        
+        this.name = name;
+        
+        this.parent = parent;
+        
+        this.startTime = System.nanoTime();
+        
+        if(parent != null) parent.addChild(this);
+        
+    }
+    
+    /**
+     * Stop the span (and any nested span still open).
+     * <p>
+     * No lock is held while the nested spans are stopped, and <code>addSleepTime</code> 
+     * releases the lock of a span before taking the lock of its parent, so a span only 
+     * ever holds its own lock (spans can be used from several threads without deadlock).
+     */
+    public void stop() { 
+        
+        if(isStopped()) return;
+        
+        for(PerformanceSpan child : getChildren()) child.stop();
+        
+        synchronized(this) { if(endTime == 0) endTime = System.nanoTime(); }
+    
+    }
+    
+    /**
+     * Add sleep time to this span and the enclosing spans.
+     * 
+     * @param nanos 
+     */
+    public void addSleepTime(long nanos) { 
+        
+        synchronized(this) { sleepTime += nanos; }
+        
+        if(parent != null) parent.addSleepTime(nanos);
+    
+    }
+    
+    /**
+     * Get the name of the span.
+     * 
+     * @return 
+     */
+    public String getName() { return name; }
+    
+    /**
+     * Get the enclosing span.
+     * 
+     * @return The enclosing span or <code>null</code> for the root span
+     */
+    public PerformanceSpan getParent() { return parent; }
+    
+    /**
+     * Get the nested spans.
+     * 
+     * @return 
+     */
+    public synchronized List<PerformanceSpan> getChildren() { return new ArrayList<PerformanceSpan>(children); }
+    
+    /**
+     * Check if the span is stopped.
+     * 
+     * @return 
+     */
+    public synchronized boolean isStopped() { return endTime != 0; }
+    
+    /**
+     * Get the duration of the span (ns), up to now while the span is open.
+     * 
+     * @return 
+     */
+    public synchronized long getDuration() { return ((endTime == 0) ? System.nanoTime() : endTime) - startTime; }
+    
+    /**
+     * Get the time slept in the span (ns).
+     * 
+     * @return 
+     */
+    public synchronized long getSleepTime() { return sleepTime; }
+    
+    /**
+     * Get the duration without the time slept (ns).
+     * 
+     * @return 
+     */
+    public synchronized long getActiveTime() { return Math.max(0, getDuration() - sleepTime); }
+    
+    /**
+     * Get the time from the start of the root span to the start of this span (ns).
+     * 
+     * @return 
+     */
+    public long getOffset() {
+        
+        PerformanceSpan root = this;
+        
+        while(root.getParent() != null) root = root.getParent();
+        
+        return startTime - root.startTime;
+        
+    }
+    
+    /**
+     * Add a nested span.
+     * 
+     * @param child 
+     */
+    private synchronized void addChild(PerformanceSpan child) { children.add(child); }
+    
+    /**
+     * Return the span and its nested spans, times in ms.
+     * 
+     * @return 
+     */
+    @Override
+    public String toString() {
+        
+        StringBuilder text = new StringBuilder(name).append("=").append(getDuration() / 1000000);
+        
+        if(getSleepTime() > 0) text.append("(sleep ").append(getSleepTime() / 1000000).append(")");
+        
+        List<PerformanceSpan> nested = getChildren();
+        
+        if(!nested.isEmpty()) {
+            
+            text.append(" [");
+            
+            for(int i = 0; i < nested.size(); i++) text.append((i == 0) ? "" : ", ").append(nested.get(i));
+            
+            text.append("]");
+            
+        }
+        
+        return text.toString();
+        
+    }
+    
+}
@@ -0,0 +1,566 @@
+/**
+ * This file is part of Automate It!'s free and open source web and mobile 
+ * application testing framework.
+ * 
+ * Automate It! is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Automate It! is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Automate It!.  If not, see <http://www.gnu.org/licenses/>.
+ *  
+ **/
+
+package org.automateit.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+import java.util.Base64;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriver;
+
+import org.automateit.core.CommonWebDriver;
+import org.automateit.core.StringCapabilities;
+
+import org.automateit.event.PrometheusMetrics;
+
+import org.automateit.reports.ReportsManager;
+
+/**
+ * This class takes screenshots for the test results report.
+ * 
+ * The screenshot is taken on the test thread (the web driver is not thread safe), 
+ * but the screenshot data is put on a bounded queue and a background writer thread
+ * decodes and saves the image file. The test thread does not wait for PNG decoding
+ * or disk I/O. If the queue is full a sampled (element lookup) screenshot is dropped 
+ * instead of blocking; an explicit or failure screenshot waits for room in the queue 
+ * for up to <code>DEFAULT_OFFER_TIMEOUT</code> and is then written on the test thread, 
+ * so it is never lost.
+ * <p>
+ * Screenshots taken on element lookup are sampled by the configured <code>ScreenshotPolicy</code>:
+ * <pre>
+ * screenshotPolicy=off|onFailure|everyNth|throttled|always
+ * screenshotInterval=10         (everyNth: take a screenshot every Nth lookup)
+ * screenshotThrottleTime=5000   (throttled: at most one screenshot per window, in ms)
+ * screenshotQueueSize=32        (maximum number of screenshots waiting to be written)
+ * </pre>
+ * 
+ * @author mburnside
+ */
+public class ScreenshotPipeline {
+    
+    /**
+     * The default screenshot policy
+     */
+    public static final ScreenshotPolicy DEFAULT_POLICY = ScreenshotPolicy.ALWAYS;
+    
+    /**
+     * The default interval for the <code>EVERY_NTH</code> policy
+     */
+    public static final int DEFAULT_INTERVAL = 10;
+    
+    /**
+     * The default throttle time (ms) for the <code>THROTTLED</code> policy
+     */
+    public static final long DEFAULT_THROTTLE_TIME = 5000;
+    
+    /**
+     * The default size of the screenshot queue
+     */
+    public static final int DEFAULT_QUEUE_SIZE = 32;
+    
+    /**
+     * The default time (ms) to wait for the queue to drain on flush
+     */
+    public static final long DEFAULT_FLUSH_TIMEOUT = 30000;
+    
+    /**
+     * The default time (ms) an explicit screenshot waits for room in the queue
+     */
+    public static final long DEFAULT_OFFER_TIMEOUT = 5000;
+    
+    /**
+     *  logging object
+     */
+    private static Logger logger = Logger.getLogger(ScreenshotPipeline.class);
+    
+    /**
+     * ScreenshotPipeline instance
+     */
+    private static ScreenshotPipeline instance = new ScreenshotPipeline();
+    
+    /**
+     * The screenshot policy for element lookups
+     */
+    private volatile ScreenshotPolicy policy = DEFAULT_POLICY;
+    
+    /**
+     * Take a screenshot every Nth lookup
+     */
+    private volatile int interval = DEFAULT_INTERVAL;
+    
+    /**
+     * The throttle time window in nanoseconds
+     */
+    private volatile long throttleTime = TimeUnit.MILLISECONDS.toNanos(DEFAULT_THROTTLE_TIME);
+    
+    /**
+     * The screenshots waiting to be written to disk
+     */
+    private volatile BlockingQueue<Screenshot> queue = new ArrayBlockingQueue<Screenshot>(DEFAULT_QUEUE_SIZE);
+    
+    /**
+     * The number of element lookups seen
+     */
+    private final AtomicLong lookupCount = new AtomicLong();
+    
+    /**
+     * The time (nanoseconds) the last sampled screenshot was taken
+     */
+    private final AtomicLong lastCaptureTime = new AtomicLong();
+    
+    /**
+     * Sequence used to make screenshot filenames unique
+     */
+    private final AtomicLong sequence = new AtomicLong();
+    
+    /**
+     * The number of screenshots queued but not yet written
+     */
+    private final AtomicInteger pending = new AtomicInteger();
+    
+    /**
+     * Counters for reporting
+     */
+    private final AtomicLong capturedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    
+    /**
+     * Lock used to wait for the queue to drain
+     */
+    private final Object drainLock = new Object();
+    
+    /**
+     * The background writer
+     */
+    private volatile ScreenshotWriterThread writer = null;
+    
+    /**
+     * Default Constructor
+     */
+    protected ScreenshotPipeline() { 
+        
+        try { configure(CommonProperties.getInstance()); }
+        catch(Exception e) { logger.error(e); }
+        
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            
+            public void run() { flush(DEFAULT_FLUSH_TIMEOUT); }
+            
+        });
+        
+    }
+    
+    /**
+     * Return the instance of this object.
+     * 
+     * @return The instance of this object 
+     */
+    public static ScreenshotPipeline getInstance() { return instance; }
+    
+    /**
+     * Configure the pipeline from the framework properties.
+     * 
+     * @param properties 
+     */
+    public synchronized void configure(Properties properties) {
+        
+        setPolicy(ScreenshotPolicy.fromString(properties.getProperty(StringCapabilities.SCREENSHOT_POLICY.getCapability()), DEFAULT_POLICY));
+        
+        setInterval(getInt(properties, StringCapabilities.SCREENSHOT_INTERVAL.getCapability(), DEFAULT_INTERVAL));
+        
+        setThrottleTime(getInt(properties, StringCapabilities.SCREENSHOT_THROTTLE_TIME.getCapability(), (int)DEFAULT_THROTTLE_TIME));
+        
+        int queueSize = getInt(properties, StringCapabilities.SCREENSHOT_QUEUE_SIZE.getCapability(), DEFAULT_QUEUE_SIZE);
+        
+        // the queue can only be resized before the writer has started
+        if((queueSize > 0) && (writer == null) && (queueSize != queue.remainingCapacity())) queue = new ArrayBlockingQueue<Screenshot>(queueSize);
+        
+        logger.debug("Screenshot pipeline configured: " + policy.getPolicy() + "|" + interval + "|" + TimeUnit.NANOSECONDS.toMillis(throttleTime) + "|" + queueSize);
+        
+    }
+    
+    /**
+     * Set the screenshot policy for element lookups.
+     * 
+     * @param policy 
+     */
+    public void setPolicy(ScreenshotPolicy policy) { if(policy != null) this.policy = policy; }
+    
+    /**
+     * Get the screenshot policy for element lookups.
+     * 
+     * @return 
+     */
+    public ScreenshotPolicy getPolicy() { return this.policy; }
+    
+    /**
+     * Set the interval for the <code>EVERY_NTH</code> policy.
+     * 
+     * @param interval 
+     */
+    public void setInterval(int interval) { if(interval > 0) this.interval = interval; }
+    
+    /**
+     * Set the throttle time (ms) for the <code>THROTTLED</code> policy.
+     * 
+     * @param milliseconds 
+     */
+    public void setThrottleTime(long milliseconds) { if(milliseconds >= 0) this.throttleTime = TimeUnit.MILLISECONDS.toNanos(milliseconds); }
+    
+    /**
+     * Take a screenshot for an element lookup if the policy allows it.
+     * 
+     * @param destinationDirectory
+     * @param failed indicates the element lookup failed
+     * 
+     * @throws Exception 
+     */
+    public void captureLookup(String destinationDirectory, boolean failed) throws Exception {
+        
+        // only sampled screenshots can be dropped, not the ones of a failed lookup
+        if(shouldCapture(failed)) capture(destinationDirectory, null, !failed);
+        
+    }
+    
+    /**
+     * Determine if the policy allows a screenshot for this element lookup.
+     * 
+     * @param failed
+     * 
+     * @return 
+     */
+    protected boolean shouldCapture(boolean failed) {
+        
+        switch(policy) {
+            
+            case OFF: return false;
+            
+            case ON_FAILURE: return failed;
+            
+            case EVERY_NTH: return failed || (lookupCount.incrementAndGet() % interval == 0);
+            
+            case THROTTLED: 
+                
+                if(failed) return true;
+                
+                long now = System.nanoTime();
+                long last = lastCaptureTime.get();
+                
+                return ((last == 0) || (now - last >= throttleTime)) && lastCaptureTime.compareAndSet(last, now);
+                
+            default: return true;
+            
+        }
+        
+    }
+    
+    /**
+     * Take a screenshot and queue it to be written and added to the test results report.
+     * 
+     * The image is added to the report right away (the report only references the 
+     * filename) so it is attached to the current test, and the file is written in the background.
+     * The screenshot is never dropped: if the queue stays full it is written on this thread.
+     * 
+     * @param destinationDirectory
+     * @param title (optional)
+     * 
+     * @return The filename of the screenshot
+     * 
+     * @throws Exception 
+     */
+    public String capture(String destinationDirectory, String title) throws Exception { return capture(destinationDirectory, title, false); }
+    
+    /**
+     * Take a screenshot and queue it to be written and added to the test results report.
+     * 
+     * @param destinationDirectory
+     * @param title (optional)
+     * @param droppable if the screenshot is dropped when the queue is full
+     * 
+     * @return The filename of the screenshot, or <code>null</code> if the screenshot was dropped
+     * 
+     * @throws Exception 
+     */
+    private String capture(String destinationDirectory, String title, boolean droppable) throws Exception {
+        
+        WebDriver driver = CommonWebDriver.getInstance().getWebDriver();
+        
+        if(driver == null) throw new Exception("Unable to take a screenshot because the web driver has not been set");
+        
+        // do not pay for a sampled screenshot if there is no room to write it
+        if(droppable && (queue.remainingCapacity() == 0)) { dropped(); return null; }
+        
+        String filename = String.valueOf(System.currentTimeMillis()) + "_" + sequence.incrementAndGet() + ".png";
+        
+        long start = System.nanoTime();
+        
+        Screenshot screenshot = new Screenshot(destinationDirectory + File.separator + filename, ((TakesScreenshot)driver).getScreenshotAs(OutputType.BASE64));
+        
+        PrometheusMetrics.getInstance().observeScreenshot("capture", System.nanoTime() - start);
+        
+        pending.incrementAndGet();
+        
+        startWriter();
+        
+        if(!queue.offer(screenshot)) {
+            
+            if(droppable) { written(); dropped(); return null; }
+            
+            boolean queued = false;
+            
+            try { queued = queue.offer(screenshot, DEFAULT_OFFER_TIMEOUT, TimeUnit.MILLISECONDS); }
+            catch(InterruptedException e) { Thread.currentThread().interrupt(); }
+            
+            if(!queued) {
+                
+                logger.debug("Screenshot queue is full, writing screenshot on the test thread: " + screenshot.filename);
+                
+                write(screenshot);
+                
+            }
+            
+        }
+        
+        capturedCount.incrementAndGet();
+        
+        if(title == null) ReportsManager.getInstance().addImageToReport(filename);
+        else ReportsManager.getInstance().addImageToReport(filename, title);
+        
+        return filename;
+        
+    }
+    
+    /**
+     * Wait for all queued screenshots to be written.
+     * 
+     * @param timeout the maximum time to wait (ms)
+     * 
+     * @return <code>true</code> if the queue was drained
+     */
+    public boolean flush(long timeout) {
+        
+        long deadline = System.currentTimeMillis() + timeout;
+        
+        synchronized(drainLock) {
+            
+            while(pending.get() > 0) {
+                
+                long remaining = deadline - System.currentTimeMillis();
+                
+                if(remaining <= 0) {
+                    
+                    logger.warn("Timed out waiting for screenshots to be written: " + pending.get());
+                    
+                    return false;
+                
+                }
+                
+                try { drainLock.wait(remaining); }
+                catch(InterruptedException e) { Thread.currentThread().interrupt(); return false; }
+                
+            }
+            
+        }
+        
+        return true;
+        
+    }
+    
+    /**
+     * Wait for all queued screenshots to be written.
+     * 
+     * @return <code>true</code> if the queue was drained
+     */
+    public boolean flush() { return flush(DEFAULT_FLUSH_TIMEOUT); }
+    
+    /**
+     * Get the number of screenshots queued to be written.
+     * 
+     * @return 
+     */
+    public long getCapturedCount() { return capturedCount.get(); }
+    
+    /**
+     * Get the number of screenshots dropped because the queue was full.
+     * 
+     * @return 
+     */
+    public long getDroppedCount() { return droppedCount.get(); }
+    
+    /**
+     * Get the number of screenshots that failed to be written.
+     * 
+     * @return 
+     */
+    public long getFailedCount() { return failedCount.get(); }
+    
+    /**
+     * Start the background writer if it is not running.
+     */
+    private void startWriter() {
+        
+        if((writer != null) && writer.isAlive()) return;
+        
+        synchronized(this) {
+            
+            if((writer != null) && writer.isAlive()) return;
+            
+            writer = new ScreenshotWriterThread();
+            
+            writer.start();
+            
+        }
+        
+    }
+    
+    /**
+     * Write a screenshot to disk.
+     * 
+     * @param screenshot 
+     */
+    private void write(Screenshot screenshot) {
+        
+        FileOutputStream out = null;
+        
+        long start = System.nanoTime();
+        
+        try { 
+            
+            File file = new File(screenshot.filename);
+            
+            if(file.getParentFile() != null) file.getParentFile().mkdirs();
+            
+            out = new FileOutputStream(file);
+            
+            out.write(Base64.getMimeDecoder().decode(screenshot.data));
+        
+        }
+        catch(Exception e) { 
+            
+            failedCount.incrementAndGet();
+            
+            logger.error("Unable to write screenshot: " + screenshot.filename);
+            logger.error(e);
+            
+        }
+        finally { 
+            
+            try { if(out != null) out.close(); }
+            catch(Exception le) { }
+            
+            PrometheusMetrics.getInstance().observeScreenshot("write", System.nanoTime() - start);
+            
+            written(); 
+        
+        }
+        
+    }
+    
+    /**
+     * Mark a queued screenshot as done and wake up anyone waiting on flush.
+     */
+    private void written() {
+        
+        if(pending.decrementAndGet() > 0) return;
+        
+        synchronized(drainLock) { drainLock.notifyAll(); }
+        
+    }
+    
+    /**
+     * Count a dropped screenshot.
+     */
+    private void dropped() {
+        
+        long dropped = droppedCount.incrementAndGet();
+        
+        logger.debug("Screenshot queue is full, dropping screenshot: " + dropped);
+        
+    }
+    
+    /**
+     * Get an integer property value.
+     * 
+     * @param properties
+     * @param key
+     * @param defaultValue
+     * 
+     * @return 
+     */
+    private int getInt(Properties properties, String key, int defaultValue) {
+        
+        try { return Integer.parseInt(properties.getProperty(key).trim()); }
+        catch(Exception e) { return defaultValue; }
+        
+    }
+    
+    /**
+     * A screenshot waiting to be written.
+     */
+    private static class Screenshot {
+        
+        private final String filename;
+        
+        private final String data;
+        
+        Screenshot(String filename, String data) { this.filename = filename; this.data = data; }
+        
+    }
+    
+    /**
+     * This thread writes the queued screenshots while not interfering with execution of the test
+     */
+    private class ScreenshotWriterThread extends Thread {
+        
+        ScreenshotWriterThread() {
+            
+            super("ScreenshotWriter");
+            
+            setDaemon(true);
+            
+        }
+        
+        public void run() {
+            
+            while(true) {
+                
+                try { write(queue.take()); }
+                catch(InterruptedException e) { return; }
+                catch(Exception e) { logger.error(e); }
+                
+            }
+            
+        }
+        
+    }
+    
+}
@@ -0,0 +1,86 @@
+/**
+ * This file is part of Automate It!'s free and open source web and mobile 
+ * application testing framework.
+ * 
+ * Automate It! is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Automate It! is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Automate It!.  If not, see <http://www.gnu.org/licenses/>.
+ *  
+ **/
+
+package org.automateit.util;
+
+/**
+ * This class contains the policies that decide when an element lookup 
+ * (<code>find</code>/<code>findElements</code>) adds a screenshot to the report.
+ * 
+ * The policy is configured with the <code>screenshotPolicy</code> property.
+ * 
+ * @author mburnside
+ */
+public enum ScreenshotPolicy {
+    
+    /**
+     * Never take a screenshot on element lookup
+     */
+    OFF("off"),
+    
+    /**
+     * Only take a screenshot when the element lookup fails
+     */
+    ON_FAILURE("onFailure"),
+    
+    /**
+     * Take a screenshot on every Nth element lookup (and on failure)
+     */
+    EVERY_NTH("everyNth"),
+    
+    /**
+     * Take at most one screenshot per throttle time window (and on failure)
+     */
+    THROTTLED("throttled"),
+    
+    /**
+     * Take a screenshot on every element lookup
+     */
+    ALWAYS("always");
+    
+    private String policy = null;
+    
+    ScreenshotPolicy(String policy) { this.policy = policy; }
+    
+    public String getPolicy() { return policy; }
+    
+    /**
+     * Get the policy for a configured value. The value can be either the policy 
+     * name (<code>everyNth</code>) or the constant name (<code>EVERY_NTH</code>).
+     * 
+     * @param value
+     * @param defaultPolicy returned when the value is null or not recognized
+     * 
+     * @return 
+     */
+    public static ScreenshotPolicy fromString(String value, ScreenshotPolicy defaultPolicy) {
+        
+        if(value == null) return defaultPolicy;
+        
+        for(ScreenshotPolicy screenshotPolicy : ScreenshotPolicy.values()) {
+            
+            if(screenshotPolicy.getPolicy().equalsIgnoreCase(value.trim()) || screenshotPolicy.name().equalsIgnoreCase(value.trim())) return screenshotPolicy;
+            
+        }
+        
+        return defaultPolicy;
+        
+    }
+    
+}
@@ -18,13 +18,21 @@
 
 package org.automateit.util;
 
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.Hashtable;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.log4j.Logger;
 
 /**
  * This class contains data about summary performance
+ * <p>
+ * The page load times of each page are kept in a <code>LatencyHistogram</code>. The histograms
+ * can be saved and merged into the summary of another run with <code>saveHistograms</code>/<code>loadHistograms</code>.
  * 
  * @author mburnside
  */
@@ -33,7 +41,7 @@ public class SummaryPerformance {
     /**
      * Data collection object with page poad data for each page loaded.
      */	
-    private Hashtable<String, SummaryPerformanceBean> pagePerformanceSummaries = new Hashtable<String, SummaryPerformanceBean>();
+    private ConcurrentHashMap<String, SummaryPerformanceBean> pagePerformanceSummaries = new ConcurrentHashMap<String, SummaryPerformanceBean>();
 	
     /**
      *  logging object
@@ -62,20 +70,71 @@ public class SummaryPerformance {
      * 
      * @param pagePerformance 
      */
-    public void add(PerformanceCaptureBean pagePerformance) {
-    	    
-    	SummaryPerformanceBean pageSummary = pagePerformanceSummaries.get(pagePerformance.getPageName());
+    public void add(PerformanceCaptureBean pagePerformance) { getPageSummary(pagePerformance.getPageName()).add(pagePerformance); }
+    
+    /**
+     * Get the summary of a page, created if needed.
+     * 
+     * @param pageName
+     * 
+     * @return 
+     */
+    public SummaryPerformanceBean getPageSummary(String pageName) {
+        
+        SummaryPerformanceBean pageSummary = pagePerformanceSummaries.get(pageName);
     	
         if(pageSummary == null) {
     	
-            pageSummary = new SummaryPerformanceBean(pagePerformance.getPageName());    	
+            pagePerformanceSummaries.putIfAbsent(pageName, new SummaryPerformanceBean(pageName));
     	
-            pagePerformanceSummaries.put(pageSummary.getPageName(), pageSummary);
+            pageSummary = pagePerformanceSummaries.get(pageName);
     	
         }
-    		    	
-    	pageSummary.add(pagePerformance);
+        
+        return pageSummary;
+        
+    }
     
+    /**
+     * Save the page load time histograms of all pages (page name = encoded histogram).
+     * 
+     * @param filename
+     * 
+     * @throws Exception 
+     */
+    public void saveHistograms(String filename) throws Exception {
+        
+        Properties histograms = new Properties();
+        
+        for(SummaryPerformanceBean pageSummary : pagePerformanceSummaries.values()) histograms.setProperty(pageSummary.getPageName(), pageSummary.getHistogram().encode());
+        
+        OutputStream out = new FileOutputStream(filename);
+        
+        try { histograms.store(out, "Page load time histograms (ms)"); }
+        catch(Exception e) { throw e; }
+        finally { out.close(); }
+        
+    }
+    
+    /**
+     * Merge page load time histograms saved with <code>saveHistograms</code> (for example by an earlier run) into this summary.
+     * 
+     * @param filename
+     * 
+     * @throws Exception 
+     */
+    public void loadHistograms(String filename) throws Exception {
+        
+        Properties histograms = new Properties();
+        
+        InputStream in = new FileInputStream(filename);
+        
+        try { histograms.load(in); }
+        catch(Exception e) { throw e; }
+        finally { in.close(); }
+        
+        for(String pageName : histograms.stringPropertyNames()) getPageSummary(pageName).merge(LatencyHistogram.decode(histograms.getProperty(pageName)));
+        
     }
     
     /**
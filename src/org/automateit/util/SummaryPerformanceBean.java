@@ -19,40 +19,26 @@
 package org.automateit.util;
 
 import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
 
 import org.apache.log4j.Logger;
 
-import org.automateit.data.DataArchive;
-import org.automateit.data.XLSXDataArchive;
+import org.automateit.data.StreamingXLSXDataArchive;
 
 /**
  * This class keeps track of page summary (total page load time, max page load time, average page load time, page hits) for a page.
- * It contains a class variable (pageLoadTime) which is a capture of each individual page load for the page.
- * This class then does the calculation for the total, average, max time
+ * The page load times are recorded in a constant memory <code>LatencyHistogram</code>, which also gives the percentiles
+ * (p50, p90, p99, p999). The most recent page loads (up to <code>MAX_PAGE_LOADS_KEPT</code>) are kept for the page performance file.
  * 
  * @author mburnside
  */
 public class SummaryPerformanceBean  {
 
     /**
-     * Page load time (total)
+     * The number of individual page loads kept for the page performance file
      */
-    private long totalPageLoadTime = 0;
-    
-    /**
-     * Page load time (average)
-     */
-    private long averagePageLoadTime = 0;    
-    
-    /**
-     * Page load time (max)
-     */
-    private long maxPageLoadTime = 0;
-    
-    /**
-     * Page Hit
-     */
-    private long pageHit = 0;    
+    public static final int MAX_PAGE_LOADS_KEPT = 1000;
     
     /**
      * The name of the page that was loaded
@@ -60,14 +46,14 @@ public class SummaryPerformanceBean  {
     private String pageName = null;
     
     /**
-     * a list of all the page load time for this page
+     * The page load times
      */
-    private ArrayList<PerformanceCaptureBean> pageLoadTime = new ArrayList<PerformanceCaptureBean>();
+    private final LatencyHistogram histogram = new LatencyHistogram();
     
     /**
-     * flag to tell if total, average, page hits have been calculated or not
+     * The most recent page loads for this page
      */
-    private boolean calculated = false;
+    private final LinkedList<PerformanceCaptureBean> pageLoadTime = new LinkedList<PerformanceCaptureBean>();
     
     /**
      * The logger class
@@ -88,94 +74,71 @@ public class SummaryPerformanceBean  {
     	// just making sure we are adding page performance data to the right summary
     	if(getPageName().equals(pagePerformance.getPageName())) {
     	
-            pageLoadTime.add(pagePerformance);	
-    	
-            calculated = false;
+            histogram.record(pagePerformance.getTime());
+            
+            synchronized(pageLoadTime) {
+                
+                pageLoadTime.add(pagePerformance);
+                
+                if(pageLoadTime.size() > MAX_PAGE_LOADS_KEPT) pageLoadTime.removeFirst();
+                
+            }
     	
         }
         
     }
     
     /**
-     * Get the page name (or message).
+     * Add the page load times of another summary (for example from another thread or run) to this summary.
      * 
-     * @return 
+     * @param histogram 
      */
-    public String getPageName() { return pageName; }
-        
+    public void merge(LatencyHistogram histogram) { this.histogram.merge(histogram); }
+    
     /**
-     * Calculate the performance of page loads.
+     * Get the page load time histogram.
+     * 
+     * @return 
      */
-    private void calculatePerformance() {
-    	
-    	totalPageLoadTime = 0;               
-        averagePageLoadTime = 0;
-        maxPageLoadTime = 0;
-        pageHit = 0;
-        
-    	for(PerformanceCaptureBean pageTime:pageLoadTime) {
-    		
-            if (pageTime.getTime() > maxPageLoadTime)
-    	
-                maxPageLoadTime = pageTime.getTime();
-    		
-    		totalPageLoadTime += pageTime.getTime();
-    	
-                pageHit++;    		
-    	
-        }
-    	
-    	averagePageLoadTime = totalPageLoadTime / pageHit;
-    	
-    	calculated = true;
-        
-    }
+    public LatencyHistogram getHistogram() { return histogram; }
     
+    /**
+     * Get the page name (or message).
+     * 
+     * @return 
+     */
+    public String getPageName() { return pageName; }
     
     /**    
      * @return Total Page Load Time for this page
      */
-    public long getTotalPageLoadTime() {
-    	
-    	if (!calculated) calculatePerformance();
-    	
-    	return totalPageLoadTime; 
-   	
-    }
+    public long getTotalPageLoadTime() { return histogram.getTotal(); }
     
     /**    
      * @return Average Page Load Time for this page
      */    
-    public long getAveragePageLoadTime() {
-    	
-    	if (!calculated) calculatePerformance();
-    	
-    	return averagePageLoadTime; 
+    public long getAveragePageLoadTime() { return histogram.getAverage(); }
     
-    }
     /**
      * Get the max page load time.
      * 
      * @return 
      */
-    public long getMaxPageLoadTime() {
-    	
-    	if (!calculated) calculatePerformance();
-    	
-    	return maxPageLoadTime; 
-    
-    }
+    public long getMaxPageLoadTime() { return histogram.getMax(); }
     
     /**    
      * @return Total Page Hits for this page
      */
-    public long getPageHit() {
-    	
-    	if (!calculated) calculatePerformance();
-    	
-    	return pageHit; 
-   	
-    }
+    public long getPageHit() { return histogram.getCount(); }
+    
+    /**
+     * Get the page load time at a percentile (for example 99.9).
+     * 
+     * @param percentile
+     * 
+     * @return 
+     */
+    public long getPercentilePageLoadTime(double percentile) { return histogram.getPercentile(percentile); }
     
     /**
      * Return true if average page load time is greater than specified threshold
@@ -195,6 +158,16 @@ public class SummaryPerformanceBean  {
      */
     public boolean isMaxTimeOverThreshold(long ms) { return (getMaxPageLoadTime() > ms); }
     
+    /**
+     * Return true if the page load time at the percentile is greater than specified threshold
+     * 
+     * @param percentile
+     * @param ms - threshold in milli-second
+     * 
+     * @return
+     */
+    public boolean isPercentileTimeOverThreshold(double percentile, long ms) { return (getPercentilePageLoadTime(percentile) > ms); }
+    
     /**
      * This method generate the page performance info for this particular page
      * (eg. Page Loaded From, Page Loaded, Load Time, Notes on hard-coded delays)
@@ -209,11 +182,12 @@ public class SummaryPerformanceBean  {
 
     	String savefile = null;
     	
+    	StreamingXLSXDataArchive dataArchive = new StreamingXLSXDataArchive();
+    	
     	try {
-    		DataArchive dataArchive = new XLSXDataArchive();    	
 	    	dataArchive.addData(new String[]{ "Page Loaded From", "Page", "Load Time (ms)", "Note" });
 	    	
-	    	for (PerformanceCaptureBean pageTime : pageLoadTime) {
+	    	for (PerformanceCaptureBean pageTime : getPageLoads()) {
 	    		String[] data = { pageTime.getFromPageName(), 
 	    						  pageTime.getPageName(), 
 	    						  String.valueOf(pageTime.getTime()),
@@ -229,9 +203,26 @@ public class SummaryPerformanceBean  {
 						
     	} 
     	catch (Exception e) { logger.error(e); }
+    	finally { 
+    	    
+    	    try { dataArchive.close(); }
+    	    catch (Exception e) { }
+    	    
+    	}
     	
     	return savefile;
         
     }
     
+    /**
+     * Get the most recent page loads kept for this page.
+     * 
+     * @return 
+     */
+    public List<PerformanceCaptureBean> getPageLoads() {
+        
+        synchronized(pageLoadTime) { return new ArrayList<PerformanceCaptureBean>(pageLoadTime); }
+        
+    }
+    
 }
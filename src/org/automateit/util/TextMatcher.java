@@ -0,0 +1,230 @@
+/**
+ * This file is part of Automate It!'s free and open source web and mobile 
+ * application testing framework.
+ * 
+ * Automate It! is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Automate It! is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Automate It!.  If not, see <http://www.gnu.org/licenses/>.
+ *  
+ **/
+
+package org.automateit.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * This class finds which of a set of patterns occur in a text (Aho-Corasick), ignoring case and 
+ * surrounding whitespace of the patterns. It is built once and then scans a text in a single 
+ * pass, whatever the number of patterns. Blank patterns are skipped.
+ * <p>
+ * Instances are immutable and can be shared by threads.
+ * 
+ * @author mburnside
+ */
+public class TextMatcher {
+    
+    /**
+     * The characters of the transitions of each state, sorted
+     */
+    private final char[][] keys;
+    
+    /**
+     * The target state of each transition
+     */
+    private final int[][] targets;
+    
+    /**
+     * The state to fall back to when there is no transition
+     */
+    private final int[] fail;
+    
+    /**
+     * The index of a pattern ending at each state (directly or through its fail states), or -1
+     */
+    private final int[] output;
+    
+    /**
+     * The patterns
+     */
+    private final String[] patterns;
+    
+    /**
+     * Constructor
+     * 
+     * @param patterns 
+     */
+    public TextMatcher(Collection<String> patterns) {
+        
+        List<String> list = new ArrayList<String>();
+        
+        if(patterns != null) for(String pattern : patterns) if((pattern != null) && (pattern.trim().length() > 0)) list.add(pattern.trim());
+        
+        this.patterns = list.toArray(new String[list.size()]);
+        
+        // build the trie, the transitions of each state sorted by character
+        List<TreeMap<Character, Integer>> transitions = new ArrayList<TreeMap<Character, Integer>>();
+        List<Integer> patternEnds = new ArrayList<Integer>();
+        
+        transitions.add(new TreeMap<Character, Integer>()); patternEnds.add(-1);
+        
+        for(int i = 0; i < this.patterns.length; i++) {
+            
+            int state = 0;
+            
+            for(char c : this.patterns[i].toCharArray()) {
+                
+                Integer target = transitions.get(state).get(Character.toLowerCase(c));
+                
+                if(target == null) {
+                    
+                    target = transitions.size();
+                    
+                    transitions.add(new TreeMap<Character, Integer>()); patternEnds.add(-1);
+                    
+                    transitions.get(state).put(Character.toLowerCase(c), target);
+                    
+                }
+                
+                state = target;
+                
+            }
+            
+            if(patternEnds.get(state) < 0) patternEnds.set(state, i);
+            
+        }
+        
+        int size = transitions.size();
+        
+        keys = new char[size][];
+        targets = new int[size][];
+        fail = new int[size];
+        output = new int[size];
+        
+        for(int state = 0; state < size; state++) {
+            
+            keys[state] = new char[transitions.get(state).size()];
+            targets[state] = new int[transitions.get(state).size()];
+            
+            int i = 0;
+            
+            for(Map.Entry<Character, Integer> transition : transitions.get(state).entrySet()) {
+                
+                keys[state][i] = transition.getKey();
+                targets[state][i++] = transition.getValue();
+                
+            }
+            
+            output[state] = patternEnds.get(state);
+            
+        }
+        
+        // the fail states, breadth first so the fail state of a parent is known before its children
+        int[] queue = new int[size];
+        int head = 0, tail = 0;
+        
+        for(int target : targets[0]) { fail[target] = 0; queue[tail++] = target; }
+        
+        while(head < tail) {
+            
+            int state = queue[head++];
+            
+            for(int i = 0; i < keys[state].length; i++) {
+                
+                int target = targets[state][i];
+                
+                int fallback = fail[state];
+                
+                while((fallback > 0) && (next(fallback, keys[state][i]) < 0)) fallback = fail[fallback];
+                
+                int next = next(fallback, keys[state][i]);
+                
+                fail[target] = ((next >= 0) && (next != target)) ? next : 0;
+                
+                if(output[target] < 0) output[target] = output[fail[target]];
+                
+                queue[tail++] = target;
+                
+            }
+            
+        }
+        
+    }
+    
+    /**
+     * Check if any of the patterns occurs in the text.
+     * 
+     * @param text
+     * 
+     * @return 
+     */
+    public boolean matches(CharSequence text) { return (find(text) != null); }
+    
+    /**
+     * Find the first pattern (by end position in the text) that occurs in the text.
+     * 
+     * @param text
+     * 
+     * @return The pattern (trimmed) or <code>null</code> if none occurs
+     */
+    public String find(CharSequence text) {
+        
+        if((text == null) || (patterns.length == 0)) return null;
+        
+        int state = 0;
+        
+        for(int i = 0; i < text.length(); i++) {
+            
+            char c = Character.toLowerCase(text.charAt(i));
+            
+            int next = next(state, c);
+            
+            while((next < 0) && (state > 0)) { state = fail[state]; next = next(state, c); }
+            
+            state = (next < 0) ? 0 : next;
+            
+            if(output[state] >= 0) return patterns[output[state]];
+            
+        }
+        
+        return null;
+        
+    }
+    
+    /**
+     * Get the number of patterns.
+     * 
+     * @return 
+     */
+    public int size() { return patterns.length; }
+    
+    /**
+     * Get the transition of a state for a character.
+     * 
+     * @param state
+     * @param c
+     * 
+     * @return The target state or -1
+     */
+    private int next(int state, char c) {
+        
+        int index = Arrays.binarySearch(keys[state], c);
+        
+        return (index < 0) ? -1 : targets[state][index];
+        
+    }
+    
+}
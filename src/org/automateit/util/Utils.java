@@ -35,7 +35,6 @@ import java.util.regex.Pattern;
 import java.util.Random;
 
 import java.util.Base64;
-import java.util.Date;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -53,26 +52,20 @@ import javax.json.JsonReader;
 import org.apache.log4j.Logger;
 import org.apache.log4j.PropertyConfigurator;
 
-import org.apache.commons.io.FileUtils;
-
-import org.openqa.selenium.TakesScreenshot;
-import org.openqa.selenium.OutputType;
-
 import org.automateit.data.DataDrivenInputFactory;
 import org.automateit.data.DataDrivenInput;
 import org.automateit.data.DataArchive;
 import org.automateit.data.CSVAppendDataArchive;
 import org.automateit.data.CSVDataArchive;
+import org.automateit.data.DataArchiveBase;
+import org.automateit.data.RowTableDataDrivenInput;
+import org.automateit.data.StreamingXLSXDataArchive;
 
 import org.automateit.media.JarvisTextToSpeechConverter;
 import org.automateit.media.JLayerAudioPlayer;
 import org.automateit.media.JMFAudioPlayer;
 import org.automateit.media.JavaSoundAPIAudioPlayer;
 
-import org.automateit.reports.ReportsManager;
-
-import org.automateit.core.CommonWebDriver;
-
 public class Utils {
     
     /**
@@ -935,7 +928,9 @@ public class Utils {
     }
     
     /**
-     * Take a screenshot and add it to the test results report
+     * Take a screenshot and add it to the test results report.
+     * 
+     * The image file is written in the background by the <code>ScreenshotPipeline</code>.
      * 
      * @param destinationDirectory
      * @param title
@@ -944,20 +939,7 @@ public class Utils {
      */
     public void addScreenshotToReport(String destinationDirectory, String title) throws Exception {
                
-        try { 
-            
-            Date now = new Date();
-            
-            String filename = String.valueOf(now.getTime()) + ".png";
-            
-            String screenshotFilename = destinationDirectory + File.separator + filename;
-            
-            FileUtils.copyFile(((TakesScreenshot)CommonWebDriver.getInstance().getWebDriver()).getScreenshotAs(OutputType.FILE), new File(screenshotFilename));
-            
-            if(title == null) ReportsManager.getInstance().addImageToReport(filename);
-            else ReportsManager.getInstance().addImageToReport(filename, title);
-        
-        }
+        try { ScreenshotPipeline.getInstance().capture(destinationDirectory, title); }
         catch(Exception e) { throw e; }
         
     }
@@ -1354,7 +1336,10 @@ public class Utils {
     }
     
     /**
-     * Get a data driven object from an archive
+     * Get a data driven object from an archive. Archives extending 
+     * <code>DataArchiveBase</code> are read in memory, without a copy; other 
+     * archives are saved to a temporary file and read back (as an Excel file 
+     * for a <code>StreamingXLSXDataArchive</code>).
      * 
      * @param dataArchive
      * 
@@ -1364,13 +1349,20 @@ public class Utils {
      */
     public DataDrivenInput getDataDrivenInputFromDataArchive(DataArchive dataArchive) throws Exception {
         
-        String tmpFileName = "autotmp.csv";
+        if(dataArchive instanceof DataArchiveBase) return ((DataArchiveBase)dataArchive).getDataDrivenInput();
+        
+        String tmpFileName = null;
         
         try {
+            
+            boolean excel = (dataArchive instanceof StreamingXLSXDataArchive);
+            
+            tmpFileName = File.createTempFile("autotmp", excel ? ".xlsx" : ".csv").getPath();
         
             dataArchive.saveData(tmpFileName);
         
-            return setupDataDrivenInput(tmpFileName);
+            // read once and deleted, so not cached
+            return new DataDrivenInputFactory().createDataDrivenInput(tmpFileName, excel ? DataDrivenInputFactory.EXCEL : DataDrivenInputFactory.CSV);
             
         }
         catch(Exception e) { throw e; }
@@ -1384,7 +1376,9 @@ public class Utils {
     }
     
     /**
-     * Get an archive from data driven input
+     * Get an archive from data driven input. Input read from an archive 
+     * (or any <code>RowTable</code>) shares its table with the new archive, 
+     * otherwise the data id and column 1 of each row are copied.
      * 
      * @param dataDrivenInput
      * 
@@ -1393,6 +1387,8 @@ public class Utils {
      * @throws Exception 
      */
     public DataArchive getDataArchiveFromDataDrivenInput(DataDrivenInput dataDrivenInput) throws Exception {
+        
+        if(dataDrivenInput instanceof RowTableDataDrivenInput) return new CSVDataArchive(((RowTableDataDrivenInput)dataDrivenInput).getTable());
        
         DataArchive dataArchive = new CSVDataArchive();
         
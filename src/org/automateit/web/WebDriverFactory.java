@@ -23,6 +23,7 @@ import java.io.File;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.log4j.Logger;
 
@@ -34,6 +35,7 @@ import org.openqa.selenium.safari.SafariDriver;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.opera.OperaDriver;
 
+import org.automateit.core.BooleanCapabilities;
 import org.automateit.core.StringCapabilities;
 import org.automateit.util.CommonProperties;
 
@@ -87,6 +89,11 @@ public class WebDriverFactory {
      */
     protected static Logger logger = Logger.getLogger(WebDriverFactory.class);
     
+    /**
+     * The driver executable locations set as system properties
+     */
+    private static final Map<String, String> driverLocations = new ConcurrentHashMap<String, String>();
+    
     /**
      * Default Constructor.
      */
@@ -95,6 +102,9 @@ public class WebDriverFactory {
     /**
      * Use this constructor if you want to get an implementation of Selenium
      * using a WebDriver.
+     * <p>
+     * When <code>useWebDriverPool</code> is enabled the web driver is checked out of the 
+     * <code>WebDriverPool</code> (warm session) and must be given back with <code>releaseWebDriver</code>.
      * 
      * @param webDriverId the id of the WebDriver to use
      * @param browserURL the starting URL including just a domain name
@@ -103,30 +113,175 @@ public class WebDriverFactory {
      * 
      * @throws Exception 
      */
-    public WebDriver getWebDriver(String webDriverId, String browserURL) throws Exception {
+    public WebDriver getWebDriver(final String webDriverId, final String browserURL) throws Exception {
         
         logger.debug("Getting a version 3.0 Selenium/WebDriver for webdriver id: " + webDriverId);
         
         if(webDriverId == null) throw new Exception("webDriverId cannot be null."); 
         
-        if(webDriverId.equals(FIREFOXWEBDRIVER)) {
-            
-            logger.debug("Creating an instance of Firefox Driver");
+        setBrowserType(webDriverId);
+        
+        if(!getUseWebDriverPool()) return createWebDriver(webDriverId, browserURL);
+        
+        WebDriverPool pool = configureWebDriverPool();
+        
+        return pool.checkout(getPoolKey(webDriverId), new WebDriverPool.SessionFactory() {
             
-            logger.debug("Setting system property for Firefox Driver - webdriver.firefox.driver=" + CommonProperties.getInstance().get("webdriver.firefox.driver"));
+            public WebDriver create() throws Exception { return createWebDriver(webDriverId, browserURL); }
             
-            String driverLocation = CommonProperties.getInstance().get("webdriver.firefox.driver.location");
+        });
+        
+    }
+    
+    /**
+     * Give back a web driver. A pooled web driver is returned to the pool, any other is quit.
+     * 
+     * @param driver 
+     */
+    public void releaseWebDriver(WebDriver driver) {
+        
+        if(driver == null) return;
+        
+        if(WebDriverPool.getInstance().checkin(driver)) return;
+        
+        try { driver.quit(); }
+        catch(Exception e) { }
+        
+    }
+    
+    /**
+     * Start <code>webDriverPoolSize</code> sessions for the web driver id in the background 
+     * so that later calls to <code>getWebDriver</code> (including the first) get a warm session.
+     * 
+     * @param webDriverId
+     * @param browserURL
+     * 
+     * @throws Exception 
+     */
+    public void warmWebDriverPool(final String webDriverId, final String browserURL) throws Exception {
+        
+        if(webDriverId == null) throw new Exception("webDriverId cannot be null."); 
+        
+        setBrowserType(webDriverId);
+        
+        configureWebDriverPool().warm(getPoolKey(webDriverId), new WebDriverPool.SessionFactory() {
             
-            // now we check if its a real file and where it is expected to be. If not, add another "dot" to the path to back one more dir
-            File f = new File(driverLocation);
-            if(!f.exists() && !f.isFile()) driverLocation = "." + driverLocation;
+            public WebDriver create() throws Exception { return createWebDriver(webDriverId, browserURL); }
             
-            if((driverLocation == null) || (driverLocation.trim().length() == 0))
-                   throw new Exception("The system property 'webdriver.firefox.driver.location' is not configured propertly: " + driverLocation);
+        });
+        
+    }
+    
+    /**
+     * Apply the pool size and maximum uses properties to the web driver pool.
+     * 
+     * @return The web driver pool
+     */
+    protected WebDriverPool configureWebDriverPool() {
+        
+        WebDriverPool pool = WebDriverPool.getInstance();
+        
+        if(CommonProperties.getInstance().get(StringCapabilities.WEB_DRIVER_POOL_SIZE.getCapability()) != null) pool.setPoolSize(Integer.parseInt(CommonProperties.getInstance().get(StringCapabilities.WEB_DRIVER_POOL_SIZE.getCapability()).trim()));
+        
+        if(CommonProperties.getInstance().get(StringCapabilities.WEB_DRIVER_POOL_MAX_USES.getCapability()) != null) pool.setMaxUses(Integer.parseInt(CommonProperties.getInstance().get(StringCapabilities.WEB_DRIVER_POOL_MAX_USES.getCapability()).trim()));
+        
+        return pool;
+        
+    }
+    
+    /**
+     * Check if web driver sessions are pooled.
+     * 
+     * @return 
+     */
+    public boolean getUseWebDriverPool() {
+        
+        String useWebDriverPool = CommonProperties.getInstance().get(BooleanCapabilities.USE_WEB_DRIVER_POOL.getCapability());
+        
+        return (useWebDriverPool != null) && Boolean.parseBoolean(useWebDriverPool.trim());
+        
+    }
+    
+    /**
+     * Get the pool key for the web driver id - the id and the capabilities the driver is created with.
+     * 
+     * @param webDriverId
+     * 
+     * @return 
+     */
+    protected String getPoolKey(String webDriverId) {
+        
+        if(webDriverId.equals(CHROMEMOBILEBDRIVER)) 
+            return webDriverId + "|" + CommonProperties.getInstance().get(StringCapabilities.DEVICE_NAME.getCapability()) + "|" + CommonProperties.getInstance().get(StringCapabilities.BROWSER_NAME.getCapability());
+        
+        return webDriverId;
+        
+    }
+    
+    /**
+     * Set the browser type for the web driver id.
+     * 
+     * @param webDriverId
+     * 
+     * @throws Exception 
+     */
+    protected void setBrowserType(String webDriverId) throws Exception {
+        
+        if(webDriverId.equals(FIREFOXWEBDRIVER)) CommonProperties.getInstance().setBrowserType(CommonProperties.getInstance().FIREFOX);
+        else if(webDriverId.equals(IEWEBDRIVER)) CommonProperties.getInstance().setBrowserType(CommonProperties.getInstance().IE);
+        else if(webDriverId.equals(SAFARIWEBDRIVER)) CommonProperties.getInstance().setBrowserType(CommonProperties.getInstance().SAFARI);
+        else if(webDriverId.equals(CHROMEWEBDRIVER) || webDriverId.equals(CHROMEMOBILEBDRIVER)) CommonProperties.getInstance().setBrowserType(CommonProperties.getInstance().CHROME);
+        else if(webDriverId.equals(OPERAWEBDRIVER)) CommonProperties.getInstance().setBrowserType(CommonProperties.getInstance().OPERA);
+        
+    }
+    
+    /**
+     * Set the system property with the location of a driver executable. The location is 
+     * resolved and set once per property.
+     * 
+     * @param systemProperty
+     * @param locationProperty
+     * 
+     * @throws Exception 
+     */
+    protected void setDriverLocation(String systemProperty, String locationProperty) throws Exception {
+        
+        if(driverLocations.containsKey(systemProperty)) return;
+        
+        String driverLocation = CommonProperties.getInstance().get(locationProperty);
+        
+        if((driverLocation == null) || (driverLocation.trim().length() == 0))
+            throw new Exception("The system property '" + locationProperty + "' is not configured propertly: " + driverLocation);
+        
+        // now we check if its a real file and where it is expected to be. If not, add another "dot" to the path to back one more dir
+        File f = new File(driverLocation);
+        if(!f.exists() && !f.isFile()) driverLocation = "." + driverLocation;
+        
+        logger.debug("Setting system property for driver - " + systemProperty + "=" + driverLocation);
+        
+        System.setProperty(systemProperty, driverLocation);
+        
+        driverLocations.put(systemProperty, driverLocation);
+        
+    }
+    
+    /**
+     * Create a new instance of the web driver.
+     * 
+     * @param webDriverId the id of the WebDriver to use
+     * @param browserURL the starting URL including just a domain name
+     * 
+     * @return Instance of a WebDriver implementation
+     * 
+     * @throws Exception 
+     */
+    protected WebDriver createWebDriver(String webDriverId, String browserURL) throws Exception {
+        
+        if(webDriverId.equals(FIREFOXWEBDRIVER)) {
             
-            System.setProperty("webdriver.gecko.driver", driverLocation);
+            logger.debug("Creating an instance of Firefox Driver");
             
-            CommonProperties.getInstance().setBrowserType(CommonProperties.getInstance().FIREFOX);
+            setDriverLocation("webdriver.gecko.driver", "webdriver.firefox.driver.location");
             
             return ((WebDriver)new FirefoxDriver());
            
@@ -136,20 +291,7 @@ public class WebDriverFactory {
             
             logger.debug("Creating an instance of WebDriverBackedSelenium using Internet Explorer Driver");
             
-            String driverLocation = CommonProperties.getInstance().get("webdriver.ie.driver.location");
-            
-            // now we check if its a real file and where it is expected to be. If not, add another "dot" to the path to back one more dir
-            File f = new File(driverLocation);
-            if(!f.exists() && !f.isFile()) driverLocation = "." + driverLocation;
-            
-            logger.debug("Setting system property for IE Driver - webdriver.ie.driver.location=" + driverLocation);
-            
-            if((driverLocation == null) || (driverLocation.trim().length() == 0))
-                   throw new Exception("The system property 'webdriver.ie.driver' is not configured propertly: " + driverLocation);
-            
-            System.setProperty("webdriver.ie.driver", driverLocation);
-            
-            CommonProperties.getInstance().setBrowserType(CommonProperties.getInstance().IE);
+            setDriverLocation("webdriver.ie.driver", "webdriver.ie.driver.location");
             
             return ((WebDriver)new InternetExplorerDriver());
             
@@ -159,8 +301,6 @@ public class WebDriverFactory {
             
             logger.debug("Creating an instance of Safari Driver. Please be sure that the webDriver extension is installed and enabled on Safari.");
             
-            CommonProperties.getInstance().setBrowserType(CommonProperties.getInstance().SAFARI);
-            
             return ((WebDriver)new SafariDriver());
            
         }
@@ -169,20 +309,7 @@ public class WebDriverFactory {
             
             logger.debug("Creating an instance of Chrome Driver");
             
-            String driverLocation = CommonProperties.getInstance().get("webdriver.chrome.driver.location");
-            
-            // now we check if its a real file and where it is expected to be. If not, add another "dot" to the path to back one more dir
-            File f = new File(driverLocation);
-            if(!f.exists() && !f.isFile()) driverLocation = "." + driverLocation;
-            
-            logger.debug("Setting system property for Chrome Driver - webdriver.chrome.driver.location=" + driverLocation);
-            
-            if((driverLocation == null) || (driverLocation.trim().length() == 0))
-                   throw new Exception("The system property 'webdriver.chrome.driver.location' is not configured propertly: " + driverLocation);
-            
-            System.setProperty("webdriver.chrome.driver", driverLocation);
-            
-            CommonProperties.getInstance().setBrowserType(CommonProperties.getInstance().CHROME);
+            setDriverLocation("webdriver.chrome.driver", "webdriver.chrome.driver.location");
             
             ChromeOptions options = new ChromeOptions();
 
@@ -197,20 +324,7 @@ public class WebDriverFactory {
             
             logger.debug("Creating an instance of Chrome Mobile Web Driver");
             
-            String driverLocation = CommonProperties.getInstance().get("webdriver.chrome.driver.location");
-            
-            // now we check if its a real file and where it is expected to be. If not, add another "dot" to the path to back one more dir
-            File f = new File(driverLocation);
-            if(!f.exists() && !f.isFile()) driverLocation = "." + driverLocation;
-            
-            logger.debug("Setting system property for Chrome Mobile Web Driver - webdriver.chrome.driver.location=" + driverLocation);
-            
-            if((driverLocation == null) || (driverLocation.trim().length() == 0))
-                   throw new Exception("The system property 'webdriver.chrome.driver.location' is not configured propertly: " + driverLocation);
-            
-            System.setProperty("webdriver.chrome.driver", driverLocation);
-            
-            CommonProperties.getInstance().setBrowserType(CommonProperties.getInstance().CHROME);
+            setDriverLocation("webdriver.chrome.driver", "webdriver.chrome.driver.location");
             
             Map<String, String> mobileEmulation = new HashMap<>();
 
@@ -232,8 +346,6 @@ public class WebDriverFactory {
             
             logger.debug("Creating an instance of WebDriverBackedSelenium using Opera Driver");
             
-            CommonProperties.getInstance().setBrowserType(CommonProperties.getInstance().OPERA);
-            
             return ((WebDriver)new OperaDriver());
             
         }
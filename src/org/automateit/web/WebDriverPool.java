@@ -0,0 +1,546 @@
+/**
+ * This file is part of Automate It!'s free and open source web and mobile 
+ * application testing framework.
+ * 
+ * Automate It! is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Automate It! is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Automate It!.  If not, see <http://www.gnu.org/licenses/>.
+ *  
+ **/
+
+package org.automateit.web;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.log4j.Logger;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * This class keeps a pool of warm web driver sessions, keyed by browser id and capabilities.
+ * <p>
+ * Browser startup dominates short tests, so sessions are started in the background ahead of time
+ * (<code>webDriverPoolSize</code> idle sessions per key) and handed out on checkout. A returned
+ * session is reset (cookies and storage cleared, extra windows closed, navigated to <code>about:blank</code>)
+ * before it is reused, and it is retired (quit) after <code>webDriverPoolMaxUses</code> uses or when
+ * it fails the health check done on checkout.
+ * 
+ * @author mburnside
+ */
+public class WebDriverPool {
+    
+    /**
+     * Creates a new session for a pool key
+     */
+    public interface SessionFactory {
+        
+        /**
+         * Create a new web driver session.
+         * 
+         * @return
+         * 
+         * @throws Exception 
+         */
+        public WebDriver create() throws Exception;
+        
+    }
+    
+    /**
+     * The default number of idle sessions to keep per key
+     */
+    public static final int DEFAULT_POOL_SIZE = 1;
+    
+    /**
+     * The default number of uses before a session is retired
+     */
+    public static final int DEFAULT_MAX_USES = 20;
+    
+    /**
+     * The page a returned session is parked on
+     */
+    public static final String BLANK_PAGE = "about:blank";
+    
+    /**
+     * Clears the web storage of the current page, if any
+     */
+    private static final String CLEAR_STORAGE_SCRIPT = 
+        "try { window.localStorage.clear(); } catch(e) { } " +
+        "try { window.sessionStorage.clear(); } catch(e) { }";
+    
+    /**
+     * The instance of this singleton class
+     */
+    private static WebDriverPool instance = new WebDriverPool();
+    
+    /**
+     *  Logging object
+     */
+    private static Logger logger = Logger.getLogger(WebDriverPool.class);
+    
+    /**
+     * The idle sessions per pool key
+     */
+    private final Map<String, LinkedList<PooledSession>> idle = new HashMap<String, LinkedList<PooledSession>>();
+    
+    /**
+     * The number of sessions being started per pool key
+     */
+    private final Map<String, Integer> warming = new HashMap<String, Integer>();
+    
+    /**
+     * The sessions checked out
+     */
+    private final Map<WebDriver, PooledSession> checkedOut = new IdentityHashMap<WebDriver, PooledSession>();
+    
+    /**
+     * Starts and resets sessions in the background
+     */
+    private final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+        
+        public Thread newThread(Runnable runnable) {
+            
+            Thread thread = new Thread(runnable, "WebDriverPool");
+            
+            thread.setDaemon(true);
+            
+            return thread;
+            
+        }
+        
+    });
+    
+    /**
+     * The number of idle sessions to keep per key
+     */
+    private volatile int poolSize = DEFAULT_POOL_SIZE;
+    
+    /**
+     * The number of uses before a session is retired
+     */
+    private volatile int maxUses = DEFAULT_MAX_USES;
+    
+    /**
+     * Counters
+     */
+    private long created = 0;
+    
+    private long reused = 0;
+    
+    private long retired = 0;
+    
+    /**
+     * Default Constructor
+     */
+    protected WebDriverPool() { 
+        
+        Runtime.getRuntime().addShutdownHook(new Thread("WebDriverPool-shutdown") {
+            
+            @Override
+            public void run() { shutdown(); }
+            
+        });
+        
+    }
+    
+    /**
+     * Return the instance of this object.
+     * 
+     * @return The instance of this object 
+     */
+    public static WebDriverPool getInstance() { return instance; }
+    
+    /**
+     * Set the number of idle sessions to keep per key.
+     * 
+     * @param poolSize 
+     */
+    public void setPoolSize(int poolSize) { this.poolSize = Math.max(0, poolSize); }
+    
+    /**
+     * Get the number of idle sessions to keep per key.
+     * 
+     * @return 
+     */
+    public int getPoolSize() { return poolSize; }
+    
+    /**
+     * Set the number of uses before a session is retired.
+     * 
+     * @param maxUses 
+     */
+    public void setMaxUses(int maxUses) { this.maxUses = Math.max(1, maxUses); }
+    
+    /**
+     * Get the number of uses before a session is retired.
+     * 
+     * @return 
+     */
+    public int getMaxUses() { return maxUses; }
+    
+    /**
+     * Start sessions in the background until <code>poolSize</code> sessions are idle or being started for the key.
+     * 
+     * @param key
+     * @param factory 
+     */
+    public void warm(final String key, final SessionFactory factory) {
+        
+        int count = 0;
+        
+        synchronized(this) {
+            
+            count = poolSize - getIdle(key).size() - getWarming(key);
+            
+            if(count > 0) warming.put(key, getWarming(key) + count);
+            
+        }
+        
+        for(int i = 0; i < count; i++) {
+            
+            executor.execute(new Runnable() {
+                
+                public void run() {
+                    
+                    WebDriver driver = null;
+                    
+                    try { 
+                        
+                        logger.debug("Warming a new web driver session: " + key);
+                        
+                        driver = factory.create(); 
+                    
+                    }
+                    catch(Exception e) { logger.error("Unable to warm a web driver session: " + key + "|" + e); }
+                    
+                    if(driver == null) {
+                        
+                        synchronized(WebDriverPool.this) { warming.put(key, getWarming(key) - 1); WebDriverPool.this.notifyAll(); }
+                        
+                        return;
+                        
+                    }
+                    
+                    PooledSession session = new PooledSession(key, driver);
+                    
+                    boolean added = false;
+                    
+                    synchronized(WebDriverPool.this) { created++; warming.put(key, getWarming(key) - 1); added = addIdle(session); }
+                    
+                    if(!added) retire(session);
+                    
+                }
+                
+            });
+            
+        }
+        
+    }
+    
+    /**
+     * Check out a healthy session for the key. A warm session is used when there is one, otherwise
+     * this waits for a session being started, or starts one in this thread. The pool is then topped 
+     * up in the background.
+     * 
+     * @param key
+     * @param factory
+     * 
+     * @return
+     * 
+     * @throws Exception 
+     */
+    public WebDriver checkout(String key, SessionFactory factory) throws Exception {
+        
+        try {
+            
+            PooledSession session = null;
+            
+            while(session == null) {
+                
+                PooledSession candidate = null;
+                
+                synchronized(this) {
+                    
+                    LinkedList<PooledSession> sessions = getIdle(key);
+                    
+                    if(sessions.isEmpty() && (getWarming(key) > 0)) { wait(1000); continue; }
+                    
+                    if(sessions.isEmpty()) break;
+                    
+                    candidate = sessions.removeFirst();
+                    
+                }
+                
+                if(isHealthy(candidate.getWebDriver())) session = candidate;
+                else retire(candidate);
+                
+            }
+            
+            if(session == null) {
+                
+                logger.debug("No warm web driver session available, starting one: " + key);
+                
+                session = new PooledSession(key, factory.create());
+                
+                synchronized(this) { created++; }
+                
+            }
+            else synchronized(this) { reused++; }
+            
+            session.use();
+            
+            synchronized(this) { checkedOut.put(session.getWebDriver(), session); }
+            
+            warm(key, factory);
+            
+            return session.getWebDriver();
+            
+        }
+        catch(Exception e) { throw e; }
+        
+    }
+    
+    /**
+     * Return a session to the pool. The session is reset in the background, or retired when it
+     * has been used <code>maxUses</code> times or can not be reset.
+     * 
+     * @param driver
+     * 
+     * @return <code>true</code> if the session belonged to the pool
+     */
+    public boolean checkin(WebDriver driver) {
+        
+        final PooledSession session;
+        
+        synchronized(this) { session = checkedOut.remove(driver); }
+        
+        if(session == null) return false;
+        
+        if(session.getUses() >= maxUses) { 
+            
+            logger.debug("Retiring web driver session after " + session.getUses() + " uses: " + session.getKey());
+            
+            retire(session); 
+            
+            return true; 
+        
+        }
+        
+        executor.execute(new Runnable() {
+            
+            public void run() {
+                
+                if(!reset(session.getWebDriver()) || !addIdle(session)) retire(session);
+                
+            }
+            
+        });
+        
+        return true;
+        
+    }
+    
+    /**
+     * Check if the web driver belongs to the pool (is checked out).
+     * 
+     * @param driver
+     * 
+     * @return 
+     */
+    public synchronized boolean isPooled(WebDriver driver) { return checkedOut.containsKey(driver); }
+    
+    /**
+     * Quit all the idle sessions.
+     */
+    public void shutdown() {
+        
+        List<PooledSession> sessions = new ArrayList<PooledSession>();
+        
+        synchronized(this) {
+            
+            for(LinkedList<PooledSession> list : idle.values()) sessions.addAll(list);
+            
+            idle.clear();
+            
+        }
+        
+        for(PooledSession session : sessions) retire(session);
+        
+    }
+    
+    /**
+     * Reset a session so it can be reused.
+     * 
+     * @param driver
+     * 
+     * @return <code>true</code> if the session was reset
+     */
+    protected boolean reset(WebDriver driver) {
+        
+        try {
+            
+            List<String> handles = new ArrayList<String>(driver.getWindowHandles());
+            
+            for(int i = 1; i < handles.size(); i++) driver.switchTo().window(handles.get(i)).close();
+            
+            driver.switchTo().window(handles.get(0));
+            
+            // storage is per origin so clear it before leaving the page
+            try { ((JavascriptExecutor)driver).executeScript(CLEAR_STORAGE_SCRIPT); }
+            catch(Exception e) { }
+            
+            driver.manage().deleteAllCookies();
+            
+            driver.get(BLANK_PAGE);
+            
+            return true;
+            
+        }
+        catch(Exception e) { logger.debug("Unable to reset web driver session: " + e); return false; }
+        
+    }
+    
+    /**
+     * Check that the session is still alive.
+     * 
+     * @param driver
+     * 
+     * @return 
+     */
+    protected boolean isHealthy(WebDriver driver) {
+        
+        try { return driver.getWindowHandle() != null; }
+        catch(Exception e) { logger.debug("Web driver session failed the health check: " + e); return false; }
+        
+    }
+    
+    /**
+     * Quit the session.
+     * 
+     * @param session 
+     */
+    private void retire(PooledSession session) {
+        
+        synchronized(this) { retired++; }
+        
+        try { session.getWebDriver().quit(); }
+        catch(Exception e) { }
+        
+    }
+    
+    /**
+     * Make a session idle, unless <code>poolSize</code> sessions of its key already are.
+     * 
+     * @param session
+     * 
+     * @return <code>true</code> if the session was added, <code>false</code> if it has to be retired
+     */
+    private synchronized boolean addIdle(PooledSession session) {
+        
+        LinkedList<PooledSession> sessions = getIdle(session.getKey());
+        
+        if(sessions.size() >= poolSize) { 
+            
+            logger.debug("Retiring web driver session, the pool is full: " + session.getKey());
+            
+            return false;
+            
+        }
+        
+        sessions.add(session);
+        
+        notifyAll();
+        
+        return true;
+        
+    }
+    
+    /**
+     * Get the idle sessions of the key.
+     * 
+     * @param key
+     * 
+     * @return 
+     */
+    private LinkedList<PooledSession> getIdle(String key) {
+        
+        LinkedList<PooledSession> sessions = idle.get(key);
+        
+        if(sessions == null) { sessions = new LinkedList<PooledSession>(); idle.put(key, sessions); }
+        
+        return sessions;
+        
+    }
+    
+    /**
+     * Get the number of sessions being started for the key.
+     * 
+     * @param key
+     * 
+     * @return 
+     */
+    private int getWarming(String key) {
+        
+        Integer count = warming.get(key);
+        
+        return (count == null) ? 0 : count.intValue();
+        
+    }
+    
+    /**
+     * Return a summary of the pool.
+     * 
+     * @return 
+     */
+    @Override
+    public synchronized String toString() {
+        
+        int idleCount = 0;
+        
+        for(LinkedList<PooledSession> list : idle.values()) idleCount += list.size();
+        
+        return "WebDriverPool[idle=" + idleCount + ", checkedOut=" + checkedOut.size() + ", created=" + created + ", reused=" + reused + ", retired=" + retired + "]";
+        
+    }
+    
+    /**
+     * A session of the pool.
+     */
+    private static class PooledSession {
+        
+        private final String key;
+        
+        private final WebDriver driver;
+        
+        private int uses = 0;
+        
+        PooledSession(String key, WebDriver driver) { this.key = key; this.driver = driver; }
+        
+        String getKey() { return key; }
+        
+        WebDriver getWebDriver() { return driver; }
+        
+        int getUses() { return uses; }
+        
+        void use() { uses++; }
+        
+    }
+    
+}
@@ -20,7 +20,11 @@ package org.automateit.web.pages;
 
 import java.util.concurrent.TimeUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import java.awt.event.KeyEvent;
 
@@ -38,21 +42,24 @@ import org.openqa.selenium.Keys;
 import org.openqa.selenium.Point;
 import org.openqa.selenium.interactions.Actions;
 import org.openqa.selenium.remote.RemoteWebElement;
-import org.openqa.selenium.support.ui.ExpectedCondition;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.Select;
 import org.openqa.selenium.support.ui.WebDriverWait;
 import org.openqa.selenium.ElementClickInterceptedException;
 import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriverException;
 
 import org.apache.log4j.Logger;
 
 import org.automateit.core.ViewBase;
 import org.automateit.core.CommonWebDriver;
 
-import org.automateit.util.CommandList;
+import org.automateit.util.AdaptiveWait;
+import org.automateit.util.CommandRecord;
 import org.automateit.util.CommonProperties;
 import org.automateit.util.PerformanceCapture;
+import org.automateit.util.PerformanceSpan;
 import org.automateit.util.ScreenshotCapture;
 import org.automateit.util.Utils;
 
@@ -61,6 +68,9 @@ import org.automateit.core.BooleanCapabilities;
 
 import org.automateit.web.WebDriverFactory;
 
+import org.automateit.web.pages.WebElementTextFinder.LocatorType;
+import org.automateit.web.pages.WebElementTextFinder.TextMatch;
+
 /**
  * BasePage is the class that all other page classes should extend for web-based UI testing.
  * 
@@ -76,10 +86,17 @@ import org.automateit.web.WebDriverFactory;
 public class BasePage extends ViewBase {
     
     /**
-     * JavaScript library that the application is using. This is required to query the active ajax connection
+     * JavaScript library that the application is using. This is required to query the active ajax connection.
+     * 
+     * A comma separated list of readiness probes, see <code>ReadinessProbe</code>.
      */
     protected String jsLibrary = null;
     
+    /**
+     * The readiness probe for <code>jsLibrary</code>
+     */
+    protected ReadinessProbe readinessProbe = null;
+    
     /**
      * Perform screen shot. default is <code>false</code>.
      */
@@ -149,10 +166,6 @@ public class BasePage extends ViewBase {
      */
     protected ScreenshotCapture screenshotCapture = new ScreenshotCapture();
     
-    /**
-     * Command List
-     */
-    protected CommandList commandList = CommandList.getInstance();
     
     /**
      * Use this is property if wanting to bypass selenium/webdriver/jquery
@@ -166,6 +179,26 @@ public class BasePage extends ViewBase {
      */
     protected long forcePageLoadWaitTime = 10000;
     
+    /**
+     * The implicit wait (s) currently set on each driver
+     */
+    private static final Map<WebDriver, Long> implicitWaits = Collections.synchronizedMap(new WeakHashMap<WebDriver, Long>());
+    
+    /**
+     * Time (ms) without DOM changes for the DOM to be considered settled
+     */
+    public static final long DOM_QUIET_PERIOD = 300;
+    
+    /**
+     * Cache resolved web elements for this page. Default is <code>false</code>.
+     */
+    protected boolean useElementCache = false;
+    
+    /**
+     * The resolved web elements of this page, see <code>WebElementCache</code>
+     */
+    protected WebElementCache elementCache = null;
+    
     /**
      * Capture the selenium/webdriver commands. Default is <code>true</code>.
      */
@@ -377,6 +410,52 @@ public class BasePage extends ViewBase {
      * @return forcePageLoadWaitTime
      */
     public long getForcePageLoadWaitTime() { return forcePageLoadWaitTime; }
+    
+    /**
+     * Return if resolved web elements are cached for the page.
+     * 
+     * @return useElementCache
+     */
+    public boolean getUseElementCache() { return useElementCache; }
+    
+    /**
+     * Return the web element cache of this page (hit/miss statistics).
+     * 
+     * @return The cache or <code>null</code> if not used
+     */
+    public WebElementCache getWebElementCache() { return elementCache; }
+    
+    /**
+     * Clear the cached web elements, after navigating or loading a new page.
+     */
+    protected void invalidateElementCache() { if(elementCache != null) elementCache.invalidate(); }
+    
+    /**
+     * Find a WebElement, using the web element cache when enabled.
+     * 
+     * @param by
+     * 
+     * @return The web element
+     */
+    @Override
+    protected WebElement find(By by) {
+        
+        if(!useElementCache || (this.driver == null)) return super.find(by);
+        
+        if(elementCache == null) {
+            
+            elementCache = new WebElementCache(this.driver, new WebElementCache.Resolver() {
+                
+                @Override
+                public WebElement resolve(By by) { return BasePage.super.find(by); }
+                
+            });
+            
+        }
+        
+        return elementCache.find(by);
+        
+    }
 
     /**
      * Opens an URL in the test frame. 
@@ -401,10 +480,12 @@ public class BasePage extends ViewBase {
         
         info("Opening the url: " + url);
         
-        commandList.addToList("open: " + url);
+        CommandRecord command = getCommandList().addToList("open: " + url);
         
         PerformanceCapture.getInstance().start(getPageName());
         
+        PerformanceSpan span = PerformanceCapture.getInstance().startSpan("navigation");
+        
         try {
         
             if(useHTTPAuth) passHTTPAuthentication(httpAuthUsername, httpAuthPassword, url);
@@ -418,7 +499,15 @@ public class BasePage extends ViewBase {
             throw new BasePageException(e);
         
         }
-        finally { completeOpen(); }
+        finally { 
+            
+            PerformanceCapture.getInstance().stopSpan(span);
+            
+            completeOpen(); 
+            
+            command.finish();
+        
+        }
         
     }
     
@@ -450,7 +539,7 @@ public class BasePage extends ViewBase {
         
         if(password == null) throw new BasePageException("Password value for Robot interaction is null");
         
-        commandList.addToList("open: " + username + "|" + password + "|" + url);
+        CommandRecord command = getCommandList().addToList("open: " + username + "|" + password + "|" + url);
         
         try {
             
@@ -485,7 +574,7 @@ public class BasePage extends ViewBase {
             throw new BasePageException(e);
         
         }
-        finally { completeOpen(); }
+        finally { completeOpen(); command.finish(); }
         
     }
     
@@ -493,6 +582,8 @@ public class BasePage extends ViewBase {
      * Perform any necessary final steps to the webdriver or basepage after open
      */
     private void completeOpen() {
+        
+            invalidateElementCache();
           
             // this is here because firefox always prompts for authenticated url in automation
             // so close it if it shows up
@@ -517,7 +608,7 @@ public class BasePage extends ViewBase {
      * This method logs some info to the Command List for reporting purpose 
      * @param info
      */
-    protected void logInfoToCommandList(String info) { commandList.addToList(info); }
+    protected void logInfoToCommandList(String info) { getCommandList().addToList(info); }
         
     /**
      * Wait for a page to load for <code>s</code> number of milliseconds (ms).
@@ -545,7 +636,25 @@ public class BasePage extends ViewBase {
     
         logger.debug("Waiting for page to load (ms) and check for any ajax calls to be completed: " + s + "|" + checkAjaxComplete);
         
-        commandList.addToList("waitForPageToLoad: " + s); 
+        CommandRecord command = getCommandList().addToList("waitForPageToLoad: " + s); 
+        
+        invalidateElementCache();
+        
+        PerformanceSpan span = PerformanceCapture.getInstance().startSpan("waitForPageToLoad");
+        
+        try { waitForPageContentToLoad(checkAjaxComplete); }
+        finally { PerformanceCapture.getInstance().stopSpan(span); command.finish(); }
+    
+    }
+    
+    /**
+     * Wait for the page content, and optionally ajax calls, to load.
+     * 
+     * @param checkAjaxComplete check after waiting for ajax to complete
+     * 
+     * @throws BasePageException 
+     */
+    private void waitForPageContentToLoad(boolean checkAjaxComplete) throws BasePageException {
         
         if(this.useForcePageLoadWaitTime) {
             
@@ -558,7 +667,7 @@ public class BasePage extends ViewBase {
             
             try {
             
-                this.driver.manage().timeouts().implicitlyWait((new Long(this.timeout)).longValue(), TimeUnit.SECONDS);
+                setImplicitWait((new Long(this.timeout)).longValue());
                   
                 logger.debug("Page content has been loaded, now waiting for Ajax completion");
                    
@@ -572,9 +681,9 @@ public class BasePage extends ViewBase {
               
                 if(addExtraWaitTimeAfterAjaxComplete) {
                     
-                    logger.debug("Delay for Ajax completion for additional content loading from ajax call: " + extraWaitTimeAfterAjaxComplete);
+                    logger.debug("Wait (up to) for Ajax completion for additional content loading from ajax call: " + extraWaitTimeAfterAjaxComplete);
                     
-                    sleep(extraWaitTimeAfterAjaxComplete);
+                    waitForDOMToSettle(extraWaitTimeAfterAjaxComplete);
                     
                 }
             
@@ -596,10 +705,11 @@ public class BasePage extends ViewBase {
         
         logger.debug("Asserting title is correct: " + s);
         
-        commandList.addToList("assertTitle: " + s + "|" + getTitle());
+        CommandRecord command = getCommandList().addToList("assertTitle: " + s + "|" + getTitle());
         
         try { Assert.assertEquals(s.trim(), getTitle().trim()); }
         catch(Exception e) { throw new BasePageException(e); }
+        finally { command.finish(); }
         
     }
 
@@ -634,10 +744,11 @@ public class BasePage extends ViewBase {
         
         logger.info("Asserting expected text is present: " + s);
         
-        commandList.addToList("assertText| " + s);
+        CommandRecord command = getCommandList().addToList("assertText| " + s);
         
         try { Assert.assertTrue(this.driver.getPageSource().contains(s), "Expect text '" + s +"' in page but not found."); }
         catch(Exception e) { throw new BasePageException(e); }
+        finally { command.finish(); }
     
     }
     
@@ -652,10 +763,11 @@ public class BasePage extends ViewBase {
         
         logger.info("Checking that expected text is present: " + s);
         
-        commandList.addToList("isTextPresent: " + s);
+        CommandRecord command = getCommandList().addToList("isTextPresent: " + s);
         
         try { return driver.getPageSource().contains(s); }
         catch(Exception e) { return false; }
+        finally { command.finish(); }
         
     }
     
@@ -666,10 +778,11 @@ public class BasePage extends ViewBase {
         
         logger.info("Closing the browser");
         
-        commandList.addToList("close");
+        CommandRecord command = getCommandList().addToList("close");
         
-        try { if(driver != null) driver.quit(); }
+        try { webDriverFactory.releaseWebDriver(driver); }
         catch(Exception e) { }
+        finally { command.finish(); }
         
     }
 
@@ -695,6 +808,8 @@ public class BasePage extends ViewBase {
         useForcePageLoadWaitTime = basePage.getUseForcePageLoadWaitTime();
         
         forcePageLoadWaitTime = basePage.getForcePageLoadWaitTime();
+        
+        useElementCache = basePage.getUseElementCache();
       
         stopPerformanceCapturePageLoaded();
        
@@ -728,10 +843,11 @@ public class BasePage extends ViewBase {
         
         logger.info("Asserting that the expected text is present in the html source: " + s);
         
-        commandList.addToList("assertTextInHtmlSource: " + s);
+        CommandRecord command = getCommandList().addToList("assertTextInHtmlSource: " + s);
         
         try { Assert.assertTrue(getHtmlSource().contains(s), "Expect text '"  + s + "' in html source but not found."); }
         catch(Exception e) { throw e; }
+        finally { command.finish(); }
     
     }
 
@@ -747,7 +863,7 @@ public class BasePage extends ViewBase {
         
         logger.debug("Entering data: " + value + " into element at locator: " + locator);
         
-        commandList.addToList("type: " + locator + "|" + value);
+        CommandRecord command = getCommandList().addToList("type: " + locator + "|" + value);
         
         try { 
             
@@ -761,6 +877,7 @@ public class BasePage extends ViewBase {
         
         }
         catch(Exception e) { throw new BasePageException(e); }
+        finally { command.finish(); }
     
     }
 
@@ -773,7 +890,7 @@ public class BasePage extends ViewBase {
      */
     public void mouseEventClick(String locator) throws BasePageException {
         
-        commandList.addToList("mouseEventClick: " + locator);
+        CommandRecord command = getCommandList().addToList("mouseEventClick: " + locator);
 
         try {
             
@@ -785,6 +902,7 @@ public class BasePage extends ViewBase {
         
         }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
     
     }
 
@@ -801,7 +919,7 @@ public class BasePage extends ViewBase {
         
         logger.debug("Entering data: " + value + " into element at locator: " + locator);
         
-        commandList.addToList("type: " + locator + "|" + value+ "|ajaxCheck:" + checkAjax);
+        CommandRecord command = getCommandList().addToList("type: " + locator + "|" + value+ "|ajaxCheck:" + checkAjax);
         
         try {
         	
@@ -815,6 +933,7 @@ public class BasePage extends ViewBase {
             
         }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
     
     }
     
@@ -830,7 +949,7 @@ public class BasePage extends ViewBase {
         
         logger.info("Entering data into the active element: " + value);
         
-        commandList.addToList("enterTextIntoFileChooser: " + value);
+        CommandRecord command = getCommandList().addToList("enterTextIntoFileChooser: " + value);
         
         try {
         	
@@ -842,6 +961,7 @@ public class BasePage extends ViewBase {
             
         }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
     
     }
     
@@ -856,7 +976,7 @@ public class BasePage extends ViewBase {
         
         logger.info("Entering data into a file chooser: " + value);
         
-        commandList.addToList("enterTextIntoFileChooser2: " + value);
+        CommandRecord command = getCommandList().addToList("enterTextIntoFileChooser2: " + value);
         
         try { driver.findElement(By.id("inputFile")).sendKeys(value); }
         catch(Exception e) { 
@@ -865,6 +985,7 @@ public class BasePage extends ViewBase {
             catch(Exception le) { printDOM(); throw new BasePageException(le); }
             
         }
+        finally { command.finish(); }
     
     }
 
@@ -882,15 +1003,20 @@ public class BasePage extends ViewBase {
 
         logger.debug("Clicking on element with locator: " + locator + " turning off ajax completion checking");
 
-        commandList.addToList("click: " + locator + "|ajaxCheck:" + checkAjax);
+        CommandRecord command = getCommandList().addToList("click: " + locator + "|ajaxCheck:" + checkAjax);
         
-        PerformanceCapture.getInstance().start(getPageName());
+        try {
+        
+            PerformanceCapture.getInstance().start(getPageName());
 
-        waitForConditionElementXPathPresent(locator, timeout);
+            waitForConditionElementXPathPresent(locator, timeout);
               
-        find(By.xpath(locator)).click();
+            find(By.xpath(locator)).click();
 
-        waitForPageToLoad(timeout, checkAjax);
+            waitForPageToLoad(timeout, checkAjax);
+        
+        }
+        finally { command.finish(); }
 
     }
 
@@ -907,10 +1033,11 @@ public class BasePage extends ViewBase {
         
         logger.debug("Clicking on element with locator: " + locator);
     
-        commandList.addToList("click: " + locator);
+        CommandRecord command = getCommandList().addToList("click: " + locator);
         
         try { click(locator, true); }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
     
     }
     
@@ -923,10 +1050,11 @@ public class BasePage extends ViewBase {
         
         logger.info("Stopping the selenium session");
     
-        commandList.addToList("stop");
+        CommandRecord command = getCommandList().addToList("stop");
         
-        try { this.driver.quit(); }
+        try { webDriverFactory.releaseWebDriver(this.driver); }
         catch(Exception e) { throw new BasePageException(e); }
+        finally { command.finish(); }
     
     }
      
@@ -959,7 +1087,7 @@ public class BasePage extends ViewBase {
         
         logger.debug("Wait For Condition - element Id present: " + timeout + "|" + elementId);
         
-        commandList.addToList("waitForConditionElementIDPresent: " + timeout + "|" + elementId);
+        CommandRecord command = getCommandList().addToList("waitForConditionElementIDPresent: " + timeout + "|" + elementId);
         
         try {
             
@@ -971,6 +1099,7 @@ public class BasePage extends ViewBase {
             
         }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
          
     }
     
@@ -988,7 +1117,7 @@ public class BasePage extends ViewBase {
         
         logger.debug("Wait For Condition - xpath present: " + timeout + "|" + xpath);
         
-        commandList.addToList("waitForConditionElementXPathPresent: " + timeout + "|" + xpath);
+        CommandRecord command = getCommandList().addToList("waitForConditionElementXPathPresent: " + timeout + "|" + xpath);
         
         try {
             
@@ -998,6 +1127,7 @@ public class BasePage extends ViewBase {
             
         }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
          
     }
     
@@ -1015,7 +1145,7 @@ public class BasePage extends ViewBase {
         
         logger.debug("Wait For Condition - xpath present: " + timeout + "|" + classname);
         
-        commandList.addToList("waitForConditionElementXPathPresent: " + timeout + "|" + classname);
+        CommandRecord command = getCommandList().addToList("waitForConditionElementXPathPresent: " + timeout + "|" + classname);
         
         try {
             
@@ -1025,6 +1155,7 @@ public class BasePage extends ViewBase {
             
         }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
          
     }
     
@@ -1043,10 +1174,11 @@ public class BasePage extends ViewBase {
         
         logger.info("Asserting that text is present in the rendered page: " + s);
     
-        commandList.addToList("isTextPresent: " + s); 
+        CommandRecord command = getCommandList().addToList("isTextPresent: " + s); 
         
         try { return getHtmlSource().contains(s); }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
     
     }
     
@@ -1064,10 +1196,11 @@ public class BasePage extends ViewBase {
         
         logger.info("Get text from locator: " + locator);
     
-        commandList.addToList("getText: " + locator);
+        CommandRecord command = getCommandList().addToList("getText: " + locator);
         
         try { return find(By.xpath(locator)).getText(); }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -1085,10 +1218,11 @@ public class BasePage extends ViewBase {
         
         logger.info("Get value from locator: " + locator);
     
-        commandList.addToList("getValue: " + locator);
+        CommandRecord command = getCommandList().addToList("getValue: " + locator);
         
         try { return find(By.xpath(locator)).getAttribute("value"); }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
     
     }
     
@@ -1101,10 +1235,11 @@ public class BasePage extends ViewBase {
         
         logger.info("Simulate Refresh browser button click");
     
-        commandList.addToList("refresh");
+        CommandRecord command = getCommandList().addToList("refresh");
         
         try { this.driver.navigate().refresh(); }
         catch(Exception e) { throw new BasePageException(e); }
+        finally { invalidateElementCache(); command.finish(); }
         
     }
     
@@ -1121,10 +1256,11 @@ public class BasePage extends ViewBase {
         
         logger.info("Is the element checked: " + locator);
     
-        commandList.addToList("isChecked: " + locator);
+        CommandRecord command = getCommandList().addToList("isChecked: " + locator);
         
         try { return find(By.xpath(locator)).isSelected(); }
         catch(Exception e) { throw new BasePageException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -1137,10 +1273,11 @@ public class BasePage extends ViewBase {
      */
     protected String getBodyText() throws BasePageException { 
     
-        commandList.addToList("getBodyText");
+        CommandRecord command = getCommandList().addToList("getBodyText");
         
         try { return this.driver.getPageSource(); }
         catch(Exception e) { throw new BasePageException(e); }
+        finally { command.finish(); }
     
     }
   
@@ -1155,10 +1292,11 @@ public class BasePage extends ViewBase {
         
         logger.info("Checking the element at locator: " + locator);
         
-        commandList.addToList("check: " + locator);
+        CommandRecord command = getCommandList().addToList("check: " + locator);
         
         try { if(!find(By.xpath(locator)).isSelected()) find(By.xpath(locator)).click(); }
         catch(Exception e) { throw new BasePageException(e); }
+        finally { command.finish(); }
     
     }
  
@@ -1192,10 +1330,11 @@ public class BasePage extends ViewBase {
         
         logger.debug("Maximizing the browser window");
         
-        commandList.addToList("maximizeWindow");
+        CommandRecord command = getCommandList().addToList("maximizeWindow");
         
         try { driver.manage().window().maximize(); }
         catch(Exception e) { throw new BasePageException(e); }
+        finally { command.finish(); }
    
     }
     
@@ -1211,10 +1350,11 @@ public class BasePage extends ViewBase {
         
         logger.info("Checking if element is present at locator: " + locator);
     
-        commandList.addToList("isElementPresent: " + locator);
+        CommandRecord command = getCommandList().addToList("isElementPresent: " + locator);
         
         try { find(By.xpath(locator)); return true; }
         catch(Exception e) { return false; }
+        finally { command.finish(); }
         
     
     }
@@ -1229,10 +1369,11 @@ public class BasePage extends ViewBase {
         
         logger.info("Assert the element is present/visible: " + locator + "|" + message);
         
-        commandList.addToList("assertElementPresent: " + locator + "|" + message);
+        CommandRecord command = getCommandList().addToList("assertElementPresent: " + locator + "|" + message);
         
         try { Assert.assertTrue(isElementPresent(locator), message); }
         catch(Exception e) { throw new BasePageException(e); }
+        finally { command.finish(); }
     
     }
     
@@ -1246,10 +1387,11 @@ public class BasePage extends ViewBase {
         
         logger.info("Assert the element is not present/visible: " + locator + "|" + message);
     
-        commandList.addToList("assertElementNotPresent: " + locator + "|" + message);
+        CommandRecord command = getCommandList().addToList("assertElementNotPresent: " + locator + "|" + message);
         
         try { Assert.assertFalse(isElementPresent(locator), message); }
         catch(Exception e) { throw new BasePageException(e); }
+        finally { command.finish(); }
     
     }
     
@@ -1278,7 +1420,8 @@ public class BasePage extends ViewBase {
         
         logger.debug("Stopping the performance capture");
         
-        PerformanceCapture.getInstance().stop(message);
+        // the browser timing data costs a script call, only get it when page load performance is reported
+        PerformanceCapture.getInstance().stop(message, "true".equals(properties.get(BooleanCapabilities.CAPTURE_PAGE_LOAD_PERFORMANCE.getCapability())) ? driver : null);
         
     }
     
@@ -1292,14 +1435,11 @@ public class BasePage extends ViewBase {
         
         logger.info("Sleep/delay for " + millis + " milliseconds");
         
-        try {        	
-        	
-            Thread.sleep(millis);
+        long start = System.nanoTime();
         
-            PerformanceCapture.getInstance().addSleepTime(millis);        	
-       	
-        }
+        try { Thread.sleep(millis); }
         catch(Exception e) { }
+        finally { PerformanceCapture.getInstance().addSleepTime((System.nanoTime() - start) / 1000000); }
         
     }
     
@@ -1340,39 +1480,22 @@ public class BasePage extends ViewBase {
         
         logger.info("Clicking on web element containing text: " + text + "|" + className);
             
-        commandList.addToList("clickOnWebElementContainingText: " + text + "|" + className);
+        CommandRecord command = getCommandList().addToList("clickOnWebElementContainingText: " + text + "|" + className);
         
         try {
           
-            List<WebElement> elements = findElements(By.className(className));
+            WebElement element = searchWebElementsWithText(LocatorType.CLASS_NAME, className, "name", TextMatch.CONTAINS, text).getElement();
             
-            logger.info("count:" + elements.size());
+            // if we get here, we could not find the element so throw an exception
+            if(element == null) throw new Exception("Could not find text in any screen element matching type: " + className + " and text: " + text);
             
-            for(WebElement element:elements) {
-                
-            	String data = element.getAttribute("name").trim();//element.getText().trim();
-                
-                if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
-                
-                logger.info("haha:" + data + "|" + text);
-                   
-                if(data.contains(text)) {
-                    
-                    element.click();
+            element.click();
                     
-                    waitForPageToLoad(timeout);
-                        
-                    return;
-                
-                }
-                
-            }
-            
-            // if we get here, we could not find the element so throw an exception
-            throw new Exception("Could not find text in any screen element matching type: " + className + " and text: " + text);
+            waitForPageToLoad(timeout);
             
         }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -1389,35 +1512,22 @@ public class BasePage extends ViewBase {
        
         logger.info("Clicking on web element containing text: " + text1 + "|" + text2 + "|" + className);
         
-        commandList.addToList("clickOnWebElementContainingText: " + text1 + "|" + text2 + "|" + className);
+        CommandRecord command = getCommandList().addToList("clickOnWebElementContainingText: " + text1 + "|" + text2 + "|" + className);
         
         try {
             
-            List<WebElement> elements = findElements(By.className(className));
-            
-            for(WebElement element:elements) {
-                
-                String data = element.getAttribute("name").trim();
-                
-                if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
-                   
-                if(data.contains(text1) && data.contains(text2)) {
-                   
-                    element.click();
-                    
-                    waitForPageToLoad(timeout);
-                        
-                    return;
-                
-                }
-                
-            }
+            WebElement element = searchWebElementsWithText(LocatorType.CLASS_NAME, className, "name", TextMatch.CONTAINS, text1, text2).getElement();
             
             // if we get here, we could not find the element so throw an exception    
-            throw new Exception("Could not find text in any screen element matching type: " + className + " and text1: " + text1 + " and text2: " + text2);
+            if(element == null) throw new Exception("Could not find text in any screen element matching type: " + className + " and text1: " + text1 + " and text2: " + text2);
+            
+            element.click();
+                    
+            waitForPageToLoad(timeout);
             
         }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -1433,35 +1543,22 @@ public class BasePage extends ViewBase {
         
         logger.info("Clicking on web element matching text: " + text + "|" + className);
         
-        commandList.addToList("clickOnWebElementMatchingText: " + text + "|" + className);
+        CommandRecord command = getCommandList().addToList("clickOnWebElementMatchingText: " + text + "|" + className);
         
         try {
         
-            List<WebElement> elements = findElements(By.className(className));
-            
-            for(WebElement element:elements) {
-                
-                String data = element.getAttribute("name").trim();
-                
-                if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
-                
-                if(data.equals(text.trim())) {
-                   
-                    element.click();
-                    
-                    waitForPageToLoad(timeout);
-                        
-                    return;
-                
-                }
-                
-            }
+            WebElement element = searchWebElementsWithText(LocatorType.CLASS_NAME, className, "name", TextMatch.EQUALS, text).getElement();
             
             // if we get here, we could not find the element so throw an exception
-            throw new Exception("Could not find text in any screen element matching type: " + className + " and text: " + text);
+            if(element == null) throw new Exception("Could not find text in any screen element matching type: " + className + " and text: " + text);
+            
+            element.click();
+                    
+            waitForPageToLoad(timeout);
             
         }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -1477,35 +1574,16 @@ public class BasePage extends ViewBase {
         
         logger.info("Validating that element of type: " + className + " contains text: " + text + " appears on the screen somewhere.");
             
-        commandList.addToList("validateWebElementContainingText:" + text + "|" + className);
+        CommandRecord command = getCommandList().addToList("validateWebElementContainingText:" + text + "|" + className);
         
         try {
             
-            List<WebElement> elements = findElements(By.className(className));
-            
-            logger.info("Elements size: " + elements.size());
-           
-            for(WebElement element:elements) {
-                
-                logger.info(element);
-                
-                String data = element.getText();
-                
-                if(data != null) data.trim();
-                
-                logger.info("Element text: " + data);
-                
-                if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
-                   
-                if(data.contains(text)) return;
-                
-            }
-            
             // if we get here, we could not find the element so throw an exception
-            throw new Exception("Could not validate a screen component with text in any screen element matching type: " + className + " and text: " + text);
+            if(!searchWebElementsWithText(LocatorType.CLASS_NAME, className, null, TextMatch.CONTAINS, text).isFound()) throw new Exception("Could not validate a screen component with text in any screen element matching type: " + className + " and text: " + text);
                    
         }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -1521,27 +1599,16 @@ public class BasePage extends ViewBase {
         
         logger.info("Validating that element of type: " + className + " matches text: " + text + " appears on the screen somewhere.");
             
-        commandList.addToList("validateWebElementMatchingText:" + text + "," + className);
+        CommandRecord command = getCommandList().addToList("validateWebElementMatchingText:" + text + "," + className);
         
         try {
             
-            List<WebElement> elements = findElements(By.className(className));
-           
-            for(WebElement element:elements) {
-                
-                String data = element.getAttribute("name").trim();
-                
-                if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
-                   
-                if(data.equals(text)) return;
-                
-            }
-            
             // if we get here, we could not find the element so throw an exception
-            throw new Exception("Could not validate a screen component with text in any screen element matching type: " + className + " and text: " + text);
+            if(!searchWebElementsWithText(LocatorType.CLASS_NAME, className, "name", TextMatch.EQUALS, text).isFound()) throw new Exception("Could not validate a screen component with text in any screen element matching type: " + className + " and text: " + text);
                    
         }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -1557,27 +1624,16 @@ public class BasePage extends ViewBase {
         
         logger.info("Validating that element of type: " + className + " contains text: " + text + " appears on the screen somewhere.");
             
-        commandList.addToList("validateWebElementContainingTextValueAttribute:" + text + "|" + className);
+        CommandRecord command = getCommandList().addToList("validateWebElementContainingTextValueAttribute:" + text + "|" + className);
         
         try {
             
-            List<WebElement> elements = findElements(By.className(className));
-           
-            for(WebElement element:elements) {
-                
-                String data = element.getText().trim();
-                
-                if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
-                   
-                if(data.contains(text)) return;
-                
-            }
-            
             // if we get here, we could not find the element so throw an exception
-            throw new Exception("Could not validate a screen component with text in any screen element matching type: " + className + " and text: " + text);
+            if(!searchWebElementsWithText(LocatorType.CLASS_NAME, className, null, TextMatch.CONTAINS, text).isFound()) throw new Exception("Could not validate a screen component with text in any screen element matching type: " + className + " and text: " + text);
                    
         }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -1593,27 +1649,16 @@ public class BasePage extends ViewBase {
         
         logger.info("Validating that element of type: " + className + " contains text: " + text + " appears on the screen somewhere.");
             
-        commandList.addToList("validateWebElementMatchingTextValueAttribute:" + text + "|" + className);
+        CommandRecord command = getCommandList().addToList("validateWebElementMatchingTextValueAttribute:" + text + "|" + className);
         
         try {
             
-            List<WebElement> elements = findElements(By.className(className));
-           
-            for(WebElement element:elements) {
-                
-                String data = element.getText().trim();
-                
-                if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
-                   
-                if(data.equals(text)) return;
-                
-            }
-            
             // if we get here, we could not find the element so throw an exception
-            throw new Exception("Could not validate a screen component with text in any screen element matching type: " + className + " and text: " + text);
+            if(!searchWebElementsWithText(LocatorType.CLASS_NAME, className, null, TextMatch.EQUALS, text).isFound()) throw new Exception("Could not validate a screen component with text in any screen element matching type: " + className + " and text: " + text);
                    
         }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -1629,35 +1674,22 @@ public class BasePage extends ViewBase {
         
         logger.info("Validating that element of type: " + className + " contains text: " + text + " appears on the screen somewhere.");
         
-        commandList.addToList("clickOnWebElementContainingTextValueAttribute:" + text + "|" + className);
+        CommandRecord command = getCommandList().addToList("clickOnWebElementContainingTextValueAttribute:" + text + "|" + className);
         
         try {
             
-            List<WebElement> elements = findElements(By.className(className));
-          
-            for(WebElement element:elements) {
-                
-                String data = element.getText().trim();
-                
-                if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
-                   
-                if(data.contains(text)) {
-                   
-                    element.click();
-                    
-                    waitForPageToLoad(timeout);
-                  
-                    return;
-                    
-                };
-                
-            }
+            WebElement element = searchWebElementsWithText(LocatorType.CLASS_NAME, className, null, TextMatch.CONTAINS, text).getElement();
             
             // if we get here, we could not find the element so throw an exception
-            throw new Exception("Could not validate a screen component with text in any screen element matching type: " + className + " and text: " + text);
+            if(element == null) throw new Exception("Could not validate a screen component with text in any screen element matching type: " + className + " and text: " + text);
+            
+            element.click();
+                    
+            waitForPageToLoad(timeout);
                    
         }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -1673,35 +1705,22 @@ public class BasePage extends ViewBase {
         
         logger.info("Validating that element of type: " + className + " matches text: " + text + " appears on the screen somewhere.");
         
-        commandList.addToList("clickOnWebElementMatchingTextValueAttribute:" + text + "|" + className);
+        CommandRecord command = getCommandList().addToList("clickOnWebElementMatchingTextValueAttribute:" + text + "|" + className);
         
         try {
             
-            List<WebElement> elements = findElements(By.className(className));
-            
-            for(WebElement element:elements) {
-                
-                String data = element.getText().trim();
-                
-                if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
-                   
-                if(data.equals(text)) {
-                    
-                    element.click();
-                    
-                    waitForPageToLoad(timeout);
-                    
-                    return;
-                    
-                };
-                
-            }
+            WebElement element = searchWebElementsWithText(LocatorType.CLASS_NAME, className, null, TextMatch.EQUALS, text).getElement();
             
             // if we get here, we could not find the element so throw an exception
-            throw new Exception("Could not validate a screen component with text in any screen element matching type: " + className + " and text: " + text);
+            if(element == null) throw new Exception("Could not validate a screen component with text in any screen element matching type: " + className + " and text: " + text);
+            
+            element.click();
+                    
+            waitForPageToLoad(timeout);
                    
         }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -1716,7 +1735,7 @@ public class BasePage extends ViewBase {
         
         logger.info("Validating that element of name: " + name + " exists");
             
-        commandList.addToList("validateWebElementContainingTextByName:" + name);
+        CommandRecord command = getCommandList().addToList("validateWebElementContainingTextByName:" + name);
         
         try {
             
@@ -1727,6 +1746,7 @@ public class BasePage extends ViewBase {
                    
         }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -1742,24 +1762,16 @@ public class BasePage extends ViewBase {
         
         logger.info("Validate all web elements do not contain text:" + text + "|" + className);
         
-        commandList.addToList("validateAllWebElementsDoNotContainText:" + text + "|" + className);
+        CommandRecord command = getCommandList().addToList("validateAllWebElementsDoNotContainText:" + text + "|" + className);
         
         try {
             
-            List<WebElement> elements = findElements(By.className(className));
-            
-            for(WebElement element:elements) {
-                
-                String data = element.getAttribute("name").trim();
-                
-                if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
-                   
-                if(data.contains(text)) throw new Exception("Found a web element / screen component with text and matching type: " + className + " and text: " + text + ", it was not expected to be visible");
-                
-            }
+            // do not wait for elements to show up, we expect not to find any
+            if(getWebElementTextFinder(false).find(LocatorType.CLASS_NAME, className, "name", TextMatch.CONTAINS, text).isFound()) throw new Exception("Found a web element / screen component with text and matching type: " + className + " and text: " + text + ", it was not expected to be visible");
             
         }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -1775,24 +1787,16 @@ public class BasePage extends ViewBase {
         
         logger.info("Validate all web elements do not contain text by value attribute:" + text + "|" + className);
         
-        commandList.addToList("validateAllWebElementsDoNotContainTextByValueAttribute:" + text + "|" + className);
+        CommandRecord command = getCommandList().addToList("validateAllWebElementsDoNotContainTextByValueAttribute:" + text + "|" + className);
         
         try {
             
-            List<WebElement> elements = findElements(By.className(className));
-           
-            for(WebElement element:elements) {
-                
-                String data = element.getText().trim();
-                
-                if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
-                   
-                if(data.contains(text)) throw new Exception("Found a web element / screen component with text and matching type: " + className + " and text: " + text + ", it was not expected to be visible");
-                
-            }
+            // do not wait for elements to show up, we expect not to find any
+            if(getWebElementTextFinder(false).find(LocatorType.CLASS_NAME, className, null, TextMatch.CONTAINS, text).isFound()) throw new Exception("Found a web element / screen component with text and matching type: " + className + " and text: " + text + ", it was not expected to be visible");
             
         }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -1805,20 +1809,19 @@ public class BasePage extends ViewBase {
         
         logger.info("Get list of text values from all matching XPath:" + xpath);
         
-        commandList.addToList("getListOfTextValuesFromAllMatchingXPath:" + xpath);
+        CommandRecord command = getCommandList().addToList("getListOfTextValuesFromAllMatchingXPath:" + xpath);
         
         try {
           
-            List<WebElement> elements = findElements(By.xpath(xpath));
-            
             List<String> values = new ArrayList<String>();
            
-            for(WebElement element:elements) values.add(element.getText().trim());
+            for(String value:getWebElementTextFinder(true).getValues(LocatorType.XPATH, xpath, null)) values.add((value == null) ? "" : value.trim());
            
             return values;
             
         }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -1837,7 +1840,7 @@ public class BasePage extends ViewBase {
         
         logger.info("Verify text values for elements with XPath:" + xpath + "|" + values);
         
-        commandList.addToList("verifyTextValuesForElementsWithXPath:" + xpath + "|" + values);
+        CommandRecord command = getCommandList().addToList("verifyTextValuesForElementsWithXPath:" + xpath + "|" + values);
         
         try {
           
@@ -1850,6 +1853,7 @@ public class BasePage extends ViewBase {
             
         }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -1868,7 +1872,7 @@ public class BasePage extends ViewBase {
         
         logger.info("Verify text values for elements with XPath:" + xpath + "|" + value);
         
-        commandList.addToList("verifyTextValuesForElementsWithXPath:" + xpath + "|" + value);
+        CommandRecord command = getCommandList().addToList("verifyTextValuesForElementsWithXPath:" + xpath + "|" + value);
         
         try {
             
@@ -1878,6 +1882,7 @@ public class BasePage extends ViewBase {
            
         }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -1895,31 +1900,20 @@ public class BasePage extends ViewBase {
         
         logger.info("Get element type index matching text:" + text + "|" + className);
         
-        commandList.addToList("getElementTypeIndexMatchingText:" + text + "|" + className);
+        CommandRecord command = getCommandList().addToList("getElementTypeIndexMatchingText:" + text + "|" + className);
         
         try {
             
-            List<WebElement> elements = findElements(By.className(className));
-            
-            int index = 1;
-            
-            for(WebElement element:elements) {
-                
-                String data = element.getAttribute("name").trim();
-                
-                if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
-                   
-                if(data.equals(text)) return index;
-                
-                index++;
-                
-            }
+            WebElementTextFinder.Match match = searchWebElementsWithText(LocatorType.CLASS_NAME, className, "name", TextMatch.EQUALS, text);
             
             // if we get here, we could not find the element so throw an exception
-            throw new Exception("Could not find the index of a screen component with text in any screen element matching type: " + className + " and text: " + text);
+            if(!match.isFound()) throw new Exception("Could not find the index of a screen component with text in any screen element matching type: " + className + " and text: " + text);
+            
+            return match.getIndex();
             
         }
         catch(Exception e) { throw new BasePageException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -1937,33 +1931,20 @@ public class BasePage extends ViewBase {
         
         logger.info("Get element type index containing text:" + text + "|" + className);
         
-        commandList.addToList("getElementTypeIndexContainingText:" + text + "|" + className);
+        CommandRecord command = getCommandList().addToList("getElementTypeIndexContainingText:" + text + "|" + className);
         
         try {
            
-            List<WebElement> elements = findElements(By.className(className));
-            
-            int index = 1;
-            
-            for(WebElement element:elements) {
-                
-                String data = element.getAttribute("name").trim();
-                
-                if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
-                
-                logger.info("Checking if name attribute of type: " + className + " contains: " + text + "|" + data);
-                   
-                if(data.contains(text)) return index;
-                
-                index++;
-                
-            }
+            WebElementTextFinder.Match match = searchWebElementsWithText(LocatorType.CLASS_NAME, className, "name", TextMatch.CONTAINS, text);
             
             // if we get here, we could not find the element so throw an exception
-            throw new Exception("Could not find the index of a screen component with text in any screen element containing type/classname: " + className + " and text: " + text);
+            if(!match.isFound()) throw new Exception("Could not find the index of a screen component with text in any screen element containing type/classname: " + className + " and text: " + text);
+            
+            return match.getIndex();
             
         }
         catch(Exception e) { throw new BasePageException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -1982,28 +1963,19 @@ public class BasePage extends ViewBase {
         
         logger.info("Get web element Id for element name attribute contains text:" + text + "|" + className);
         
-        commandList.addToList("getWebElementIdForElementNameAttributeContainsText:" + text + "|" + className);
+        CommandRecord command = getCommandList().addToList("getWebElementIdForElementNameAttributeContainsText:" + text + "|" + className);
        
         try {
             
-            List<WebElement> elements = findElements(By.className(className));
-           
-            for(WebElement element:elements) {
-                   
-                String value = element.getAttribute("name").trim();
-                 
-                if((value == null) || (value.trim().length() == 0)) continue; // null or blank, so ignore
-                
-                logger.info("Checking for " + value + "|" + text);
-               
-                if(value.trim().equals(text)) return ((RemoteWebElement) element).getId();
-                
-            }
+            WebElement element = searchWebElementsWithText(LocatorType.CLASS_NAME, className, "name", TextMatch.EQUALS, text).getElement();
           
-            throw new Exception("Unable to find cell displayed value for text: " + text);
+            if(element == null) throw new Exception("Unable to find cell displayed value for text: " + text);
+            
+            return ((RemoteWebElement) element).getId();
           
         }
         catch(Exception e) { throw new BasePageException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -2029,7 +2001,7 @@ public class BasePage extends ViewBase {
        
         logger.info("Clicking on any web element with text value: " + value);
         
-        commandList.addToList("clickOnWebElementWithText:" + value);
+        CommandRecord command = getCommandList().addToList("clickOnWebElementWithText:" + value);
         
         try { 
             
@@ -2039,6 +2011,7 @@ public class BasePage extends ViewBase {
         
         }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -2053,10 +2026,11 @@ public class BasePage extends ViewBase {
         
         logger.debug("Clear web element: " + element);
         
-        commandList.addToList("clearWebElement:" + element);
+        CommandRecord command = getCommandList().addToList("clearWebElement:" + element);
     
         try { element.clear(); }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -2071,10 +2045,11 @@ public class BasePage extends ViewBase {
         
         logger.debug("Clear web element: " + locator);
         
-        commandList.addToList("clearWebElement:" + locator);
+        CommandRecord command = getCommandList().addToList("clearWebElement:" + locator);
     
         try { clearWebElement(getWebElementWithLocator(locator)); }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -2108,7 +2083,7 @@ public class BasePage extends ViewBase {
        
         logger.info("Preparing to find web element by id: " + id + "|" + disableImplicitWait);
         
-        commandList.addToList("getWebElementWithId:" + id + "|" + disableImplicitWait);
+        CommandRecord command = getCommandList().addToList("getWebElementWithId:" + id + "|" + disableImplicitWait);
         
         try { 
             
@@ -2124,6 +2099,8 @@ public class BasePage extends ViewBase {
             try { enableImplicitWait(); }
             catch(Exception le) { }
             
+            command.finish();
+            
         }
         
     }
@@ -2158,7 +2135,7 @@ public class BasePage extends ViewBase {
        
         logger.debug("Preparing to find web element by locator: " + locator + "|" + disableImplicitWait);
         
-        commandList.addToList("getWebElementWithLocator:" + locator + "|" + disableImplicitWait);
+        CommandRecord command = getCommandList().addToList("getWebElementWithLocator:" + locator + "|" + disableImplicitWait);
         
         try { 
             
@@ -2174,6 +2151,8 @@ public class BasePage extends ViewBase {
             try { enableImplicitWait(); }
             catch(Exception le) { }
             
+            command.finish();
+            
         }
         
     }
@@ -2190,7 +2169,7 @@ public class BasePage extends ViewBase {
        
         logger.info("Enter data into rich text editor: " + xpath + "|" + text);
         
-        commandList.addToList("enterTextIntoRichTextEditor:" + xpath + "|" + text);
+        CommandRecord command = getCommandList().addToList("enterTextIntoRichTextEditor:" + xpath + "|" + text);
         
         try { 
            
@@ -2204,6 +2183,7 @@ public class BasePage extends ViewBase {
         
         }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
         
     }
 
@@ -2222,7 +2202,7 @@ public class BasePage extends ViewBase {
        
         logger.info("Get web element attribute:" + xpath + "|" + attributeLocator);
         
-        commandList.addToList("getWebElementAttribute:" + xpath + "|" + attributeLocator);
+        CommandRecord command = getCommandList().addToList("getWebElementAttribute:" + xpath + "|" + attributeLocator);
        
         try {
             
@@ -2232,6 +2212,7 @@ public class BasePage extends ViewBase {
 
         }
         catch(Exception e) { throw new BasePageException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -2251,20 +2232,11 @@ public class BasePage extends ViewBase {
        
         logger.info("Get web elements attribute:" + xpath + "|" + attributeLocator);
         
-        commandList.addToList("getWebElementsAttribute:" + xpath + "|" + attributeLocator);
+        CommandRecord command = getCommandList().addToList("getWebElementsAttribute:" + xpath + "|" + attributeLocator);
         
-        try {
-            
-            List<WebElement> elements = findElements(By.xpath(xpath));
-            
-            List<String> values = new ArrayList<String>();
-            
-            for (WebElement element:elements) values.add(element.getAttribute(attributeLocator));
-           
-            return values;
-
-        }
+        try { return getWebElementTextFinder(true).getValues(LocatorType.XPATH, xpath, attributeLocator); }
         catch(Exception e) { throw new BasePageException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -2279,7 +2251,7 @@ public class BasePage extends ViewBase {
         
         logger.info("Switch to work area located at: " + xpath);
         
-        commandList.addToList("switchToWorkarea:" + xpath);
+        CommandRecord command = getCommandList().addToList("switchToWorkarea:" + xpath);
         
         try {
             
@@ -2291,6 +2263,7 @@ public class BasePage extends ViewBase {
         
         }
         catch(Exception e) { throw new BasePageException(e); }
+        finally { command.finish(); }
    
     }
     
@@ -2303,10 +2276,11 @@ public class BasePage extends ViewBase {
         
         logger.info("Switch back to current window");
         
-        commandList.addToList("switchBackToCurrentWindow");
+        CommandRecord command = getCommandList().addToList("switchBackToCurrentWindow");
        
         try { this.driver.switchTo().defaultContent(); }
         catch(Exception e) { throw new BasePageException(e); }
+        finally { command.finish(); }
   
     }
     
@@ -2325,7 +2299,7 @@ public class BasePage extends ViewBase {
         
         logger.info("Element is displayed with timeout:" + locator);
         
-        commandList.addToList("elementIsDisplayedWithTimeout:" + locator);
+        CommandRecord command = getCommandList().addToList("elementIsDisplayedWithTimeout:" + locator);
         
         try {
             
@@ -2339,6 +2313,7 @@ public class BasePage extends ViewBase {
             
         }
         catch(Exception e) { throw new BasePageException(e); }
+        finally { command.finish(); }
      
     }
     
@@ -2351,10 +2326,11 @@ public class BasePage extends ViewBase {
         
         logger.info("Click enter key on active element");
         
-        commandList.addToList("clickEnterKeyOnActiveElement");
+        CommandRecord command = getCommandList().addToList("clickEnterKeyOnActiveElement");
         
         try { this.driver.switchTo().activeElement().sendKeys(Keys.ENTER); }
         catch(Exception e) { throw new BasePageException(e); }
+        finally { command.finish(); }
         
      }
     
@@ -2371,7 +2347,7 @@ public class BasePage extends ViewBase {
         
         logger.info("Select multiple elements:" + locator);
         
-        commandList.addToList("selectMultipleElements: " + locator);
+        CommandRecord command = getCommandList().addToList("selectMultipleElements: " + locator);
             
         try {
                  
@@ -2381,6 +2357,7 @@ public class BasePage extends ViewBase {
                  
         }
         catch(Exception e) { throw new BasePageException(e); }
+        finally { command.finish(); }
               
     }
     
@@ -2397,10 +2374,11 @@ public class BasePage extends ViewBase {
         
         logger.info("Get selected option value:" + xpathLocator);
         
-        commandList.addToList("getSelectedOptionValue: " + xpathLocator);
+        CommandRecord command = getCommandList().addToList("getSelectedOptionValue: " + xpathLocator);
         
         try { return new Select(find(By.xpath(xpathLocator))).getFirstSelectedOption().getText(); }
         catch(Exception e) { throw new BasePageException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -2419,7 +2397,7 @@ public class BasePage extends ViewBase {
           
         logger.info("Get object attribute:" + object + "|" + attributeLocator);
           
-        commandList.addToList("getObjectAttribute: " + object + "|" + attributeLocator);
+        CommandRecord command = getCommandList().addToList("getObjectAttribute: " + object + "|" + attributeLocator);
            
         try {
         
@@ -2429,6 +2407,7 @@ public class BasePage extends ViewBase {
         
         }
         catch(Exception e) { throw new BasePageException(e); }
+        finally { command.finish(); }
 
     }
 
@@ -2441,7 +2420,7 @@ public class BasePage extends ViewBase {
      */
     public void scrollingToElementofAPage(String xpath) throws BasePageException {
         
-        commandList.addToList("scrollingToElementOfAPage: " + xpath);
+        CommandRecord command = getCommandList().addToList("scrollingToElementOfAPage: " + xpath);
 
         try {
             
@@ -2451,6 +2430,7 @@ public class BasePage extends ViewBase {
             
         }
         catch(Exception e) { throw new BasePageException(e); }
+        finally { command.finish(); }
     }
 
     /**
@@ -2464,7 +2444,7 @@ public class BasePage extends ViewBase {
      */
     public void dragAndDropBy(String xpath, int x_axis, int y_axis) throws BasePageException {
 
-        commandList.addToList("dragAndDropBy " + xpath + " x-axis|" + x_axis + " y-axis|" + y_axis);
+        CommandRecord command = getCommandList().addToList("dragAndDropBy " + xpath + " x-axis|" + x_axis + " y-axis|" + y_axis);
 
         try {
 
@@ -2476,6 +2456,7 @@ public class BasePage extends ViewBase {
 
         }
         catch(Exception e) { throw new BasePageException(e); }
+        finally { command.finish(); }
     }
 
 
@@ -2488,7 +2469,7 @@ public class BasePage extends ViewBase {
      */
     public boolean waitUntilElementBecomeClickable(String xpath) {
         
-        commandList.addToList("waitUntilElementBecomeClickable: " + xpath);
+        CommandRecord command = getCommandList().addToList("waitUntilElementBecomeClickable: " + xpath);
 
         try {
             
@@ -2502,70 +2483,148 @@ public class BasePage extends ViewBase {
         
         }
         catch (Exception e) { return false; }
+        finally { command.finish(); }
     
     }
 
     /**
      * Wait until all ajax connections are completed and closed and that javascript has been completed executed.
      * 
+     * All the frameworks are checked in a single script call per poll, see <code>ReadinessProbe</code>.
+     * 
      * @return 
      */
     public boolean waitForJSandAjaxToLoad(long timeout) {
         
         logger.debug("Wait for javascript and ajax to load:" + timeout);
           
-        commandList.addToList("waitForJSandAjaxToLoad: " + timeout);
-
-        WebDriverWait wait = new WebDriverWait(driver, timeout);
-
-        // If using jQuery
-        ExpectedCondition<Boolean> jQueryLoad = new ExpectedCondition<Boolean>() {
-      
-            @Override
-            public Boolean apply(WebDriver driver) {
+        CommandRecord command = getCommandList().addToList("waitForJSandAjaxToLoad: " + timeout);
         
-                try { return ((Long)((JavascriptExecutor)driver).executeScript("return jQuery.active") == 0); }
-                catch (Exception e) { return true; }
-      
-            }
-    
-        };
+        final ReadinessProbe probe = getReadinessProbe();
         
-        // If using prototype
-        ExpectedCondition<Boolean> prototypeLoad = new ExpectedCondition<Boolean>() {
-      
-            @Override
-            public Boolean apply(WebDriver driver) {
+        PerformanceSpan span = PerformanceCapture.getInstance().startSpan("jsAndAjax");
         
-                try { return ((Long)((JavascriptExecutor)driver).executeScript("return Ajax.activeRequestCount") == 0); }
-                catch (Exception e) { return true; }
-      
-            }
+        try {
+            
+            boolean loaded = AdaptiveWait.getInstance().until(getPageName() + "|jsAndAjax", timeout * 1000, new AdaptiveWait.Condition() {
+                
+                @Override
+                public boolean isSatisfied() { return probe.isReady(driver); }
+                
+            });
+            
+            if(!loaded) throw new TimeoutException("Javascript and ajax did not finish loading after " + timeout + " seconds, waiting on: " + probe.getPending());
+            
+            return loaded;
+            
+        }
+        catch(TimeoutException e) { throw e; }
+        catch(Exception e) { throw new WebDriverException(e); }
+        finally { PerformanceCapture.getInstance().stopSpan(span); command.finish(); }
+
+    }
     
-        };
+    /**
+     * Get the readiness probe for the javascript libraries (<code>jsLibrary</code>) of the page.
+     * 
+     * @return 
+     */
+    protected ReadinessProbe getReadinessProbe() {
         
-        // If using angular.js
-        ExpectedCondition<Boolean> angularJSLoad = new ExpectedCondition<Boolean>() {
-      
-            @Override
-            public Boolean apply(WebDriver driver) {
+        if((readinessProbe == null) || !String.valueOf(jsLibrary).equals(String.valueOf(readinessProbe.getJSLibrary()))) readinessProbe = new ReadinessProbe(jsLibrary);
         
-                try { return ((Long)((JavascriptExecutor)driver).executeScript("return angular.element(document.body).injector().get(\'$http\').pendingRequests.length;") == 0); }
-                catch (Exception e) { return true; }
-      
-            }
+        return readinessProbe;
+        
+    }
     
-        };
-
-        ExpectedCondition<Boolean> jsLoad = new ExpectedCondition<Boolean>() {
-      
-            @Override
-            public Boolean apply(WebDriver driver) { return ((JavascriptExecutor)driver).executeScript("return document.readyState").toString().equals("complete"); }
+    /**
+     * Wait (up to <code>timeout</code> ms) until the page DOM has stopped changing, 
+     * for content that is still loading after the ajax calls are complete.
+     * 
+     * The DOM changes are counted by the same mutation observer the web element cache uses.
+     * When the DOM changes cannot be observed, this falls back to a fixed sleep.
+     * 
+     * @param timeout
+     * 
+     * @return <code>true</code> if the DOM settled before the timeout
+     */
+    public boolean waitForDOMToSettle(long timeout) {
+        
+        logger.debug("Wait for DOM to settle:" + timeout);
+          
+        CommandRecord command = getCommandList().addToList("waitForDOMToSettle: " + timeout);
+        
+        PerformanceSpan span = PerformanceCapture.getInstance().startSpan("domSettle");
+        
+        try { return waitForDOMGenerationToSettle(timeout); }
+        finally { PerformanceCapture.getInstance().stopSpan(span); command.finish(); }
+        
+    }
     
-        };
-
-        return wait.until(jQueryLoad) && wait.until(angularJSLoad) && wait.until(prototypeLoad) && wait.until(jsLoad);
-
+    /**
+     * Wait (up to <code>timeout</code> ms) until the DOM generation has not changed for the quiet period.
+     * 
+     * @param timeout
+     * 
+     * @return <code>true</code> if the DOM settled before the timeout
+     */
+    private boolean waitForDOMGenerationToSettle(long timeout) {
+        
+        // the first call installs the mutation observer on a new document
+        String generation = WebElementCache.getGeneration(driver);
+        
+        if(generation == null) generation = WebElementCache.getGeneration(driver);
+        
+        if(generation == null) {
+            
+            logger.debug("DOM changes cannot be observed, falling back to a fixed sleep");
+            
+            sleep(timeout);
+            
+            return true;
+            
+        }
+        
+        final String initialGeneration = generation;
+        
+        try {
+            
+            return AdaptiveWait.getInstance().until(getPageName() + "|domSettled", timeout, new AdaptiveWait.Condition() {
+                
+                private String lastGeneration = initialGeneration;
+                
+                private long changedAt = System.currentTimeMillis();
+                
+                @Override
+                public boolean isSatisfied() { 
+                    
+                    String current = WebElementCache.getGeneration(driver);
+                    
+                    if((current == null) || !current.equals(lastGeneration)) {
+                        
+                        lastGeneration = current;
+                        
+                        changedAt = System.currentTimeMillis();
+                        
+                        return false;
+                        
+                    }
+                    
+                    return (System.currentTimeMillis() - changedAt) >= DOM_QUIET_PERIOD;
+                    
+                }
+                
+            });
+            
+        }
+        catch(Exception e) { 
+            
+            logger.error(e); 
+            
+            return false;
+        
+        }
+        
     }
     
     /**
@@ -2638,7 +2697,7 @@ public class BasePage extends ViewBase {
         
         logger.info("scroll down");
         
-        commandList.addToList("scroll down");
+        CommandRecord command = getCommandList().addToList("scroll down");
             
         try {
                  
@@ -2648,6 +2707,7 @@ public class BasePage extends ViewBase {
                  
         }
         catch(Exception e) { throw new BasePageException(e); }
+        finally { command.finish(); }
               
     }
     
@@ -2662,7 +2722,7 @@ public class BasePage extends ViewBase {
         
         logger.info("scroll down: " + pixelsDown);
         
-        commandList.addToList("scroll down: " + pixelsDown);
+        CommandRecord command = getCommandList().addToList("scroll down: " + pixelsDown);
             
         try {
                  
@@ -2672,6 +2732,7 @@ public class BasePage extends ViewBase {
                  
         }
         catch(Exception e) { throw new BasePageException(e); }
+        finally { command.finish(); }
               
     }
     
@@ -2684,7 +2745,7 @@ public class BasePage extends ViewBase {
         
         logger.info("scroll up");
         
-        commandList.addToList("scroll up");
+        CommandRecord command = getCommandList().addToList("scroll up");
             
         try {
                  
@@ -2694,6 +2755,7 @@ public class BasePage extends ViewBase {
                  
         }
         catch(Exception e) { throw new BasePageException(e); }
+        finally { command.finish(); }
               
     }
     
@@ -2708,7 +2770,7 @@ public class BasePage extends ViewBase {
         
         logger.info("scroll up");
         
-        commandList.addToList("scroll up");
+        CommandRecord command = getCommandList().addToList("scroll up");
             
         try {
                  
@@ -2718,6 +2780,7 @@ public class BasePage extends ViewBase {
                  
         }
         catch(Exception e) { throw new BasePageException(e); }
+        finally { command.finish(); }
               
     }
     
@@ -2730,7 +2793,7 @@ public class BasePage extends ViewBase {
         
         logger.info("scroll down to botom of page");
         
-        commandList.addToList("scroll down to bottom of page");
+        CommandRecord command = getCommandList().addToList("scroll down to bottom of page");
             
         try {
                  
@@ -2740,6 +2803,7 @@ public class BasePage extends ViewBase {
                  
         }
         catch(Exception e) { throw new BasePageException(e); }
+        finally { command.finish(); }
               
     }
     
@@ -2754,10 +2818,11 @@ public class BasePage extends ViewBase {
         
         logger.info("Click on a link containing the text: " + text);
             
-        commandList.addToList("clickOnWebElementByPartialLinkText: " + text);
+        CommandRecord command = getCommandList().addToList("clickOnWebElementByPartialLinkText: " + text);
         
         try { find(By.partialLinkText(text)).click(); }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -2772,10 +2837,11 @@ public class BasePage extends ViewBase {
         
         logger.info("Validate a link matching the text is visible: " + text);
             
-        commandList.addToList("validateLinkIsVisible: " + text);
+        CommandRecord command = getCommandList().addToList("validateLinkIsVisible: " + text);
         
         try { find(By.linkText(text)); }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -2790,13 +2856,95 @@ public class BasePage extends ViewBase {
         
         logger.info("Click on a link matching the text: " + text);
             
-        commandList.addToList("clickOnWebElementByPartialLinkText: " + text);
+        CommandRecord command = getCommandList().addToList("clickOnWebElementByPartialLinkText: " + text);
         
         try { find(By.linkText(text)).click(); }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
         
     }
 
+    /**
+     * Get the finder used to match web elements by text with a single javascript round trip.
+     * 
+     * @param waitForCandidates wait (up to the timeout) for candidate elements to be present
+     * 
+     * @return 
+     */
+    protected WebElementTextFinder getWebElementTextFinder(boolean waitForCandidates) {
+        
+        return new WebElementTextFinder(this.driver, waitForCandidates ? (new Long(this.timeout)).longValue() : 0);
+        
+    }
+    
+    /**
+     * Search the web elements matching the locator for the first one with text (or an attribute value) 
+     * matching all of the texts. The search is done in the browser in a single round trip.
+     * 
+     * @param locatorType
+     * @param locator
+     * @param attribute the attribute to match, or <code>null</code> to match the element text
+     * @param textMatch
+     * @param texts
+     * 
+     * @return 
+     */
+    protected WebElementTextFinder.Match searchWebElementsWithText(LocatorType locatorType, String locator, String attribute, TextMatch textMatch, String... texts) {
+        
+        WebElementTextFinder.Match match = null;
+        
+        try { 
+            
+            match = getWebElementTextFinder(true).find(locatorType, locator, attribute, textMatch, texts); 
+            
+            return match;
+        
+        }
+        finally { addLookupScreenshotToReport((match == null) || !match.isFound()); }
+        
+    }
+    
+    /**
+     * Get a web element with text (or an attribute value) matching all of the texts.
+     * 
+     * @param locatorType
+     * @param locator
+     * @param attribute the attribute to match, or <code>null</code> to match the element text
+     * @param textMatch
+     * @param ignoreCase
+     * @param texts
+     * 
+     * @return
+     * 
+     * @throws BasePageException 
+     */
+    public WebElement getWebElementWithText(LocatorType locatorType, String locator, String attribute, TextMatch textMatch, boolean ignoreCase, String... texts) throws BasePageException {
+        
+        logger.debug("Get the web element with text: " + locatorType + "|" + locator + "|" + attribute + "|" + textMatch + "|" + ignoreCase);
+        
+        CommandRecord command = getCommandList().addToList("getWebElementWithText: " + locatorType + "|" + locator + "|" + attribute + "|" + textMatch + "|" + ignoreCase);
+        
+        WebElementTextFinder.Match match = null;
+        
+        try {
+            
+            WebElementTextFinder finder = getWebElementTextFinder(true);
+            
+            finder.setIgnoreCase(ignoreCase);
+            
+            match = finder.find(locatorType, locator, attribute, textMatch, texts);
+            
+            // if we get here, we could not find the element so throw an exception
+            if(!match.isFound()) throw new Exception("Could not find text in any screen element matching locator: " + locator + " and text: " + Arrays.toString(texts));
+            
+            return match.getElement();
+            
+        }
+        catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { addLookupScreenshotToReport((match == null) || !match.isFound()); command.finish(); }
+        
+    }
+    
     /**
      * Get the element matching css selector. This can be used for many purposes including getting by element tag name
      * 
@@ -2810,10 +2958,11 @@ public class BasePage extends ViewBase {
 
         logger.debug("Preparing to find web element by css selector: " + cssSelector);
 
-        commandList.addToList("getWebElementWithCSS:" + cssSelector);
+        CommandRecord command = getCommandList().addToList("getWebElementWithCSS:" + cssSelector);
         
         try { return findElements(By.cssSelector(cssSelector)); }
         catch(Exception e) { throw new BasePageException(e); }
+        finally { command.finish(); }
         
     }
 
@@ -2829,7 +2978,7 @@ public class BasePage extends ViewBase {
        
         logger.debug("Clicking on web element with css selector and containing text: " + text + "|" + cssSelector);
         
-        commandList.addToList("clickOnWebElementContainingTextCSSSelector: " + text + "|" + cssSelector);
+        CommandRecord command = getCommandList().addToList("clickOnWebElementContainingTextCSSSelector: " + text + "|" + cssSelector);
         
         try {
                     
@@ -2839,6 +2988,7 @@ public class BasePage extends ViewBase {
             
         }
         catch(Exception e) { throw e; }
+        finally { command.finish(); }
         
     }
     
@@ -2854,7 +3004,7 @@ public class BasePage extends ViewBase {
        
         logger.info("Clicking on web element with css selector and matching text: " + text + "|" + cssSelector);
         
-        commandList.addToList("clickOnWebElementMatchingTextCSSSelector: " + text + "|" + cssSelector);
+        CommandRecord command = getCommandList().addToList("clickOnWebElementMatchingTextCSSSelector: " + text + "|" + cssSelector);
         
         try {
                     
@@ -2864,6 +3014,7 @@ public class BasePage extends ViewBase {
             
         }
         catch(Exception e) { throw e; }
+        finally { command.finish(); }
         
     }
 
@@ -2881,31 +3032,20 @@ public class BasePage extends ViewBase {
 
         logger.debug("Get the web element with css selector and containing text: " + text + "|" + cssSelector);
 
-        commandList.addToList("getWebElementWithCSSAndContainsText: " + text + "|" + cssSelector);
-
-         try {
-
-                List<WebElement> elements = getWebElementsWithCSS(cssSelector);
+        CommandRecord command = getCommandList().addToList("getWebElementWithCSSAndContainsText: " + text + "|" + cssSelector);
 
-                for (WebElement element:elements) {
-
-                    String data = element.getText().trim();
-
-                    if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
-
-                    logger.debug("Checking value: " + data);
-
-                    if(data.contains(text)) return element;
+        try {
 
-                }
+            WebElement element = searchWebElementsWithText(LocatorType.CSS_SELECTOR, cssSelector, null, TextMatch.CONTAINS, text).getElement();
                 
-                // if we get here, we could not find the element so throw an exception
-               throw new Exception("Could not find text in any screen element matching type: " + cssSelector + " and text: " + text);
+            // if we get here, we could not find the element so throw an exception
+            if(element == null) throw new Exception("Could not find text in any screen element matching type: " + cssSelector + " and text: " + text);
+            
+            return element;
         
-         }
+        }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
-
-        
+        finally { command.finish(); }
 
     }
     
@@ -2921,31 +3061,22 @@ public class BasePage extends ViewBase {
      */
     public WebElement getWebElementWithCSSAndMatchesText(String text, String cssSelector) throws BasePageException {
 
-        logger.debug("Get the web element with css selector and containing text: " + text + "|" + cssSelector);
+        logger.debug("Get the web element with css selector and matching text: " + text + "|" + cssSelector);
 
-        commandList.addToList("getWebElementWithCSSAndContainsText: " + text + "|" + cssSelector);
+        CommandRecord command = getCommandList().addToList("getWebElementWithCSSAndMatchesText: " + text + "|" + cssSelector);
 
         try {
 
-                List<WebElement> elements = getWebElementsWithCSS(cssSelector);
+            WebElement element = searchWebElementsWithText(LocatorType.CSS_SELECTOR, cssSelector, null, TextMatch.EQUALS, text).getElement();
                 
-                for(WebElement element:elements) {
-
-                    String data = element.getText().trim();
-
-                    if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
-
-                    logger.debug("Checking value: " + data);
-
-                    if(data.trim().equals(text.trim())) return element;
-
-                }
-
-                // if we get here, we could not find the element so throw an exception
-                throw new Exception("Could not find text in any screen element matching type: " + cssSelector + " and text: " + text);
-   
-        }    
+            // if we get here, we could not find the element so throw an exception
+            if(element == null) throw new Exception("Could not find text in any screen element matching type: " + cssSelector + " and text: " + text);
+            
+            return element;
+        
+        }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
 
     }
 
@@ -2962,33 +3093,24 @@ public class BasePage extends ViewBase {
      * @throws BasePageException 
      */
     public WebElement getWebElementWithCSSAndMatchesTypeAndContainsText(String type, String typeValue, String cssSelector) throws BasePageException {
-       
+
         logger.info("Get a web element matching the css selector and matches a type and containing the text: " + type + "|" + typeValue + "|" + cssSelector);
         
-        commandList.addToList("getWebElementWithCSSAndMatchesTypeAndContainsText: " + type + "|" + typeValue + "|" + cssSelector);
-        
+        CommandRecord command = getCommandList().addToList("getWebElementWithCSSAndMatchesTypeAndContainsText: " + type + "|" + typeValue + "|" + cssSelector);
+
         try {
-            
-            List<WebElement> elements = getWebElementsWithCSS(cssSelector);
-            
-            for (WebElement element:elements) {
-                
-                String data = element.getAttribute("type");
-                
-                if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
-                
-                logger.debug("Checking value: " + data);
-                   
-                if(data.contains(typeValue)) return element;
+
+            WebElement element = searchWebElementsWithText(LocatorType.CSS_SELECTOR, cssSelector, "type", TextMatch.CONTAINS, typeValue).getElement();
                 
-            }
-            
-            // if we get here, we could not find the element so throw an exception    
-            throw new Exception("Could not find text in any screen element matching type: " + cssSelector + " and text: " + typeValue + " and matching type: " + type);
+            // if we get here, we could not find the element so throw an exception
+            if(element == null) throw new Exception("Could not find text in any screen element matching type: " + cssSelector + " and text: " + typeValue + " and matching type: " + type);
             
+            return element;
+        
         }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
-        
+        finally { command.finish(); }
+
     }
     
     /**
@@ -3002,33 +3124,24 @@ public class BasePage extends ViewBase {
      * @throws BasePageException 
      */
     public WebElement getWebElementWithCSSAndMatchesDataAtIdAndContainsText(String value, String cssSelector) throws BasePageException {
-       
+
         logger.info("Get a web element matching the css selector and matches a type and containing the text: " + value + "|" + cssSelector);
-        
-        commandList.addToList("getWebElementWithCSSAndMatchesDataAtIdAndContainsText: " + value + "|" + cssSelector);
-        
+
+        CommandRecord command = getCommandList().addToList("getWebElementWithCSSAndMatchesDataAtIdAndContainsText: " + value + "|" + cssSelector);
+
         try {
-            
-            List<WebElement> elements = getWebElementsWithCSS(cssSelector);
-            
-            for (WebElement element:elements) {
-                
-                String data = element.getAttribute("data-atid");
-                
-                if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
-                
-                logger.debug("Checking value: " + data);
-                   
-                if(data.contains(value)) return element;
+
+            WebElement element = searchWebElementsWithText(LocatorType.CSS_SELECTOR, cssSelector, "data-atid", TextMatch.CONTAINS, value).getElement();
                 
-            }
-            
-            // if we get here, we could not find the element so throw an exception    
-            throw new Exception("Could not find text in any screen element matching type: " + cssSelector + " and text: " + value + " and matching type: data-atid");
+            // if we get here, we could not find the element so throw an exception
+            if(element == null) throw new Exception("Could not find text in any screen element matching type: " + cssSelector + " and text: " + value + " and matching type: data-atid");
             
+            return element;
+        
         }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
-        
+        finally { command.finish(); }
+
     }
     
     /**
@@ -3044,10 +3157,11 @@ public class BasePage extends ViewBase {
        
         logger.info("Click on a web element matching the css selector and matches a type and containing the text: " + type + "|" + text + "|" + cssSelector);
         
-        commandList.addToList("clickOnWebElementWithCSSAndMatchesTypeAndContainsText: " + type + "|" + text + "|" + cssSelector);
+        CommandRecord command = getCommandList().addToList("clickOnWebElementWithCSSAndMatchesTypeAndContainsText: " + type + "|" + text + "|" + cssSelector);
         
         try { getWebElementWithCSSAndMatchesTypeAndContainsText(type, text, cssSelector).click(); }
         catch(Exception e) { throw e; }
+        finally { command.finish(); }
         
     }
     
@@ -3063,10 +3177,11 @@ public class BasePage extends ViewBase {
        
         logger.info("Click on a web element matching the css selector and matches a type and containing the text: " + text + "|" + cssSelector);
         
-        commandList.addToList("clickOnWebElementWithCSSAndMatchesAtIdAndContainsText: " + text + "|" + cssSelector);
+        CommandRecord command = getCommandList().addToList("clickOnWebElementWithCSSAndMatchesAtIdAndContainsText: " + text + "|" + cssSelector);
         
         try { getWebElementWithCSSAndMatchesDataAtIdAndContainsText(text, cssSelector).click(); }
         catch(Exception e) { throw e; }
+        finally { command.finish(); }
         
     }
     
@@ -3083,10 +3198,11 @@ public class BasePage extends ViewBase {
        
         logger.info("Get the web element at resource id: " + resourceId);
         
-        commandList.addToList("getWebElementAtResourceId:" + resourceId);
+        CommandRecord command = getCommandList().addToList("getWebElementAtResourceId:" + resourceId);
         
         try { return find(By.id(resourceId)); }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -3117,10 +3233,11 @@ public class BasePage extends ViewBase {
        
         logger.info("Click on the element with the matching resource id attribute: " + resourceId);
         
-        commandList.addToList("clickOnWebElementWithResourceId:" + resourceId);
+        CommandRecord command = getCommandList().addToList("clickOnWebElementWithResourceId:" + resourceId);
         
         try { getWebElementAtResourceId(resourceId).click(); }
         catch(Exception e) { throw e; }
+        finally { command.finish(); }
         
     }
     
@@ -3138,7 +3255,7 @@ public class BasePage extends ViewBase {
         
         logger.debug("Type text value into a web element at the CSS selector: " + cssSelector + "|" + typeValue + "|" + value);
         
-        commandList.addToList("enterTextIntoWebElementUsingCSSSelector: " + cssSelector + "|" + typeValue + "|" + value);
+        CommandRecord command = getCommandList().addToList("enterTextIntoWebElementUsingCSSSelector: " + cssSelector + "|" + typeValue + "|" + value);
         
         try {
         
@@ -3148,6 +3265,7 @@ public class BasePage extends ViewBase {
             
         }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
     
     }
     
@@ -3163,7 +3281,7 @@ public class BasePage extends ViewBase {
         
         logger.debug("Type text value into a web element at the resource id: " + resourceId + "|" + value);
         
-        commandList.addToList("enterTextIntoWebElementUsingResourceId: " + resourceId + "|" + value);
+        CommandRecord command = getCommandList().addToList("enterTextIntoWebElementUsingResourceId: " + resourceId + "|" + value);
         
         try {
         
@@ -3173,6 +3291,7 @@ public class BasePage extends ViewBase {
              
         }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
     
     }
     
@@ -3189,7 +3308,7 @@ public class BasePage extends ViewBase {
         
         logger.debug("Type text value into a web element at the data-atid: " + cssSelector + "|" + dataAtIdValue + "|" + value);
         
-        commandList.addToList("enterTextIntoWebElementUsingDataAtId: " + cssSelector + "|" + dataAtIdValue + "|" + value);
+        CommandRecord command = getCommandList().addToList("enterTextIntoWebElementUsingDataAtId: " + cssSelector + "|" + dataAtIdValue + "|" + value);
         
         try {
         
@@ -3199,6 +3318,7 @@ public class BasePage extends ViewBase {
              
         }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
     
     }
     
@@ -3214,7 +3334,7 @@ public class BasePage extends ViewBase {
         
         logger.debug("Type text value into a web element at the data-atid: " + "|" + dataAtIdValue + "|" + value);
         
-        commandList.addToList("enterTextIntoWebElementUsingDataAtId: " + "|" + dataAtIdValue + "|" + value);
+        CommandRecord command = getCommandList().addToList("enterTextIntoWebElementUsingDataAtId: " + "|" + dataAtIdValue + "|" + value);
         
         try {
         
@@ -3224,6 +3344,7 @@ public class BasePage extends ViewBase {
             
         }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
     
     }
     
@@ -3240,10 +3361,11 @@ public class BasePage extends ViewBase {
         
         logger.debug("Get the text value in a web element at the resource id: " + resourceId);
         
-        commandList.addToList("getTextInWebElementUsingResourceId: " + resourceId);
+        CommandRecord command = getCommandList().addToList("getTextInWebElementUsingResourceId: " + resourceId);
         
         try { return getWebElementAtResourceId(resourceId).getText(); }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
     
     }
     
@@ -3260,10 +3382,11 @@ public class BasePage extends ViewBase {
         
         logger.debug("Get the text value in a web element at the data-atid: " + id);
         
-        commandList.addToList("getTextInWebElementUsingDataAtId: " + id);
+        CommandRecord command = getCommandList().addToList("getTextInWebElementUsingDataAtId: " + id);
         
         try { return getWebElementWithLocator("//*[@data-atid='" + id + "']").getText(); }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
     
     }
     
@@ -3278,10 +3401,11 @@ public class BasePage extends ViewBase {
         
         logger.debug("Get the text value in a web element at the resource id: " + resourceId);
         
-        commandList.addToList("getTextInWebElementUsingResourceId: " + resourceId);
+        CommandRecord command = getCommandList().addToList("getTextInWebElementUsingResourceId: " + resourceId);
         
         try { clearWebElement(getWebElementAtResourceId(resourceId)); }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
     
     }
     
@@ -3296,10 +3420,11 @@ public class BasePage extends ViewBase {
         
         logger.debug("Get the text value in a web element at the data-atid: " + value);
         
-        commandList.addToList("clearWebElementUsingDataAtId: " + value);
+        CommandRecord command = getCommandList().addToList("clearWebElementUsingDataAtId: " + value);
         
         try { clearWebElement(getWebElementWithLocator("//*[@data-atid='" + value + "']")); }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
     
     }
     
@@ -3602,6 +3727,23 @@ public class BasePage extends ViewBase {
      * These next set of methods are an attempt to speed up execution if locators are not found or reachable
     */
     
+    /**
+     * Set the implicit wait of the driver, skipping the driver call when it is already set.
+     * 
+     * @param seconds
+     */
+    protected void setImplicitWait(long seconds) {
+        
+        Long current = implicitWaits.get(driver);
+        
+        if((current != null) && (current.longValue() == seconds)) return;
+        
+        driver.manage().timeouts().implicitlyWait(seconds, TimeUnit.SECONDS);
+        
+        implicitWaits.put(driver, seconds);
+        
+    }
+    
     /**
      * Bypass the default implicit wait to zero seconds
      * 
@@ -3611,12 +3753,13 @@ public class BasePage extends ViewBase {
         
         logger.debug("Bypass the default implicit wait to zero seconds");
         
-        commandList.addToList("byPassImplicitWait");
+        CommandRecord command = getCommandList().addToList("byPassImplicitWait");
         
         this.timeout = "0";
         
-        try { driver.manage().timeouts().implicitlyWait(0, TimeUnit.SECONDS); }
+        try { setImplicitWait(0); }
         catch(Exception e) { throw e; }
+        finally { command.finish(); }
         
     }
     
@@ -3629,7 +3772,7 @@ public class BasePage extends ViewBase {
         
         logger.debug("Re-enable the default implicit wait");
         
-        commandList.addToList("enableImplicitWait");
+        CommandRecord command = getCommandList().addToList("enableImplicitWait");
         
         try { 
             
@@ -3639,10 +3782,11 @@ public class BasePage extends ViewBase {
             
             logger.debug("Timeout is set to: " + this.timeout);
             
-            driver.manage().timeouts().implicitlyWait((new Long(this.timeout)).longValue(), TimeUnit.SECONDS); 
+            setImplicitWait((new Long(this.timeout)).longValue()); 
         
         }
         catch(Exception e) { throw e; }
+        finally { command.finish(); }
         
     }
     
@@ -3657,7 +3801,7 @@ public class BasePage extends ViewBase {
         
         info("Hover the mouse over the link with text: " + text);
         
-        commandList.addToList("hoverOverText|" + text);
+        CommandRecord command = getCommandList().addToList("hoverOverText|" + text);
         
         try {
             
@@ -3669,6 +3813,7 @@ public class BasePage extends ViewBase {
             
         }
         catch(Exception e) { throw e; }
+        finally { command.finish(); }
         
     }
     
@@ -3720,6 +3865,9 @@ public class BasePage extends ViewBase {
             
             // set force page load wait time (actual millisecond setting) property
             if(properties.get(StringCapabilities.FORCE_PAGE_LOAD_WAIT_TIME.getCapability()) != null) { forcePageLoadWaitTime = (new Long(properties.get(StringCapabilities.FORCE_PAGE_LOAD_WAIT_TIME.getCapability()).trim())).longValue(); }
+            
+            // cache resolved web elements per page
+            if(properties.get(BooleanCapabilities.USE_ELEMENT_CACHE.getCapability()) != null) { useElementCache = (new Boolean(properties.get(BooleanCapabilities.USE_ELEMENT_CACHE.getCapability()))).booleanValue(); }
            
             if(properties.get(BooleanCapabilities.USE_HTTP_AUTH.getCapability()) != null) {
                 
@@ -3771,7 +3919,7 @@ public class BasePage extends ViewBase {
         
         logger.info("Hover on a link matching the text: " + text);
             
-        commandList.addToList("hoverOnWebElementByLinkText: " + text);
+        CommandRecord command = getCommandList().addToList("hoverOnWebElementByLinkText: " + text);
         
         try {
             
@@ -3781,6 +3929,7 @@ public class BasePage extends ViewBase {
             
         }
         catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
         
     }
     
@@ -3795,15 +3944,20 @@ public class BasePage extends ViewBase {
         
         logger.info("Scroll to element contains text: " + text);
             
-        commandList.addToList("scrollToElementContainsText: " + text);
+        CommandRecord command = getCommandList().addToList("scrollToElementContainsText: " + text);
       
-        JavascriptExecutor js = (JavascriptExecutor) driver;
+        try {
+            
+            JavascriptExecutor js = (JavascriptExecutor) driver;
 
-        WebElement element = find(By.xpath("//*[contains(text(),'" + text + "')]"));
+            WebElement element = find(By.xpath("//*[contains(text(),'" + text + "')]"));
         
-        logger.info("found element to scroll to: " + element);
+            logger.info("found element to scroll to: " + element);
 
-        js.executeScript("arguments[0].scrollIntoView(true);", element);
+            js.executeScript("arguments[0].scrollIntoView(true);", element);
+        
+        }
+        finally { command.finish(); }
         
     }
     
@@ -3819,13 +3973,18 @@ public class BasePage extends ViewBase {
         
         logger.info("Select option containing text (XPATH): " + xpath + "|" + text);
             
-        commandList.addToList("selectOptionContainingText_XPATH: " + xpath + "|" + text);
+        CommandRecord command = getCommandList().addToList("selectOptionContainingText_XPATH: " + xpath + "|" + text);
+            
+        try {
             
-        WebElement mySelectElement = find(By.xpath("//*[contains(text(),'" + text + "')]"));
+            WebElement mySelectElement = find(By.xpath("//*[contains(text(),'" + text + "')]"));
  
-        Select dropdown = new Select(mySelectElement);
+            Select dropdown = new Select(mySelectElement);
  
-        dropdown.selectByValue(text);
+            dropdown.selectByValue(text);
+        
+        }
+        finally { command.finish(); }
 
     }
     
@@ -3841,13 +4000,18 @@ public class BasePage extends ViewBase {
         
         logger.info("Select option containing text: " + resourceId + "|" + text);
             
-        commandList.addToList("selectOptionContainingText_ResourceId: " + resourceId + "|" + text);
+        CommandRecord command = getCommandList().addToList("selectOptionContainingText_ResourceId: " + resourceId + "|" + text);
             
-        WebElement mySelectElement = getWebElementAtResourceId(resourceId);
+        try {
+            
+            WebElement mySelectElement = getWebElementAtResourceId(resourceId);
  
-        Select dropdown= new Select(mySelectElement);
+            Select dropdown= new Select(mySelectElement);
  
-        dropdown.selectByValue(text);
+            dropdown.selectByValue(text);
+        
+        }
+        finally { command.finish(); }
 
     }
     
@@ -3871,29 +4035,20 @@ public class BasePage extends ViewBase {
 
         logger.debug("Get the web element with css selector and starts with text: " + text + "|" + cssSelector);
 
-        commandList.addToList("getWebElementWithCSSAndStartsWithText: " + text + "|" + cssSelector);
-        
-        try {
-
-                List<WebElement> elements = getWebElementsWithCSS(cssSelector);
-
-                for (WebElement element:elements) {
+        CommandRecord command = getCommandList().addToList("getWebElementWithCSSAndStartsWithText: " + text + "|" + cssSelector);
 
-                    String data = element.getText().trim();
-
-                    if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
-
-                    logger.debug("Checking value: " + data);
-
-                    if(data.startsWith(text)) return element;
-
-                }
-
-                // if we get here, we could not find the element so throw an exception
-                throw new Exception("Could not find text in any screen element matching type: " + cssSelector + " and text: " + text);
+        try {
 
-            }
-            catch(Exception e) { printDOM(); throw new BasePageException(e); }
+            WebElement element = searchWebElementsWithText(LocatorType.CSS_SELECTOR, cssSelector, null, TextMatch.STARTS_WITH, text).getElement();
+                
+            // if we get here, we could not find the element so throw an exception
+            if(element == null) throw new Exception("Could not find text in any screen element matching type: " + cssSelector + " and text: " + text);
+            
+            return element;
+        
+        }
+        catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
 
     }
 
@@ -3909,37 +4064,20 @@ public class BasePage extends ViewBase {
 
         logger.debug("Get the web element with locator and starts with text: " + locator + "|" + text);
 
-        commandList.addToList("clickOnOnWebElementWithXpathAndStartsWithText: " + locator + "|" + text);
+        CommandRecord command = getCommandList().addToList("clickOnOnWebElementWithXpathAndStartsWithText: " + locator + "|" + text);
 
         try {
 
-                List<WebElement> elements = findElements(By.xpath(locator));
-
-                for (WebElement element:elements) {
+            WebElement element = searchWebElementsWithText(LocatorType.XPATH, locator, null, TextMatch.STARTS_WITH, text).getElement();
 
-                    String data = element.getText().trim();
-
-                    if((data == null) || (data.trim().length() == 0)) continue; // blank, so ignore
-
-                    logger.debug("Checking value: " + data);
-
-                    // if more matching is required, this can be enhanced using regular
-                    //  expressions or longest match approach
-                    if(data.startsWith(text)) {
-                        
-                        element.click();
-                        
-                        return;
-                    
-                    }
-                
-                }
-
-                // if we get here, we could not find the element so throw an exception
-                throw new Exception("Could not find text in any screen element matching locator: " + locator + " and starting with text: " + text);
+            // if we get here, we could not find the element so throw an exception
+            if(element == null) throw new Exception("Could not find text in any screen element matching locator: " + locator + " and starting with text: " + text);
+            
+            element.click();
 
-            }
-            catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        }
+        catch(Exception e) { printDOM(); throw new BasePageException(e); }
+        finally { command.finish(); }
 
     }
     
@@ -0,0 +1,266 @@
+/**
+ * This file is part of Automate It!'s free and open source web and mobile 
+ * application testing framework.
+ * 
+ * Automate It! is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Automate It! is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Automate It!.  If not, see <http://www.gnu.org/licenses/>.
+ *  
+ **/
+
+package org.automateit.web.pages;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+/**
+ * This class checks if a page has finished loading (javascript and ajax) with a single 
+ * <code>JavascriptExecutor</code> round trip.
+ * <p>
+ * The check is made of probes - small script bodies returning <code>true</code> when the part of the 
+ * page they watch is ready. The probes to use are selected by the <code>jsLibrary</code> capability, 
+ * a comma separated list of probe names:
+ * <ul>
+ * <li><code>jquery</code> - no active jQuery ajax requests</li>
+ * <li><code>angular</code> - no pending angular.js $http requests</li>
+ * <li><code>prototype</code> - no active Prototype ajax requests</li>
+ * <li><code>network</code> - no fetch/XMLHttpRequest in flight (counted by a shim installed by the probe, 
+ * so it only sees requests started after the first check on a page)</li>
+ * </ul>
+ * When <code>jsLibrary</code> is not set, the jquery, angular and prototype probes are used. 
+ * The document ready state is always checked. A probe that fails (the library is not on the page) is ready.
+ * More probes can be added with <code>register</code>.
+ * 
+ * @author mburnside
+ */
+public class ReadinessProbe {
+    
+    /**
+     * Probe names
+     */
+    public static final String DOCUMENT = "document";
+    
+    public static final String JQUERY = "jquery";
+    
+    public static final String ANGULAR = "angular";
+    
+    public static final String PROTOTYPE = "prototype";
+    
+    public static final String NETWORK = "network";
+    
+    /**
+     * Probes used when <code>jsLibrary</code> is not set
+     */
+    public static final String[] DEFAULT_PROBES = { JQUERY, ANGULAR, PROTOTYPE };
+    
+    /**
+     * The registered probes (name, script body returning true when ready)
+     */
+    private static final Map<String, String> probes = new LinkedHashMap<String, String>();
+    
+    static {
+        
+        register(DOCUMENT, "return document.readyState === 'complete';");
+        
+        register(JQUERY, "return jQuery.active == 0;");
+        
+        register(ANGULAR, "return angular.element(document.body).injector().get('$http').pendingRequests.length == 0;");
+        
+        register(PROTOTYPE, "return Ajax.activeRequestCount == 0;");
+        
+        register(NETWORK, 
+                "var w = window;" +
+                "if(!w.__automateitNetwork) {" +
+                "  var n = w.__automateitNetwork = { inFlight: 0 };" +
+                "  if(w.XMLHttpRequest) {" +
+                "    var send = w.XMLHttpRequest.prototype.send;" +
+                "    w.XMLHttpRequest.prototype.send = function() {" +
+                "      var done = false, end = function() { if(!done) { done = true; n.inFlight--; } };" +
+                "      n.inFlight++;" +
+                "      this.addEventListener('loadend', end);" +
+                "      try { return send.apply(this, arguments); } catch(e) { end(); throw e; }" +
+                "    };" +
+                "  }" +
+                "  if(w.fetch) {" +
+                "    var fetch = w.fetch;" +
+                "    w.fetch = function() {" +
+                "      n.inFlight++;" +
+                "      var end = function() { n.inFlight--; };" +
+                "      try { var p = fetch.apply(this, arguments); p.then(end, end); return p; } catch(e) { end(); throw e; }" +
+                "    };" +
+                "  }" +
+                "}" +
+                "return w.__automateitNetwork.inFlight <= 0;");
+        
+    }
+    
+    /**
+     *  logging object, logging conf is defined in conf/log4j.properties
+     */
+    protected static Logger logger = Logger.getLogger(ReadinessProbe.class);
+    
+    /**
+     * The jsLibrary value the probes were selected with
+     */
+    private final String jsLibrary;
+    
+    /**
+     * The names of the selected probes
+     */
+    private final List<String> names = new ArrayList<String>();
+    
+    /**
+     * The combined script, returns <code>null</code> when ready or the name of the first probe not ready
+     */
+    private final String script;
+    
+    /**
+     * The probe that was not ready at the last check
+     */
+    private volatile String pending = null;
+    
+    /**
+     * Copy Constructor.
+     * 
+     * @param jsLibrary comma separated probe names, <code>null</code> for the defaults
+     */
+    public ReadinessProbe(String jsLibrary) {
+        
+        this.jsLibrary = jsLibrary;
+        
+        String[] selected = ((jsLibrary == null) || (jsLibrary.trim().length() == 0)) ? DEFAULT_PROBES : jsLibrary.split(",");
+        
+        StringBuilder builder = new StringBuilder();
+        
+        synchronized(probes) {
+            
+            for(String name:selected) addProbe(builder, name.trim().toLowerCase());
+            
+            // document ready state is always checked last
+            addProbe(builder, DOCUMENT);
+            
+        }
+        
+        builder.append("return null;");
+        
+        this.script = builder.toString();
+        
+        logger.debug("Readiness probes: " + names);
+        
+    }
+    
+    /**
+     * Add a probe to the combined script.
+     * 
+     * @param builder
+     * @param name 
+     */
+    private void addProbe(StringBuilder builder, String name) {
+        
+        if((name.length() == 0) || names.contains(name)) return;
+        
+        String body = probes.get(name);
+        
+        if(body == null) {
+            
+            logger.warn("Unknown readiness probe in jsLibrary, ignoring: " + name);
+            
+            return;
+            
+        }
+        
+        names.add(name);
+        
+        builder.append("try { if(!(function() { ").append(body).append(" })()) return '").append(name).append("'; } catch(e) { }");
+        
+    }
+    
+    /**
+     * Register (or replace) a probe.
+     * 
+     * @param name the name used in <code>jsLibrary</code>
+     * @param script a script body returning <code>true</code> when ready
+     */
+    public static void register(String name, String script) {
+        
+        synchronized(probes) { probes.put(name.trim().toLowerCase(), script); }
+        
+    }
+    
+    /**
+     * Check if the page is ready.
+     * 
+     * @param driver
+     * 
+     * @return 
+     */
+    public boolean isReady(WebDriver driver) {
+        
+        if(!(driver instanceof JavascriptExecutor)) return true;
+        
+        try { 
+            
+            Object value = ((JavascriptExecutor)driver).executeScript(script); 
+            
+            pending = (value == null) ? null : value.toString();
+            
+        }
+        catch(WebDriverException e) { 
+            
+            // the page may be navigating, check again
+            logger.debug("Unable to run readiness probes: " + e.getMessage());
+            
+            pending = "script";
+            
+        }
+        
+        return pending == null;
+        
+    }
+    
+    /**
+     * Get the jsLibrary value the probes were selected with.
+     * 
+     * @return 
+     */
+    public String getJSLibrary() { return jsLibrary; }
+    
+    /**
+     * Get the names of the selected probes.
+     * 
+     * @return 
+     */
+    public List<String> getProbeNames() { return new ArrayList<String>(names); }
+    
+    /**
+     * Get the probe that was not ready at the last check.
+     * 
+     * @return The probe name or <code>null</code> if ready
+     */
+    public String getPending() { return pending; }
+    
+    /**
+     * Get the combined script.
+     * 
+     * @return 
+     */
+    public String getScript() { return script; }
+    
+}
@@ -0,0 +1,522 @@
+/**
+ * This file is part of Automate It!'s free and open source web and mobile 
+ * application testing framework.
+ * 
+ * Automate It! is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Automate It! is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Automate It!.  If not, see <http://www.gnu.org/licenses/>.
+ *  
+ **/
+
+package org.automateit.web.pages;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.Point;
+import org.openqa.selenium.Rectangle;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.WrapsDriver;
+import org.openqa.selenium.WrapsElement;
+import org.openqa.selenium.interactions.Coordinates;
+import org.openqa.selenium.interactions.Locatable;
+
+/**
+ * This class caches resolved web elements for a page, keyed by their <code>By</code> locator.
+ * 
+ * Resolving the same locator again does not go through a <code>WebDriverWait</code> and 
+ * <code>findElement</code> while the page has not changed. The cache is cleared:
+ * <ul>
+ * <li>on navigation (open, refresh, page load waits)</li>
+ * <li>when the "DOM generation" changes - a <code>MutationObserver</code> injected into the 
+ * document counts the structural changes (added/removed nodes) of the page; a new document 
+ * (or frame) does not have the observer yet, which also clears the cache</li>
+ * </ul>
+ * The generation costs a driver round trip, so it is checked at most once per 
+ * <code>DEFAULT_GENERATION_CHECK_INTERVAL</code> and only when a cached element would be 
+ * returned - a cache miss does not check it.
+ * Cached elements are wrapped so that a <code>StaleElementReferenceException</code> re-resolves 
+ * the locator and retries the call once.
+ * 
+ * @author mburnside
+ */
+public class WebElementCache {
+    
+    /**
+     * Resolves a locator to a web element (a cache miss or a stale element).
+     */
+    public interface Resolver { WebElement resolve(By by); }
+    
+    /**
+     * Maximum number of cached elements per page
+     */
+    public static final int MAX_SIZE = 256;
+    
+    /**
+     * The default time (ms) the DOM generation is trusted before it is checked again
+     */
+    public static final long DEFAULT_GENERATION_CHECK_INTERVAL = 500;
+    
+    /**
+     * Returns the DOM generation of the current document, installing the mutation observer when needed.
+     * 
+     * The generation is a token unique to the document plus the number of structural changes. 
+     * <code>null</code> is returned when the observer had to be installed (a new document) or is not supported.
+     */
+    protected static final String GENERATION_SCRIPT = 
+            "var w = window;" +
+            "if(w.__automateitDomToken) return w.__automateitDomToken + ':' + w.__automateitDomGeneration;" +
+            "if(typeof MutationObserver === 'undefined' || !document.documentElement) return null;" +
+            "w.__automateitDomToken = String(new Date().getTime()) + String(Math.random()).substring(2);" +
+            "w.__automateitDomGeneration = 0;" +
+            "new MutationObserver(function() { w.__automateitDomGeneration++; }).observe(document.documentElement, { childList: true, subtree: true });" +
+            "return null;";
+    
+    /**
+     *  logging object, logging conf is defined in conf/log4j.properties
+     */
+    protected static Logger logger = Logger.getLogger(WebElementCache.class);
+    
+    /**
+     * The web driver
+     */
+    private final WebDriver driver;
+    
+    /**
+     * Resolves the locators
+     */
+    private final Resolver resolver;
+    
+    /**
+     * The cached elements (least recently used are evicted first)
+     */
+    private final Map<By, CachedWebElement> elements = new LinkedHashMap<By, CachedWebElement>(16, 0.75f, true) {
+        
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<By, CachedWebElement> eldest) { return size() > MAX_SIZE; }
+        
+    };
+    
+    /**
+     * DOM generation the cached elements were resolved at
+     */
+    private String generation = null;
+    
+    /**
+     * The time (nanoseconds) the DOM generation was last checked
+     */
+    private long lastGenerationCheck = 0;
+    
+    /**
+     * The time (nanoseconds) the DOM generation is trusted before it is checked again
+     */
+    private long generationCheckInterval = TimeUnit.MILLISECONDS.toNanos(DEFAULT_GENERATION_CHECK_INTERVAL);
+    
+    /**
+     * Statistics
+     */
+    private long hits = 0;
+    
+    private long misses = 0;
+    
+    private long invalidations = 0;
+    
+    private long staleRetries = 0;
+    
+    /**
+     * Copy Constructor.
+     * 
+     * @param driver
+     * @param resolver 
+     */
+    public WebElementCache(WebDriver driver, Resolver resolver) {
+        
+        this.driver = driver;
+        this.resolver = resolver;
+        
+    }
+    
+    /**
+     * Get the web element for a locator, from the cache if the page has not changed 
+     * or from the resolver.
+     * 
+     * @param by
+     * 
+     * @return 
+     */
+    public synchronized WebElement find(By by) {
+        
+        // only pay for the generation check when it can return a cached element (or install the observer)
+        if(((generation == null) || elements.containsKey(by)) && isGenerationCheckDue()) checkGeneration();
+        
+        CachedWebElement element = (generation == null) ? null : elements.get(by);
+        
+        if(element != null) {
+            
+            hits++;
+            
+            return element;
+            
+        }
+        
+        misses++;
+        
+        element = new CachedWebElement(by, resolver.resolve(by));
+        
+        // the generation is only known once the observer is installed - do not cache before that
+        if(generation != null) elements.put(by, element);
+        
+        return element;
+        
+    }
+    
+    /**
+     * Set the time (ms) the DOM generation is trusted before it is checked again 
+     * (0 checks it on every lookup).
+     * 
+     * @param milliseconds 
+     */
+    public synchronized void setGenerationCheckInterval(long milliseconds) { if(milliseconds >= 0) generationCheckInterval = TimeUnit.MILLISECONDS.toNanos(milliseconds); }
+    
+    /**
+     * Indicates the DOM generation has to be checked again.
+     * 
+     * @return 
+     */
+    private boolean isGenerationCheckDue() { return (lastGenerationCheck == 0) || (System.nanoTime() - lastGenerationCheck >= generationCheckInterval); }
+    
+    /**
+     * Get the DOM generation of the page and clear the cache if it has changed.
+     */
+    private void checkGeneration() {
+        
+        String current = getGeneration(driver);
+        
+        // a new document - the observer was just installed, read its generation
+        if(current == null) current = getGeneration(driver);
+        
+        if((current == null) || !current.equals(generation)) {
+            
+            if(!elements.isEmpty()) invalidate();
+            
+            generation = current;
+            
+        }
+        
+        lastGenerationCheck = System.nanoTime();
+        
+    }
+    
+    /**
+     * Clear all the cached elements.
+     */
+    public synchronized void invalidate() {
+        
+        lastGenerationCheck = 0;
+        
+        if(elements.isEmpty() && (generation == null)) return;
+        
+        logger.debug("Invalidating web element cache: " + this);
+        
+        elements.clear();
+        
+        generation = null;
+        
+        invalidations++;
+        
+    }
+    
+    /**
+     * Get the DOM generation of the current document of a driver (installing the observer when needed).
+     * 
+     * @param driver
+     * 
+     * @return The generation or <code>null</code> if unknown
+     */
+    public static String getGeneration(WebDriver driver) {
+        
+        if(!(driver instanceof JavascriptExecutor)) return null;
+        
+        try { 
+            
+            Object value = ((JavascriptExecutor)driver).executeScript(GENERATION_SCRIPT); 
+        
+            return (value == null) ? null : value.toString();
+            
+        }
+        catch(WebDriverException e) { 
+            
+            logger.debug("Unable to get DOM generation: " + e.getMessage());
+            
+            return null; 
+        
+        }
+        
+    }
+    
+    /**
+     * Re-resolve the locator of a stale element.
+     * 
+     * @param element
+     * 
+     * @return 
+     */
+    private synchronized WebElement refresh(CachedWebElement element) {
+        
+        staleRetries++;
+        
+        logger.debug("Re-resolving stale web element: " + element.by);
+        
+        element.element = resolver.resolve(element.by);
+        
+        return element.element;
+        
+    }
+    
+    /**
+     * Get the number of elements returned from the cache.
+     * 
+     * @return 
+     */
+    public synchronized long getHitCount() { return hits; }
+    
+    /**
+     * Get the number of elements resolved from the driver.
+     * 
+     * @return 
+     */
+    public synchronized long getMissCount() { return misses; }
+    
+    /**
+     * Get the number of times the cache was cleared.
+     * 
+     * @return 
+     */
+    public synchronized long getInvalidationCount() { return invalidations; }
+    
+    /**
+     * Get the number of stale elements that were re-resolved.
+     * 
+     * @return 
+     */
+    public synchronized long getStaleRetryCount() { return staleRetries; }
+    
+    /**
+     * Get the number of cached elements.
+     * 
+     * @return 
+     */
+    public synchronized int size() { return elements.size(); }
+    
+    /**
+     * Return the cache statistics.
+     * 
+     * @return 
+     */
+    @Override
+    public synchronized String toString() { return "WebElementCache[size=" + elements.size() + ", hits=" + hits + ", misses=" + misses + ", invalidations=" + invalidations + ", staleRetries=" + staleRetries + "]"; }
+    
+    /**
+     * A cached web element that re-resolves its locator when it becomes stale.
+     */
+    class CachedWebElement implements WebElement, WrapsElement, WrapsDriver, Locatable {
+        
+        private final By by;
+        
+        private volatile WebElement element;
+        
+        CachedWebElement(By by, WebElement element) {
+            
+            this.by = by;
+            this.element = element;
+            
+        }
+        
+        @Override
+        public WebElement getWrappedElement() { return element; }
+        
+        @Override
+        public WebDriver getWrappedDriver() { return driver; }
+        
+        @Override
+        public Coordinates getCoordinates() { 
+            
+            try { return ((Locatable)element).getCoordinates(); } 
+            catch(StaleElementReferenceException e) { return ((Locatable)refresh(this)).getCoordinates(); }
+        
+        }
+        
+        @Override
+        public void click() { 
+            
+            try { element.click(); } 
+            catch(StaleElementReferenceException e) { refresh(this).click(); }
+        
+        }
+        
+        @Override
+        public void submit() { 
+            
+            try { element.submit(); } 
+            catch(StaleElementReferenceException e) { refresh(this).submit(); }
+        
+        }
+        
+        @Override
+        public void sendKeys(CharSequence... keysToSend) { 
+            
+            try { element.sendKeys(keysToSend); } 
+            catch(StaleElementReferenceException e) { refresh(this).sendKeys(keysToSend); }
+        
+        }
+        
+        @Override
+        public void clear() { 
+            
+            try { element.clear(); } 
+            catch(StaleElementReferenceException e) { refresh(this).clear(); }
+        
+        }
+        
+        @Override
+        public String getTagName() { 
+            
+            try { return element.getTagName(); } 
+            catch(StaleElementReferenceException e) { return refresh(this).getTagName(); }
+        
+        }
+        
+        @Override
+        public String getAttribute(String name) { 
+            
+            try { return element.getAttribute(name); } 
+            catch(StaleElementReferenceException e) { return refresh(this).getAttribute(name); }
+        
+        }
+        
+        @Override
+        public boolean isSelected() { 
+            
+            try { return element.isSelected(); } 
+            catch(StaleElementReferenceException e) { return refresh(this).isSelected(); }
+        
+        }
+        
+        @Override
+        public boolean isEnabled() { 
+            
+            try { return element.isEnabled(); } 
+            catch(StaleElementReferenceException e) { return refresh(this).isEnabled(); }
+        
+        }
+        
+        @Override
+        public String getText() { 
+            
+            try { return element.getText(); } 
+            catch(StaleElementReferenceException e) { return refresh(this).getText(); }
+        
+        }
+        
+        @Override
+        public List<WebElement> findElements(By by) { 
+            
+            try { return element.findElements(by); } 
+            catch(StaleElementReferenceException e) { return refresh(this).findElements(by); }
+        
+        }
+        
+        @Override
+        public WebElement findElement(By by) { 
+            
+            try { return element.findElement(by); } 
+            catch(StaleElementReferenceException e) { return refresh(this).findElement(by); }
+        
+        }
+        
+        @Override
+        public boolean isDisplayed() { 
+            
+            try { return element.isDisplayed(); } 
+            catch(StaleElementReferenceException e) { return refresh(this).isDisplayed(); }
+        
+        }
+        
+        @Override
+        public Point getLocation() { 
+            
+            try { return element.getLocation(); } 
+            catch(StaleElementReferenceException e) { return refresh(this).getLocation(); }
+        
+        }
+        
+        @Override
+        public Dimension getSize() { 
+            
+            try { return element.getSize(); } 
+            catch(StaleElementReferenceException e) { return refresh(this).getSize(); }
+        
+        }
+        
+        @Override
+        public Rectangle getRect() { 
+            
+            try { return element.getRect(); } 
+            catch(StaleElementReferenceException e) { return refresh(this).getRect(); }
+        
+        }
+        
+        @Override
+        public String getCssValue(String propertyName) { 
+            
+            try { return element.getCssValue(propertyName); } 
+            catch(StaleElementReferenceException e) { return refresh(this).getCssValue(propertyName); }
+        
+        }
+        
+        @Override
+        public <X> X getScreenshotAs(OutputType<X> target) { 
+            
+            try { return element.getScreenshotAs(target); } 
+            catch(StaleElementReferenceException e) { return refresh(this).getScreenshotAs(target); }
+        
+        }
+        
+        @Override
+        public boolean equals(Object o) { 
+            
+            if(o instanceof WrapsElement) o = ((WrapsElement)o).getWrappedElement();
+            
+            return element.equals(o); 
+        
+        }
+        
+        @Override
+        public int hashCode() { return element.hashCode(); }
+        
+        @Override
+        public String toString() { return "Cached[" + by + "] " + element; }
+        
+    }
+    
+}
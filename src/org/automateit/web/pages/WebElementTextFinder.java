@@ -0,0 +1,395 @@
+/**
+ * This file is part of Automate It!'s free and open source web and mobile 
+ * application testing framework.
+ * 
+ * Automate It! is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Automate It! is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Automate It!.  If not, see <http://www.gnu.org/licenses/>.
+ *  
+ **/
+
+package org.automateit.web.pages;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+
+/**
+ * This class finds web elements by their text (or an attribute value) with a single 
+ * <code>JavascriptExecutor</code> round trip.
+ * 
+ * Finding all elements for a locator and then calling <code>getText()</code> or 
+ * <code>getAttribute()</code> on each one costs one WebDriver HTTP round trip per element.
+ * The search script collects the candidates, filters them in the browser and returns
+ * only the matching element.
+ * <p>
+ * Like <code>findElements</code> with an implicit wait, the search waits (up to the timeout)
+ * for at least one candidate element to be present. Once candidates are present the
+ * result is final. If the driver cannot execute javascript, the search falls back to
+ * checking each element from the driver.
+ * 
+ * @author mburnside
+ */
+public class WebElementTextFinder {
+    
+    /**
+     * The type of locator used to collect the candidate elements
+     */
+    public enum LocatorType {
+        
+        CSS_SELECTOR, XPATH, CLASS_NAME;
+        
+        /**
+         * Get the <code>By</code> for a locator of this type.
+         * 
+         * @param locator
+         * 
+         * @return 
+         */
+        public By toBy(String locator) {
+            
+            switch(this) {
+                
+                case XPATH: return By.xpath(locator);
+                
+                case CLASS_NAME: return By.className(locator);
+                
+                default: return By.cssSelector(locator);
+                
+            }
+            
+        }
+        
+    }
+    
+    /**
+     * How the element text is compared with the expected text
+     */
+    public enum TextMatch { CONTAINS, EQUALS, STARTS_WITH }
+    
+    /**
+     * Time (ms) between searches while waiting for candidates to be present
+     */
+    public static final long POLLING_INTERVAL = 250;
+    
+    /**
+     * The search script.
+     * 
+     * arguments: locator type, locator, attribute (null for text), text match, ignore case, texts, return all values
+     */
+    protected static final String SEARCH_SCRIPT = 
+            "var type = arguments[0], locator = arguments[1], attribute = arguments[2], match = arguments[3], ignoreCase = arguments[4], texts = arguments[5], all = arguments[6];" +
+            "var candidates = [];" +
+            "if(type === 'XPATH') {" +
+            "  var snapshot = document.evaluate(locator, document, null, 7, null);" +
+            "  for(var i = 0; i < snapshot.snapshotLength; i++) candidates.push(snapshot.snapshotItem(i));" +
+            "}" +
+            "else if(type === 'CLASS_NAME') candidates = document.getElementsByClassName(locator);" +
+            "else candidates = document.querySelectorAll(locator);" +
+            "var trim = function(s) { return String(s).replace(/^\\s+|\\s+$/g, ''); };" +
+            "var values = [], index = 0;" +
+            "for(var i = 0; i < candidates.length; i++) {" +
+            "  var element = candidates[i], value = null;" +
+            "  if(attribute === null) value = (element.innerText !== undefined) ? element.innerText : element.textContent;" +
+            "  else if(attribute === 'value' && element.value !== undefined) value = element.value;" +
+            "  else if(element.getAttribute) value = element.getAttribute(attribute);" +
+            "  if(all) { values.push(value); continue; }" +
+            "  if(value === null || value === undefined) continue;" +
+            "  value = trim(value);" +
+            "  if(value.length === 0) continue;" +
+            "  index++;" +
+            "  if(ignoreCase) value = value.toLowerCase();" +
+            "  var matched = true;" +
+            "  for(var j = 0; j < texts.length && matched; j++) {" +
+            "    var text = ignoreCase ? String(texts[j]).toLowerCase() : String(texts[j]);" +
+            "    if(match === 'EQUALS') matched = (value === trim(text));" +
+            "    else if(match === 'STARTS_WITH') matched = (value.indexOf(text) === 0);" +
+            "    else matched = (value.indexOf(text) !== -1);" +
+            "  }" +
+            "  if(matched) return { count: candidates.length, index: index, element: element };" +
+            "}" +
+            "return { count: candidates.length, index: -1, element: null, values: values };";
+    
+    /**
+     *  logging object, logging conf is defined in conf/log4j.properties
+     */
+    protected static Logger logger = Logger.getLogger(WebElementTextFinder.class);
+    
+    /**
+     * Web Driver object
+     */
+    private WebDriver driver = null;
+    
+    /**
+     * Time (seconds) to wait for candidate elements to be present
+     */
+    private long timeoutInSeconds = 0;
+    
+    /**
+     * Compare text ignoring case. Default is <code>false</code>.
+     */
+    private boolean ignoreCase = false;
+    
+    /**
+     * Copy Constructor
+     * 
+     * @param driver
+     * @param timeoutInSeconds the time to wait for candidate elements to be present
+     */
+    public WebElementTextFinder(WebDriver driver, long timeoutInSeconds) { 
+        
+        this.driver = driver; 
+        this.timeoutInSeconds = timeoutInSeconds;
+    
+    }
+    
+    /**
+     * Set to compare text ignoring case.
+     * 
+     * @param ignoreCase 
+     */
+    public void setIgnoreCase(boolean ignoreCase) { this.ignoreCase = ignoreCase; }
+    
+    /**
+     * Find the first element where the text (or attribute value) matches all of the texts.
+     * 
+     * Element values are trimmed and blank values are ignored.
+     * 
+     * @param locatorType
+     * @param locator
+     * @param attribute the attribute to match, or <code>null</code> to match the element text
+     * @param textMatch
+     * @param texts
+     * 
+     * @return The match (the element is <code>null</code> if nothing matched)
+     */
+    public Match find(LocatorType locatorType, String locator, String attribute, TextMatch textMatch, String... texts) {
+        
+        logger.debug("Searching for web element with text: " + locatorType + "|" + locator + "|" + attribute + "|" + textMatch + "|" + Arrays.toString(texts));
+        
+        if(driver instanceof JavascriptExecutor) {
+            
+            try { 
+                
+                Map<String, Object> result = execute(locatorType, locator, attribute, textMatch, texts, false);
+                
+                return new Match((WebElement)result.get("element"), toInt(result.get("index")), toInt(result.get("count")));
+            
+            }
+            catch(WebDriverException e) { logger.debug("Unable to search with javascript, checking each element instead: " + e.getMessage()); }
+            
+        }
+        
+        return findByElement(locatorType, locator, attribute, textMatch, texts);
+        
+    }
+    
+    /**
+     * Get the text (or attribute value) of all elements matching the locator.
+     * 
+     * @param locatorType
+     * @param locator
+     * @param attribute the attribute to get, or <code>null</code> to get the element text
+     * 
+     * @return 
+     */
+    public List<String> getValues(LocatorType locatorType, String locator, String attribute) {
+        
+        List<String> values = new ArrayList<String>();
+        
+        if(driver instanceof JavascriptExecutor) {
+            
+            try { 
+                
+                Map<String, Object> result = execute(locatorType, locator, attribute, TextMatch.CONTAINS, new String[0], true);
+                
+                for(Object value : (List<?>)result.get("values")) values.add((value == null) ? null : String.valueOf(value));
+                
+                return values;
+            
+            }
+            catch(WebDriverException e) { logger.debug("Unable to search with javascript, checking each element instead: " + e.getMessage()); }
+            
+        }
+        
+        for(WebElement element : driver.findElements(locatorType.toBy(locator))) values.add(getValue(element, attribute));
+        
+        return values;
+        
+    }
+    
+    /**
+     * Run the search script, polling until candidate elements are present or the timeout expires.
+     * 
+     * @return 
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> execute(LocatorType locatorType, String locator, String attribute, TextMatch textMatch, String[] texts, boolean all) {
+        
+        long deadline = System.currentTimeMillis() + (timeoutInSeconds * 1000);
+        
+        while(true) {
+            
+            Map<String, Object> result = (Map<String, Object>)((JavascriptExecutor)driver).executeScript(SEARCH_SCRIPT, locatorType.name(), locator, attribute, textMatch.name(), ignoreCase, Arrays.asList(texts), all);
+            
+            if((toInt(result.get("count")) > 0) || (System.currentTimeMillis() >= deadline)) return result;
+            
+            try { Thread.sleep(POLLING_INTERVAL); }
+            catch(InterruptedException e) { Thread.currentThread().interrupt(); return result; }
+            
+        }
+        
+    }
+    
+    /**
+     * Search by checking each element from the driver (one round trip per element).
+     * 
+     * @return 
+     */
+    private Match findByElement(LocatorType locatorType, String locator, String attribute, TextMatch textMatch, String[] texts) {
+        
+        List<WebElement> elements = driver.findElements(locatorType.toBy(locator));
+        
+        int index = 0;
+        
+        for(WebElement element : elements) {
+            
+            String value = getValue(element, attribute);
+            
+            if((value == null) || (value.trim().length() == 0)) continue; // blank, so ignore
+            
+            index++;
+            
+            if(matches(value.trim(), textMatch, texts)) return new Match(element, index, elements.size());
+            
+        }
+        
+        return new Match(null, -1, elements.size());
+        
+    }
+    
+    /**
+     * Get the text or attribute value of an element.
+     * 
+     * @param element
+     * @param attribute
+     * 
+     * @return 
+     */
+    private String getValue(WebElement element, String attribute) {
+        
+        if(attribute == null) return element.getText();
+        else return element.getAttribute(attribute);
+        
+    }
+    
+    /**
+     * Compare a (trimmed) value with all of the texts.
+     * 
+     * @param value
+     * @param textMatch
+     * @param texts
+     * 
+     * @return 
+     */
+    protected boolean matches(String value, TextMatch textMatch, String[] texts) {
+        
+        if(ignoreCase) value = value.toLowerCase();
+        
+        for(String text : texts) {
+            
+            if(ignoreCase) text = text.toLowerCase();
+            
+            switch(textMatch) {
+                
+                case EQUALS: if(!value.equals(text.trim())) return false; break;
+                    
+                case STARTS_WITH: if(!value.startsWith(text)) return false; break;
+                    
+                default: if(!value.contains(text)) return false;
+                
+            }
+            
+        }
+        
+        return true;
+        
+    }
+    
+    /**
+     * Convert a number returned by the script.
+     * 
+     * @param value
+     * 
+     * @return 
+     */
+    private int toInt(Object value) { return (value == null) ? 0 : ((Number)value).intValue(); }
+    
+    /**
+     * The result of a search.
+     */
+    public static class Match {
+        
+        private final WebElement element;
+        
+        private final int index;
+        
+        private final int candidateCount;
+        
+        Match(WebElement element, int index, int candidateCount) {
+            
+            this.element = element;
+            this.index = index;
+            this.candidateCount = candidateCount;
+            
+        }
+        
+        /**
+         * Get the matching element.
+         * 
+         * @return The element or <code>null</code> if nothing matched
+         */
+        public WebElement getElement() { return element; }
+        
+        /**
+         * Get the (1-based) position of the match among the non-blank candidates.
+         * 
+         * @return The index or -1 if nothing matched
+         */
+        public int getIndex() { return index; }
+        
+        /**
+         * Get the number of candidate elements matching the locator.
+         * 
+         * @return 
+         */
+        public int getCandidateCount() { return candidateCount; }
+        
+        /**
+         * Indicates an element matched.
+         * 
+         * @return 
+         */
+        public boolean isFound() { return (element != null); }
+        
+    }
+    
+}